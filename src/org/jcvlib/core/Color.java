@@ -159,9 +159,32 @@ public class Color {
         /*
          * Verify parameters.
          */
-        if (this.getNumOfChannels() != c.getNumOfChannels()) {
-            throw new IllegalArgumentException("Given color must have same number of channels (= " + Integer.toString(c.getNumOfChannels())
-                + ") " + "as currect color (= " + Integer.toString(this.getNumOfChannels()) + ")!");
+        JCV.verifyIsNotNull(c, "c");
+
+        /*
+         * Perform operation.
+         */
+        return Color.euclidDist(this.color, c.color);
+    }
+
+    /**
+     * Return normalized Euclidean distance between 2 colors, which values are given as arrays. Same as
+     * {@link Color#euclidDist(Color)}, but does not need to create {@link Color} objects.
+     *
+     * @param color1
+     *            Values of channels of first color.
+     * @param color2
+     *            Values of channels of second color. Should have same number of channels as first color.
+     */
+    public static double euclidDist(final double[] color1, final double[] color2) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(color1, "color1");
+        JCV.verifyIsNotNull(color2, "color2");
+        if (color1.length != color2.length) {
+            throw new IllegalArgumentException("Given color must have same number of channels (= " + Integer.toString(color2.length)
+                + ") " + "as currect color (= " + Integer.toString(color1.length) + ")!");
         }
 
         /*
@@ -169,12 +192,12 @@ public class Color {
          */
         // Calculate sum of squares.
         double result = 0.0;
-        for (int channel = 0; channel < this.getNumOfChannels(); ++channel) {
-            double dist = this.get(channel) - c.get(channel);
+        for (int channel = 0; channel < color1.length; ++channel) {
+            double dist = color1[channel] - color2[channel];
             result += dist * dist;
         }
 
-        return Math.sqrt(result) / Math.sqrt(this.getNumOfChannels());
+        return Math.sqrt(result) / Math.sqrt(color1.length);
     }
 
     /**
@@ -18,8 +18,15 @@
  */
 package org.jcvlib.core;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jcvlib.parallel.NamedReduceLoop;
+import org.jcvlib.parallel.NamedRowLoopFactory;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.RowLoop;
 
 import Jama.Matrix;
 
@@ -27,16 +34,41 @@ import Jama.Matrix;
  * Main class for all images that used into the JcvLib.
  *
  * <P>
- * This image can have 2 types of content:
+ * This image can have 3 types of content:
  * <UL>
  * <LI>{@link Image#TYPE_8I} -- Integer values, that uses 8-bit for save values from interval <CODE>0..255</CODE>.</LI>
+ * <LI>{@link Image#TYPE_32F} -- Float-point values, that uses 32-bit for save values from interval <CODE>[0.0, 255.0]</CODE>.</LI>
  * <LI>{@link Image#TYPE_64F} -- Float-point values, that uses 64-bit for save values from interval <CODE>[0.0, 255.0]</CODE>.</LI>
  * </UL>
  * </P>
  *
+ * <P>
+ * Values of pixels can be saved into source array in 2 orders:
+ * <UL>
+ * <LI>{@link Image#LAYOUT_ROW_MAJOR} -- Values of one row are neighbors into memory (default).</LI>
+ * <LI>{@link Image#LAYOUT_COLUMN_MAJOR} -- Values of one column are neighbors into memory.</LI>
+ * </UL>
+ * </P>
+ *
+ * <P>
+ * Values of image can be saved into Java heap (by default) or out of heap into direct memory (see
+ * {@link Image#allocateDirect(int, int, int, int)}). Direct memory should be released by {@link Image#close()}, for example:
+ * <CODE><PRE>
+ * try (Image image = Image.allocateDirect(width, height, 3, Image.TYPE_8I)) {
+ *     // Process image.
+ * }
+ * </PRE></CODE>
+ * </P>
+ *
+ * <P>
+ * Images with more than {@link ImageArray#MAX_ARRAY_SIZE} values are saved into several Java arrays automatically (see
+ * {@link ImageArrayChunked}). Images that are bigger than Java heap can be saved into memory-mapped file (see
+ * {@link Image#mapFile(File, int, int, int, int)}) and processed tile by tile using {@link Image#getSubimage(Rectangle)}.
+ * </P>
+ *
  * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
  */
-public class Image {
+public class Image implements AutoCloseable {
     /**
      * This image type uses integer values from interval <CODE>0..255</CODE> for saving image pixels and uses 8-bit for each value.
      */
@@ -48,6 +80,33 @@ public class Image {
      */
     public static final int TYPE_64F = 1;
 
+    /**
+     * This image type uses float-point values from interval <CODE>[0.0, 255.0]</CODE> for saving image pixels and uses 32-bit for each
+     * value.
+     *
+     * <P>
+     * It needs half of memory of {@link Image#TYPE_64F} and it precision is enough for most of intermediate results (blur, gradients
+     * etc.). See {@link JCV#PRECISION_32F}.
+     * </P>
+     */
+    public static final int TYPE_32F = 2;
+
+    /**
+     * Values of source array saved row by row: <CODE>(x, y, channel)</CODE> have position
+     * <CODE>numOfChannels * width * y + numOfChannels * x + channel</CODE>. Pixels of one row are neighbors into memory.
+     *
+     * <P>
+     * This layout is used by default.
+     * </P>
+     */
+    public static final int LAYOUT_ROW_MAJOR = 0;
+
+    /**
+     * Values of source array saved column by column: <CODE>(x, y, channel)</CODE> have position
+     * <CODE>numOfChannels * height * x + numOfChannels * y + channel</CODE>. Pixels of one column are neighbors into memory.
+     */
+    public static final int LAYOUT_COLUMN_MAJOR = 1;
+
     /**
      * Extrapolation type (image boundaries are denoted with '<CODE>|</CODE>'): <CODE>00000|abcdefgh|00000</CODE>.
      */
@@ -146,6 +205,27 @@ public class Image {
         this.sizeLayer = sizeLayer;
     }
 
+    /**
+     * Create new image based on whole given source. It is <STRONG>NOT COPY</STRONG> of source.
+     *
+     * <P>
+     * Allows to use custom implementations of {@link ImageArray} as a source of image.
+     * </P>
+     */
+    public Image(final ImageArray source) {
+        this(Image.verifySource(source).getType(), source, new Rectangle(new Point(0, 0), source.getSize()), 0, source
+            .getNumOfChannels());
+    }
+
+    /**
+     * Verify given source and return it.
+     */
+    private static ImageArray verifySource(final ImageArray source) {
+        JCV.verifyIsNotNull(source, "source");
+
+        return source;
+    }
+
     /**
      * Create new empty image.
      *
@@ -159,17 +239,44 @@ public class Image {
      *            Type of image. You should use 'Image.TYPE_*' as a parameter!
      */
     public Image(final int width, final int height, final int numOfChannels, final int type) {
-        switch (type) {
-            case Image.TYPE_8I:
-                this.source = new ImageArray8I(width, height, numOfChannels);
-                break;
+        this(width, height, numOfChannels, type, Image.LAYOUT_ROW_MAJOR);
+    }
 
-            case Image.TYPE_64F:
-                this.source = new ImageArray64F(width, height, numOfChannels);
-                break;
+    /**
+     * Create new empty image with given layout of values into memory.
+     *
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     * @param layout
+     *            Order of values into memory. You should use 'Image.LAYOUT_*' as a parameter!
+     */
+    public Image(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        if ((long) width * height * numOfChannels > ImageArray.MAX_ARRAY_SIZE) {
+            // Too big for one Java array.
+            this.source = new ImageArrayChunked(width, height, numOfChannels, type, layout);
+        } else {
+            switch (type) {
+                case Image.TYPE_8I:
+                    this.source = new ImageArray8I(width, height, numOfChannels, layout);
+                    break;
 
-            default:
-                throw new IllegalArgumentException("Value of 'type' is unknown! Use 'Image.TYPE_*' as a parameter!");
+                case Image.TYPE_32F:
+                    this.source = new ImageArray32F(width, height, numOfChannels, layout);
+                    break;
+
+                case Image.TYPE_64F:
+                    this.source = new ImageArray64F(width, height, numOfChannels, layout);
+                    break;
+
+                default:
+                    throw new IllegalArgumentException("Value of 'type' is unknown! Use 'Image.TYPE_*' as a parameter!");
+            }
         }
         this.sourceType = type;
 
@@ -208,14 +315,307 @@ public class Image {
         /*
          * Set values.
          */
-        Parallel.pixels(this, new PixelsLoop() {
-            @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < getNumOfChannels(); ++channel) {
-                    set(x, y, channel, initColor.get(channel));
-                }
-            }
-        });
+        this.fill(initColor);
+    }
+
+    /**
+     * Create new empty image into direct memory (out of Java heap) with row-major layout.
+     *
+     * <P>
+     * Memory of this image is not controlled by garbage collector and can be released immediately by {@link Image#close()}. Results of
+     * operations (for example, filters) with this image are created into Java heap.
+     * </P>
+     *
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     */
+    public static Image allocateDirect(final int width, final int height, final int numOfChannels, final int type) {
+        return Image.allocateDirect(width, height, numOfChannels, type, Image.LAYOUT_ROW_MAJOR);
+    }
+
+    /**
+     * Create new empty image into direct memory (out of Java heap) with given layout. See
+     * {@link Image#allocateDirect(int, int, int, int)}.
+     *
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     * @param layout
+     *            Order of values into memory. You should use 'Image.LAYOUT_*' as a parameter!
+     */
+    public static Image allocateDirect(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        return new Image(new ImageArrayDirect(width, height, numOfChannels, type, layout));
+    }
+
+    /**
+     * Create new image that uses given buffer as a source. It is <STRONG>NOT COPY</STRONG> of buffer: changes of image will be visible into
+     * buffer and vice versa. It allows decoders to fill image values without additional copying.
+     *
+     * <P>
+     * Values are read starting from current position of buffer using it byte order. Buffer is owned by caller and will be
+     * <STRONG>NOT</STRONG> released by {@link Image#close()}.
+     * </P>
+     *
+     * @param buffer
+     *            Buffer with values. Should have at least <CODE>width * height * numOfChannels</CODE> values of given type.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of values into buffer. You should use 'Image.TYPE_*' as a parameter!
+     * @param layout
+     *            Order of values into buffer. You should use 'Image.LAYOUT_*' as a parameter!
+     */
+    public static Image wrap(final ByteBuffer buffer, final int width, final int height, final int numOfChannels, final int type,
+        final int layout) {
+        return new Image(new ImageArrayDirect(buffer, width, height, numOfChannels, type, layout));
+    }
+
+    /**
+     * Create image based on given array of byte values. It is <STRONG>NOT COPY</STRONG> of given array: values are not copied, all
+     * changes of image are visible into array and vice versa. See {@link ImageArray8I}.
+     *
+     * @param values
+     *            Array with values in order of given layout. Should have at least <CODE>width * height * numOfChannels</CODE> values.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param layout
+     *            Order of values into array. You should use 'Image.LAYOUT_*' as a parameter!
+     * @return
+     *         Image with type {@link Image#TYPE_8I}.
+     */
+    public static Image wrap(final byte[] values, final int width, final int height, final int numOfChannels, final int layout) {
+        return new Image(new ImageArray8I(values, width, height, numOfChannels, layout));
+    }
+
+    /**
+     * Create image based on given array of float values. It is <STRONG>NOT COPY</STRONG> of given array: values are not copied, all
+     * changes of image are visible into array and vice versa. See {@link ImageArray32F}.
+     *
+     * @param values
+     *            Array with values in order of given layout. Should have at least <CODE>width * height * numOfChannels</CODE> values.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param layout
+     *            Order of values into array. You should use 'Image.LAYOUT_*' as a parameter!
+     * @return
+     *         Image with type {@link Image#TYPE_32F}.
+     */
+    public static Image wrap(final float[] values, final int width, final int height, final int numOfChannels, final int layout) {
+        return new Image(new ImageArray32F(values, width, height, numOfChannels, layout));
+    }
+
+    /**
+     * Create image based on given array of double values. It is <STRONG>NOT COPY</STRONG> of given array: values are not copied, all
+     * changes of image are visible into array and vice versa. See {@link ImageArray64F}.
+     *
+     * @param values
+     *            Array with values in order of given layout. Should have at least <CODE>width * height * numOfChannels</CODE> values.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param layout
+     *            Order of values into array. You should use 'Image.LAYOUT_*' as a parameter!
+     * @return
+     *         Image with type {@link Image#TYPE_64F}.
+     */
+    public static Image wrap(final double[] values, final int width, final int height, final int numOfChannels, final int layout) {
+        return new Image(new ImageArray64F(values, width, height, numOfChannels, layout));
+    }
+
+    /**
+     * Create image with row-major layout, which values are saved into given memory-mapped file. See {@link ImageArrayMapped}.
+     *
+     * <P>
+     * Memory of this image is not limited by Java heap, paging of values is done by operating system. Use
+     * {@link Image#getSubimage(Rectangle)} to process this image tile by tile -- results of operations are created into Java heap. Use
+     * {@link Image#close()} to unmap file.
+     * </P>
+     *
+     * @param file
+     *            File with values of image. Will be created if it is not exists. If it is exists, values of image will be read from it.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     */
+    public static Image mapFile(final File file, final int width, final int height, final int numOfChannels, final int type)
+        throws IOException {
+        return Image.mapFile(file, width, height, numOfChannels, type, Image.LAYOUT_ROW_MAJOR);
+    }
+
+    /**
+     * Create image with given layout, which values are saved into given memory-mapped file. See
+     * {@link Image#mapFile(File, int, int, int, int)}.
+     *
+     * @param file
+     *            File with values of image. Will be created if it is not exists. If it is exists, values of image will be read from it.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     * @param layout
+     *            Order of values into file. You should use 'Image.LAYOUT_*' as a parameter!
+     */
+    public static Image mapFile(final File file, final int width, final int height, final int numOfChannels, final int type,
+        final int layout) throws IOException {
+        return new Image(new ImageArrayMapped(file, width, height, numOfChannels, type, layout));
+    }
+
+    /**
+     * Create image with row-major layout, which values are saved into given memory-mapped file. See
+     * {@link Image#mapFile(File, int, int, int, int)}.
+     *
+     * @param fileName
+     *            Path to file with values of image.
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in current image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     */
+    public static Image mapFile(final String fileName, final int width, final int height, final int numOfChannels, final int type)
+        throws IOException {
+        JCV.verifyIsNotNull(fileName, "fileName");
+
+        return Image.mapFile(new File(fileName), width, height, numOfChannels, type);
+    }
+
+    /**
+     * Return buffer with all values of source of current image. It is <STRONG>NOT COPY</STRONG> of image: encoders can read values
+     * directly from this buffer.
+     *
+     * <P>
+     * Only images created by {@link Image#allocateDirect(int, int, int, int)} or
+     * {@link Image#wrap(ByteBuffer, int, int, int, int, int)} have buffers.
+     * </P>
+     *
+     * <P>
+     * <STRONG>Returned buffer shares memory with image, so it can not be used after {@link Image#close()}!</STRONG>
+     * </P>
+     */
+    public ByteBuffer unwrapBuffer() {
+        if (!(this.source instanceof ImageArrayDirect)) {
+            throw new IllegalArgumentException("Current image is not saved into direct memory! "
+                + "Use 'Image.allocateDirect(...)' or 'Image.wrap(...)' to create it.");
+        }
+
+        return ((ImageArrayDirect) this.source).getBuffer();
+    }
+
+    /**
+     * Return array with all values of source of current image. It is <STRONG>NOT COPY</STRONG> of image: values can be read and changed
+     * directly into this array. Order of values is defined by {@link Image#getLayout()}.
+     *
+     * <P>
+     * Only images with type {@link Image#TYPE_8I} created into Java heap (for example, by constructor or by
+     * {@link Image#wrap(byte[], int, int, int, int)}) have this array.
+     * </P>
+     */
+    public byte[] unwrap8I() {
+        if (!(this.source instanceof ImageArray8I)) {
+            throw new IllegalArgumentException("Current image is not saved into Java array with type 'byte'! "
+                + "Use 'Image.wrap(byte[], ...)' or 'new Image(..., Image.TYPE_8I)' to create it.");
+        }
+
+        return ((ImageArray8I) this.source).getSource();
+    }
+
+    /**
+     * Return array with all values of source of current image. It is <STRONG>NOT COPY</STRONG> of image: values can be read and changed
+     * directly into this array. Order of values is defined by {@link Image#getLayout()}.
+     *
+     * <P>
+     * Only images with type {@link Image#TYPE_32F} created into Java heap (for example, by constructor or by
+     * {@link Image#wrap(float[], int, int, int, int)}) have this array.
+     * </P>
+     */
+    public float[] unwrap32F() {
+        if (!(this.source instanceof ImageArray32F)) {
+            throw new IllegalArgumentException("Current image is not saved into Java array with type 'float'! "
+                + "Use 'Image.wrap(float[], ...)' or 'new Image(..., Image.TYPE_32F)' to create it.");
+        }
+
+        return ((ImageArray32F) this.source).getSource();
+    }
+
+    /**
+     * Return array with all values of source of current image. It is <STRONG>NOT COPY</STRONG> of image: values can be read and changed
+     * directly into this array. Order of values is defined by {@link Image#getLayout()}.
+     *
+     * <P>
+     * Only images with type {@link Image#TYPE_64F} created into Java heap (for example, by constructor or by
+     * {@link Image#wrap(double[], int, int, int, int)}) have this array.
+     * </P>
+     */
+    public double[] unwrap64F() {
+        if (!(this.source instanceof ImageArray64F)) {
+            throw new IllegalArgumentException("Current image is not saved into Java array with type 'double'! "
+                + "Use 'Image.wrap(double[], ...)' or 'new Image(..., Image.TYPE_64F)' to create it.");
+        }
+
+        return ((ImageArray64F) this.source).getSource();
+    }
+
+    /**
+     * Release resources of source of current image. For images in direct memory memory will be released immediately, images in Java heap
+     * will be released by garbage collector.
+     *
+     * <P>
+     * Sub-images, layers and channels do not own source, so for them this method does nothing.
+     * </P>
+     *
+     * <P>
+     * <STRONG>All sub-images, layers and channels that share source with current image and buffers from {@link Image#unwrapBuffer()} can
+     * not be used after it!</STRONG> Methods of closed image in direct memory throw {@link IllegalStateException}. Memory is released
+     * after parallel loops that are running at this moment finish, so workers of them never use released memory.
+     * </P>
+     */
+    /*
+     * (non-Javadoc)
+     * @see java.lang.AutoCloseable#close()
+     */
+    @Override
+    public void close() {
+        if (this.isWhole()) {
+            this.source.release();
+        }
     }
 
     /**
@@ -253,6 +653,13 @@ public class Image {
         return this.sourceType;
     }
 
+    /**
+     * Return layout of values into source of current image. See {@link Image#LAYOUT_ROW_MAJOR} and {@link Image#LAYOUT_COLUMN_MAJOR}.
+     */
+    public int getLayout() {
+        return this.source.getLayout();
+    }
+
     /**
      * Verify given point.
      */
@@ -387,6 +794,197 @@ public class Image {
         }
     }
 
+    /**
+     * Copy values of all channels of selected pixel into given array. Same as {@link Image#get(Point)}, but does not create new objects.
+     *
+     * @param dst
+     *            Array for values. Should have at least {@link Image#getNumOfChannels()} values.
+     */
+    public void get(final int x, final int y, final double[] dst) {
+        this.getSpan(x, y, 1, dst, 0);
+    }
+
+    /**
+     * Set values of all channels of selected pixel from given array. Same as {@link Image#set(Point, Color)}, but does not need
+     * {@link Point} and {@link Color} objects.
+     *
+     * @param src
+     *            Array with values. Should have at least {@link Image#getNumOfChannels()} values.
+     */
+    public void set(final int x, final int y, final double[] src) {
+        this.setSpan(x, y, 1, src, 0);
+    }
+
+    /**
+     * Set color to selected pixel. Same as {@link Image#set(Point, Color)}, but does not need {@link Point} object.
+     */
+    public void set(final int x, final int y, final Color color) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(color, "color");
+
+        /*
+         * Set value.
+         */
+        for (int channel = 0; channel < this.getNumOfChannels(); ++channel) {
+            this.set(x, y, channel, color.get(channel));
+        }
+    }
+
+    /**
+     * Verify span of pixels from one row and array for values of it.
+     */
+    private void verifySpan(final int x, final int y, final int length, final int arrayLength, final int offset) {
+        this.verifyPoint(x, y, 0);
+
+        if (length < 0 || x + length > this.getWidth()) {
+            throw new IllegalArgumentException("Value of 'length' (= " + Integer.toString(length) + ") " + "must in interval 0.."
+                + Integer.toString(this.getWidth() - x) + "!");
+        }
+
+        final long n = (long) length * this.getNumOfChannels();
+        if (offset < 0 || offset + n > arrayLength) {
+            throw new IllegalArgumentException("Array with size " + Integer.toString(arrayLength) + " can not contain "
+                + Long.toString(n) + " values starting from 'offset' (= " + Integer.toString(offset) + ")!");
+        }
+    }
+
+    /**
+     * Copy float-point values of <CODE>length</CODE> pixels from row <CODE>y</CODE> starting from pixel <CODE>x</CODE> into given array.
+     *
+     * <P>
+     * Values of all channels are saved into <CODE>dst</CODE> starting from <CODE>offset</CODE> in order:
+     * <CODE>(x, 0), (x, 1), ..., (x + 1, 0), ...</CODE>. So <CODE>dst</CODE> should contain at least
+     * <CODE>offset + length * getNumOfChannels()</CODE> values. If values of image lie into memory without gaps, they will be copied by
+     * one call of {@link System#arraycopy(Object, int, Object, int, int)}.
+     * </P>
+     */
+    public void getSpan(final int x, final int y, final int length, final double[] dst, final int offset) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(dst, "dst");
+        this.verifySpan(x, y, length, dst.length, offset);
+
+        /*
+         * Copy values.
+         */
+        this.source.getSpanUnsafe(this.currentImage.getX() + x, this.currentImage.getY() + y, length, this.startChannel,
+            this.sizeLayer, dst, offset);
+    }
+
+    /**
+     * Copy float-point values of <CODE>length</CODE> pixels from given array into row <CODE>y</CODE> starting from pixel <CODE>x</CODE>.
+     * See {@link #getSpan(int, int, int, double[], int)}.
+     *
+     * <P>
+     * Values out of interval <CODE>[{@link Color#COLOR_MIN_VALUE}, {@link Color#COLOR_MAX_VALUE}]</CODE> will be cut as in
+     * {@link #set(int, int, int, double)}. Given array is not changed.
+     * </P>
+     */
+    public void setSpan(final int x, final int y, final int length, final double[] src, final int offset) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(src, "src");
+        this.verifySpan(x, y, length, src.length, offset);
+
+        /*
+         * Cut values. Array will be copied only if it contains values out of interval.
+         */
+        final int n = length * this.getNumOfChannels();
+        double[] values = src;
+        int start = offset;
+        for (int i = 0; i < n; ++i) {
+            final double value = src[offset + i];
+
+            if (Double.isNaN(value)) {
+                throw new IllegalArgumentException("Value of color should not be a NaN!");
+            }
+            if (value < Color.COLOR_MIN_VALUE || value > Color.COLOR_MAX_VALUE) {
+                if (values == src) {
+                    values = Arrays.copyOfRange(src, offset, offset + n);
+                    start = 0;
+                }
+                values[i] = Math.min(Math.max(value, Color.COLOR_MIN_VALUE), Color.COLOR_MAX_VALUE);
+            }
+        }
+
+        /*
+         * Copy values.
+         */
+        this.source.setSpanUnsafe(this.currentImage.getX() + x, this.currentImage.getY() + y, length, this.startChannel,
+            this.sizeLayer, values, start);
+    }
+
+    /**
+     * Copy integer values of <CODE>length</CODE> pixels from row <CODE>y</CODE> starting from pixel <CODE>x</CODE> into given array.
+     * Values <CODE>0..255</CODE> are saved as unsigned bytes (use <CODE>dst[i] &amp; 0xFF</CODE> to read them). See
+     * {@link #getSpan(int, int, int, double[], int)}.
+     */
+    public void getSpan(final int x, final int y, final int length, final byte[] dst, final int offset) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(dst, "dst");
+        this.verifySpan(x, y, length, dst.length, offset);
+
+        /*
+         * Copy values.
+         */
+        this.source.getSpan8IUnsafe(this.currentImage.getX() + x, this.currentImage.getY() + y, length, this.startChannel,
+            this.sizeLayer, dst, offset);
+    }
+
+    /**
+     * Copy integer values of <CODE>length</CODE> pixels from given array of unsigned bytes into row <CODE>y</CODE> starting from pixel
+     * <CODE>x</CODE>. See {@link #getSpan(int, int, int, double[], int)}.
+     */
+    public void setSpan(final int x, final int y, final int length, final byte[] src, final int offset) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(src, "src");
+        this.verifySpan(x, y, length, src.length, offset);
+
+        /*
+         * Copy values.
+         */
+        this.source.setSpan8IUnsafe(this.currentImage.getX() + x, this.currentImage.getY() + y, length, this.startChannel,
+            this.sizeLayer, src, offset);
+    }
+
+    /**
+     * Copy float-point values of whole row <CODE>y</CODE> into given array. See {@link #getSpan(int, int, int, double[], int)}.
+     */
+    public void getRow(final int y, final double[] dst, final int offset) {
+        this.getSpan(0, y, this.getWidth(), dst, offset);
+    }
+
+    /**
+     * Copy float-point values from given array into whole row <CODE>y</CODE>. See {@link #setSpan(int, int, int, double[], int)}.
+     */
+    public void setRow(final int y, final double[] src, final int offset) {
+        this.setSpan(0, y, this.getWidth(), src, offset);
+    }
+
+    /**
+     * Copy integer values of whole row <CODE>y</CODE> into given array of unsigned bytes. See
+     * {@link #getSpan(int, int, int, byte[], int)}.
+     */
+    public void getRow(final int y, final byte[] dst, final int offset) {
+        this.getSpan(0, y, this.getWidth(), dst, offset);
+    }
+
+    /**
+     * Copy integer values from given array of unsigned bytes into whole row <CODE>y</CODE>. See
+     * {@link #setSpan(int, int, int, byte[], int)}.
+     */
+    public void setRow(final int y, final byte[] src, final int offset) {
+        this.setSpan(0, y, this.getWidth(), src, offset);
+    }
+
     /**
      * Translate coordinates to release extrapolation on image borders.
      *
@@ -590,18 +1188,74 @@ public class Image {
     }
 
     /**
-     * Create <STRONG>empty</STRONG> image with size, number of channels and source type as in given image.
+     * Create <STRONG>empty</STRONG> image with size, number of channels, source type and layout as in given image.
      *
      * <P>
      * <STRONG>Values from given image will be not copied!</STRONG>
      * </P>
      */
     public Image getSame() {
-        return new Image(this.getWidth(), this.getHeight(), this.getNumOfChannels(), this.getType());
+        return ImagePool.create(this.getWidth(), this.getHeight(), this.getNumOfChannels(), this.getType(), this.getLayout());
+    }
+
+    /**
+     * Return <CODE>true</CODE> if current image contains all pixels and all channels of it source (it is not sub-image, layer or channel).
+     */
+    boolean isWhole() {
+        return this.currentImage.getX() == 0 && this.currentImage.getY() == 0 && this.getWidth() == this.source.getWidth()
+            && this.getHeight() == this.source.getHeight() && this.startChannel == 0 && this.sizeLayer == this.source.getNumOfChannels();
+    }
+
+    /**
+     * Set given color to all pixels of current image.
+     *
+     * <P>
+     * If current image is not a sub-image, layer or channel, values are set by block operations on whole source array. Otherwise values
+     * are copied row by row.
+     * </P>
+     *
+     * @param color
+     *            Color to fill. Should have same number of channels as current image.
+     */
+    public void fill(final Color color) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(color, "color");
+        if (color.getNumOfChannels() != this.getNumOfChannels()) {
+            throw new IllegalArgumentException("Parameter 'color' should have same number of channels (= "
+                + Integer.toString(color.getNumOfChannels()) + ") as image (= " + Integer.toString(this.getNumOfChannels()) + ")!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        final double[] values = new double[this.getNumOfChannels()];
+        for (int channel = 0; channel < values.length; ++channel) {
+            values[channel] = Math.min(Math.max(color.get(channel), Color.COLOR_MIN_VALUE), Color.COLOR_MAX_VALUE);
+        }
+
+        if (this.isWhole()) {
+            this.source.fill(values);
+        } else {
+            final double[] row = new double[this.getWidth() * this.getNumOfChannels()];
+            for (int i = 0; i < row.length; ++i) {
+                row[i] = values[i % values.length];
+            }
+
+            for (int y = 0; y < this.getHeight(); ++y) {
+                this.setRow(y, row, 0);
+            }
+        }
     }
 
     /**
      * Copy values from current to given image. <STRONG>Given image should have SAME size as current image.</STRONG>
+     *
+     * <P>
+     * If both images are not sub-images, layers or channels and have same type and layout, all values are copied by one block operation.
+     * Otherwise values are copied row by row.
+     * </P>
      */
     public void copyTo(final Image target) {
         /*
@@ -614,18 +1268,52 @@ public class Image {
             throw new IllegalArgumentException("Given image should have a same number of cannels (= "
                 + Integer.toString(target.getNumOfChannels()) + ") as current image (= " + Integer.toString(this.getNumOfChannels()) + ")!");
         }
+        // Check memory.
+        this.source.verifyIsNotReleased();
+        target.source.verifyIsNotReleased();
 
         /*
-         * Copy values.
+         * Copy whole source.
          */
-        Parallel.pixels(this, new PixelsLoop() {
-            @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < getNumOfChannels(); ++channel) {
-                    target.set(x, y, channel, get(x, y, channel));
+        if (this.isWhole() && target.isWhole() && this.source.copyAllTo(target.source)) {
+            return;
+        }
+
+        /*
+         * Copy values by parallel spans of rows.
+         */
+        final int rowSize = this.getWidth() * this.getNumOfChannels();
+        if (this.getType() == Image.TYPE_8I && target.getType() == Image.TYPE_8I) {
+            Parallel.rows(this, new NamedRowLoopFactory(Image.class.getName() + ":copyTo:8I") {
+                @Override
+                public RowLoop create() {
+                    return new RowLoop() {
+                        private final byte[] values = new byte[rowSize];
+
+                        @Override
+                        public void execute(final int y, final int xStart, final int xEnd) {
+                            getSpan(xStart, y, xEnd - xStart, this.values, 0);
+                            target.setSpan(xStart, y, xEnd - xStart, this.values, 0);
+                        }
+                    };
                 }
-            }
-        });
+            });
+        } else {
+            Parallel.rows(this, new NamedRowLoopFactory(Image.class.getName() + ":copyTo") {
+                @Override
+                public RowLoop create() {
+                    return new RowLoop() {
+                        private final double[] values = new double[rowSize];
+
+                        @Override
+                        public void execute(final int y, final int xStart, final int xEnd) {
+                            getSpan(xStart, y, xEnd - xStart, this.values, 0);
+                            target.setSpan(xStart, y, xEnd - xStart, this.values, 0);
+                        }
+                    };
+                }
+            });
+        }
     }
 
     /**
@@ -730,12 +1418,24 @@ public class Image {
         /*
          * Perform operation.
          */
-        Parallel.pixels(this, new PixelsLoop() {
+        Parallel.rows(this, new NamedRowLoopFactory(Image.class.getName() + ":mult") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < getNumOfChannels(); ++channel) {
-                    set(x, y, channel, get(x, y, channel) * c);
-                }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] values = new double[getWidth() * getNumOfChannels()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        getSpan(xStart, y, length, this.values, 0);
+
+                        for (int i = 0; i < length * getNumOfChannels(); ++i) {
+                            this.values[i] *= c;
+                        }
+
+                        setSpan(xStart, y, length, this.values, 0);
+                    }
+                };
             }
         });
     }
@@ -764,21 +1464,37 @@ public class Image {
         /*
          * Perform operation.
          */
-        final double[] result = new double[this.getNumOfChannels()];
-        for (int i = 0; i < result.length; ++i) {
-            result[i] = 0.0;
-        }
+        return Parallel.reduce(this, new NamedReduceLoop<double[]>(Image.class.getName() + ":convolve") {
+            @Override
+            public double[] createPartial() {
+                return new double[getNumOfChannels()];
+            }
 
-        Parallel.pixels(this, new PixelsLoop() {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < getNumOfChannels(); ++channel) {
-                    result[channel] += get(x, y, channel) * kernel.get(y, x);
+            public void execute(final double[] partial, final int from, final int to) {
+                final double[] row = new double[getWidth() * getNumOfChannels()];
+                for (int y = from; y < to; ++y) {
+                    getRow(y, row, 0);
+
+                    int pos = 0;
+                    for (int x = 0; x < getWidth(); ++x) {
+                        final double k = kernel.get(y, x);
+                        for (int channel = 0; channel < partial.length; ++channel) {
+                            partial[channel] += row[pos++] * k;
+                        }
+                    }
                 }
             }
-        });
 
-        return result;
+            @Override
+            public double[] combine(final double[] partial1, final double[] partial2) {
+                for (int channel = 0; channel < partial1.length; ++channel) {
+                    partial1[channel] += partial2[channel];
+                }
+
+                return partial1;
+            }
+        });
     }
 
     /**
@@ -831,17 +1547,39 @@ public class Image {
         }
 
         // Compare values.
-        for (int x = 0; x < this.getWidth(); ++x) {
-            for (int y = 0; y < this.getHeight(); ++y) {
-                for (int channel = 0; channel < this.getNumOfChannels(); ++channel) {
-                    if (!JCV.equalValues(this.get(x, y, channel), image.get(x, y, channel), precision)) {
-                        return false;
+        final Image other = image;
+        final boolean[] equal = Parallel.reduce(this, new NamedReduceLoop<boolean[]>(Image.class.getName() + ":equals") {
+            @Override
+            public boolean[] createPartial() {
+                return new boolean[] { true };
+            }
+
+            @Override
+            public void execute(final boolean[] partial, final int from, final int to) {
+                final double[] row1 = new double[getWidth() * getNumOfChannels()];
+                final double[] row2 = new double[getWidth() * getNumOfChannels()];
+                for (int y = from; y < to && partial[0]; ++y) {
+                    getRow(y, row1, 0);
+                    other.getRow(y, row2, 0);
+
+                    for (int i = 0; i < row1.length; ++i) {
+                        if (!JCV.equalValues(row1[i], row2[i], precision)) {
+                            partial[0] = false;
+                            break;
+                        }
                     }
                 }
             }
-        }
 
-        return true;
+            @Override
+            public boolean[] combine(final boolean[] partial1, final boolean[] partial2) {
+                partial1[0] = partial1[0] && partial2[0];
+
+                return partial1;
+            }
+        });
+
+        return equal[0];
     }
 
     /**
@@ -863,7 +1601,23 @@ public class Image {
         sb.append("\n");
 
         sb.append("    Source type:     ");
-        sb.append(this.sourceType == Image.TYPE_8I ? "8-bit integer" : "64-bit float-point");
+        switch (this.sourceType) {
+            case Image.TYPE_8I:
+                sb.append("8-bit integer");
+                break;
+
+            case Image.TYPE_32F:
+                sb.append("32-bit float-point");
+                break;
+
+            default:
+                sb.append("64-bit float-point");
+                break;
+        }
+        sb.append("\n");
+
+        sb.append("    Layout:          ");
+        sb.append(this.getLayout() == Image.LAYOUT_ROW_MAJOR ? "row-major" : "column-major");
         sb.append("\n");
 
         sb.append("    Source size:     ");
@@ -24,6 +24,10 @@ package org.jcvlib.core;
  * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
  */
 public abstract class ImageArray {
+    /**
+     * Max number of values that can be saved into one Java array.
+     */
+    public static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
     /**
      * Save original size of array.
      */
@@ -35,9 +39,31 @@ public abstract class ImageArray {
     protected final int numOfChannels;
 
     /**
-     * Create new empty array.
+     * Save order of values into array. See {@link Image#LAYOUT_ROW_MAJOR} and {@link Image#LAYOUT_COLUMN_MAJOR}.
+     */
+    protected final int layout;
+
+    /**
+     * Distance in array between values of neighboring pixels from one row.
+     */
+    protected final int strideX;
+
+    /**
+     * Distance in array between values of neighboring pixels from one column.
+     */
+    protected final int strideY;
+
+    /**
+     * Create new empty array with row-major layout.
      */
     protected ImageArray(final int width, final int height, final int numOfChannels) {
+        this(width, height, numOfChannels, Image.LAYOUT_ROW_MAJOR);
+    }
+
+    /**
+     * Create new empty array with given layout.
+     */
+    protected ImageArray(final int width, final int height, final int numOfChannels, final int layout) {
         this.size = new Size(width, height);
 
         if (numOfChannels <= 0) {
@@ -45,6 +71,22 @@ public abstract class ImageArray {
                 + ") must be more than 0!");
         }
         this.numOfChannels = numOfChannels;
+
+        switch (layout) {
+            case Image.LAYOUT_ROW_MAJOR:
+                this.strideX = numOfChannels;
+                this.strideY = numOfChannels * width;
+                break;
+
+            case Image.LAYOUT_COLUMN_MAJOR:
+                this.strideX = numOfChannels * height;
+                this.strideY = numOfChannels;
+                break;
+
+            default:
+                throw new IllegalArgumentException("Value of 'layout' is unknown! Use 'Image.LAYOUT_*' as a parameter!");
+        }
+        this.layout = layout;
     }
 
     /**
@@ -75,18 +117,57 @@ public abstract class ImageArray {
         return this.numOfChannels;
     }
 
+    /**
+     * Return layout of values into current array. See {@link Image#LAYOUT_ROW_MAJOR} and {@link Image#LAYOUT_COLUMN_MAJOR}.
+     */
+    public int getLayout() {
+        return this.layout;
+    }
+
+    /**
+     * Return type of values into current array. See <CODE>Image.TYPE_*</CODE>.
+     */
+    public abstract int getType();
+
     /**
      * Return number of values into current array (same as <CODE>getHeight() * getWidth() * getNumOfChannels</CODE>).
+     *
+     * <P>
+     * Number of values should be not more than {@link ImageArray#MAX_ARRAY_SIZE}, use {@link ImageArray#getLongN()} for bigger arrays.
+     * </P>
      */
     public int getN() {
-        return this.getSize().getN() * this.getNumOfChannels();
+        final long n = this.getLongN();
+        if (n > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("Number of values (= " + Long.toString(n) + ") is more than "
+                + Integer.toString(MAX_ARRAY_SIZE) + "! Use 'ImageArrayChunked' for so big arrays.");
+        }
+
+        return (int) n;
+    }
+
+    /**
+     * Return number of values into current array (same as <CODE>getHeight() * getWidth() * getNumOfChannels</CODE>) without overflow.
+     */
+    public long getLongN() {
+        return (long) this.getWidth() * this.getHeight() * this.getNumOfChannels();
+    }
+
+    /**
+     * Verify that given array with values contains enough values for current array.
+     */
+    protected void verifyArrayLength(final int length) {
+        if (length < this.getLongN()) {
+            throw new IllegalArgumentException("Given array have " + Integer.toString(length) + " values, but image array needs "
+                + Long.toString(this.getLongN()) + " values!");
+        }
     }
 
     /**
      * Return position in source array for given point and channel.
      */
     protected int getArrayPosition(final int x, final int y, final int channel) {
-        return this.getNumOfChannels() * this.getHeight() * x + this.getNumOfChannels() * y + channel;
+        return this.strideX * x + this.strideY * y + channel;
     }
 
     /**
@@ -112,4 +193,147 @@ public abstract class ImageArray {
      * <STRONG>without position checking</STRONG>.
      */
     public abstract void setUnsafe8I(final int x, final int y, final int channel, final int value);
+
+    /**
+     * Return <CODE>true</CODE> if span of pixels from one row with <CODE>sizeLayer</CODE> channels lies into array without gaps.
+     */
+    protected boolean isContinuousSpan(final int sizeLayer) {
+        return this.strideX == this.numOfChannels && sizeLayer == this.numOfChannels;
+    }
+
+    /**
+     * Copy float-point values of <CODE>length</CODE> pixels from row <CODE>y</CODE> starting from pixel <CODE>x</CODE> into given array
+     * <STRONG>without position checking</STRONG>.
+     *
+     * <P>
+     * Only channels from <CODE>startChannel</CODE> to <CODE>startChannel + sizeLayer</CODE> are copied. Values are saved into
+     * <CODE>dst</CODE> starting from <CODE>offset</CODE> in order: <CODE>(x, 0), (x, 1), ..., (x + 1, 0), ...</CODE>.
+     * </P>
+     *
+     * <P>
+     * By default values are copied one-by-one, subclasses should override this method to copy values in bulk.
+     * </P>
+     */
+    public void getSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] dst, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                dst[pos++] = this.getUnsafe(x + i, y, startChannel + channel);
+            }
+        }
+    }
+
+    /**
+     * Copy float-point values of <CODE>length</CODE> pixels from given array into row <CODE>y</CODE> starting from pixel <CODE>x</CODE>
+     * <STRONG>without position and value checking</STRONG>. See {@link #getSpanUnsafe(int, int, int, int, int, double[], int)}.
+     */
+    public void setSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] src, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                this.setUnsafe(x + i, y, startChannel + channel, src[pos++]);
+            }
+        }
+    }
+
+    /**
+     * Copy integer values of <CODE>length</CODE> pixels from row <CODE>y</CODE> starting from pixel <CODE>x</CODE> into given array
+     * <STRONG>without position checking</STRONG>. Values <CODE>0..255</CODE> are saved as unsigned bytes. See
+     * {@link #getSpanUnsafe(int, int, int, int, int, double[], int)}.
+     */
+    public void getSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] dst, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                dst[pos++] = (byte) this.getUnsafe8I(x + i, y, startChannel + channel);
+            }
+        }
+    }
+
+    /**
+     * Copy integer values of <CODE>length</CODE> pixels from given array of unsigned bytes into row <CODE>y</CODE> starting from pixel
+     * <CODE>x</CODE> <STRONG>without position checking</STRONG>. See {@link #getSpanUnsafe(int, int, int, int, int, double[], int)}.
+     */
+    public void setSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] src, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                this.setUnsafe8I(x + i, y, startChannel + channel, src[pos++] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Set all values of current array to <CODE>0</CODE>. Used to reuse arrays from {@link ImagePool}.
+     */
+    void clear() {
+        for (int x = 0; x < this.getWidth(); ++x) {
+            for (int y = 0; y < this.getHeight(); ++y) {
+                for (int channel = 0; channel < this.getNumOfChannels(); ++channel) {
+                    this.setUnsafe8I(x, y, channel, 0);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set given values of channels to all pixels of current array. Values should lie into interval
+     * <CODE>[{@link Color#COLOR_MIN_VALUE}, {@link Color#COLOR_MAX_VALUE}]</CODE>.
+     *
+     * <P>
+     * By default values are copied from prepared row, subclasses should override this method to fill whole array in bulk.
+     * </P>
+     */
+    void fill(final double[] values) {
+        final double[] row = new double[this.getWidth() * this.getNumOfChannels()];
+        for (int i = 0; i < row.length; ++i) {
+            row[i] = values[i % this.getNumOfChannels()];
+        }
+
+        for (int y = 0; y < this.getHeight(); ++y) {
+            this.setSpanUnsafe(0, y, this.getWidth(), 0, this.getNumOfChannels(), row, 0);
+        }
+    }
+
+    /**
+     * Copy all values of current array into given array with same size and number of channels by one block operation.
+     *
+     * @return
+     *         <CODE>false</CODE> if arrays have different types or layouts and values were not copied. In this case values should be
+     *         copied by rows.
+     */
+    boolean copyAllTo(final ImageArray target) {
+        return false;
+    }
+
+    /**
+     * Return <CODE>true</CODE> if memory of current array was allocated by library and is not shared with array or buffer of caller. Only
+     * such arrays can be reused by {@link ImagePool}.
+     */
+    boolean isAllocated() {
+        return false;
+    }
+
+    /**
+     * Throw {@link IllegalStateException} if resources of current array were released. Should be called at start of operations, not per
+     * element.
+     */
+    void verifyIsNotReleased() {
+        // Arrays from Java heap can not be released.
+    }
+
+    /**
+     * Release resources of current array. After it array can not be used anymore.
+     *
+     * <P>
+     * Arrays from Java heap are released by garbage collector, so by default this method do nothing.
+     * </P>
+     */
+    public void release() {
+        // Do nothing by default.
+    }
 }
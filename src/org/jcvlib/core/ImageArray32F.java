@@ -0,0 +1,207 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.core;
+
+import java.util.Arrays;
+
+/**
+ * This type of image arrays contains values into float-point values and uses 32-bit for each value.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ImageArray32F extends ImageArray {
+
+    private final float[] source;
+
+    /**
+     * Is <CODE>true</CODE> if values array was allocated by current array, not given by caller.
+     */
+    private final boolean allocated;
+
+    /**
+     * Create new empty array with row-major layout.
+     */
+    public ImageArray32F(final int width, final int height, final int numOfChannels) {
+        this(width, height, numOfChannels, Image.LAYOUT_ROW_MAJOR);
+    }
+
+    /**
+     * Create new empty array with given layout. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     */
+    public ImageArray32F(final int width, final int height, final int numOfChannels, final int layout) {
+        super(width, height, numOfChannels, layout);
+
+        this.source = new float[this.getN()];
+        this.allocated = true;
+    }
+
+    /**
+     * Create new array based on given array of values. It is <STRONG>NOT COPY</STRONG> of given array -- all changes of values are visible
+     * into both arrays.
+     *
+     * <P>
+     * Values should be saved in order of given layout (see <CODE>Image.LAYOUT_*</CODE>), only first
+     * <CODE>width * height * numOfChannels</CODE> values are used.
+     * </P>
+     */
+    public ImageArray32F(final float[] source, final int width, final int height, final int numOfChannels, final int layout) {
+        super(width, height, numOfChannels, layout);
+
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(source, "source");
+        this.verifyArrayLength(source.length);
+
+        this.source = source;
+        this.allocated = false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#isAllocated()
+     */
+    @Override
+    boolean isAllocated() {
+        return this.allocated;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#clear()
+     */
+    @Override
+    void clear() {
+        Arrays.fill(this.source, 0.0f);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#fill(double[])
+     */
+    @Override
+    void fill(final double[] values) {
+        final int n = this.getN();
+        for (int channel = 0; channel < this.getNumOfChannels(); ++channel) {
+            this.source[channel] = (float) values[channel];
+        }
+
+        for (int filled = this.getNumOfChannels(); filled < n; filled <<= 1) {
+            System.arraycopy(this.source, 0, this.source, filled, Math.min(filled, n - filled));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#copyAllTo(org.jcvlib.core.ImageArray)
+     */
+    @Override
+    boolean copyAllTo(final ImageArray target) {
+        if (!(target instanceof ImageArray32F) || target.getLayout() != this.getLayout()) {
+            return false;
+        }
+
+        System.arraycopy(this.source, 0, ((ImageArray32F) target).source, 0, this.getN());
+        return true;
+    }
+
+    /**
+     * Return array with values. It is <STRONG>NOT COPY</STRONG> of values of current array.
+     */
+    public float[] getSource() {
+        return this.source;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getType()
+     */
+    @Override
+    public int getType() {
+        return Image.TYPE_32F;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getUnsafe(int, int, int)
+     */
+    @Override
+    public double getUnsafe(final int x, final int y, final int channel) {
+        return this.source[this.getArrayPosition(x, y, channel)];
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getUnsafe8I(int, int, int)
+     */
+    @Override
+    public int getUnsafe8I(final int x, final int y, final int channel) {
+        return JCV.round(this.getUnsafe(x, y, channel));
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setUnsafe(int, int, int, double)
+     */
+    @Override
+    public void setUnsafe(final int x, final int y, final int channel, final double value) {
+        this.source[this.getArrayPosition(x, y, channel)] = (float) value;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setUnsafe8I(int, int, int, int)
+     */
+    @Override
+    public void setUnsafe8I(final int x, final int y, final int channel, final int value) {
+        this.setUnsafe(x, y, channel, value);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void getSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] dst, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            final int base = this.getArrayPosition(x + i, y, startChannel);
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                dst[pos++] = this.source[base + channel];
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void setSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] src, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            final int base = this.getArrayPosition(x + i, y, startChannel);
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                this.source[base + channel] = (float) src[pos++];
+            }
+        }
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.jcvlib.core;
 
+import java.util.Arrays;
+
 /**
  * This type of arrays contains values into integer values and uses 8-bit for each value.
  *
@@ -27,10 +29,116 @@ public class ImageArray8I extends ImageArray {
 
     private final byte[] source;
 
-    public ImageArray8I(final int height, final int width, final int numOfChannels) {
-        super(height, width, numOfChannels);
+    /**
+     * Is <CODE>true</CODE> if values array was allocated by current array, not given by caller.
+     */
+    private final boolean allocated;
+
+    /**
+     * Create new empty array with row-major layout.
+     */
+    public ImageArray8I(final int width, final int height, final int numOfChannels) {
+        this(width, height, numOfChannels, Image.LAYOUT_ROW_MAJOR);
+    }
+
+    /**
+     * Create new empty array with given layout. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     */
+    public ImageArray8I(final int width, final int height, final int numOfChannels, final int layout) {
+        super(width, height, numOfChannels, layout);
 
         this.source = new byte[this.getN()];
+        this.allocated = true;
+    }
+
+    /**
+     * Create new array based on given array of values. It is <STRONG>NOT COPY</STRONG> of given array -- all changes of values are visible
+     * into both arrays.
+     *
+     * <P>
+     * Values should be saved in order of given layout (see <CODE>Image.LAYOUT_*</CODE>), only first
+     * <CODE>width * height * numOfChannels</CODE> values are used.
+     * </P>
+     */
+    public ImageArray8I(final byte[] source, final int width, final int height, final int numOfChannels, final int layout) {
+        super(width, height, numOfChannels, layout);
+
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(source, "source");
+        this.verifyArrayLength(source.length);
+
+        this.source = source;
+        this.allocated = false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#isAllocated()
+     */
+    @Override
+    boolean isAllocated() {
+        return this.allocated;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#clear()
+     */
+    @Override
+    void clear() {
+        Arrays.fill(this.source, (byte) 0);
+    }
+
+    /**
+     * Values of first pixel are duplicated into whole array by {@link System#arraycopy(Object, int, Object, int, int)} with doubled
+     * length, so array is filled by <CODE>log(N)</CODE> block operations.
+     */
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#fill(double[])
+     */
+    @Override
+    void fill(final double[] values) {
+        final int n = this.getN();
+        for (int channel = 0; channel < this.getNumOfChannels(); ++channel) {
+            this.source[channel] = (byte) JCV.round(values[channel]);
+        }
+
+        for (int filled = this.getNumOfChannels(); filled < n; filled <<= 1) {
+            System.arraycopy(this.source, 0, this.source, filled, Math.min(filled, n - filled));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#copyAllTo(org.jcvlib.core.ImageArray)
+     */
+    @Override
+    boolean copyAllTo(final ImageArray target) {
+        if (!(target instanceof ImageArray8I) || target.getLayout() != this.getLayout()) {
+            return false;
+        }
+
+        System.arraycopy(this.source, 0, ((ImageArray8I) target).source, 0, this.getN());
+        return true;
+    }
+
+    /**
+     * Return array with values. It is <STRONG>NOT COPY</STRONG> of values of current array.
+     */
+    public byte[] getSource() {
+        return this.source;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getType()
+     */
+    @Override
+    public int getType() {
+        return Image.TYPE_8I;
     }
 
     /*
@@ -73,4 +181,76 @@ public class ImageArray8I extends ImageArray {
     public void setUnsafe8I(final int x, final int y, final int channel, final int value) {
         this.source[this.getArrayPosition(x, y, channel)] = (byte) value;
     }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void getSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] dst, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            final int base = this.getArrayPosition(x + i, y, startChannel);
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                dst[pos++] = this.source[base + channel] & 0xFF;
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void setSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] src, final int offset) {
+        int pos = offset;
+        for (int i = 0; i < length; ++i) {
+            final int base = this.getArrayPosition(x + i, y, startChannel);
+            for (int channel = 0; channel < sizeLayer; ++channel) {
+                this.source[base + channel] = (byte) JCV.round(src[pos++]);
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpan8IUnsafe(int, int, int, int, int, byte[], int)
+     */
+    @Override
+    public void getSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] dst, final int offset) {
+        if (this.isContinuousSpan(sizeLayer)) {
+            System.arraycopy(this.source, this.getArrayPosition(x, y, 0), dst, offset, length * sizeLayer);
+        } else {
+            int pos = offset;
+            for (int i = 0; i < length; ++i) {
+                final int base = this.getArrayPosition(x + i, y, startChannel);
+                for (int channel = 0; channel < sizeLayer; ++channel) {
+                    dst[pos++] = this.source[base + channel];
+                }
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpan8IUnsafe(int, int, int, int, int, byte[], int)
+     */
+    @Override
+    public void setSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] src, final int offset) {
+        if (this.isContinuousSpan(sizeLayer)) {
+            System.arraycopy(src, offset, this.source, this.getArrayPosition(x, y, 0), length * sizeLayer);
+        } else {
+            int pos = offset;
+            for (int i = 0; i < length; ++i) {
+                final int base = this.getArrayPosition(x + i, y, startChannel);
+                for (int channel = 0; channel < sizeLayer; ++channel) {
+                    this.source[base + channel] = src[pos++];
+                }
+            }
+        }
+    }
 }
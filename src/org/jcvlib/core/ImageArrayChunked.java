@@ -0,0 +1,399 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.core;
+
+/**
+ * This type of image arrays split values into chunks, so number of values is not limited by size of one Java array
+ * (<CODE>2<SUP>31</SUP></CODE> values).
+ *
+ * <P>
+ * Each chunk is a separate {@link ImageArray} that contains <CODE>2<SUP>k</SUP></CODE> whole rows (for {@link Image#LAYOUT_ROW_MAJOR})
+ * or whole columns (for {@link Image#LAYOUT_COLUMN_MAJOR}). So positions into one chunk can not overflow and pixels of one row (or
+ * column) are neighbors into memory as in usual array. Chunk of pixel is selected by bit shift of it row (or column) number.
+ * </P>
+ *
+ * <P>
+ * {@link Image} uses this type of arrays automatically for images with more than {@link ImageArray#MAX_ARRAY_SIZE} values.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ImageArrayChunked extends ImageArray {
+    /**
+     * Max number of values into one chunk by default: <CODE>2<SUP>26</SUP></CODE> values.
+     */
+    public static final int MAX_CHUNK_SIZE_DEFAULT = 1 << 26;
+
+    /**
+     * Type of values into chunks.
+     */
+    protected final int type;
+
+    /**
+     * Number of rows (or columns) into one chunk is <CODE>2<SUP>chunkShift</SUP></CODE>.
+     */
+    protected final int chunkShift;
+
+    /**
+     * Mask to get number of row (or column) into chunk.
+     */
+    protected final int chunkMask;
+
+    /**
+     * Chunks with values.
+     */
+    protected final ImageArray[] chunks;
+
+    /**
+     * Create new empty chunked array into Java heap with chunks by {@link ImageArrayChunked#MAX_CHUNK_SIZE_DEFAULT} values.
+     *
+     * @param width
+     *            Width of array.
+     * @param height
+     *            Height of array.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param type
+     *            Type of values. Use <CODE>Image.TYPE_*</CODE> as a parameter.
+     * @param layout
+     *            Layout of values. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     */
+    public ImageArrayChunked(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        this(width, height, numOfChannels, type, layout, MAX_CHUNK_SIZE_DEFAULT);
+    }
+
+    /**
+     * Create new empty chunked array into Java heap.
+     *
+     * @param width
+     *            Width of array.
+     * @param height
+     *            Height of array.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param type
+     *            Type of values. Use <CODE>Image.TYPE_*</CODE> as a parameter.
+     * @param layout
+     *            Layout of values. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     * @param maxChunkSize
+     *            Max number of values into one chunk. Each chunk contains at least one row (or column).
+     */
+    public ImageArrayChunked(final int width, final int height, final int numOfChannels, final int type, final int layout,
+        final int maxChunkSize) {
+        this(new Size(width, height), numOfChannels, type, layout, ImageArrayChunked.calculateChunkShift(width, height, numOfChannels,
+            layout, maxChunkSize));
+
+        /*
+         * Allocate chunks.
+         */
+        for (int i = 0; i < this.chunks.length; ++i) {
+            final int lines = this.getLinesInChunk(i);
+
+            if (layout == Image.LAYOUT_ROW_MAJOR) {
+                this.chunks[i] = ImageArrayChunked.createArray(width, lines, numOfChannels, type, layout);
+            } else {
+                this.chunks[i] = ImageArrayChunked.createArray(lines, height, numOfChannels, type, layout);
+            }
+        }
+    }
+
+    /**
+     * Create chunked array without chunks. Chunks should be created by subclass.
+     *
+     * @param chunkShift
+     *            Each chunk will contain <CODE>2<SUP>chunkShift</SUP></CODE> rows (or columns).
+     */
+    protected ImageArrayChunked(final Size size, final int numOfChannels, final int type, final int layout, final int chunkShift) {
+        super(size.getWidth(), size.getHeight(), numOfChannels, layout);
+
+        this.type = type;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1 << chunkShift) - 1;
+
+        final int numOfLines = this.getNumOfLines();
+        this.chunks = new ImageArray[(int) (((long) numOfLines + this.chunkMask) >> chunkShift)];
+    }
+
+    /**
+     * Return bit shift, so <CODE>2<SUP>shift</SUP></CODE> rows (or columns) contains not more than given number of values.
+     */
+    protected static int calculateChunkShift(final int width, final int height, final int numOfChannels, final int layout,
+        final long maxChunkSize) {
+        if (maxChunkSize <= 0) {
+            throw new IllegalArgumentException("Value of 'maxChunkSize' (= " + Long.toString(maxChunkSize) + ") must be more than 0!");
+        }
+
+        final long lineSize = (long) (layout == Image.LAYOUT_ROW_MAJOR ? width : height) * numOfChannels;
+        final int numOfLines = layout == Image.LAYOUT_ROW_MAJOR ? height : width;
+
+        int shift = 0;
+        while (shift < 30 && (1 << shift) < numOfLines && (lineSize << (shift + 1)) <= maxChunkSize) {
+            ++shift;
+        }
+
+        return shift;
+    }
+
+    /**
+     * Create new usual array into Java heap.
+     */
+    private static ImageArray createArray(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        switch (type) {
+            case Image.TYPE_8I:
+                return new ImageArray8I(width, height, numOfChannels, layout);
+
+            case Image.TYPE_32F:
+                return new ImageArray32F(width, height, numOfChannels, layout);
+
+            case Image.TYPE_64F:
+                return new ImageArray64F(width, height, numOfChannels, layout);
+
+            default:
+                throw new IllegalArgumentException("Value of 'type' is unknown! Use 'Image.TYPE_*' as a parameter!");
+        }
+    }
+
+    /**
+     * Return number of rows (for row-major layout) or columns (for column-major layout).
+     */
+    protected int getNumOfLines() {
+        return this.layout == Image.LAYOUT_ROW_MAJOR ? this.getHeight() : this.getWidth();
+    }
+
+    /**
+     * Return number of rows (or columns) into chunk with given number.
+     */
+    protected int getLinesInChunk(final int chunk) {
+        return (int) Math.min(1L << this.chunkShift, (long) this.getNumOfLines() - ((long) chunk << this.chunkShift));
+    }
+
+    /**
+     * Return number of rows (or columns) into one chunk.
+     */
+    public int getLinesPerChunk() {
+        return 1 << this.chunkShift;
+    }
+
+    /**
+     * Return number of chunks.
+     */
+    public int getNumOfChunks() {
+        return this.chunks.length;
+    }
+
+    /**
+     * Return chunk with given number. Chunk with number <CODE>i</CODE> contains rows (or columns) from
+     * <CODE>i * getLinesPerChunk()</CODE>.
+     */
+    public ImageArray getChunk(final int chunk) {
+        return this.chunks[chunk];
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getType()
+     */
+    @Override
+    public int getType() {
+        return this.type;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getUnsafe(int, int, int)
+     */
+    @Override
+    public double getUnsafe(final int x, final int y, final int channel) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            return this.chunks[y >> this.chunkShift].getUnsafe(x, y & this.chunkMask, channel);
+        } else {
+            return this.chunks[x >> this.chunkShift].getUnsafe(x & this.chunkMask, y, channel);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getUnsafe8I(int, int, int)
+     */
+    @Override
+    public int getUnsafe8I(final int x, final int y, final int channel) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            return this.chunks[y >> this.chunkShift].getUnsafe8I(x, y & this.chunkMask, channel);
+        } else {
+            return this.chunks[x >> this.chunkShift].getUnsafe8I(x & this.chunkMask, y, channel);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setUnsafe(int, int, int, double)
+     */
+    @Override
+    public void setUnsafe(final int x, final int y, final int channel, final double value) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            this.chunks[y >> this.chunkShift].setUnsafe(x, y & this.chunkMask, channel, value);
+        } else {
+            this.chunks[x >> this.chunkShift].setUnsafe(x & this.chunkMask, y, channel, value);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setUnsafe8I(int, int, int, int)
+     */
+    @Override
+    public void setUnsafe8I(final int x, final int y, final int channel, final int value) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            this.chunks[y >> this.chunkShift].setUnsafe8I(x, y & this.chunkMask, channel, value);
+        } else {
+            this.chunks[x >> this.chunkShift].setUnsafe8I(x & this.chunkMask, y, channel, value);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void getSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] dst, final int offset) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            this.chunks[y >> this.chunkShift].getSpanUnsafe(x, y & this.chunkMask, length, startChannel, sizeLayer, dst, offset);
+        } else {
+            super.getSpanUnsafe(x, y, length, startChannel, sizeLayer, dst, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void setSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] src, final int offset) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            this.chunks[y >> this.chunkShift].setSpanUnsafe(x, y & this.chunkMask, length, startChannel, sizeLayer, src, offset);
+        } else {
+            super.setSpanUnsafe(x, y, length, startChannel, sizeLayer, src, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpan8IUnsafe(int, int, int, int, int, byte[], int)
+     */
+    @Override
+    public void getSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] dst, final int offset) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            this.chunks[y >> this.chunkShift].getSpan8IUnsafe(x, y & this.chunkMask, length, startChannel, sizeLayer, dst, offset);
+        } else {
+            super.getSpan8IUnsafe(x, y, length, startChannel, sizeLayer, dst, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpan8IUnsafe(int, int, int, int, int, byte[], int)
+     */
+    @Override
+    public void setSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] src, final int offset) {
+        if (this.layout == Image.LAYOUT_ROW_MAJOR) {
+            this.chunks[y >> this.chunkShift].setSpan8IUnsafe(x, y & this.chunkMask, length, startChannel, sizeLayer, src, offset);
+        } else {
+            super.setSpan8IUnsafe(x, y, length, startChannel, sizeLayer, src, offset);
+        }
+    }
+
+    /**
+     * Array is allocated by library only if all chunks are allocated by library (chunks of mapped file are not).
+     */
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#isAllocated()
+     */
+    @Override
+    boolean isAllocated() {
+        for (int i = 0; i < this.chunks.length; ++i) {
+            if (this.chunks[i] == null || !this.chunks[i].isAllocated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#clear()
+     */
+    @Override
+    void clear() {
+        for (int i = 0; i < this.chunks.length; ++i) {
+            this.chunks[i].clear();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#fill(double[])
+     */
+    @Override
+    void fill(final double[] values) {
+        for (int i = 0; i < this.chunks.length; ++i) {
+            this.chunks[i].fill(values);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#copyAllTo(org.jcvlib.core.ImageArray)
+     */
+    @Override
+    boolean copyAllTo(final ImageArray target) {
+        if (!(target instanceof ImageArrayChunked) || target.getLayout() != this.getLayout()) {
+            return false;
+        }
+        final ImageArrayChunked other = (ImageArrayChunked) target;
+        if (other.chunkShift != this.chunkShift) {
+            return false;
+        }
+
+        for (int i = 0; i < this.chunks.length; ++i) {
+            if (!this.chunks[i].copyAllTo(other.chunks[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#release()
+     */
+    @Override
+    public void release() {
+        // Chunks are not forgotten: released chunks throw IllegalStateException instead of NullPointerException.
+        for (int i = 0; i < this.chunks.length; ++i) {
+            if (this.chunks[i] != null) {
+                this.chunks[i].release();
+            }
+        }
+    }
+}
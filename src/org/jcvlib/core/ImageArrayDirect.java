@@ -0,0 +1,462 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+
+import org.jcvlib.parallel.Parallel;
+
+/**
+ * This type of image arrays contains values <STRONG>out of Java heap</STRONG> into direct {@link ByteBuffer}.
+ *
+ * <P>
+ * Values can be saved as {@link Image#TYPE_8I}, {@link Image#TYPE_32F} or {@link Image#TYPE_64F}. Big direct arrays do not load garbage
+ * collector and memory of this array can be released immediately by {@link #release()} (or {@link Image#close()}).
+ * </P>
+ *
+ * <P>
+ * <STRONG>After releasing array can not be used anymore!</STRONG> All methods of released array throw {@link IllegalStateException}.
+ * Memory is released after all parallel loops that are running at this moment finish (see {@link Parallel#afterRunningLoops(Runnable)}),
+ * so workers that still use array never use released memory.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ImageArrayDirect extends ImageArray {
+
+    private static final Object UNSAFE;
+
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (final Exception e) {
+            // Memory will be released by garbage collector.
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private static final String RELEASED_MESSAGE = "Memory of image was released by 'Image.close()'!";
+
+    private final int type;
+
+    private final boolean owner;
+
+    private ByteBuffer buffer;
+
+    private ByteBuffer source8I;
+
+    private FloatBuffer source32F;
+
+    private DoubleBuffer source64F;
+
+    /**
+     * Is <CODE>true</CODE> after {@link #release()}. Volatile, so workers of other threads see it. Checked at start of span and bulk
+     * operations. Per-element methods check only that buffer of values is not <CODE>null</CODE>, it is not slower than access to buffer.
+     */
+    private volatile boolean released;
+
+    /**
+     * Create new empty array in direct memory.
+     *
+     * @param width
+     *            Width of array.
+     * @param height
+     *            Height of array.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param type
+     *            Type of values. Use <CODE>Image.TYPE_*</CODE> as a parameter.
+     * @param layout
+     *            Layout of values. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     */
+    public ImageArrayDirect(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        super(width, height, numOfChannels, layout);
+
+        this.type = type;
+        this.owner = true;
+        this.init(ByteBuffer.allocateDirect(this.getBufferSize()).order(ByteOrder.nativeOrder()));
+    }
+
+    /**
+     * Create new array based on given buffer. Values will be read from buffer starting from it current position and in it byte order.
+     *
+     * <P>
+     * Given buffer will be <STRONG>NOT</STRONG> released by {@link #release()} -- it is owned by caller.
+     * </P>
+     *
+     * @param buffer
+     *            Buffer with values. Should have at least <CODE>width * height * numOfChannels</CODE> values of given type.
+     * @param width
+     *            Width of array.
+     * @param height
+     *            Height of array.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param type
+     *            Type of values. Use <CODE>Image.TYPE_*</CODE> as a parameter.
+     * @param layout
+     *            Layout of values. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     */
+    public ImageArrayDirect(final ByteBuffer buffer, final int width, final int height, final int numOfChannels, final int type,
+        final int layout) {
+        super(width, height, numOfChannels, layout);
+        this.type = type;
+        this.owner = false;
+
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(buffer, "buffer");
+        final int needBytes = this.getBufferSize();
+        if (buffer.remaining() < needBytes) {
+            throw new IllegalArgumentException("Parameter 'buffer' have " + Integer.toString(buffer.remaining())
+                + " remaining bytes, but array needs " + Integer.toString(needBytes) + " bytes!");
+        }
+
+        /*
+         * Initialize.
+         */
+        final ByteBuffer slice = buffer.slice();
+        slice.order(buffer.order());
+        this.init(slice);
+    }
+
+    /**
+     * Return size in bytes of one value with given type.
+     */
+    static int getBytesPerValue(final int type) {
+        switch (type) {
+            case Image.TYPE_8I:
+                return 1;
+
+            case Image.TYPE_32F:
+                return 4;
+
+            case Image.TYPE_64F:
+                return 8;
+
+            default:
+                throw new IllegalArgumentException("Value of 'type' is unknown! Use 'Image.TYPE_*' as a parameter!");
+        }
+    }
+
+    /**
+     * Return size of buffer in bytes for current array.
+     */
+    private int getBufferSize() {
+        final long size = this.getLongN() * ImageArrayDirect.getBytesPerValue(this.type);
+        if (size > MAX_ARRAY_SIZE) {
+            throw new IllegalArgumentException("Size of direct buffer (= " + Long.toString(size) + " bytes) is more than "
+                + Integer.toString(MAX_ARRAY_SIZE) + " bytes! Use 'Image.mapFile(...)' for so big images.");
+        }
+
+        return (int) size;
+    }
+
+    private void init(final ByteBuffer buf) {
+        this.buffer = buf;
+
+        switch (this.type) {
+            case Image.TYPE_8I:
+                this.source8I = buf;
+                break;
+
+            case Image.TYPE_32F:
+                this.source32F = buf.asFloatBuffer();
+                break;
+
+            default:
+                this.source64F = buf.asDoubleBuffer();
+                break;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getType()
+     */
+    @Override
+    public int getType() {
+        return this.type;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#verifyIsNotReleased()
+     */
+    @Override
+    void verifyIsNotReleased() {
+        if (this.released) {
+            throw new IllegalStateException(RELEASED_MESSAGE);
+        }
+    }
+
+    /**
+     * Return given buffer of values or throw {@link IllegalStateException} if it is <CODE>null</CODE> (memory of current array was
+     * released).
+     */
+    private static <B extends Buffer> B verifyIsNotReleased(final B source) {
+        if (source == null) {
+            throw new IllegalStateException(RELEASED_MESSAGE);
+        }
+
+        return source;
+    }
+
+    /**
+     * Return buffer with values of current array. Returned buffer share content with current array.
+     *
+     * <P>
+     * <STRONG>Returned buffer can not be used after {@link #release()}!</STRONG>
+     * </P>
+     */
+    public ByteBuffer getBuffer() {
+        this.verifyIsNotReleased();
+
+        final ByteBuffer result = this.buffer.duplicate();
+        result.order(this.buffer.order());
+
+        return result;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getUnsafe(int, int, int)
+     */
+    @Override
+    public double getUnsafe(final int x, final int y, final int channel) {
+        switch (this.type) {
+            case Image.TYPE_8I:
+                return ImageArrayDirect.verifyIsNotReleased(this.source8I).get(this.getArrayPosition(x, y, channel)) & 0xFF;
+
+            case Image.TYPE_32F:
+                return ImageArrayDirect.verifyIsNotReleased(this.source32F).get(this.getArrayPosition(x, y, channel));
+
+            default:
+                return ImageArrayDirect.verifyIsNotReleased(this.source64F).get(this.getArrayPosition(x, y, channel));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getUnsafe8I(int, int, int)
+     */
+    @Override
+    public int getUnsafe8I(final int x, final int y, final int channel) {
+        if (this.type == Image.TYPE_8I) {
+            return ImageArrayDirect.verifyIsNotReleased(this.source8I).get(this.getArrayPosition(x, y, channel)) & 0xFF;
+        } else {
+            return JCV.round(this.getUnsafe(x, y, channel));
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setUnsafe(int, int, int, double)
+     */
+    @Override
+    public void setUnsafe(final int x, final int y, final int channel, final double value) {
+        switch (this.type) {
+            case Image.TYPE_8I:
+                ImageArrayDirect.verifyIsNotReleased(this.source8I).put(this.getArrayPosition(x, y, channel), (byte) JCV.round(value));
+                break;
+
+            case Image.TYPE_32F:
+                ImageArrayDirect.verifyIsNotReleased(this.source32F).put(this.getArrayPosition(x, y, channel), (float) value);
+                break;
+
+            default:
+                ImageArrayDirect.verifyIsNotReleased(this.source64F).put(this.getArrayPosition(x, y, channel), value);
+                break;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setUnsafe8I(int, int, int, int)
+     */
+    @Override
+    public void setUnsafe8I(final int x, final int y, final int channel, final int value) {
+        if (this.type == Image.TYPE_8I) {
+            ImageArrayDirect.verifyIsNotReleased(this.source8I).put(this.getArrayPosition(x, y, channel), (byte) value);
+        } else {
+            this.setUnsafe(x, y, channel, value);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void getSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] dst, final int offset) {
+        this.verifyIsNotReleased();
+
+        if (this.type == Image.TYPE_64F && this.isContinuousSpan(sizeLayer)) {
+            final DoubleBuffer view = this.source64F.duplicate();
+            view.position(this.getArrayPosition(x, y, 0));
+            view.get(dst, offset, length * sizeLayer);
+        } else {
+            super.getSpanUnsafe(x, y, length, startChannel, sizeLayer, dst, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpanUnsafe(int, int, int, int, int, double[], int)
+     */
+    @Override
+    public void setSpanUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final double[] src, final int offset) {
+        this.verifyIsNotReleased();
+
+        if (this.type == Image.TYPE_64F && this.isContinuousSpan(sizeLayer)) {
+            final DoubleBuffer view = this.source64F.duplicate();
+            view.position(this.getArrayPosition(x, y, 0));
+            view.put(src, offset, length * sizeLayer);
+        } else {
+            super.setSpanUnsafe(x, y, length, startChannel, sizeLayer, src, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#getSpan8IUnsafe(int, int, int, int, int, byte[], int)
+     */
+    @Override
+    public void getSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] dst, final int offset) {
+        this.verifyIsNotReleased();
+
+        if (this.type == Image.TYPE_8I && this.isContinuousSpan(sizeLayer)) {
+            final ByteBuffer view = this.source8I.duplicate();
+            view.position(this.getArrayPosition(x, y, 0));
+            view.get(dst, offset, length * sizeLayer);
+        } else {
+            super.getSpan8IUnsafe(x, y, length, startChannel, sizeLayer, dst, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#setSpan8IUnsafe(int, int, int, int, int, byte[], int)
+     */
+    @Override
+    public void setSpan8IUnsafe(final int x, final int y, final int length, final int startChannel, final int sizeLayer,
+        final byte[] src, final int offset) {
+        this.verifyIsNotReleased();
+
+        if (this.type == Image.TYPE_8I && this.isContinuousSpan(sizeLayer)) {
+            final ByteBuffer view = this.source8I.duplicate();
+            view.position(this.getArrayPosition(x, y, 0));
+            view.put(src, offset, length * sizeLayer);
+        } else {
+            super.setSpan8IUnsafe(x, y, length, startChannel, sizeLayer, src, offset);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#copyAllTo(org.jcvlib.core.ImageArray)
+     */
+    @Override
+    boolean copyAllTo(final ImageArray target) {
+        if (!(target instanceof ImageArrayDirect) || target.getType() != this.getType() || target.getLayout() != this.getLayout()) {
+            return false;
+        }
+        final ImageArrayDirect other = (ImageArrayDirect) target;
+        this.verifyIsNotReleased();
+        other.verifyIsNotReleased();
+        if (this.type != Image.TYPE_8I && other.buffer.order() != this.buffer.order()) {
+            return false;
+        }
+
+        final ByteBuffer src = this.buffer.duplicate();
+        src.position(0).limit(this.getBufferSize());
+        final ByteBuffer dst = other.buffer.duplicate();
+        dst.position(0);
+        dst.put(src);
+        return true;
+    }
+
+    /**
+     * Release direct memory of current array. Memory is released immediately if there are no running parallel loops, otherwise after they
+     * finish. Buffers given by caller are not released, only forgotten. After it all methods of array throw {@link IllegalStateException}.
+     */
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArray#release()
+     */
+    @Override
+    public void release() {
+        // Flag is set and buffers are forgotten before memory is released, so new accesses fail instead of reading released memory.
+        this.released = true;
+
+        final ByteBuffer buf = this.buffer;
+
+        this.buffer = null;
+        this.source8I = null;
+        this.source32F = null;
+        this.source64F = null;
+
+        if (buf != null && this.owner) {
+            ImageArrayDirect.free(buf);
+        }
+    }
+
+    /**
+     * Release memory of given direct (or mapped) buffer after all parallel loops that are running now finish. If it is not possible on
+     * current JVM, memory will be released later by garbage collector.
+     */
+    static void free(final ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || !buffer.isDirect()) {
+            return;
+        }
+
+        // Workers of running loops can still use buffer (they do not see that array was released), so memory is released after them.
+        Parallel.afterRunningLoops(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    INVOKE_CLEANER.invoke(UNSAFE, buffer);
+                } catch (final Exception e) {
+                    // Memory will be released by garbage collector.
+                }
+            }
+        });
+    }
+}
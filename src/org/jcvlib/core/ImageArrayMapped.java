@@ -0,0 +1,167 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * This type of image arrays contains values into <STRONG>memory-mapped file</STRONG>. Paging of values is done by operating system, so
+ * size of array is not limited by size of Java heap.
+ *
+ * <P>
+ * File is split into chunks (see {@link ImageArrayChunked}), each chunk is mapped separately. So size of file is not limited by 2 GB size
+ * of one mapped buffer.
+ * </P>
+ *
+ * <P>
+ * Values are saved into file without any header in little-endian byte order: <CODE>width * height * numOfChannels</CODE> values of
+ * given type in order of given layout. If file already exists, it values will be used as a values of array.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ImageArrayMapped extends ImageArrayChunked {
+    /**
+     * Max size of one mapped chunk in bytes by default: 1 GB.
+     */
+    public static final int MAX_CHUNK_SIZE_DEFAULT = 1 << 30;
+
+    private final MappedByteBuffer[] buffers;
+
+    /**
+     * Map given file as a array with chunks by {@link ImageArrayMapped#MAX_CHUNK_SIZE_DEFAULT} bytes.
+     *
+     * @param file
+     *            File to map. Will be created or extended if it is needed.
+     * @param width
+     *            Width of array.
+     * @param height
+     *            Height of array.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param type
+     *            Type of values. Use <CODE>Image.TYPE_*</CODE> as a parameter.
+     * @param layout
+     *            Layout of values. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     */
+    public ImageArrayMapped(final File file, final int width, final int height, final int numOfChannels, final int type,
+        final int layout) throws IOException {
+        this(file, width, height, numOfChannels, type, layout, MAX_CHUNK_SIZE_DEFAULT);
+    }
+
+    /**
+     * Map given file as a array.
+     *
+     * @param file
+     *            File to map. Will be created or extended if it is needed.
+     * @param width
+     *            Width of array.
+     * @param height
+     *            Height of array.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param type
+     *            Type of values. Use <CODE>Image.TYPE_*</CODE> as a parameter.
+     * @param layout
+     *            Layout of values. Use <CODE>Image.LAYOUT_*</CODE> as a parameter.
+     * @param maxChunkSize
+     *            Max size of one mapped chunk in bytes. Each chunk contains at least one row (or column).
+     */
+    public ImageArrayMapped(final File file, final int width, final int height, final int numOfChannels, final int type,
+        final int layout, final int maxChunkSize) throws IOException {
+        super(new Size(width, height), numOfChannels, type, layout, ImageArrayChunked.calculateChunkShift(width, height, numOfChannels,
+            layout, maxChunkSize / ImageArrayDirect.getBytesPerValue(type)));
+
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(file, "file");
+
+        /*
+         * Map file.
+         */
+        final long lineBytes =
+            (long) (layout == Image.LAYOUT_ROW_MAJOR ? width : height) * numOfChannels * ImageArrayDirect.getBytesPerValue(type);
+        this.buffers = new MappedByteBuffer[this.chunks.length];
+
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final long fileSize = lineBytes * this.getNumOfLines();
+            if (raf.length() < fileSize) {
+                raf.setLength(fileSize);
+            }
+
+            final FileChannel channel = raf.getChannel();
+            for (int i = 0; i < this.chunks.length; ++i) {
+                final int lines = this.getLinesInChunk(i);
+
+                final long position = ((long) i << this.chunkShift) * lineBytes;
+                this.buffers[i] = channel.map(FileChannel.MapMode.READ_WRITE, position, lines * lineBytes);
+                this.buffers[i].order(ByteOrder.LITTLE_ENDIAN);
+
+                if (layout == Image.LAYOUT_ROW_MAJOR) {
+                    this.chunks[i] = new ImageArrayDirect(this.buffers[i], width, lines, numOfChannels, type, layout);
+                } else {
+                    this.chunks[i] = new ImageArrayDirect(this.buffers[i], lines, height, numOfChannels, type, layout);
+                }
+            }
+        } catch (final IOException e) {
+            this.release();
+            throw e;
+        } finally {
+            // Mapping stays valid after closing of file.
+            raf.close();
+        }
+    }
+
+    /**
+     * Write all changes of values into file.
+     */
+    public void flush() {
+        for (final MappedByteBuffer buffer : this.buffers) {
+            if (buffer != null) {
+                buffer.force();
+            }
+        }
+    }
+
+    /**
+     * Unmap all chunks of file. All changes of values will be written into file by operating system.
+     */
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.core.ImageArrayChunked#release()
+     */
+    @Override
+    public void release() {
+        super.release();
+
+        for (int i = 0; i < this.buffers.length; ++i) {
+            if (this.buffers[i] != null) {
+                ImageArrayDirect.free(this.buffers[i]);
+                this.buffers[i] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.core;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pool of image arrays. Allows to reuse memory of images with same size, number of channels, type and layout instead of allocating new
+ * images for each frame of video.
+ *
+ * <P>
+ * Images can be returned into pool explicitly by {@link #release(Image)} or automatically by closing of {@link ImagePool.Scope}. While scope
+ * is open, all new images of current thread that created by {@link Image#getSame()}, {@link Image#copy()} and by operations of library are
+ * taken from pool:
+ *
+ * <PRE>
+ * <CODE>
+ * final ImagePool pool = new ImagePool();
+ * while (...) {
+ *     try (ImagePool.Scope scope = pool.openScope()) {
+ *         Image blur = Filters.blur(frame, kernelSize, Filters.BLUR_GAUSSIAN);
+ *         Image diff = Misc.absDiff(blur, previous);
+ *         ...
+ *         scope.keep(result); // Should be not returned into pool.
+ *     } // All other images are returned into pool here.
+ * }
+ * </CODE>
+ * </PRE>
+ *
+ * After first frames all images are taken from pool, see {@link #getNumOfAllocations()} and {@link #getNumOfReuses()}.
+ * </P>
+ *
+ * <P>
+ * Values of images taken from pool are set to <CODE>0</CODE>, same as for new images. <STRONG>Images returned into pool (and all it
+ * sub-images, layers and channels) can not be used anymore!</STRONG>
+ * </P>
+ *
+ * <P>
+ * Size of free images into pool is limited (see {@link #ImagePool(long)}). If it is exceeded, images that were returned into pool first
+ * are removed from pool and released by garbage collector, so images of sizes that are not used anymore do not stay into pool forever.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ImagePool {
+    /**
+     * Open scope of current thread.
+     */
+    private static final ThreadLocal<ImagePool.Scope> CURRENT_SCOPE = new ThreadLocal<ImagePool.Scope>();
+
+    /**
+     * Default max size of free images into pool (in bytes).
+     */
+    public static final long MAX_SIZE_DEFAULT = 256L * 1024L * 1024L;
+
+    private final long maxSize;
+
+    /**
+     * Free arrays by keys, last returned array is first.
+     */
+    private final Map<String, Deque<ImageArray>> free = new HashMap<String, Deque<ImageArray>>();
+
+    /**
+     * Keys of free arrays in order of returning into pool. Arrays are compared by reference, not by values.
+     */
+    private final Map<ImageArray, String> order = new LinkedHashMap<ImageArray, String>();
+
+    private long sizeOfFree = 0;
+
+    private long numOfAllocations = 0;
+
+    private long numOfReuses = 0;
+
+    private long numOfEvictions = 0;
+
+    /**
+     * Create new empty pool with {@link #MAX_SIZE_DEFAULT} max size of free images.
+     */
+    public ImagePool() {
+        this(MAX_SIZE_DEFAULT);
+    }
+
+    /**
+     * Create new empty pool.
+     *
+     * @param maxSize
+     *            Max size of free images into pool (in bytes). If it is exceeded, images that were returned into pool first are removed
+     *            from it.
+     */
+    public ImagePool(final long maxSize) {
+        /*
+         * Verify parameters.
+         */
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Value of 'maxSize' (= " + Long.toString(maxSize) + ") must be more or equal 0!");
+        }
+
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return key of arrays with given parameters.
+     */
+    private static String getKey(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        return Integer.toString(width) + "x" + Integer.toString(height) + "x" + Integer.toString(numOfChannels) + ":"
+            + Integer.toString(type) + ":" + Integer.toString(layout);
+    }
+
+    /**
+     * Return size of values of given array (in bytes).
+     */
+    private static long getSizeOf(final ImageArray array) {
+        return (long) array.getWidth() * array.getHeight() * array.getNumOfChannels() * ImageArrayDirect.getBytesPerValue(array.getType());
+    }
+
+    /**
+     * Return image from pool or create new image if pool has not free image with given parameters. Values of returned image are set to
+     * <CODE>0</CODE>.
+     *
+     * @param width
+     *            Width of image (in pixels).
+     * @param height
+     *            Height of image (in pixels).
+     * @param numOfChannels
+     *            Number of channels in image.
+     * @param type
+     *            Type of image. You should use 'Image.TYPE_*' as a parameter!
+     * @param layout
+     *            Order of values into memory. You should use 'Image.LAYOUT_*' as a parameter!
+     */
+    public Image acquire(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        ImageArray array = null;
+        synchronized (this) {
+            final String key = ImagePool.getKey(width, height, numOfChannels, type, layout);
+            final Deque<ImageArray> arrays = this.free.get(key);
+            if (arrays != null) {
+                array = arrays.pop();
+                if (arrays.isEmpty()) {
+                    this.free.remove(key);
+                }
+                this.order.remove(array);
+                this.sizeOfFree -= ImagePool.getSizeOf(array);
+                ++this.numOfReuses;
+            } else {
+                ++this.numOfAllocations;
+            }
+        }
+
+        if (array == null) {
+            return new Image(width, height, numOfChannels, type, layout);
+        } else {
+            array.clear();
+            return new Image(array);
+        }
+    }
+
+    /**
+     * Return given image into pool. After it image (and all it sub-images, layers and channels) <STRONG>can not be used anymore</STRONG>.
+     *
+     * <P>
+     * Only whole images (not sub-images, layers or channels) allocated by library into Java heap can be returned into pool. Images that
+     * wrap array or buffer of caller (for example, by {@link Image#wrap(byte[], int, int, int, int)}) can not be returned into pool,
+     * because their values would be shared with other images.
+     * </P>
+     */
+    public void release(final Image image) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+
+        final ImageArray array = image.source;
+        final Class<?> arrayClass = array.getClass();
+        if (arrayClass != ImageArray8I.class && arrayClass != ImageArray32F.class && arrayClass != ImageArray64F.class
+            && arrayClass != ImageArrayChunked.class) {
+            throw new IllegalArgumentException("Only images from Java heap can be returned into pool!");
+        }
+        if (!array.isAllocated()) {
+            throw new IllegalArgumentException("Images that wrap array or buffer of caller can not be returned into pool!");
+        }
+        if (!image.isWhole()) {
+            throw new IllegalArgumentException("Sub-images, layers and channels can not be returned into pool!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        final String key = ImagePool.getKey(array.getWidth(), array.getHeight(), array.getNumOfChannels(), array.getType(),
+            array.getLayout());
+
+        final long size = ImagePool.getSizeOf(array);
+
+        synchronized (this) {
+            if (this.order.containsKey(array)) {
+                throw new IllegalArgumentException("Given image is already returned into pool!");
+            }
+
+            // Too big image is not saved at all.
+            if (size > this.maxSize) {
+                ++this.numOfEvictions;
+                return;
+            }
+
+            Deque<ImageArray> arrays = this.free.get(key);
+            if (arrays == null) {
+                arrays = new ArrayDeque<ImageArray>();
+                this.free.put(key, arrays);
+            }
+            arrays.push(array);
+            this.order.put(array, key);
+            this.sizeOfFree += size;
+
+            // Remove images that were returned into pool first. They are last into deques of their keys.
+            final Iterator<Map.Entry<ImageArray, String>> eldest = this.order.entrySet().iterator();
+            while (this.sizeOfFree > this.maxSize) {
+                final Map.Entry<ImageArray, String> entry = eldest.next();
+                eldest.remove();
+
+                final Deque<ImageArray> eldestArrays = this.free.get(entry.getValue());
+                eldestArrays.removeLast();
+                if (eldestArrays.isEmpty()) {
+                    this.free.remove(entry.getValue());
+                }
+                this.sizeOfFree -= ImagePool.getSizeOf(entry.getKey());
+                ++this.numOfEvictions;
+            }
+        }
+    }
+
+    /**
+     * Remove all free images from pool. Memory of them will be released by garbage collector.
+     */
+    public synchronized void clear() {
+        this.free.clear();
+        this.order.clear();
+        this.sizeOfFree = 0;
+    }
+
+    /**
+     * Return number of images that was created by current pool, because pool did not have free image with needed parameters.
+     */
+    public synchronized long getNumOfAllocations() {
+        return this.numOfAllocations;
+    }
+
+    /**
+     * Return number of images that was taken from pool without allocation of memory.
+     */
+    public synchronized long getNumOfReuses() {
+        return this.numOfReuses;
+    }
+
+    /**
+     * Return number of free images into pool.
+     */
+    public synchronized int getNumOfFree() {
+        return this.order.size();
+    }
+
+    /**
+     * Return size of free images into pool (in bytes).
+     */
+    public synchronized long getSizeOfFree() {
+        return this.sizeOfFree;
+    }
+
+    /**
+     * Return max size of free images into pool (in bytes).
+     */
+    public long getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * Return number of images that were removed from pool (or were not saved into it) because max size of free images was exceeded.
+     */
+    public synchronized long getNumOfEvictions() {
+        return this.numOfEvictions;
+    }
+
+    /**
+     * Open new scope of current pool for current thread. Until this scope will be closed, new images of current thread are taken from
+     * current pool and returned into it by {@link ImagePool.Scope#close()}. Scopes can be nested.
+     */
+    public ImagePool.Scope openScope() {
+        final ImagePool.Scope scope = new ImagePool.Scope(this, CURRENT_SCOPE.get());
+        CURRENT_SCOPE.set(scope);
+
+        return scope;
+    }
+
+    /**
+     * Return pool of open scope of current thread or <CODE>null</CODE> if current thread has not open scope.
+     */
+    public static ImagePool getCurrent() {
+        final ImagePool.Scope scope = CURRENT_SCOPE.get();
+        if (scope == null) {
+            return null;
+        }
+
+        return scope.pool;
+    }
+
+    /**
+     * Create new empty image. If current thread has open scope, image will be taken from pool of this scope and returned into pool when
+     * scope will be closed. Otherwise it is same as {@link Image#Image(int, int, int, int, int)}.
+     *
+     * <P>
+     * Operations of library use this method to create results.
+     * </P>
+     */
+    public static Image create(final int width, final int height, final int numOfChannels, final int type, final int layout) {
+        final ImagePool.Scope scope = CURRENT_SCOPE.get();
+        if (scope == null) {
+            return new Image(width, height, numOfChannels, type, layout);
+        }
+
+        final Image image = scope.pool.acquire(width, height, numOfChannels, type, layout);
+        scope.acquired.add(image);
+
+        return image;
+    }
+
+    /**
+     * Return given temporary image into pool of open scope of current thread. If current thread has not open scope, do nothing.
+     *
+     * <P>
+     * Operations of library use this method for internal images that was created by {@link #create(int, int, int, int, int)}.
+     * </P>
+     */
+    public static void recycle(final Image image) {
+        final ImagePool.Scope scope = CURRENT_SCOPE.get();
+        if (scope != null && scope.acquired.remove(image)) {
+            scope.pool.release(image);
+        }
+    }
+
+    /**
+     * Scope of pool. See {@link ImagePool}.
+     *
+     * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+     */
+    public static class Scope implements AutoCloseable {
+
+        private final ImagePool pool;
+
+        private final ImagePool.Scope parent;
+
+        private final Thread owner;
+
+        /**
+         * Images are compared by reference, not by values.
+         */
+        private final Set<Image> acquired = Collections.newSetFromMap(new IdentityHashMap<Image, Boolean>());
+
+        private boolean closed = false;
+
+        private Scope(final ImagePool pool, final ImagePool.Scope parent) {
+            this.pool = pool;
+            this.parent = parent;
+            this.owner = Thread.currentThread();
+        }
+
+        /**
+         * Do not return given image into pool when current scope will be closed. Image can be returned into pool later by
+         * {@link ImagePool#release(Image)}.
+         *
+         * @return
+         *         Given image.
+         */
+        public Image keep(final Image image) {
+            JCV.verifyIsNotNull(image, "image");
+
+            this.acquired.remove(image);
+
+            return image;
+        }
+
+        /**
+         * Return all images, that was taken from pool into current scope and was not kept, into pool. <STRONG>Should be called from same
+         * thread that opened scope!</STRONG> Scope that is closed in wrong order or from other thread stays open and throws
+         * {@link IllegalStateException}.
+         */
+        /*
+         * (non-Javadoc)
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+
+            // Check before any changes, so wrong call does not break current scope of thread.
+            if (Thread.currentThread() != this.owner) {
+                throw new IllegalStateException("Scope of pool should be closed from thread that opened it!");
+            }
+            if (CURRENT_SCOPE.get() != this) {
+                throw new IllegalStateException("Scopes of pool should be closed in reverse order!");
+            }
+
+            this.closed = true;
+            CURRENT_SCOPE.set(this.parent);
+
+            for (final Image image : this.acquired) {
+                this.pool.release(image);
+            }
+            this.acquired.clear();
+        }
+    }
+}
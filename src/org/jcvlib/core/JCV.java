@@ -48,6 +48,11 @@ public class JCV {
      */
     public static final double PRECISION_MAX = 0.000_000_000_000_1;
 
+    /**
+     * Precision allowed by current realization for {@link Image#TYPE_32F} is <CODE>10<SUP>-4</SUP></CODE>.
+     */
+    public static final double PRECISION_32F = 0.000_1;
+
     /**
      * Constant to define OS Linux.
      */
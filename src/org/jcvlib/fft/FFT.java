@@ -0,0 +1,200 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.fft;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Plan of one-dimensional complex <A href="http://en.wikipedia.org/wiki/Fast_Fourier_transform">Fast Fourier transform</A> (iterative
+ * radix-2 Cooley-Tukey algorithm).
+ *
+ * <P>
+ * Plan contains precomputed twiddle factors and bit-reversal permutation for one size of transform. Plans are immutable, cached by size
+ * and can be used by many workers at the same time. Use {@link #getPlan(int)} to get plan.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public final class FFT {
+    /**
+     * Created plans by size.
+     */
+    private static final ConcurrentMap<Integer, FFT> PLANS = new ConcurrentHashMap<Integer, FFT>();
+
+    private final int size;
+
+    private final double[] cos;
+
+    private final double[] sin;
+
+    private final int[] reverse;
+
+    private FFT(final int size) {
+        this.size = size;
+
+        this.cos = new double[size / 2];
+        this.sin = new double[size / 2];
+        for (int k = 0; k < size / 2; ++k) {
+            final double angle = 2.0 * Math.PI * k / size;
+            this.cos[k] = Math.cos(angle);
+            this.sin[k] = Math.sin(angle);
+        }
+
+        this.reverse = new int[size];
+        final int bits = Integer.numberOfTrailingZeros(size);
+        for (int i = 0; i < size; ++i) {
+            this.reverse[i] = (bits == 0) ? 0 : Integer.reverse(i) >>> (Integer.SIZE - bits);
+        }
+    }
+
+    /**
+     * Return plan of transform with given size.
+     *
+     * @param size
+     *            Size of transform. Should be power of 2.
+     */
+    public static FFT getPlan(final int size) {
+        /*
+         * Verify parameters.
+         */
+        if (size <= 0 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Value of 'size' (= " + Integer.toString(size) + ") must be power of 2!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        FFT plan = FFT.PLANS.get(size);
+        if (plan == null) {
+            plan = new FFT(size);
+            final FFT old = FFT.PLANS.putIfAbsent(size, plan);
+            if (old != null) {
+                plan = old;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Return minimal size of transform (power of 2) that is more or equal than given number of values.
+     */
+    public static int getOptimalSize(final int n) {
+        /*
+         * Verify parameters.
+         */
+        if (n <= 0 || n > (1 << 30)) {
+            throw new IllegalArgumentException("Value of 'n' (= " + Integer.toString(n) + ") must be in interval 1.."
+                + Integer.toString(1 << 30) + "!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        return (n == 1) ? 1 : Integer.highestOneBit(n - 1) << 1;
+    }
+
+    /**
+     * Return size of transform.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Forward transform of complex values in place.
+     *
+     * @param re
+     *            Real parts of values. Should contain {@link #getSize()} values.
+     * @param im
+     *            Imaginary parts of values. Should contain {@link #getSize()} values.
+     */
+    public void forward(final double[] re, final double[] im) {
+        this.transform(re, im, false);
+    }
+
+    /**
+     * Inverse transform of complex values in place. Result is divided to {@link #getSize()}, so
+     * <CODE>inverse(forward(x)) = x</CODE>.
+     *
+     * @param re
+     *            Real parts of values. Should contain {@link #getSize()} values.
+     * @param im
+     *            Imaginary parts of values. Should contain {@link #getSize()} values.
+     */
+    public void inverse(final double[] re, final double[] im) {
+        this.transform(re, im, true);
+
+        final double scale = 1.0 / this.size;
+        for (int i = 0; i < this.size; ++i) {
+            re[i] *= scale;
+            im[i] *= scale;
+        }
+    }
+
+    private void transform(final double[] re, final double[] im, final boolean inverse) {
+        /*
+         * Verify parameters.
+         */
+        if (re.length < this.size || im.length < this.size) {
+            throw new IllegalArgumentException("Arrays 're' and 'im' should contain at least " + Integer.toString(this.size) + " values!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        // Bit-reversal permutation.
+        for (int i = 0; i < this.size; ++i) {
+            final int j = this.reverse[i];
+            if (i < j) {
+                double temp = re[i];
+                re[i] = re[j];
+                re[j] = temp;
+
+                temp = im[i];
+                im[i] = im[j];
+                im[j] = temp;
+            }
+        }
+
+        // Butterflies.
+        final double sign = inverse ? 1.0 : -1.0;
+        for (int length = 2; length <= this.size; length <<= 1) {
+            final int half = length >> 1;
+            final int step = this.size / length;
+            for (int start = 0; start < this.size; start += length) {
+                for (int k = 0; k < half; ++k) {
+                    final double wRe = this.cos[k * step];
+                    final double wIm = sign * this.sin[k * step];
+
+                    final int i = start + k;
+                    final int j = i + half;
+                    final double tRe = re[j] * wRe - im[j] * wIm;
+                    final double tIm = re[j] * wIm + im[j] * wRe;
+
+                    re[j] = re[i] - tRe;
+                    im[j] = im[i] - tIm;
+                    re[i] += tRe;
+                    im[i] += tIm;
+                }
+            }
+        }
+    }
+}
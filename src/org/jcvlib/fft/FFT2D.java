@@ -0,0 +1,401 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.fft;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Plan of two-dimensional real-to-complex <A href="http://en.wikipedia.org/wiki/Fast_Fourier_transform">Fast Fourier transform</A>.
+ *
+ * <P>
+ * Spectrum of real values is Hermitian, so only <CODE>getSpectrumWidth() = getWidth() / 2 + 1</CODE> columns of spectrum are saved.
+ * Rows of real values are transformed by pairs: two real rows are saved as real and imaginary parts of one complex row, so only half of
+ * complex transforms of rows is needed.
+ * </P>
+ *
+ * <P>
+ * Plans are immutable, cached by size and can be used by many workers at the same time. Use {@link #getPlan(int, int)} to get plan.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public final class FFT2D {
+    /**
+     * Created plans by size.
+     */
+    private static final ConcurrentMap<Long, FFT2D> PLANS = new ConcurrentHashMap<Long, FFT2D>();
+
+    private final int width;
+
+    private final int height;
+
+    private final int spectrumWidth;
+
+    private final FFT rowPlan;
+
+    private final FFT columnPlan;
+
+    private FFT2D(final int width, final int height) {
+        this.width = width;
+        this.height = height;
+        this.spectrumWidth = width / 2 + 1;
+        this.rowPlan = FFT.getPlan(width);
+        this.columnPlan = FFT.getPlan(height);
+    }
+
+    /**
+     * Return plan of transform with given size.
+     *
+     * @param width
+     *            Width of transform. Should be power of 2.
+     * @param height
+     *            Height of transform. Should be power of 2.
+     */
+    public static FFT2D getPlan(final int width, final int height) {
+        /*
+         * Verify parameters.
+         */
+        if (width <= 0 || Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("Value of 'width' (= " + Integer.toString(width) + ") must be power of 2!");
+        }
+        if (height <= 0 || Integer.bitCount(height) != 1) {
+            throw new IllegalArgumentException("Value of 'height' (= " + Integer.toString(height) + ") must be power of 2!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        final Long key = ((long) width << 32) | height;
+        FFT2D plan = FFT2D.PLANS.get(key);
+        if (plan == null) {
+            plan = new FFT2D(width, height);
+            final FFT2D old = FFT2D.PLANS.putIfAbsent(key, plan);
+            if (old != null) {
+                plan = old;
+            }
+        }
+
+        return plan;
+    }
+
+    /**
+     * Return width of transform.
+     */
+    public int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Return height of transform.
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Return number of saved columns of spectrum: <CODE>getWidth() / 2 + 1</CODE>.
+     */
+    public int getSpectrumWidth() {
+        return this.spectrumWidth;
+    }
+
+    /**
+     * Return number of values of spectrum: <CODE>getSpectrumWidth() * getHeight()</CODE>.
+     */
+    public int getSpectrumLength() {
+        return this.spectrumWidth * this.height;
+    }
+
+    /**
+     * Forward transform of real values.
+     *
+     * @param values
+     *            Real values by rows. Should contain <CODE>getWidth() * getHeight()</CODE> values.
+     * @param re
+     *            Real parts of spectrum by rows. Should contain {@link #getSpectrumLength()} values.
+     * @param im
+     *            Imaginary parts of spectrum by rows. Should contain {@link #getSpectrumLength()} values.
+     */
+    public void forward(final double[] values, final double[] re, final double[] im) {
+        /*
+         * Verify parameters.
+         */
+        this.verifyLength(values, re, im);
+
+        /*
+         * Perform operation.
+         */
+        final double[] rowRe = new double[this.width];
+        final double[] rowIm = new double[this.width];
+        for (int y = 0; y < this.height; y += 2) {
+            // Two real rows are transformed as one complex row.
+            System.arraycopy(values, y * this.width, rowRe, 0, this.width);
+            if (y + 1 < this.height) {
+                System.arraycopy(values, (y + 1) * this.width, rowIm, 0, this.width);
+            } else {
+                Arrays.fill(rowIm, 0.0);
+            }
+            this.rowPlan.forward(rowRe, rowIm);
+
+            // Separate spectra of rows: A[k] = (C[k] + conj(C[-k])) / 2, B[k] = (C[k] - conj(C[-k])) / 2i.
+            for (int k = 0; k < this.spectrumWidth; ++k) {
+                final int j = (this.width - k) & (this.width - 1);
+                final double cRe = rowRe[k];
+                final double cIm = rowIm[k];
+                final double dRe = rowRe[j];
+                final double dIm = rowIm[j];
+
+                re[y * this.spectrumWidth + k] = 0.5 * (cRe + dRe);
+                im[y * this.spectrumWidth + k] = 0.5 * (cIm - dIm);
+                if (y + 1 < this.height) {
+                    re[(y + 1) * this.spectrumWidth + k] = 0.5 * (cIm + dIm);
+                    im[(y + 1) * this.spectrumWidth + k] = -0.5 * (cRe - dRe);
+                }
+            }
+        }
+
+        this.transformColumns(re, im, false);
+    }
+
+    /**
+     * Inverse transform into real values. Result is divided to <CODE>getWidth() * getHeight()</CODE>, so
+     * <CODE>inverse(forward(x)) = x</CODE>.
+     *
+     * <P>
+     * <STRONG>Values of spectrum are changed!</STRONG>
+     * </P>
+     *
+     * @param re
+     *            Real parts of spectrum by rows. Should contain {@link #getSpectrumLength()} values.
+     * @param im
+     *            Imaginary parts of spectrum by rows. Should contain {@link #getSpectrumLength()} values.
+     * @param values
+     *            Real values by rows. Should contain <CODE>getWidth() * getHeight()</CODE> values.
+     */
+    public void inverse(final double[] re, final double[] im, final double[] values) {
+        /*
+         * Verify parameters.
+         */
+        this.verifyLength(values, re, im);
+
+        /*
+         * Perform operation.
+         */
+        this.transformColumns(re, im, true);
+
+        final double[] rowRe = new double[this.width];
+        final double[] rowIm = new double[this.width];
+        for (int y = 0; y < this.height; y += 2) {
+            // Join spectra of two real rows: C[k] = A[k] + i * B[k]. Other half of spectra is conjugate.
+            final int rowA = y * this.spectrumWidth;
+            final int rowB = (y + 1) * this.spectrumWidth;
+            for (int k = 0; k < this.width; ++k) {
+                final int pos = (k < this.spectrumWidth) ? k : this.width - k;
+                final double sign = (k < this.spectrumWidth) ? 1.0 : -1.0;
+
+                final double aRe = re[rowA + pos];
+                final double aIm = sign * im[rowA + pos];
+                double bRe = 0.0;
+                double bIm = 0.0;
+                if (y + 1 < this.height) {
+                    bRe = re[rowB + pos];
+                    bIm = sign * im[rowB + pos];
+                }
+
+                rowRe[k] = aRe - bIm;
+                rowIm[k] = aIm + bRe;
+            }
+            this.rowPlan.inverse(rowRe, rowIm);
+
+            System.arraycopy(rowRe, 0, values, y * this.width, this.width);
+            if (y + 1 < this.height) {
+                System.arraycopy(rowIm, 0, values, (y + 1) * this.width, this.width);
+            }
+        }
+    }
+
+    /**
+     * Multiply spectrum <CODE>(re1, im1)</CODE> to spectrum <CODE>(re2, im2)</CODE> (or to its conjugate) and save result into first
+     * spectrum. Multiplication of spectra is a convolution of values, multiplication to conjugate spectrum is a correlation.
+     *
+     * @param re1
+     *            Real parts of first spectrum.
+     * @param im1
+     *            Imaginary parts of first spectrum.
+     * @param re2
+     *            Real parts of second spectrum.
+     * @param im2
+     *            Imaginary parts of second spectrum.
+     * @param conjugate
+     *            Use conjugate second spectrum.
+     */
+    public static void multiply(final double[] re1, final double[] im1, final double[] re2, final double[] im2, final boolean conjugate) {
+        final double sign = conjugate ? -1.0 : 1.0;
+        for (int i = 0; i < re1.length; ++i) {
+            final double r = re1[i] * re2[i] - im1[i] * sign * im2[i];
+            final double m = re1[i] * sign * im2[i] + im1[i] * re2[i];
+            re1[i] = r;
+            im1[i] = m;
+        }
+    }
+
+    /**
+     * Correlation of values with kernel (without any extrapolation):
+     * <CODE>result[x, y] = sum(values[x + i, y + j] * kernel[i, j])</CODE>.
+     *
+     * @param values
+     *            Values by rows.
+     * @param width
+     *            Width of values.
+     * @param height
+     *            Height of values.
+     * @param kernel
+     *            Values of kernel by rows.
+     * @param kernelWidth
+     *            Width of kernel. Should be in interval <CODE>1..width</CODE>.
+     * @param kernelHeight
+     *            Height of kernel. Should be in interval <CODE>1..height</CODE>.
+     * @param result
+     *            Array for <CODE>(width - kernelWidth + 1) * (height - kernelHeight + 1)</CODE> result values by rows.
+     */
+    public static void correlate(final double[] values, final int width, final int height, final double[] kernel, final int kernelWidth,
+        final int kernelHeight, final double[] result) {
+        FFT2D.filter(values, width, height, kernel, kernelWidth, kernelHeight, result, true);
+    }
+
+    /**
+     * Convolution of values with kernel (without any extrapolation):
+     * <CODE>result[x, y] = sum(values[x + i, y + j] * kernel[kernelWidth - 1 - i, kernelHeight - 1 - j])</CODE>.
+     *
+     * @param values
+     *            Values by rows.
+     * @param width
+     *            Width of values.
+     * @param height
+     *            Height of values.
+     * @param kernel
+     *            Values of kernel by rows.
+     * @param kernelWidth
+     *            Width of kernel. Should be in interval <CODE>1..width</CODE>.
+     * @param kernelHeight
+     *            Height of kernel. Should be in interval <CODE>1..height</CODE>.
+     * @param result
+     *            Array for <CODE>(width - kernelWidth + 1) * (height - kernelHeight + 1)</CODE> result values by rows.
+     */
+    public static void convolve(final double[] values, final int width, final int height, final double[] kernel, final int kernelWidth,
+        final int kernelHeight, final double[] result) {
+        FFT2D.filter(values, width, height, kernel, kernelWidth, kernelHeight, result, false);
+    }
+
+    private static void filter(final double[] values, final int width, final int height, final double[] kernel, final int kernelWidth,
+        final int kernelHeight, final double[] result, final boolean correlation) {
+        /*
+         * Verify parameters.
+         */
+        if (width <= 0 || height <= 0 || values.length < width * height) {
+            throw new IllegalArgumentException("Array 'values' should contain 'width * height' values!");
+        }
+        if (kernelWidth <= 0 || kernelWidth > width) {
+            throw new IllegalArgumentException("Value of 'kernelWidth' (= " + Integer.toString(kernelWidth) + ") must be in interval 1.."
+                + Integer.toString(width) + "!");
+        }
+        if (kernelHeight <= 0 || kernelHeight > height) {
+            throw new IllegalArgumentException("Value of 'kernelHeight' (= " + Integer.toString(kernelHeight) + ") must be in interval 1.."
+                + Integer.toString(height) + "!");
+        }
+        if (kernel.length < kernelWidth * kernelHeight) {
+            throw new IllegalArgumentException("Array 'kernel' should contain 'kernelWidth * kernelHeight' values!");
+        }
+        final int resultWidth = width - kernelWidth + 1;
+        final int resultHeight = height - kernelHeight + 1;
+        if (result.length < resultWidth * resultHeight) {
+            throw new IllegalArgumentException("Array 'result' should contain '(width - kernelWidth + 1) * (height - kernelHeight + 1)'"
+                + " values!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        final FFT2D plan = FFT2D.getPlan(FFT.getOptimalSize(width), FFT.getOptimalSize(height));
+
+        // Spectrum of kernel. Convolution is a correlation with flipped kernel.
+        final double[] buffer = new double[plan.getWidth() * plan.getHeight()];
+        for (int y = 0; y < kernelHeight; ++y) {
+            for (int x = 0; x < kernelWidth; ++x) {
+                final double value = correlation ? kernel[y * kernelWidth + x]
+                    : kernel[(kernelHeight - 1 - y) * kernelWidth + (kernelWidth - 1 - x)];
+                buffer[y * plan.getWidth() + x] = value;
+            }
+        }
+        final double[] kernelRe = new double[plan.getSpectrumLength()];
+        final double[] kernelIm = new double[plan.getSpectrumLength()];
+        plan.forward(buffer, kernelRe, kernelIm);
+
+        // Spectrum of values.
+        Arrays.fill(buffer, 0.0);
+        for (int y = 0; y < height; ++y) {
+            System.arraycopy(values, y * width, buffer, y * plan.getWidth(), width);
+        }
+        final double[] re = new double[plan.getSpectrumLength()];
+        final double[] im = new double[plan.getSpectrumLength()];
+        plan.forward(buffer, re, im);
+
+        // Correlation: values of result are not wrapped because result is smaller than transform.
+        FFT2D.multiply(re, im, kernelRe, kernelIm, true);
+        plan.inverse(re, im, buffer);
+        for (int y = 0; y < resultHeight; ++y) {
+            System.arraycopy(buffer, y * plan.getWidth(), result, y * resultWidth, resultWidth);
+        }
+    }
+
+    private void verifyLength(final double[] values, final double[] re, final double[] im) {
+        if (values.length < this.width * this.height) {
+            throw new IllegalArgumentException("Array 'values' should contain at least " + Integer.toString(this.width * this.height)
+                + " values!");
+        }
+        if (re.length < this.getSpectrumLength() || im.length < this.getSpectrumLength()) {
+            throw new IllegalArgumentException("Arrays 're' and 'im' should contain at least " + Integer.toString(this.getSpectrumLength())
+                + " values!");
+        }
+    }
+
+    private void transformColumns(final double[] re, final double[] im, final boolean inverse) {
+        final double[] columnRe = new double[this.height];
+        final double[] columnIm = new double[this.height];
+        for (int k = 0; k < this.spectrumWidth; ++k) {
+            for (int y = 0; y < this.height; ++y) {
+                columnRe[y] = re[y * this.spectrumWidth + k];
+                columnIm[y] = im[y * this.spectrumWidth + k];
+            }
+
+            if (inverse) {
+                this.columnPlan.inverse(columnRe, columnIm);
+            } else {
+                this.columnPlan.forward(columnRe, columnIm);
+            }
+
+            for (int y = 0; y < this.height; ++y) {
+                re[y * this.spectrumWidth + k] = columnRe[y];
+                im[y * this.spectrumWidth + k] = columnIm[y];
+            }
+        }
+    }
+}
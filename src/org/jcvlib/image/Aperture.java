@@ -0,0 +1,164 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.image;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.Rectangle;
+import org.jcvlib.core.Size;
+
+/**
+ * Aperture (window) of image for {@link Filters#noneLinearFilter(Image, Image, Size, org.jcvlib.core.Point, int, int,
+ * Filters.ApertureOperator)}.
+ *
+ * <P>
+ * Unlike sub-image ({@link Image#getSubimage(Rectangle)}), aperture is not created for each pixel: one aperture is moved over values of
+ * tile that were copied into array, so values are read from array without any checking and allocation.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class Aperture {
+
+    private final int type;
+
+    private final Size size;
+
+    private final int numOfChannels;
+
+    private final double[] values;
+
+    private int strideY;
+
+    private final double[] tempArray;
+
+    private int offset;
+
+    /**
+     * Create new aperture.
+     *
+     * @param type
+     *            Type of source image. Use <CODE>Image.TYPE_*</CODE> parameters.
+     * @param numOfChannels
+     *            Number of channels of source image.
+     * @param size
+     *            Size of aperture.
+     * @param values
+     *            Values of block of image, saved by rows.
+     * @param strideY
+     *            Distance in array between values of neighboring rows.
+     */
+    Aperture(final int type, final int numOfChannels, final Size size, final double[] values, final int strideY) {
+        this.type = type;
+        this.size = size;
+        this.numOfChannels = numOfChannels;
+        this.values = values;
+        this.strideY = strideY;
+        this.tempArray = new double[size.getN()];
+    }
+
+    /**
+     * Set distance in array between values of neighboring rows. Used when one aperture is moved over blocks with different width, that
+     * are copied into same array.
+     */
+    void setStrideY(final int strideY) {
+        this.strideY = strideY;
+    }
+
+    /**
+     * Move aperture into given position of array.
+     *
+     * @param offset
+     *            Position of value of top-left pixel of aperture into array.
+     */
+    void moveTo(final int offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Return copy of current aperture as a sub-image. Used by operators that need {@link Image}.
+     */
+    Image getImage() {
+        final Image image = new Image(this.size.getWidth(), this.size.getHeight(), this.numOfChannels, this.type);
+        for (int y = 0; y < this.size.getHeight(); ++y) {
+            image.setSpan(0, y, this.size.getWidth(), this.values, this.offset + y * this.strideY);
+        }
+
+        return image;
+    }
+
+    /**
+     * Return width of aperture.
+     */
+    public int getWidth() {
+        return this.size.getWidth();
+    }
+
+    /**
+     * Return height of aperture.
+     */
+    public int getHeight() {
+        return this.size.getHeight();
+    }
+
+    /**
+     * Return size of aperture.
+     */
+    public Size getSize() {
+        return this.size;
+    }
+
+    /**
+     * Return number of channels.
+     */
+    public int getNumOfChannels() {
+        return this.numOfChannels;
+    }
+
+    /**
+     * Return temporary array with <CODE>getWidth() * getHeight()</CODE> values. Operators can use it instead of creating new array for
+     * each pixel (for example, to sort values of one channel). Same array is returned for all positions of current aperture, but
+     * different workers have different arrays.
+     */
+    public double[] getTempArray() {
+        return this.tempArray;
+    }
+
+    /**
+     * Return float-point value from interval <CODE>[0.0, 255.0]</CODE> of selected channel from selected pixel of aperture
+     * <STRONG>without position checking</STRONG>.
+     */
+    public double get(final int x, final int y, final int channel) {
+        return this.values[this.offset + y * this.strideY + x * this.numOfChannels + channel];
+    }
+
+    /**
+     * Copy values of all channels of selected pixel of aperture into given array <STRONG>without position checking</STRONG>.
+     */
+    public void get(final int x, final int y, final double[] color) {
+        System.arraycopy(this.values, this.offset + y * this.strideY + x * this.numOfChannels, color, 0, this.numOfChannels);
+    }
+
+    /**
+     * Copy values of whole row <CODE>y</CODE> of aperture into given array starting from <CODE>offset</CODE>
+     * <STRONG>without position checking</STRONG>. Values are saved in order: <CODE>(0, 0), (0, 1), ..., (1, 0), ...</CODE>.
+     */
+    public void getRow(final int y, final double[] dst, final int offset) {
+        System.arraycopy(this.values, this.offset + y * this.strideY, dst, offset, this.size.getWidth() * this.numOfChannels);
+    }
+}
@@ -21,9 +21,11 @@ package org.jcvlib.image;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
 
+import org.jcvlib.parallel.NamedRowLoopFactory;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.RowLoop;
 
 /**
  * Contains methods to convert images from one color scheme to another.
@@ -65,20 +67,34 @@ public class ColorConvert {
         /*
          * Perform transformation.
          */
-        final Image result = new Image(image.getWidth(), image.getHeight(), 1, image.getType());
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), 1, image.getType(), Image.LAYOUT_ROW_MAJOR);
 
-        Parallel.pixels(image, new PixelsLoop() {
+        Parallel.rows(image, new NamedRowLoopFactory(ColorConvert.class.getName() + ":fromRGBtoGray") {
             @Override
-            public void execute(final int x, final int y) {
-                double gray =
-                    // Red
-                    0.299 * image.get(x, y, 0) +
-                    // Green
-                    0.587 * image.get(x, y, 1) +
-                    // Blue
-                    0.114 * image.get(x, y, 2);
-
-                result.set(x, y, 0, gray);
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] source = new double[image.getWidth() * 3];
+
+                    private final double[] target = new double[image.getWidth()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.source, 0);
+
+                        for (int x = 0, i = 0; x < length; ++x, i += 3) {
+                            this.target[x] =
+                                // Red
+                                0.299 * this.source[i] +
+                                // Green
+                                0.587 * this.source[i + 1] +
+                                // Blue
+                                0.114 * this.source[i + 2];
+                        }
+
+                        result.setSpan(xStart, y, length, this.target, 0);
+                    }
+                };
             }
         });
 
@@ -111,17 +127,33 @@ public class ColorConvert {
         /*
          * Perform transformation.
          */
-        final Image result = image.getSame();
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), 3, image.getType(), image.getLayout());
+
+        Parallel.rows(image, new NamedRowLoopFactory(ColorConvert.class.getName() + ":fromGrayToRGB") {
+            @Override
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] gray = new double[image.getWidth()];
+
+                    private final double[] rgb = new double[image.getWidth() * 3];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.gray, 0);
+
+                        int pos = 0;
+                        for (int x = 0; x < length; ++x) {
+                            this.rgb[pos++] = this.gray[x];
+                            this.rgb[pos++] = this.gray[x];
+                            this.rgb[pos++] = this.gray[x];
+                        }
 
-        for (int channel = 0; channel < result.getNumOfChannels(); ++channel) {
-            final int proxyChannel = channel;
-            Parallel.pixels(image, new PixelsLoop() {
-                @Override
-                public void execute(final int x, final int y) {
-                    result.set(x, y, proxyChannel, image.get(x, y, 0));
-                }
-            });
-        }
+                        result.setSpan(xStart, y, length, this.rgb, 0);
+                    }
+                };
+            }
+        });
 
         return result;
     }
@@ -162,66 +194,82 @@ public class ColorConvert {
          */
         final Image result = image.getSame();
 
-        Parallel.pixels(image, new PixelsLoop() {
+        Parallel.rows(image, new NamedRowLoopFactory(ColorConvert.class.getName() + ":fromRGBtoHSL") {
             @Override
-            public void execute(final int x, final int y) {
-                // Initialization.
-                final double R = image.get(x, y, 0);
-                final double G = image.get(x, y, 1);
-                final double B = image.get(x, y, 2);
-
-                // Convert.
-                double M = Math.max(R, Math.max(G, B));
-                double m = Math.min(R, Math.min(G, B));
-                double d = M - m;
-
-                // Compute value Lightness.
-                double L = (M + m) / 2.0;
-
-                // Compute value Saturation.
-                double S;
-                if (d == 0) {
-                    S = 0.0;
-                } else {
-                    double t;
-                    if (L <= Color.COLOR_MAX_VALUE / 2.0) {
-                        t = L;
-                    } else {
-                        t = Color.COLOR_MAX_VALUE - L;
-                    }
-
-                    S = (d * Color.COLOR_MAX_VALUE) / (2.0 * t);
-                }
-
-                // Compute value Hue.
-                double H;
-                if (M > 0.0 && d > 0.0) {
-                    final double r = (M - R) / d;
-                    final double g = (M - G) / d;
-                    final double b = (M - B) / d;
-
-                    double h;
-                    if (R == M) {
-                        h = b - g;
-                    } else
-                        if (G == M) {
-                            h = r - b + 2.0;
-                        } else {
-                            h = g - r + 4.0;
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] source = new double[image.getWidth() * 3];
+
+                    private final double[] target = new double[image.getWidth() * 3];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.source, 0);
+
+                        for (int i = 0; i < length * 3; i += 3) {
+                            // Initialization.
+                            final double R = this.source[i];
+                            final double G = this.source[i + 1];
+                            final double B = this.source[i + 2];
+
+                            // Convert.
+                            double M = Math.max(R, Math.max(G, B));
+                            double m = Math.min(R, Math.min(G, B));
+                            double d = M - m;
+
+                            // Compute value Lightness.
+                            double L = (M + m) / 2.0;
+
+                            // Compute value Saturation.
+                            double S;
+                            if (d == 0) {
+                                S = 0.0;
+                            } else {
+                                double t;
+                                if (L <= Color.COLOR_MAX_VALUE / 2.0) {
+                                    t = L;
+                                } else {
+                                    t = Color.COLOR_MAX_VALUE - L;
+                                }
+
+                                S = (d * Color.COLOR_MAX_VALUE) / (2.0 * t);
+                            }
+
+                            // Compute value Hue.
+                            double H;
+                            if (M > 0.0 && d > 0.0) {
+                                final double r = (M - R) / d;
+                                final double g = (M - G) / d;
+                                final double b = (M - B) / d;
+
+                                double h;
+                                if (R == M) {
+                                    h = b - g;
+                                } else
+                                    if (G == M) {
+                                        h = r - b + 2.0;
+                                    } else {
+                                        h = g - r + 4.0;
+                                    }
+                                if (h < 0.0) {
+                                    h += 6.0;
+                                }
+                                H = h / 6.0;
+                            } else {
+                                H = 0.0;
+                            }
+                            H *= Color.COLOR_MAX_VALUE;
+
+                            // Save result.
+                            this.target[i] = H;
+                            this.target[i + 1] = S;
+                            this.target[i + 2] = L;
                         }
-                    if (h < 0.0) {
-                        h += 6.0;
+
+                        result.setSpan(xStart, y, length, this.target, 0);
                     }
-                    H = h / 6.0;
-                } else {
-                    H = 0.0;
-                }
-                H *= Color.COLOR_MAX_VALUE;
-
-                // Save result.
-                result.set(x, y, 0, H);
-                result.set(x, y, 1, S);
-                result.set(x, y, 2, L);
+                };
             }
         });
 
@@ -262,56 +310,72 @@ public class ColorConvert {
          */
         final Image result = image.getSame();
 
-        Parallel.pixels(image, new PixelsLoop() {
+        Parallel.rows(image, new NamedRowLoopFactory(ColorConvert.class.getName() + ":fromHSLtoRGB") {
             @Override
-            public void execute(final int x, final int y) {
-                // Initialization.
-                double H = image.get(x, y, 0);
-                double S = image.get(x, y, 1);
-                double L = image.get(x, y, 2);
-
-                // Convert.
-                final double h = (6.0 * (H / Color.COLOR_MAX_VALUE)) % 6.0;
-                final int c1 = (int) h;
-                final double c2 = h - c1;
-
-                double d;
-                S /= Color.COLOR_MAX_VALUE;
-                if (L <= Color.COLOR_MAX_VALUE / 2.0) {
-                    d = S * L;
-                } else {
-                    d = S * (Color.COLOR_MAX_VALUE - L);
-                }
-
-                final double W = L + d;
-                final double X = L - d;
-                final double Y = W - (W - X) * c2;
-                final double Z = X + (W - X) * c2;
-
-                double R;
-                double G;
-                double B;
-                switch (c1) {
-                    case 0:
-                        R = W; G = Z; B = X; break;
-                    case 1:
-                        R = Y; G = W; B = X; break;
-                    case 2:
-                        R = X; G = W; B = Z; break;
-                    case 3:
-                        R = X; G = Y; B = W; break;
-                    case 4:
-                        R = Z; G = X; B = W; break;
-                    case 5:
-                        R = W; G = X; B = Y; break;
-                    default:
-                        R = 0.0; G = 0.0; B = 0.0;
-                }
-
-                // Save result.
-                result.set(x, y, 0, R);
-                result.set(x, y, 1, G);
-                result.set(x, y, 2, B);
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] source = new double[image.getWidth() * 3];
+
+                    private final double[] target = new double[image.getWidth() * 3];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.source, 0);
+
+                        for (int i = 0; i < length * 3; i += 3) {
+                            // Initialization.
+                            double H = this.source[i];
+                            double S = this.source[i + 1];
+                            double L = this.source[i + 2];
+
+                            // Convert.
+                            final double h = (6.0 * (H / Color.COLOR_MAX_VALUE)) % 6.0;
+                            final int c1 = (int) h;
+                            final double c2 = h - c1;
+
+                            double d;
+                            S /= Color.COLOR_MAX_VALUE;
+                            if (L <= Color.COLOR_MAX_VALUE / 2.0) {
+                                d = S * L;
+                            } else {
+                                d = S * (Color.COLOR_MAX_VALUE - L);
+                            }
+
+                            final double W = L + d;
+                            final double X = L - d;
+                            final double Y = W - (W - X) * c2;
+                            final double Z = X + (W - X) * c2;
+
+                            double R;
+                            double G;
+                            double B;
+                            switch (c1) {
+                                case 0:
+                                    R = W; G = Z; B = X; break;
+                                case 1:
+                                    R = Y; G = W; B = X; break;
+                                case 2:
+                                    R = X; G = W; B = Z; break;
+                                case 3:
+                                    R = X; G = Y; B = W; break;
+                                case 4:
+                                    R = Z; G = X; B = W; break;
+                                case 5:
+                                    R = W; G = X; B = Y; break;
+                                default:
+                                    R = 0.0; G = 0.0; B = 0.0;
+                            }
+
+                            // Save result.
+                            this.target[i] = R;
+                            this.target[i + 1] = G;
+                            this.target[i + 2] = B;
+                        }
+
+                        result.setSpan(xStart, y, length, this.target, 0);
+                    }
+                };
             }
         });
 
@@ -351,57 +415,73 @@ public class ColorConvert {
          */
         final Image result = image.getSame();
 
-        Parallel.pixels(image, new PixelsLoop() {
+        Parallel.rows(image, new NamedRowLoopFactory(ColorConvert.class.getName() + ":fromRGBtoHSV") {
             @Override
-            public void execute(final int x, final int y) {
-                // Initialization.
-                final double R = image.get(x, y, 0);
-                final double G = image.get(x, y, 1);
-                final double B = image.get(x, y, 2);
-
-                // Convert.
-                final double M = Math.max(R, Math.max(G, B));
-                final double m = Math.min(R, Math.min(G, B));
-                final double d = M - m;
-
-                // Compute value Hue.
-                double H;
-                if (d > 0.0) {
-                    if (R == M) {
-                        H = (G - B) / d;
-                    } else
-                        if (G == M) {
-                            H = 2.0 + (B - R) / d;
-                        } else {
-                            H = 4.0 + (R - G) / d;
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] source = new double[image.getWidth() * 3];
+
+                    private final double[] target = new double[image.getWidth() * 3];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.source, 0);
+
+                        for (int i = 0; i < length * 3; i += 3) {
+                            // Initialization.
+                            final double R = this.source[i];
+                            final double G = this.source[i + 1];
+                            final double B = this.source[i + 2];
+
+                            // Convert.
+                            final double M = Math.max(R, Math.max(G, B));
+                            final double m = Math.min(R, Math.min(G, B));
+                            final double d = M - m;
+
+                            // Compute value Hue.
+                            double H;
+                            if (d > 0.0) {
+                                if (R == M) {
+                                    H = (G - B) / d;
+                                } else
+                                    if (G == M) {
+                                        H = 2.0 + (B - R) / d;
+                                    } else {
+                                        H = 4.0 + (R - G) / d;
+                                    }
+
+                                if (H < 0) {
+                                    H = H + 6.0;
+                                }
+                                H = H / 6.0;
+                            } else {
+                                // H = Double.NaN;
+                                H = 0.0;
+                            }
+                            H *= Color.COLOR_MAX_VALUE;
+
+                            // Compute value Saturation.
+                            double S;
+                            if (M > 0.0) {
+                                S = d / M;
+                            } else {
+                                S = 0.0;
+                            }
+                            S *= Color.COLOR_MAX_VALUE;
+
+                            // Compute value Value (Brightness).
+                            double V = M;
+
+                            // Save result.
+                            this.target[i] = H;
+                            this.target[i + 1] = S;
+                            this.target[i + 2] = V;
                         }
 
-                    if (H < 0) {
-                        H = H + 6.0;
+                        result.setSpan(xStart, y, length, this.target, 0);
                     }
-                    H = H / 6.0;
-                } else {
-                    // H = Double.NaN;
-                    H = 0.0;
-                }
-                H *= Color.COLOR_MAX_VALUE;
-
-                // Compute value Saturation.
-                double S;
-                if (M > 0.0) {
-                    S = d / M;
-                } else {
-                    S = 0.0;
-                }
-                S *= Color.COLOR_MAX_VALUE;
-
-                // Compute value Value (Brightness).
-                double V = M;
-
-                // Save result.
-                result.set(x, y, 0, H);
-                result.set(x, y, 1, S);
-                result.set(x, y, 2, V);
+                };
             }
         });
 
@@ -441,47 +521,63 @@ public class ColorConvert {
          */
         final Image result = image.getSame();
 
-        Parallel.pixels(image, new PixelsLoop() {
+        Parallel.rows(image, new NamedRowLoopFactory(ColorConvert.class.getName() + ":fromHSVtoRGB") {
             @Override
-            public void execute(final int x, final int y) {
-                // Initialization.
-                final double H = image.get(x, y, 0);
-                final double S = image.get(x, y, 1);
-                final double V = image.get(x, y, 2);
-
-                // Convert.
-                final double h  = ((6.0 * H) / Color.COLOR_MAX_VALUE) % 6.0;
-                final int    c1 = (int) h;
-                final double c2 = h - c1;
-
-                final double X = ((Color.COLOR_MAX_VALUE - S) * V) / Color.COLOR_MAX_VALUE;
-                final double Y = ((Color.COLOR_MAX_VALUE - (S * c2)) * V) / Color.COLOR_MAX_VALUE;
-                final double Z = ((Color.COLOR_MAX_VALUE - (S * (1.0 - c2))) * V) / Color.COLOR_MAX_VALUE;
-
-                double R;
-                double G;
-                double B;
-                switch (c1) {
-                    case 0:
-                        R = V; G = Z; B = X; break;
-                    case 1:
-                        R = Y; G = V; B = X; break;
-                    case 2:
-                        R = X; G = V; B = Z; break;
-                    case 3:
-                        R = X; G = Y; B = V; break;
-                    case 4:
-                        R = Z; G = X; B = V; break;
-                    case 5:
-                        R = V; G = X; B = Y; break;
-                    default:
-                        R = 0.0; G = 0.0; B = 0.0;
-                }
-
-                // Save result.
-                result.set(x, y, 0, R);
-                result.set(x, y, 1, G);
-                result.set(x, y, 2, B);
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] source = new double[image.getWidth() * 3];
+
+                    private final double[] target = new double[image.getWidth() * 3];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.source, 0);
+
+                        for (int i = 0; i < length * 3; i += 3) {
+                            // Initialization.
+                            final double H = this.source[i];
+                            final double S = this.source[i + 1];
+                            final double V = this.source[i + 2];
+
+                            // Convert.
+                            final double h  = ((6.0 * H) / Color.COLOR_MAX_VALUE) % 6.0;
+                            final int    c1 = (int) h;
+                            final double c2 = h - c1;
+
+                            final double X = ((Color.COLOR_MAX_VALUE - S) * V) / Color.COLOR_MAX_VALUE;
+                            final double Y = ((Color.COLOR_MAX_VALUE - (S * c2)) * V) / Color.COLOR_MAX_VALUE;
+                            final double Z = ((Color.COLOR_MAX_VALUE - (S * (1.0 - c2))) * V) / Color.COLOR_MAX_VALUE;
+
+                            double R;
+                            double G;
+                            double B;
+                            switch (c1) {
+                                case 0:
+                                    R = V; G = Z; B = X; break;
+                                case 1:
+                                    R = Y; G = V; B = X; break;
+                                case 2:
+                                    R = X; G = V; B = Z; break;
+                                case 3:
+                                    R = X; G = Y; B = V; break;
+                                case 4:
+                                    R = Z; G = X; B = V; break;
+                                case 5:
+                                    R = V; G = X; B = Y; break;
+                                default:
+                                    R = 0.0; G = 0.0; B = 0.0;
+                            }
+
+                            // Save result.
+                            this.target[i] = R;
+                            this.target[i + 1] = G;
+                            this.target[i + 2] = B;
+                        }
+
+                        result.setSpan(xStart, y, length, this.target, 0);
+                    }
+                };
             }
         });
 
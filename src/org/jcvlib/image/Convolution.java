@@ -0,0 +1,665 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.image;
+
+import java.util.Arrays;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.Point;
+import org.jcvlib.core.Size;
+import org.jcvlib.fft.FFT2D;
+import org.jcvlib.parallel.NamedTileLoopFactory;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.TileLoop;
+
+import Jama.Matrix;
+
+/**
+ * Engine of convolution of image with kernel. Used by {@link Filters#linearFilter(Image, Matrix, double, double, int)} and other linear
+ * filters.
+ *
+ * <P>
+ * Kernel is copied into array of primitive values. Each tile of result image copies values of source image that are needed for it into
+ * array once (see {@link Filters#readBlock(Image, int, int, int, int, int, double[])}), so only values outside of source image are
+ * extrapolated and inner loops work with array without any checking.
+ * </P>
+ *
+ * <P>
+ * Kernels of rank 1 (Gaussian, box, Sobel, Prewitt, Scharr and so on) are product of column and row. Such kernels are found by singular
+ * value decomposition and applied as two 1-D convolutions (rows of block and after that columns), so each pixel costs
+ * <CODE>O(w + h)</CODE> instead of <CODE>O(w * h)</CODE> operations. Intermediate values are saved into array of tile, so they are not
+ * rounded.
+ * </P>
+ *
+ * <P>
+ * Big kernels that can not be separated are applied in frequency domain (see {@link FFT2D}): block of values is split into parts, each
+ * part is transformed, multiplied to conjugate spectrum of kernel and transformed back (overlap-save method). Direct or frequency domain
+ * method is selected by estimated number of operations for one pixel.
+ * </P>
+ *
+ * <P>
+ * Box kernels (all values are <CODE>1.0</CODE>) are applied by running sums (see {@link #box(Image, Image, Size, double, double, int)}),
+ * so cost for one pixel does not depend on size of kernel.
+ * </P>
+ *
+ * <P>
+ * Each worker allocates arrays for block, result and intermediate values (see {@link Convolution.Buffers}) once for biggest tile and
+ * reuses them for all own tiles.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+final class Convolution {
+    /**
+     * Kernel is considered as kernel of rank 1 if second singular value is less than first singular value multiplied to this value.
+     */
+    private static final double RANK_PRECISION = 1e-10;
+
+    /**
+     * Cost of transform of one value in frequency domain (for one step of <CODE>log2(n)</CODE>) in number of multiplications of
+     * direct convolution.
+     */
+    private static final double FFT_COST = 2.0;
+
+    /**
+     * Max size of transform in frequency domain.
+     */
+    private static final int FFT_MAX_SIZE = 512;
+
+    private final int width;
+
+    private final int height;
+
+    /**
+     * Values of kernel by rows. Is <CODE>null</CODE> for separable kernel.
+     */
+    private final double[] kernel;
+
+    /**
+     * Column of separable kernel. Is <CODE>null</CODE> for not separable kernel.
+     */
+    private final double[] column;
+
+    /**
+     * Row of separable kernel. Is <CODE>null</CODE> for not separable kernel.
+     */
+    private final double[] row;
+
+    /**
+     * Plan of transform for frequency domain method. Is <CODE>null</CODE> for direct method.
+     */
+    private final FFT2D plan;
+
+    /**
+     * Real parts of spectrum of kernel for frequency domain method.
+     */
+    private final double[] kernelRe;
+
+    /**
+     * Imaginary parts of spectrum of kernel for frequency domain method.
+     */
+    private final double[] kernelIm;
+
+    /**
+     * Create new convolution with given kernel.
+     *
+     * @param kernel
+     *            Values of kernel by rows.
+     */
+    Convolution(final double[][] kernel) {
+        this.width = kernel[0].length;
+        this.height = kernel.length;
+
+        final double[][] factors = (this.width > 1 && this.height > 1) ? Convolution.separate(kernel) : null;
+        if (factors == null) {
+            this.kernel = new double[this.width * this.height];
+            for (int y = 0; y < this.height; ++y) {
+                System.arraycopy(kernel[y], 0, this.kernel, y * this.width, this.width);
+            }
+            this.column = null;
+            this.row = null;
+        } else {
+            this.kernel = null;
+            this.column = factors[0];
+            this.row = factors[1];
+        }
+
+        final int fftSize = (factors == null) ? Convolution.getFFTSize(this.width, this.height) : -1;
+        if (fftSize > 0) {
+            this.plan = FFT2D.getPlan(fftSize, fftSize);
+
+            final double[] values = new double[fftSize * fftSize];
+            for (int y = 0; y < this.height; ++y) {
+                System.arraycopy(this.kernel, y * this.width, values, y * fftSize, this.width);
+            }
+            this.kernelRe = new double[this.plan.getSpectrumLength()];
+            this.kernelIm = new double[this.plan.getSpectrumLength()];
+            this.plan.forward(values, this.kernelRe, this.kernelIm);
+        } else {
+            this.plan = null;
+            this.kernelRe = null;
+            this.kernelIm = null;
+        }
+    }
+
+    /**
+     * Return size of transform for frequency domain method, that needs less operations for one pixel than direct method, or
+     * <CODE>-1</CODE> if direct method is faster.
+     */
+    static int getFFTSize(final int width, final int height) {
+        int bestSize = -1;
+        double bestCost = width * height;
+        for (int size = 2; size <= FFT_MAX_SIZE; size <<= 1) {
+            if (size < width || size < height) {
+                continue;
+            }
+
+            // Forward and inverse transforms of all values (real-to-complex transform is two times cheaper) for result part.
+            final double log = 2 * Integer.numberOfTrailingZeros(size);
+            final double cost = FFT_COST * size * size * log / ((size - width + 1) * (size - height + 1));
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestSize = size;
+            }
+        }
+
+        return bestSize;
+    }
+
+    /**
+     * Return width of kernel.
+     */
+    int getWidth() {
+        return this.width;
+    }
+
+    /**
+     * Return height of kernel.
+     */
+    int getHeight() {
+        return this.height;
+    }
+
+    /**
+     * Return <CODE>true</CODE> if kernel is applied as two 1-D convolutions.
+     */
+    boolean isSeparable() {
+        return this.kernel == null;
+    }
+
+    /**
+     * Return <CODE>true</CODE> if kernel is applied in frequency domain.
+     */
+    boolean isFFT() {
+        return this.plan != null;
+    }
+
+    /**
+     * Return size of tiles of given result image. For frequency domain method block of tile fits into one transform.
+     */
+    Size getTileSize(final Image result) {
+        if (this.isFFT()) {
+            return new Size(this.plan.getWidth() - this.width + 1, this.plan.getHeight() - this.height + 1);
+        } else {
+            return Parallel.getTileSize(result, ParallelConfig.getCurrent());
+        }
+    }
+
+    /**
+     * Return name of loop of convolution into {@link org.jcvlib.parallel.CostModel}. Each method has own cost, size of kernel only scales
+     * work of method (see {@link #getWorkPerValue()}).
+     */
+    String getLoopName() {
+        final String method;
+        if (this.isSeparable()) {
+            method = "separable";
+        } else if (this.isFFT()) {
+            method = "fft";
+        } else {
+            method = "direct";
+        }
+
+        return Convolution.class.getName() + ":" + method;
+    }
+
+    /**
+     * Return work of method for one value of result (see {@link org.jcvlib.parallel.NamedLoop#getWorkPerValue()}): sum of width and
+     * height of kernel for separable kernel, area of kernel for direct method and <CODE>1</CODE> for frequency domain.
+     */
+    long getWorkPerValue() {
+        if (this.isSeparable()) {
+            return this.width + this.height;
+        } else if (this.isFFT()) {
+            return 1L;
+        } else {
+            return (long) this.width * this.height;
+        }
+    }
+
+    /**
+     * Return column and row of kernel of rank 1 (<CODE>kernel[y][x] = column[y] * row[x]</CODE>) or <CODE>null</CODE> if kernel can not
+     * be separated.
+     */
+    static double[][] separate(final double[][] kernel) {
+        Matrix matrix = new Matrix(kernel);
+        // Decomposition is implemented only for matrices with number of rows more or equal than number of columns.
+        if (matrix.getRowDimension() < matrix.getColumnDimension()) {
+            matrix = matrix.transpose();
+        }
+
+        final double[] singularValues = matrix.svd().getSingularValues();
+        if (singularValues[0] == 0.0 || singularValues[1] > RANK_PRECISION * singularValues[0]) {
+            return null;
+        }
+
+        // Factors are taken from kernel itself (not from singular vectors), so kernels with integer values stay exact.
+        int pivotX = 0;
+        int pivotY = 0;
+        for (int y = 0; y < kernel.length; ++y) {
+            for (int x = 0; x < kernel[y].length; ++x) {
+                if (Math.abs(kernel[y][x]) > Math.abs(kernel[pivotY][pivotX])) {
+                    pivotX = x;
+                    pivotY = y;
+                }
+            }
+        }
+
+        final double[] column = new double[kernel.length];
+        for (int y = 0; y < column.length; ++y) {
+            column[y] = kernel[y][pivotX];
+        }
+
+        final double[] row = new double[kernel[pivotY].length];
+        for (int x = 0; x < row.length; ++x) {
+            row[x] = kernel[pivotY][x] / kernel[pivotY][pivotX];
+        }
+
+        return new double[][]{ column, row };
+    }
+
+    /**
+     * Convolve block of values with kernel.
+     *
+     * @param block
+     *            Values of block by rows (see {@link Filters#readBlock(Image, int, int, int, int, int, double[])}). Block should contain
+     *            <CODE>(width + getWidth() - 1) * (height + getHeight() - 1)</CODE> pixels.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param width
+     *            Number of result pixels by X.
+     * @param height
+     *            Number of result pixels by Y.
+     * @param result
+     *            Array for <CODE>width * height</CODE> result pixels by rows.
+     * @param buffers
+     *            Temporary arrays of worker, created by {@link #createBuffers(int, int, int)} for size of tile not less than
+     *            <CODE>width * height</CODE>.
+     */
+    void execute(final double[] block, final int numOfChannels, final int width, final int height, final double[] result,
+        final Convolution.Buffers buffers) {
+        final int strideY = (width + this.width - 1) * numOfChannels;
+        final int resultStrideY = width * numOfChannels;
+
+        if (this.isSeparable()) {
+            // Convolve rows of block.
+            final int blockHeight = height + this.height - 1;
+            final double[] rows = buffers.rows;
+            for (int y = 0; y < blockHeight; ++y) {
+                for (int i = 0; i < resultStrideY; ++i) {
+                    int pos = y * strideY + i;
+                    double sum = 0.0;
+                    for (int kernelX = 0; kernelX < this.width; ++kernelX) {
+                        sum += block[pos] * this.row[kernelX];
+                        pos += numOfChannels;
+                    }
+                    rows[y * resultStrideY + i] = sum;
+                }
+            }
+
+            // Convolve columns.
+            for (int y = 0; y < height; ++y) {
+                for (int i = 0; i < resultStrideY; ++i) {
+                    int pos = y * resultStrideY + i;
+                    double sum = 0.0;
+                    for (int kernelY = 0; kernelY < this.height; ++kernelY) {
+                        sum += rows[pos] * this.column[kernelY];
+                        pos += resultStrideY;
+                    }
+                    result[y * resultStrideY + i] = sum;
+                }
+            }
+        } else if (this.isFFT()) {
+            this.executeFFT(block, numOfChannels, width, height, result, buffers);
+        } else {
+            for (int y = 0; y < height; ++y) {
+                for (int i = 0; i < resultStrideY; ++i) {
+                    double sum = 0.0;
+                    for (int kernelY = 0; kernelY < this.height; ++kernelY) {
+                        int pos = (y + kernelY) * strideY + i;
+                        final int kernelOffset = kernelY * this.width;
+                        for (int kernelX = 0; kernelX < this.width; ++kernelX) {
+                            sum += block[pos] * this.kernel[kernelOffset + kernelX];
+                            pos += numOfChannels;
+                        }
+                    }
+                    result[y * resultStrideY + i] = sum;
+                }
+            }
+        }
+    }
+
+    /**
+     * Convolve block of values in frequency domain. Block is split into parts, so that each part with borders of kernel fits into one
+     * transform.
+     */
+    private void executeFFT(final double[] block, final int numOfChannels, final int width, final int height, final double[] result,
+        final Convolution.Buffers buffers) {
+        final int strideY = (width + this.width - 1) * numOfChannels;
+        final int resultStrideY = width * numOfChannels;
+
+        final int size = this.plan.getWidth();
+        final int partWidth = size - this.width + 1;
+        final int partHeight = size - this.height + 1;
+        final double[] values = buffers.part;
+        final double[] re = buffers.re;
+        final double[] im = buffers.im;
+
+        for (int partY = 0; partY < height; partY += partHeight) {
+            for (int partX = 0; partX < width; partX += partWidth) {
+                final int currentWidth = Math.min(partWidth, width - partX);
+                final int currentHeight = Math.min(partHeight, height - partY);
+
+                for (int channel = 0; channel < numOfChannels; ++channel) {
+                    // Copy values of one channel of part with borders of kernel.
+                    Arrays.fill(values, 0.0);
+                    for (int y = 0; y < currentHeight + this.height - 1; ++y) {
+                        int pos = (partY + y) * strideY + partX * numOfChannels + channel;
+                        for (int x = 0; x < currentWidth + this.width - 1; ++x) {
+                            values[y * size + x] = block[pos];
+                            pos += numOfChannels;
+                        }
+                    }
+
+                    this.plan.forward(values, re, im);
+                    FFT2D.multiply(re, im, this.kernelRe, this.kernelIm, true);
+                    this.plan.inverse(re, im, values);
+
+                    for (int y = 0; y < currentHeight; ++y) {
+                        int pos = (partY + y) * resultStrideY + partX * numOfChannels + channel;
+                        for (int x = 0; x < currentWidth; ++x) {
+                            result[pos] = values[y * size + x];
+                            pos += numOfChannels;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Convolve source image with kernel and save <CODE>sum / div + offset</CODE> into result image.
+     *
+     * @param source
+     *            Source image.
+     * @param result
+     *            Result image. Should have same size and number of channels as a source image and should not be a source image.
+     * @param anchor
+     *            Anchor of the kernel that contain the relative position of a filtered point within the kernel.
+     * @param div
+     *            Coefficient to division.
+     * @param offset
+     *            Value to offset the result.
+     * @param extrapolationType
+     *            Type of extrapolation on image border. Use <CODE>Filters.EXTRAPLOATION_*</CODE> parameters.
+     */
+    void convolve(final Image source, final Image result, final Point anchor, final double div, final double offset,
+        final int extrapolationType) {
+        final int numOfChannels = source.getNumOfChannels();
+        final Size tileSize = this.getTileSize(result);
+        final int maxWidth = Math.min(tileSize.getWidth(), result.getWidth());
+        final int maxHeight = Math.min(tileSize.getHeight(), result.getHeight());
+
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        Parallel.tiles(result, tileSize, new NamedTileLoopFactory(this.getLoopName(), this.getWorkPerValue()) {
+            @Override
+            public TileLoop create() {
+                // Buffers for biggest tile are allocated once for each worker.
+                final double[] block = new double[(maxWidth + Convolution.this.width - 1) * (maxHeight + Convolution.this.height - 1)
+                    * numOfChannels];
+                final double[] values = new double[maxWidth * maxHeight * numOfChannels];
+                final Convolution.Buffers buffers = Convolution.this.createBuffers(maxWidth, maxHeight, numOfChannels);
+
+                return new TileLoop() {
+                    @Override
+                    public void execute(final int x0, final int y0, final int width, final int height) {
+                        // Copy values of tile with borders of kernel.
+                        final int blockWidth = width + Convolution.this.width - 1;
+                        final int blockHeight = height + Convolution.this.height - 1;
+                        Filters.readBlock(source, x0 - anchor.getX(), y0 - anchor.getY(), blockWidth, blockHeight, extrapolationType,
+                            block);
+
+                        Convolution.this.execute(block, numOfChannels, width, height, values, buffers);
+
+                        final int length = width * height * numOfChannels;
+                        for (int i = 0; i < length; ++i) {
+                            values[i] = values[i] / div + offset;
+                        }
+                        for (int y = 0; y < height; ++y) {
+                            result.setSpan(x0, y0 + y, width, values, y * width * numOfChannels);
+                        }
+                    }
+                };
+            }
+        }, config);
+    }
+
+    /**
+     * Create temporary arrays of one worker for tiles not bigger than given size.
+     *
+     * @param maxWidth
+     *            Max width of tile.
+     * @param maxHeight
+     *            Max height of tile.
+     * @param numOfChannels
+     *            Number of channels.
+     */
+    Convolution.Buffers createBuffers(final int maxWidth, final int maxHeight, final int numOfChannels) {
+        double[] rows = null;
+        if (this.isSeparable()) {
+            rows = new double[maxWidth * numOfChannels * (maxHeight + this.height - 1)];
+        }
+
+        double[] part = null;
+        double[] re = null;
+        double[] im = null;
+        if (this.isFFT()) {
+            part = new double[this.plan.getWidth() * this.plan.getHeight()];
+            re = new double[this.plan.getSpectrumLength()];
+            im = new double[this.plan.getSpectrumLength()];
+        }
+
+        return new Convolution.Buffers(rows, part, re, im);
+    }
+
+    /**
+     * Temporary arrays of one worker for {@link Convolution#execute(double[], int, int, int, double[], Convolution.Buffers)}. Only arrays
+     * of method of convolution are allocated.
+     */
+    static final class Buffers {
+        /**
+         * Results of convolution of rows of block (separable kernel).
+         */
+        private final double[] rows;
+
+        /**
+         * Values of one part of block (frequency domain).
+         */
+        private final double[] part;
+
+        /**
+         * Spectrum of one part of block (frequency domain).
+         */
+        private final double[] re;
+
+        private final double[] im;
+
+        private Buffers(final double[] rows, final double[] part, final double[] re, final double[] im) {
+            this.rows = rows;
+            this.part = part;
+            this.re = re;
+            this.im = im;
+        }
+    }
+
+    /**
+     * Return size of tiles for box kernel of given size. Tiles are not smaller than two sizes of kernel, so number of values of block is
+     * not more than two times bigger than number of values of tile.
+     */
+    static Size getBoxTileSize(final Image result, final Size kernelSize) {
+        final Size tileSize = Parallel.getTileSize(result, ParallelConfig.getCurrent());
+
+        return new Size(Math.max(tileSize.getWidth(), 2 * kernelSize.getWidth()),
+            Math.max(tileSize.getHeight(), 2 * kernelSize.getHeight()));
+    }
+
+    /**
+     * Sum values of block by box kernel using running sums: each next sum is calculated from previous sum by adding value that enters
+     * into kernel and subtracting value that leaves kernel.
+     *
+     * @param block
+     *            Values of block by rows (see {@link Filters#readBlock(Image, int, int, int, int, int, double[])}). Block should contain
+     *            <CODE>(width + kernelWidth - 1) * (height + kernelHeight - 1)</CODE> pixels.
+     * @param numOfChannels
+     *            Number of channels.
+     * @param width
+     *            Number of result pixels by X.
+     * @param height
+     *            Number of result pixels by Y.
+     * @param kernelWidth
+     *            Width of kernel.
+     * @param kernelHeight
+     *            Height of kernel.
+     * @param result
+     *            Array for <CODE>width * height</CODE> result pixels by rows.
+     * @param rows
+     *            Temporary array for sums of rows. Should contain at least <CODE>width * (height + kernelHeight - 1)</CODE> pixels, so
+     *            worker can allocate it once for biggest tile.
+     */
+    static void boxSum(final double[] block, final int numOfChannels, final int width, final int height, final int kernelWidth,
+        final int kernelHeight, final double[] result, final double[] rows) {
+        final int strideY = (width + kernelWidth - 1) * numOfChannels;
+        final int resultStrideY = width * numOfChannels;
+        final int blockHeight = height + kernelHeight - 1;
+        final int kernelLength = (kernelWidth - 1) * numOfChannels;
+
+        // Sums of rows of block.
+        for (int y = 0; y < blockHeight; ++y) {
+            final int blockRow = y * strideY;
+            final int row = y * resultStrideY;
+            for (int channel = 0; channel < numOfChannels; ++channel) {
+                double sum = 0.0;
+                for (int kernelX = 0; kernelX < kernelWidth; ++kernelX) {
+                    sum += block[blockRow + kernelX * numOfChannels + channel];
+                }
+                rows[row + channel] = sum;
+            }
+            for (int i = numOfChannels; i < resultStrideY; ++i) {
+                rows[row + i] = rows[row + i - numOfChannels] + block[blockRow + i + kernelLength] - block[blockRow + i - numOfChannels];
+            }
+        }
+
+        // Sums of columns.
+        for (int i = 0; i < resultStrideY; ++i) {
+            double sum = 0.0;
+            for (int kernelY = 0; kernelY < kernelHeight; ++kernelY) {
+                sum += rows[kernelY * resultStrideY + i];
+            }
+            result[i] = sum;
+        }
+        for (int y = 1; y < height; ++y) {
+            final int row = y * resultStrideY;
+            for (int i = 0; i < resultStrideY; ++i) {
+                result[row + i] = result[row - resultStrideY + i] + rows[row + (kernelHeight - 1) * resultStrideY + i]
+                    - rows[row - resultStrideY + i];
+            }
+        }
+    }
+
+    /**
+     * Convolve source image with box kernel (all values are <CODE>1.0</CODE>) and save <CODE>sum / div + offset</CODE> into result
+     * image. Anchor is the center of kernel.
+     *
+     * @param source
+     *            Source image.
+     * @param result
+     *            Result image. Should have same size and number of channels as a source image and should not be a source image.
+     * @param kernelSize
+     *            Size of kernel.
+     * @param div
+     *            Coefficient to division.
+     * @param offset
+     *            Value to offset the result.
+     * @param extrapolationType
+     *            Type of extrapolation on image border. Use <CODE>Filters.EXTRAPLOATION_*</CODE> parameters.
+     */
+    static void box(final Image source, final Image result, final Size kernelSize, final double div, final double offset,
+        final int extrapolationType) {
+        final int numOfChannels = source.getNumOfChannels();
+        final Point anchor = kernelSize.getCenter();
+        final Size tileSize = Convolution.getBoxTileSize(result, kernelSize);
+        final int maxWidth = Math.min(tileSize.getWidth(), result.getWidth());
+        final int maxHeight = Math.min(tileSize.getHeight(), result.getHeight());
+
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        Parallel.tiles(result, tileSize, new NamedTileLoopFactory(Convolution.class.getName() + ":box") {
+            @Override
+            public TileLoop create() {
+                // Buffers for biggest tile are allocated once for each worker.
+                final int maxBlockHeight = maxHeight + kernelSize.getHeight() - 1;
+                final double[] block = new double[(maxWidth + kernelSize.getWidth() - 1) * maxBlockHeight * numOfChannels];
+                final double[] values = new double[maxWidth * maxHeight * numOfChannels];
+                final double[] rows = new double[maxWidth * maxBlockHeight * numOfChannels];
+
+                return new TileLoop() {
+                    @Override
+                    public void execute(final int x0, final int y0, final int width, final int height) {
+                        // Copy values of tile with borders of kernel.
+                        final int blockWidth = width + kernelSize.getWidth() - 1;
+                        final int blockHeight = height + kernelSize.getHeight() - 1;
+                        Filters.readBlock(source, x0 - anchor.getX(), y0 - anchor.getY(), blockWidth, blockHeight, extrapolationType,
+                            block);
+
+                        Convolution.boxSum(block, numOfChannels, width, height, kernelSize.getWidth(), kernelSize.getHeight(), values,
+                            rows);
+
+                        final int length = width * height * numOfChannels;
+                        for (int i = 0; i < length; ++i) {
+                            values[i] = values[i] / div + offset;
+                        }
+                        for (int y = 0; y < height; ++y) {
+                            result.setSpan(x0, y0 + y, width, values, y * width * numOfChannels);
+                        }
+                    }
+                };
+            }
+        }, config);
+    }
+
+}
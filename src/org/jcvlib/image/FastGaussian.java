@@ -0,0 +1,418 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.image;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
+import org.jcvlib.core.Size;
+import org.jcvlib.parallel.NamedTileLoop;
+import org.jcvlib.parallel.Parallel;
+
+/**
+ * Gaussian blur with cost for one pixel that does not depend on <CODE>sigma</CODE>. Used by
+ * {@link Filters#gaussianBlur(Image, double, double, int, int)}.
+ *
+ * <P>
+ * Image is filtered by 1-D filters: all rows in parallel and after that all columns in parallel (by vertical strips, so values of
+ * neighbor columns are processed together). Intermediate values are saved into array, so they are not rounded. Each line is extended by
+ * extrapolated values before filtering, so all <CODE>Image.EXTRAPLOATION_*</CODE> types are supported.
+ * </P>
+ *
+ * <P>
+ * Two approximations of Gaussian are supported:
+ * <UL>
+ * <LI>Recursive (IIR) filter of 3rd order (Young -- van Vliet): forward and backward pass by each line. Poles of filter are scaled, so
+ * variance of filter is exactly equal to <CODE>sigma<SUP>2</SUP></CODE>.</LI>
+ * <LI>Cascade of {@link #BOX_PASSES} extended box filters (box filter with additional fractional weights on both ends), so variance of
+ * cascade is exactly equal to <CODE>sigma<SUP>2</SUP></CODE>. Each box filter is calculated by running sums.</LI>
+ * </UL>
+ * </P>
+ *
+ * <P>
+ * <H6>Links:</H6>
+ * <OL>
+ * <LI>I. T. Young, L. J. van Vliet. Recursive implementation of the Gaussian filter. Signal Processing, 44 (1995), 139--151.</LI>
+ * <LI>L. J. van Vliet, I. T. Young, P. W. Verbeek. Recursive Gaussian derivative filters. ICPR 1998.</LI>
+ * <LI>P. Gwosdek, S. Grewenig, A. Bruhn, J. Weickert. Theoretical foundations of Gaussian convolution by extended box filtering. SSVM
+ * 2011.</LI>
+ * </OL>
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+final class FastGaussian {
+    /**
+     * Min value of <CODE>sigma</CODE> for recursive filter. Coefficients of filter are not defined for less values.
+     */
+    static final double IIR_MIN_SIGMA = 0.5;
+
+    /**
+     * Number of extended box filters in cascade.
+     */
+    static final int BOX_PASSES = 3;
+
+    /**
+     * Length of extension of line for recursive filter in number of <CODE>sigma</CODE>.
+     */
+    private static final double IIR_MARGIN = 4.0;
+
+    private FastGaussian() {
+        // Do nothing.
+    }
+
+    /**
+     * Filter of one line of values.
+     */
+    private interface LineFilter {
+        /**
+         * Return number of values that should be added before and after line.
+         */
+        public int getMargin();
+
+        /**
+         * Filter line with <CODE>length</CODE> values (each value contains <CODE>lanes</CODE> independent numbers) in place. Filtered
+         * values should be saved into same positions.
+         */
+        public void execute(final double[] line, final int length, final int lanes, final double[] temp);
+    }
+
+    /**
+     * Recursive filter.
+     */
+    private static class RecursiveFilter implements LineFilter {
+        private final int margin;
+
+        private final double b;
+
+        private final double a1;
+
+        private final double a2;
+
+        private final double a3;
+
+        RecursiveFilter(final double sigma) {
+            this.margin = (int) Math.ceil(IIR_MARGIN * sigma) + 3;
+
+            // Poles are scaled by 'q' so that variance of filter is equal to 'sigma^2'. Variance is monotonically increased with 'q'.
+            double low = 0.0;
+            double high = sigma;
+            while (RecursiveFilter.getVariance(RecursiveFilter.getCoefficients(high)) < sigma * sigma) {
+                low = high;
+                high *= 2.0;
+            }
+            for (int i = 0; i < 64; ++i) {
+                final double middle = 0.5 * (low + high);
+                if (RecursiveFilter.getVariance(RecursiveFilter.getCoefficients(middle)) < sigma * sigma) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+
+            final double[] coefficients = RecursiveFilter.getCoefficients(0.5 * (low + high));
+            this.a1 = coefficients[0];
+            this.a2 = coefficients[1];
+            this.a3 = coefficients[2];
+            this.b = 1.0 - (this.a1 + this.a2 + this.a3);
+        }
+
+        /**
+         * Return coefficients <CODE>{a1, a2, a3}</CODE> of filter with poles <CODE>d<SUP>1/q</SUP></CODE>, where <CODE>d</CODE> are poles
+         * of filter that approximates Gaussian with <CODE>sigma = 2</CODE>: <CODE>1.41650 &plusmn; 1.00829i</CODE> and
+         * <CODE>1.86543</CODE>.
+         */
+        private static double[] getCoefficients(final double q) {
+            // Pair of complex poles.
+            final double modulus = Math.pow(Math.hypot(1.41650, 1.00829), -1.0 / q);
+            final double angle = Math.atan2(1.00829, 1.41650) / q;
+            final double sum = 2.0 * modulus * Math.cos(angle);
+            final double product = modulus * modulus;
+
+            // Real pole.
+            final double real = Math.pow(1.86543, -1.0 / q);
+
+            return new double[]{ sum + real, -(product + sum * real), product * real };
+        }
+
+        /**
+         * Return variance of impulse response of forward and backward passes. Variance of one pass with transfer function
+         * <CODE>B / (1 - a1 * z<SUP>-1</SUP> - a2 * z<SUP>-2</SUP> - a3 * z<SUP>-3</SUP>)</CODE> is calculated by derivatives of it in
+         * <CODE>z = 1</CODE>.
+         */
+        private static double getVariance(final double[] coefficients) {
+            final double a1 = coefficients[0];
+            final double a2 = coefficients[1];
+            final double a3 = coefficients[2];
+            final double b = 1.0 - (a1 + a2 + a3);
+
+            final double mean = (a1 + 2.0 * a2 + 3.0 * a3) / b;
+            return 2.0 * (mean + mean * mean + (2.0 * a2 + 6.0 * a3) / b);
+        }
+
+        @Override
+        public int getMargin() {
+            return this.margin;
+        }
+
+        @Override
+        public void execute(final double[] line, final int length, final int lanes, final double[] temp) {
+            for (int j = 0; j < lanes; ++j) {
+                // Forward pass. Values before line are equal to first value (steady state).
+                double w1 = line[j];
+                double w2 = w1;
+                double w3 = w1;
+                for (int i = j; i < length * lanes; i += lanes) {
+                    final double w = this.b * line[i] + this.a1 * w1 + this.a2 * w2 + this.a3 * w3;
+                    line[i] = w;
+                    w3 = w2;
+                    w2 = w1;
+                    w1 = w;
+                }
+
+                // Backward pass. Values after line are equal to last value (steady state).
+                double y1 = line[(length - 1) * lanes + j];
+                double y2 = y1;
+                double y3 = y1;
+                for (int i = (length - 1) * lanes + j; i >= 0; i -= lanes) {
+                    final double y = this.b * line[i] + this.a1 * y1 + this.a2 * y2 + this.a3 * y3;
+                    line[i] = y;
+                    y3 = y2;
+                    y2 = y1;
+                    y1 = y;
+                }
+            }
+        }
+    }
+
+    /**
+     * Cascade of extended box filters.
+     */
+    private static class BoxFilter implements LineFilter {
+        /**
+         * Radius of box without fractional ends.
+         */
+        private final int radius;
+
+        /**
+         * Weight of values in box.
+         */
+        private final double c1;
+
+        /**
+         * Weight of values on both ends of box.
+         */
+        private final double c2;
+
+        BoxFilter(final double sigma) {
+            final double variance = sigma * sigma / BOX_PASSES;
+            this.radius = (int) Math.floor(0.5 * Math.sqrt(12.0 * variance + 1.0) - 0.5);
+
+            final int r = this.radius;
+            final double alpha = (2 * r + 1) * (r * (r + 1) - 3.0 * variance) / (6.0 * (variance - (r + 1) * (r + 1)));
+            this.c1 = 1.0 / (2 * r + 1 + 2.0 * alpha);
+            this.c2 = alpha * this.c1;
+        }
+
+        @Override
+        public int getMargin() {
+            return BOX_PASSES * (this.radius + 1);
+        }
+
+        @Override
+        public void execute(final double[] line, final int length, final int lanes, final double[] temp) {
+            final int r = this.radius;
+            final double[] sums = new double[lanes];
+
+            double[] src = line;
+            double[] dst = temp;
+            for (int pass = 1; pass <= BOX_PASSES; ++pass) {
+                // Each pass decreases interval of correct values by 'radius + 1' from both ends.
+                final int start = pass * (r + 1);
+                final int end = length - pass * (r + 1);
+
+                for (int j = 0; j < lanes; ++j) {
+                    double sum = 0.0;
+                    for (int i = start - r; i <= start + r; ++i) {
+                        sum += src[i * lanes + j];
+                    }
+                    sums[j] = sum;
+                }
+
+                for (int i = start; i < end; ++i) {
+                    final int pos = i * lanes;
+                    final int first = (i - r - 1) * lanes;
+                    final int last = (i + r + 1) * lanes;
+                    for (int j = 0; j < lanes; ++j) {
+                        dst[pos + j] = this.c1 * sums[j] + this.c2 * (src[first + j] + src[last + j]);
+                        sums[j] += src[last + j] - src[first + lanes + j];
+                    }
+                }
+
+                final double[] swap = src;
+                src = dst;
+                dst = swap;
+            }
+
+            if (src != line) {
+                System.arraycopy(src, 0, line, 0, length * lanes);
+            }
+        }
+    }
+
+    /**
+     * Return position of value into line with <CODE>length</CODE> values for given position (maybe outside of line) or <CODE>-1</CODE>
+     * for zero value. Unlike {@link Image#get(int, int, int, int)}, position can be far from line.
+     */
+    static int translate(final int pos, final int length, final int extrapolationType) {
+        if (pos >= 0 && pos < length) {
+            return pos;
+        }
+
+        switch (extrapolationType) {
+            case Image.EXTRAPLOATION_ZERO:
+                return -1;
+
+            case Image.EXTRAPLOATION_REPLICATE:
+                return (pos < 0) ? 0 : length - 1;
+
+            case Image.EXTRAPLOATION_REFLECT:
+                final int period = 2 * length;
+                final int reflected = ((pos % period) + period) % period;
+                return (reflected < length) ? reflected : period - 1 - reflected;
+
+            case Image.EXTRAPLOATION_WRAP:
+                return ((pos % length) + length) % length;
+
+            default:
+                throw new IllegalArgumentException("Parameter 'extrapolationType' have unknown value! "
+                    + "Use 'Image.EXTRAPLOATION_*' as a parameters!");
+        }
+    }
+
+    /**
+     * Return filter of line for given <CODE>sigma</CODE> and type.
+     */
+    private static LineFilter getFilter(final double sigma, final boolean recursive) {
+        if (recursive) {
+            return new RecursiveFilter(sigma);
+        } else {
+            return new BoxFilter(sigma);
+        }
+    }
+
+    /**
+     * Extend line with <CODE>length</CODE> values by <CODE>margin</CODE> extrapolated values from both ends, filter it and save result
+     * into source array.
+     */
+    private static void filterLine(final LineFilter filter, final double[] values, final int offset, final int length, final int lanes,
+        final int extrapolationType, final double[] line, final double[] temp) {
+        final int margin = filter.getMargin();
+        for (int i = 0; i < length + 2 * margin; ++i) {
+            final int pos = FastGaussian.translate(i - margin, length, extrapolationType);
+            if (pos < 0) {
+                for (int j = 0; j < lanes; ++j) {
+                    line[i * lanes + j] = 0.0;
+                }
+            } else {
+                System.arraycopy(values, offset + pos * lanes, line, i * lanes, lanes);
+            }
+        }
+
+        filter.execute(line, length + 2 * margin, lanes, temp);
+
+        System.arraycopy(line, margin * lanes, values, offset, length * lanes);
+    }
+
+    /**
+     * Apply Gaussian blur to source image and save result into given image.
+     *
+     * @param source
+     *            Source image.
+     * @param result
+     *            Image to save result. Should have same size and number of channels as a source image.
+     * @param sigmaX
+     *            Sigma value by X dimension. Should be more than <CODE>0</CODE>.
+     * @param sigmaY
+     *            Sigma value by Y dimension. Should be more than <CODE>0</CODE>.
+     * @param recursive
+     *            Use recursive filter if <CODE>true</CODE> and cascade of box filters otherwise.
+     * @param extrapolationType
+     *            Type of extrapolation on image border.
+     */
+    static void blur(final Image source, final Image result, final double sigmaX, final double sigmaY, final boolean recursive,
+        final int extrapolationType) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int numOfChannels = source.getNumOfChannels();
+        final LineFilter filterX = FastGaussian.getFilter(sigmaX, recursive);
+        final LineFilter filterY = FastGaussian.getFilter(sigmaY, recursive);
+
+        // Check extrapolation type before any work.
+        FastGaussian.translate(-1, 1, extrapolationType);
+
+        // Filtered rows are saved into temporary image of pool, so big images use chunked storage (see ImagePool#create).
+        final Image rows = ImagePool.create(width, height, numOfChannels, Image.TYPE_64F, Image.LAYOUT_ROW_MAJOR);
+        try {
+            /*
+             * Filter rows by horizontal bands. Each band contains whole rows of image for any layout.
+             */
+            Parallel.tiles(result, new Size(width, Parallel.MIN_TILE_SIZE), new NamedTileLoop(FastGaussian.class.getName() + ":blur:rows") {
+                @Override
+                public void execute(final int x0, final int y0, final int tileWidth, final int tileHeight) {
+                    final int size = (width + 2 * filterX.getMargin()) * numOfChannels;
+                    final double[] values = new double[width * numOfChannels];
+                    final double[] line = new double[size];
+                    final double[] temp = new double[size];
+
+                    for (int y = y0; y < y0 + tileHeight; ++y) {
+                        source.getSpan(0, y, width, values, 0);
+                        FastGaussian.filterLine(filterX, values, 0, width, numOfChannels, extrapolationType, line, temp);
+                        rows.setSpan(0, y, width, values, 0);
+                    }
+                }
+            });
+
+            /*
+             * Filter columns by vertical strips.
+             */
+            Parallel.tiles(result, new Size(Parallel.MIN_TILE_SIZE, height),
+                new NamedTileLoop(FastGaussian.class.getName() + ":blur:columns") {
+                @Override
+                public void execute(final int x0, final int y0, final int tileWidth, final int tileHeight) {
+                    final int lanes = tileWidth * numOfChannels;
+                    final int size = (height + 2 * filterY.getMargin()) * lanes;
+
+                    // Copy strip into array: values of one row of strip are neighbors.
+                    final double[] strip = new double[height * lanes];
+                    for (int y = 0; y < height; ++y) {
+                        rows.getSpan(x0, y, tileWidth, strip, y * lanes);
+                    }
+
+                    FastGaussian.filterLine(filterY, strip, 0, height, lanes, extrapolationType, new double[size], new double[size]);
+
+                    for (int y = 0; y < height; ++y) {
+                        result.setSpan(x0, y, tileWidth, strip, y * lanes);
+                    }
+                }
+            });
+        } finally {
+            ImagePool.recycle(rows);
+        }
+    }
+}
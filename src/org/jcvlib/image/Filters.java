@@ -23,11 +23,16 @@ import java.util.Arrays;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
 import org.jcvlib.core.Point;
-import org.jcvlib.core.Rectangle;
 import org.jcvlib.core.Size;
+import org.jcvlib.parallel.NamedLoop;
+import org.jcvlib.parallel.NamedRowLoopFactory;
+import org.jcvlib.parallel.NamedTileLoopFactory;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.RowLoop;
+import org.jcvlib.parallel.TileLoop;
 
 import Jama.Matrix;
 
@@ -287,6 +292,39 @@ public class Filters {
      */
     public static final int BLUR_KUWAHARA = 3;
 
+    /**
+     * Gaussian blur by convolution with kernel of size {@link #getKernelSize(double)}. Exact, but cost for one pixel is proportional to
+     * <CODE>sigma</CODE>.
+     */
+    public static final int GAUSSIAN_KERNEL = 0;
+
+    /**
+     * Gaussian blur by recursive (IIR) filter of 3rd order. Cost for one pixel does not depend on <CODE>sigma</CODE>. For
+     * <CODE>sigma &lt; 0.5</CODE> convolution with kernel is used.
+     *
+     * <P>
+     * <H6>Links:</H6>
+     * <OL>
+     * <LI>I. T. Young, L. J. van Vliet. Recursive implementation of the Gaussian filter. Signal Processing, 44 (1995), 139--151.</LI>
+     * </OL>
+     * </P>
+     */
+    public static final int GAUSSIAN_IIR = 1;
+
+    /**
+     * Gaussian blur by cascade of extended box filters (fastest, but less accurate approximation). Cost for one pixel does not depend on
+     * <CODE>sigma</CODE>.
+     *
+     * <P>
+     * <H6>Links:</H6>
+     * <OL>
+     * <LI>P. Gwosdek, S. Grewenig, A. Bruhn, J. Weickert. Theoretical foundations of Gaussian convolution by extended box filtering.
+     * SSVM 2011.</LI>
+     * </OL>
+     * </P>
+     */
+    public static final int GAUSSIAN_BOX = 2;
+
     /**
      * Sharpen image using Discrete Laplace operator.
      *
@@ -469,17 +507,71 @@ public class Filters {
         /*
          * Verify parameters.
          */
-        JCV.verifyIsSameSize(source, "source", result, "result");
+        JCV.verifyIsNotNull(operator, "operator");
 
-        JCV.verifyIsNotNull(kernelSize, "kernelSize");
-        if (kernelSize.getWidth() > source.getWidth()) {
-            throw new IllegalArgumentException("Parameter 'kernelSize.getWidth()' should be in interval 0.."
-                + Integer.toString(source.getWidth()) + "!");
-        }
-        if (kernelSize.getHeight() > source.getHeight()) {
-            throw new IllegalArgumentException("Parameter 'kernelSize.getHeight()' should be in interval 0.."
-                + Integer.toString(source.getHeight()) + "!");
+        /*
+         * Perform transformation.
+         */
+        final String loopName;
+        if (operator instanceof NamedLoop) {
+            loopName = ((NamedLoop) operator).getLoopName();
+        } else {
+            loopName = operator.getClass().getName();
         }
+        Filters.noneLinearFilter(source, result, kernelSize, anchor, iterations, extrapolationType, new NamedApertureOperator(loopName) {
+            @Override
+            public void execute(final Aperture aperture, final double[] values) {
+                final Color color = operator.execute(aperture.getImage());
+                for (int channel = 0; channel < values.length; ++channel) {
+                    values[channel] = color.get(channel);
+                }
+            }
+        });
+    }
+
+    /**
+     * Same as {@link Filters#noneLinearFilter(Image, Image, Size, Point, int, int, Operator)}, but operator gets {@link Aperture}
+     * instead of sub-image and writes values of result pixel into given array instead of creating {@link Color}.
+     *
+     * <P>
+     * Each tile of result image (see {@link Parallel#tiles(Image, TileLoop)}) copies values of source image that are needed for it into
+     * array once, after that one aperture is moved over this array. So this method does not create any objects for each pixel.
+     * </P>
+     *
+     * <P>
+     * Source image is not extended: only values outside of source image (for tiles on image border) are extrapolated. Iterations
+     * ping-pong between result image and one temporary image, so intermediate results are not copied.
+     * </P>
+     *
+     * <P>
+     * Each operator has own cost into {@link org.jcvlib.parallel.CostModel}, work of one value is proportional to area of kernel. By
+     * default operator is identified by its class, operator that implements {@link NamedLoop} is identified by
+     * {@link NamedLoop#getLoopName()} and its work is multiplied by {@link NamedLoop#getWorkPerValue()}.
+     * </P>
+     *
+     * @param source
+     *            Source image.
+     * @param result
+     *            Result image.
+     * @param kernelSize
+     *            Size of kernel that will be used for image operation.
+     * @param anchor
+     *            Anchor of the kernel that contain the relative position of a filtered point within the kernel.
+     * @param iterations
+     *            Number of iteration this filter to source image.
+     * @param extrapolationType
+     *            Type of extrapolation on image border. Use <CODE>Filters.EXTRAPLOATION_*</CODE> parameters.
+     * @param operator
+     *            Operation that should get kernel on each step.
+     */
+    public static void noneLinearFilter(final Image source, Image result, final Size kernelSize, final Point anchor,
+        final int iterations, final int extrapolationType, final ApertureOperator operator) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsSameSize(source, "source", result, "result");
+
+        Filters.verifyKernelSize(source, kernelSize);
 
         JCV.verifyIsNotNull(anchor, "anchor");
         if (anchor.getX() >= kernelSize.getWidth()) {
@@ -500,42 +592,158 @@ public class Filters {
         /*
          * Perform transformation.
          */
-        Image temp = source;
-        for (int i = 0; i < iterations; ++i) {
-            final Image currentSource = temp;
-            final Image currentResult = result;
-
-            // Create extend image.
-            final Image sourceExtend = new Image(source.getWidth() + kernelSize.getWidth() - 1,
-                source.getHeight() + kernelSize.getHeight() - 1, source.getNumOfChannels(), source.getType());
+        // Iterations ping-pong between result image and one temporary image, so last iteration writes into result image.
+        Image temp = null;
+        if (iterations > 1 || (iterations == 1 && source == result)) {
+            temp = ImagePool.create(result.getWidth(), result.getHeight(), result.getNumOfChannels(), result.getType(),
+                result.getLayout());
+        }
 
-            // Fill extend image.
-            Parallel.pixels(sourceExtend, new PixelsLoop() {
-                @Override
-                public void execute(final int x, final int y) {
-                    for (int channel = 0; channel < sourceExtend.getNumOfChannels(); ++channel) {
-                        sourceExtend.set(x, y, channel,
-                            currentSource.get(x - anchor.getX(), y - anchor.getY(), channel,
-                                extrapolationType));
-                    }
+        try {
+            Image currentSource = source;
+            for (int i = 0; i < iterations; ++i) {
+                final Image currentResult = ((iterations - 1 - i) % 2 == 0) ? result : temp;
+                if (currentSource == currentResult) {
+                    // Source values should not be changed before all apertures read them.
+                    currentSource.copyTo(temp);
+                    currentSource = temp;
                 }
-            });
 
-            // Run operator for each pixel from extended image.
-            Parallel.pixels(
-                sourceExtend.getSubimage(0, 0, sourceExtend.getWidth() - kernelSize.getWidth() + 1,
-                    sourceExtend.getHeight() - kernelSize.getHeight() + 1), new PixelsLoop() {
+                Filters.noneLinearFilterIteration(currentSource, currentResult, kernelSize, anchor, extrapolationType, operator);
+
+                currentSource = currentResult;
+            }
+        } finally {
+            if (temp != null) {
+                ImagePool.recycle(temp);
+            }
+        }
+    }
+
+    /**
+     * Verify that kernel is not bigger than source image. Values of tiles are extrapolated only near image border (see
+     * {@link Filters#readBlock(Image, int, int, int, int, int, double[])}).
+     */
+    private static void verifyKernelSize(final Image source, final Size kernelSize) {
+        JCV.verifyIsNotNull(kernelSize, "kernelSize");
+        if (kernelSize.getWidth() > source.getWidth()) {
+            throw new IllegalArgumentException("Parameter 'kernelSize.getWidth()' should be in interval 0.."
+                + Integer.toString(source.getWidth()) + "!");
+        }
+        if (kernelSize.getHeight() > source.getHeight()) {
+            throw new IllegalArgumentException("Parameter 'kernelSize.getHeight()' should be in interval 0.."
+                + Integer.toString(source.getHeight()) + "!");
+        }
+    }
+
+    /**
+     * One iteration of {@link Filters#noneLinearFilter(Image, Image, Size, Point, int, int, ApertureOperator)}.
+     *
+     * <P>
+     * Source image is not extended: each tile copies values that are needed for it directly from source image (see
+     * {@link Filters#readBlock(Image, int, int, int, int, int, double[])}).
+     * </P>
+     */
+    private static void noneLinearFilterIteration(final Image source, final Image result, final Size kernelSize, final Point anchor,
+        final int extrapolationType, final ApertureOperator operator) {
+        final int numOfChannels = source.getNumOfChannels();
+
+        // Run operator for each pixel. Apertures of neighbor pixels overlap, so tiles are used. Each operator has own cost, work of one
+        // value is proportional to area of kernel.
+        final String loopName;
+        long workPerValue = kernelSize.getN();
+        if (operator instanceof NamedLoop) {
+            loopName = ((NamedLoop) operator).getLoopName();
+            workPerValue *= ((NamedLoop) operator).getWorkPerValue();
+        } else {
+            loopName = operator.getClass().getName();
+        }
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        final Size tileSize = Parallel.getTileSize(result, config);
+        Parallel.tiles(result, tileSize, new NamedTileLoopFactory(loopName, workPerValue) {
+            @Override
+            public TileLoop create() {
+                // Buffers for biggest tile are allocated once for each worker.
+                final int maxBlockWidth = Math.min(tileSize.getWidth(), result.getWidth()) + kernelSize.getWidth() - 1;
+                final int maxBlockHeight = Math.min(tileSize.getHeight(), result.getHeight()) + kernelSize.getHeight() - 1;
+                final double[] block = new double[maxBlockWidth * maxBlockHeight * numOfChannels];
+                final Aperture aperture = new Aperture(source.getType(), numOfChannels, kernelSize, block, maxBlockWidth * numOfChannels);
+                final double[] values = new double[result.getNumOfChannels()];
+                final double[] resultRow = new double[tileSize.getWidth() * values.length];
+
+                return new TileLoop() {
                     @Override
-                    public void execute(final int x, final int y) {
-                        Image aperture = sourceExtend.getSubimage(new Rectangle(new Point(x, y), kernelSize));
-                        currentResult.set(new Point(x, y), operator.execute(aperture));
+                    public void execute(final int x0, final int y0, final int width, final int height) {
+                        // Copy values of tile with borders of apertures.
+                        final int blockWidth = width + kernelSize.getWidth() - 1;
+                        final int blockHeight = height + kernelSize.getHeight() - 1;
+                        final int strideY = blockWidth * numOfChannels;
+                        Filters.readBlock(source, x0 - anchor.getX(), y0 - anchor.getY(), blockWidth, blockHeight, extrapolationType,
+                            block);
+                        aperture.setStrideY(strideY);
+
+                        for (int y = 0; y < height; ++y) {
+                            for (int x = 0; x < width; ++x) {
+                                aperture.moveTo(y * strideY + x * numOfChannels);
+                                operator.execute(aperture, values);
+                                System.arraycopy(values, 0, resultRow, x * values.length, values.length);
+                            }
+                            result.setSpan(x0, y0 + y, width, resultRow, 0);
+                        }
                     }
-                });
+                };
+            }
+        }, config);
+    }
 
-            temp = currentResult.copy();
-        }
+    /**
+     * Copy values of block of source image into array by rows. Values inside source image are copied by spans, only values outside of
+     * source image (thin band for blocks on image border) are extrapolated.
+     *
+     * @param source
+     *            Source image.
+     * @param blockX
+     *            Position of top-left pixel of block. Can be outside of source image.
+     * @param blockY
+     *            Position of top-left pixel of block. Can be outside of source image.
+     * @param blockWidth
+     *            Width of block.
+     * @param blockHeight
+     *            Height of block.
+     * @param extrapolationType
+     *            Type of extrapolation on image border. Use <CODE>Filters.EXTRAPLOATION_*</CODE> parameters.
+     * @param block
+     *            Array for values of block. Should contain at least <CODE>blockWidth * blockHeight * numOfChannels</CODE> values.
+     */
+    static void readBlock(final Image source, final int blockX, final int blockY, final int blockWidth, final int blockHeight,
+        final int extrapolationType, final double[] block) {
+        final int numOfChannels = source.getNumOfChannels();
+        final int strideY = blockWidth * numOfChannels;
+
+        // Columns of block that are inside of source image.
+        final int copyFrom = Math.max(0, -blockX);
+        final int copyTo = Math.min(blockWidth, source.getWidth() - blockX);
+        for (int y = 0; y < blockHeight; ++y) {
+            final int sourceY = blockY + y;
+
+            int from = 0;
+            int to = 0;
+            if (sourceY >= 0 && sourceY < source.getHeight() && copyFrom < copyTo) {
+                from = copyFrom;
+                to = copyTo;
+                source.getSpan(blockX + from, sourceY, to - from, block, y * strideY + from * numOfChannels);
+            }
 
-        result = temp;
+            for (int x = 0; x < blockWidth; ++x) {
+                if (x >= from && x < to) {
+                    continue;
+                }
+
+                for (int channel = 0; channel < numOfChannels; ++channel) {
+                    block[y * strideY + x * numOfChannels + channel] = source.get(blockX + x, sourceY, channel, extrapolationType);
+                }
+            }
+        }
     }
 
     /**
@@ -619,20 +827,7 @@ public class Filters {
         JCV.verifyOddSize(kernelSize, "kernel.getSize()");
 
         final Image result = image.getSame();
-
-        Filters.noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), 1, extrapolationType, new Operator() {
-            @Override
-            public Color execute(final Image aperture) {
-                final Color res = new Color(aperture.getNumOfChannels());
-
-                double[] conv = aperture.convolve(kernel);
-                for (int i = 0; i < res.getNumOfChannels(); ++i) {
-                    res.set(i, conv[i] / div + offset);
-                }
-
-                return res;
-            }
-        });
+        new Convolution(kernel.getArray()).convolve(image, result, kernelSize.getCenter(), div, offset, extrapolationType);
 
         return result;
     }
@@ -659,11 +854,75 @@ public class Filters {
      */
     public static Image separableFilter(final Image image, final Matrix kernelFirst, final Matrix kernelSecond, final double div,
         final double offset, final int extrapolationType) {
-        // First iteration.
-        final Image result = Filters.linearFilter(image, kernelFirst, div, offset, extrapolationType);
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(kernelFirst, "kernelFirst");
+        JCV.verifyIsNotNull(kernelSecond, "kernelSecond");
+
+        final Size kernelFirstSize = new Size(kernelFirst.getColumnDimension(), kernelFirst.getRowDimension());
+        JCV.verifyOddSize(kernelFirstSize, "kernelFirst.getSize()");
+        final Size kernelSecondSize = new Size(kernelSecond.getColumnDimension(), kernelSecond.getRowDimension());
+        JCV.verifyOddSize(kernelSecondSize, "kernelSecond.getSize()");
+
+        /*
+         * Perform transformation.
+         */
+        final Image result = image.getSame();
+
+        // Result of first iteration has same type as source image.
+        final Image temp = ImagePool.create(image.getWidth(), image.getHeight(), image.getNumOfChannels(), image.getType(),
+            image.getLayout());
+        try {
+            new Convolution(kernelFirst.getArray()).convolve(image, temp, kernelFirstSize.getCenter(), div, offset, extrapolationType);
+            new Convolution(kernelSecond.getArray()).convolve(temp, result, kernelSecondSize.getCenter(), div, offset, extrapolationType);
+        } finally {
+            ImagePool.recycle(temp);
+        }
+
+        return result;
+    }
+
+    /**
+     * Box filter: convolves an image with the kernel, where all values are <CODE>1.0</CODE>. Same as
+     * {@link Filters#linearFilter(Image, Matrix, double, double, int)} with such kernel.
+     *
+     * <P>
+     * Sums of kernel are calculated by running sums: each next sum is calculated from previous sum by adding values that enter into
+     * kernel and subtracting values that leave kernel. So cost for one pixel does not depend on size of kernel.
+     * </P>
+     *
+     * @param image
+     *            Source image.
+     * @param kernelSize
+     *            Size of kernel. <STRONG>Should have odd size for both dimensions (1, 3, 5, ...)</STRONG> and be not bigger than source
+     *            image.
+     * @param div
+     *            Coefficient to division. For example, <CODE>kernelSize.getN()</CODE> for mean values.
+     * @param offset
+     *            Value to offset the result.
+     * @param extrapolationType
+     *            Type of extrapolation on image border. Use <CODE>Filters.EXTRAPLOATION_*</CODE> parameters.
+     * @return
+     *         Image with result of applying box filter. Have same size, number of channels and type as a source image.
+     */
+    public static Image boxFilter(final Image image, final Size kernelSize, final double div, final double offset,
+        final int extrapolationType) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyOddSize(kernelSize, "kernelSize");
+        Filters.verifyKernelSize(image, kernelSize);
+
+        /*
+         * Perform transformation.
+         */
+        final Image result = image.getSame();
+        Convolution.box(image, result, kernelSize, div, offset, extrapolationType);
 
-        // Second iteration.
-        return Filters.linearFilter(result, kernelSecond, div, offset, extrapolationType);
+        return result;
     }
 
     /**
@@ -763,12 +1022,24 @@ public class Filters {
          */
         final Image result = image.getSame();
 
-        Parallel.pixels(image, new PixelsLoop() {
+        Parallel.rows(image, new NamedRowLoopFactory(Filters.class.getName() + ":threshold") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < image.getNumOfChannels(); ++channel) {
-                    result.set(x, y, channel, applyThreshold(image.get(x, y, channel), threshold, maxVal, thresholdType));
-                }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] values = new double[image.getWidth() * image.getNumOfChannels()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image.getSpan(xStart, y, length, this.values, 0);
+
+                        for (int i = 0; i < length * image.getNumOfChannels(); ++i) {
+                            this.values[i] = applyThreshold(this.values[i], threshold, maxVal, thresholdType);
+                        }
+
+                        result.setSpan(xStart, y, length, this.values, 0);
+                    }
+                };
             }
         });
 
@@ -834,7 +1105,7 @@ public class Filters {
         switch (type) {
             case ADAPTIVE_MEAN:
             case ADAPTIVE_MEAN_INV:
-                coeff.setMatrix(0, blockSize - 1, 0, blockSize - 1, new Matrix(blockSize, blockSize, 1.0 / (blockSize * blockSize - 1)));
+                // Sums of block are calculated by running sums.
                 break;
             case ADAPTIVE_GAUSSIAN:
             case ADAPTIVE_GAUSSIAN_INV:
@@ -865,26 +1136,87 @@ public class Filters {
             throw new IllegalArgumentException("Parameter 'C' should be in interval [0.0, 255.0]!");
         }
 
+        final Size apertureSize = new Size(blockSize, blockSize);
+        Filters.verifyKernelSize(image, apertureSize);
+
         /*
          * Perform transformation.
          */
         final Image result = image.getSame();
 
-        final Size apertureSize = new Size(blockSize, blockSize);
-        Filters.noneLinearFilter(image, result, apertureSize, apertureSize.getCenter(), 1, Image.EXTRAPLOATION_REPLICATE, new Operator() {
-            @Override
-            public Color execute(final Image aperture) {
-                final Color res = new Color(aperture.getNumOfChannels());
+        final Point center = apertureSize.getCenter();
 
+        if (type == ADAPTIVE_MEAN || type == ADAPTIVE_MEAN_INV) {
+            // Sum of block is divided to 'blockSize * blockSize - 1' as before.
+            final double div = blockSize * blockSize - 1;
+            final int numOfChannels = image.getNumOfChannels();
+            final Size tileSize = Convolution.getBoxTileSize(result, apertureSize);
+
+            final ParallelConfig config = ParallelConfig.getCurrent();
+            Parallel.tiles(result, tileSize, new NamedTileLoopFactory(Filters.class.getName() + ":adapriveThreshold:mean") {
+                @Override
+                public TileLoop create() {
+                    // Buffers for biggest tile are allocated once for each worker.
+                    final int maxWidth = Math.min(tileSize.getWidth(), result.getWidth());
+                    final int maxHeight = Math.min(tileSize.getHeight(), result.getHeight());
+                    final int maxBlockHeight = maxHeight + blockSize - 1;
+                    final double[] block = new double[(maxWidth + blockSize - 1) * maxBlockHeight * numOfChannels];
+                    final double[] values = new double[maxWidth * maxHeight * numOfChannels];
+                    final double[] rows = new double[maxWidth * maxBlockHeight * numOfChannels];
+
+                    return new TileLoop() {
+                        @Override
+                        public void execute(final int x0, final int y0, final int width, final int height) {
+                            final int blockWidth = width + blockSize - 1;
+                            final int blockHeight = height + blockSize - 1;
+                            final int strideY = blockWidth * numOfChannels;
+                            Filters.readBlock(image, x0 - center.getX(), y0 - center.getY(), blockWidth, blockHeight,
+                                Image.EXTRAPLOATION_REPLICATE, block);
+
+                            Convolution.boxSum(block, numOfChannels, width, height, blockSize, blockSize, values, rows);
+
+                            for (int y = 0; y < height; ++y) {
+                                for (int x = 0; x < width; ++x) {
+                                    for (int channel = 0; channel < numOfChannels; ++channel) {
+                                        final int pos = (y * width + x) * numOfChannels + channel;
+
+                                        double threshold = values[pos] / div - C;
+                                        if (threshold < Color.COLOR_MIN_VALUE) {
+                                            threshold = Color.COLOR_MIN_VALUE;
+                                        }
+                                        if (threshold > Color.COLOR_MAX_VALUE) {
+                                            threshold = Color.COLOR_MAX_VALUE;
+                                        }
+
+                                        final double val =
+                                            block[(y + center.getY()) * strideY + (x + center.getX()) * numOfChannels + channel];
+
+                                        values[pos] = applyThreshold(val, threshold, maxVal, thresholdType);
+                                    }
+                                }
+                                result.setSpan(x0, y0 + y, width, values, y * width * numOfChannels);
+                            }
+                        }
+                    };
+                }
+            }, config);
+
+            return result;
+        }
+
+        final double[][] coeffValues = coeff.getArray();
+        Filters.noneLinearFilter(image, result, apertureSize, center, 1, Image.EXTRAPLOATION_REPLICATE,
+            new NamedApertureOperator(Filters.class.getName() + ":adapriveThreshold:gaussian") {
+            @Override
+            public void execute(final Aperture aperture, final double[] values) {
                 for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
                     /*
                      * Find threshold value.
                      */
-                    Point center = aperture.getSize().getCenter();
                     double sum = 0.0;
                     for (int x = 0; x < aperture.getWidth(); ++x) {
                         for (int y = 0; y < aperture.getHeight(); ++y) {
-                            sum += aperture.get(x, y, channel) * coeff.get(y, x);
+                            sum += aperture.get(x, y, channel) * coeffValues[y][x];
                         }
                     }
 
@@ -901,10 +1233,8 @@ public class Filters {
 
                     double val = aperture.get(center.getX(), center.getY(), channel);
 
-                    res.set(channel, applyThreshold(val, threshold, maxVal, thresholdType));
+                    values[channel] = applyThreshold(val, threshold, maxVal, thresholdType);
                 }
-
-                return res;
             }
         });
 
@@ -1185,21 +1515,51 @@ public class Filters {
 
         final Image result = image.getSame();
 
-        Filters.noneLinearFilter(image, result, dervSize, dervSize.getCenter(), 1, extrapolationType, new Operator() {
-            @Override
-            public Color execute(final Image aperture) {
-                final double[] Gx = aperture.convolve(derivativeX);
-                final double[] Gy = aperture.convolve(derivativeY);
-
-                Color res = new Color(aperture.getNumOfChannels());
-                for (int channel = 0; channel < res.getNumOfChannels(); ++channel) {
-                    // Calculate 'G' and multiply to scale parameter.
-                    res.set(channel, scale * Math.sqrt(Gx[channel] * Gx[channel] + Gy[channel] * Gy[channel]));
-                }
+        // Separable kernels (Sobel, Prewitt, Scharr) are applied as two 1-D convolutions.
+        final Convolution convolutionX = new Convolution(derivativeX.getArray());
+        final Convolution convolutionY = new Convolution(derivativeY.getArray());
+        final Point anchor = dervSize.getCenter();
+        final int numOfChannels = image.getNumOfChannels();
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        final Size tileSize = Parallel.getTileSize(result, config);
 
-                return res;
+        Parallel.tiles(result, tileSize, new NamedTileLoopFactory(Filters.class.getName() + ":gradientFilter") {
+            @Override
+            public TileLoop create() {
+                // Buffers for biggest tile are allocated once for each worker.
+                final int maxWidth = Math.min(tileSize.getWidth(), result.getWidth());
+                final int maxHeight = Math.min(tileSize.getHeight(), result.getHeight());
+                final double[] block =
+                    new double[(maxWidth + dervSize.getWidth() - 1) * (maxHeight + dervSize.getHeight() - 1) * numOfChannels];
+                final double[] Gx = new double[maxWidth * maxHeight * numOfChannels];
+                final double[] Gy = new double[maxWidth * maxHeight * numOfChannels];
+                final Convolution.Buffers buffersX = convolutionX.createBuffers(maxWidth, maxHeight, numOfChannels);
+                final Convolution.Buffers buffersY = convolutionY.createBuffers(maxWidth, maxHeight, numOfChannels);
+
+                return new TileLoop() {
+                    @Override
+                    public void execute(final int x0, final int y0, final int width, final int height) {
+                        // Both derivatives are calculated by one block of source image.
+                        final int blockWidth = width + dervSize.getWidth() - 1;
+                        final int blockHeight = height + dervSize.getHeight() - 1;
+                        Filters.readBlock(image, x0 - anchor.getX(), y0 - anchor.getY(), blockWidth, blockHeight, extrapolationType,
+                            block);
+
+                        convolutionX.execute(block, numOfChannels, width, height, Gx, buffersX);
+                        convolutionY.execute(block, numOfChannels, width, height, Gy, buffersY);
+
+                        // Calculate 'G' and multiply to scale parameter.
+                        final int length = width * height * numOfChannels;
+                        for (int i = 0; i < length; ++i) {
+                            Gx[i] = scale * Math.sqrt(Gx[i] * Gx[i] + Gy[i] * Gy[i]);
+                        }
+                        for (int y = 0; y < height; ++y) {
+                            result.setSpan(x0, y0 + y, width, Gx, y * width * numOfChannels);
+                        }
+                    }
+                };
             }
-        });
+        }, config);
 
         return result;
     }
@@ -1389,24 +1749,66 @@ public class Filters {
     }
 
     /**
-     * Calculate variance of sub-rectangle of kernel. Used into Kuwahara blur.
+     * Gaussian blur with given <CODE>sigma</CODE> (standard deviation) values.
+     *
+     * <P>
+     * Unlike {@link #gaussianBlur(Image, Size, double, double, int)}, size of kernel is not needed. Image is filtered by rows and after
+     * that by columns, rows and columns are processed in parallel. Types {@link #GAUSSIAN_IIR} and {@link #GAUSSIAN_BOX} have cost for one
+     * pixel that does not depend on <CODE>sigma</CODE>, so they should be used for big <CODE>sigma</CODE> values (background estimation,
+     * prefiltering for pyramids and so on).
+     * </P>
+     *
+     * @param image
+     *            Source image.
+     * @param sigmaX
+     *            Sigma value by X dimension. Should be more than <CODE>0</CODE>.
+     * @param sigmaY
+     *            Sigma value by Y dimension. Should be more than <CODE>0</CODE>.
+     * @param gaussianType
+     *            Type of implementation. Use <CODE>Filters.GAUSSIAN_*</CODE> parameters.
+     * @param extrapolationType
+     *            Type of extrapolation. Use <CODE>Filters.EXTRAPLOATION_*</CODE> parameters.
+     * @return
+     *         Image with result of applying Gaussian blur filter. Have same size, number of channels and type as a source image.
      */
-    private static double[] variance(final Image aperture, final Color average) {
-        final double[] result = new double[aperture.getNumOfChannels()];
-        for (int i = 0; i < aperture.getNumOfChannels(); ++i) {
-            result[i] = 0.0;
+    public static Image gaussianBlur(final Image image, final double sigmaX, final double sigmaY, final int gaussianType,
+        final int extrapolationType) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        if (!(sigmaX > 0.0)) {
+            throw new IllegalArgumentException("Value of 'sigmaX' (= " + Double.toString(sigmaX) + ") must be more than 0!");
+        }
+        if (!(sigmaY > 0.0)) {
+            throw new IllegalArgumentException("Value of 'sigmaY' (= " + Double.toString(sigmaY) + ") must be more than 0!");
         }
 
-        for (int x = 0; x < aperture.getWidth(); ++x) {
-            for (int y = 0; y < aperture.getHeight(); ++y) {
-                for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
-                    double value = average.get(channel) - aperture.get(x, y, channel);
-                    result[channel] += value * value;
+        /*
+         * Perform transformation.
+         */
+        switch (gaussianType) {
+            case Filters.GAUSSIAN_KERNEL:
+                break;
+            case Filters.GAUSSIAN_IIR:
+            case Filters.GAUSSIAN_BOX:
+                // Recursive filter is not defined for small sigma.
+                if (gaussianType == Filters.GAUSSIAN_BOX
+                    || (sigmaX >= FastGaussian.IIR_MIN_SIGMA && sigmaY >= FastGaussian.IIR_MIN_SIGMA)) {
+                    final Image result = image.getSame();
+                    FastGaussian.blur(image, result, sigmaX, sigmaY, gaussianType == Filters.GAUSSIAN_IIR, extrapolationType);
+                    return result;
                 }
-            }
+                break;
+            default:
+                throw
+                new IllegalArgumentException("Parameter 'gaussianType' have unknown value! Use 'Filters.GAUSSIAN_*' as a parameters!");
         }
 
-        return result;
+        final Matrix gaussianKernelX = Filters.getGaussianKernel(Filters.getKernelSize(sigmaX), sigmaX * sigmaX);
+        final Matrix gaussianKernelY = Filters.getGaussianKernel(Filters.getKernelSize(sigmaY), sigmaY * sigmaY).transpose();
+
+        return Filters.separableFilter(image, gaussianKernelX, gaussianKernelY, 1.0, Color.COLOR_MIN_VALUE, extrapolationType);
     }
 
     /**
@@ -1436,49 +1838,43 @@ public class Filters {
             final Point kernelCenter = kernelSize.getCenter();
             Image result = image.getSame();
 
-            Filters.noneLinearFilter(image, result, kernelSize, kernelCenter, 1, extrapolationType, new Operator() {
+            // Windows are placed into corners of aperture.
+            final int windowWidth = kernelCenter.getX();
+            final int windowHeight = kernelCenter.getY();
+            Filters.noneLinearFilter(image, result, kernelSize, kernelCenter, 1, extrapolationType,
+                new NamedApertureOperator(Filters.class.getName() + ":kuwaharaBlur") {
                 @Override
-                public Color execute(final Image aperture) {
-                    final Image[] windows = new Image[4];
-
-                    final Color[] mean = new Color[windows.length];
-                    final double[][] variance = new double[windows.length][aperture.getNumOfChannels()];
-
-                    final Size windowSize = new Size(kernelCenter.getX(), kernelCenter.getY());
-
-                    // Create sub-images.
-                    windows[0] = aperture.getSubimage(new Rectangle(0, 0,
-                        windowSize.getWidth(), windowSize.getHeight()));
-                    windows[1] = aperture.getSubimage(new Rectangle(kernelCenter.getX() + 1, 0,
-                        windowSize.getWidth(), windowSize.getHeight()));
-                    windows[2] = aperture.getSubimage(new Rectangle(0, kernelCenter.getY() + 1,
-                        windowSize.getWidth(),  windowSize.getHeight()));
-                    windows[3] = aperture.getSubimage(new Rectangle(kernelCenter.getX() + 1, kernelCenter.getY() + 1,
-                        windowSize.getWidth(), windowSize.getHeight()));
-
-                    // Calculate average and variance.
-                    for (int i = 0; i < windows.length; ++i) {
-                        mean[i] = Misc.calculateMean(windows[i]);
-                        variance[i] = variance(windows[i], mean[i]);
-                    }
-
-                    // Found min of variance.
-                    final Color res = new Color(aperture.getNumOfChannels());
+                public void execute(final Aperture aperture, final double[] values) {
                     for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
-                        int minPos = 0;
-                        double minVal = variance[minPos][channel];
-                        for (int i = 1; i < 4; ++i) {
-                            if (variance[i][channel] < minVal) {
-                                minVal = variance[i][channel];
-                                minPos = i;
+                        double minVariance = 0.0;
+                        for (int i = 0; i < 4; ++i) {
+                            final int x0 = (i % 2) * (windowWidth + 1);
+                            final int y0 = (i / 2) * (windowHeight + 1);
+
+                            // Calculate average and variance.
+                            double sum = 0.0;
+                            for (int y = y0; y < y0 + windowHeight; ++y) {
+                                for (int x = x0; x < x0 + windowWidth; ++x) {
+                                    sum += aperture.get(x, y, channel);
+                                }
                             }
-                        }
+                            final double mean = sum / ((double) windowWidth * windowHeight);
 
-                        // Different values for different channels.
-                        res.set(channel, mean[minPos].get(channel));
-                    }
+                            double variance = 0.0;
+                            for (int y = y0; y < y0 + windowHeight; ++y) {
+                                for (int x = x0; x < x0 + windowWidth; ++x) {
+                                    final double value = mean - aperture.get(x, y, channel);
+                                    variance += value * value;
+                                }
+                            }
 
-                    return res;
+                            // Found min of variance. Different values for different channels.
+                            if (i == 0 || variance < minVariance) {
+                                minVariance = variance;
+                                values[channel] = mean;
+                            }
+                        }
+                    }
                 }
             });
 
@@ -1513,51 +1909,19 @@ public class Filters {
          */
         switch (blurType) {
             case Filters.BLUR_BOX:
-                // Create a kernel.
-                final Matrix box = new Matrix(kernelSize.getHeight(), kernelSize.getWidth());
-                for (int x = 0; x < box.getColumnDimension(); ++x) {
-                    for (int y = 0; y < box.getRowDimension(); ++y) {
-                        box.set(y, x, 1.0);
-                    }
-                }
-                final double div = kernelSize.getN();
-                final double offset = Color.COLOR_MIN_VALUE;
-
-                // Apply filter.
-                return Filters.linearFilter(image, box, div, offset, extrapolationType);
+                return Filters.boxFilter(image, kernelSize, kernelSize.getN(), Color.COLOR_MIN_VALUE, extrapolationType);
 
             case Filters.BLUR_GAUSSIAN:
                 return Filters.gaussianBlur(image, kernelSize, Filters.getSigma(kernelSize.getWidth()),
                     Filters.getSigma(kernelSize.getHeight()), extrapolationType);
 
             case Filters.BLUR_MEDIAN:
-                final Point kernelCenter = kernelSize.getCenter();
-                final Image result = image.getSame();
-
-                Filters.noneLinearFilter(image, result, kernelSize, kernelCenter, 1, extrapolationType, new Operator() {
-                    @Override
-                    public Color execute(final Image aperture) {
-                        final Color res = new Color(aperture.getNumOfChannels());
-                        for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
-                            // Copy content into temporary array.
-                            final double[] tempArr = new double[aperture.getSize().getN()];
-
-                            for (int x = 0; x < aperture.getWidth(); ++x) {
-                                for (int y = 0; y < aperture.getHeight(); ++y) {
-                                    tempArr[x * aperture.getHeight() + y] = aperture.get(x, y, channel);
-                                }
-                            }
+                // Median filter reads blocks of tiles directly, so kernel is verified here.
+                JCV.verifyIsNotNull(image, "image");
+                Filters.verifyKernelSize(image, kernelSize);
 
-                            // Sort temporary array.
-                            Arrays.sort(tempArr);
-
-                            // Return middle element.
-                            res.set(channel, tempArr[(tempArr.length - 1) / 2]);
-                        }
-
-                        return res;
-                    }
-                });
+                final Image result = image.getSame();
+                Median.filter(image, result, kernelSize, extrapolationType);
 
                 return result;
 
@@ -1714,46 +2078,40 @@ public class Filters {
 
         switch (morphologyType) {
             case MORPHOLOGY_DILATE:
-                noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), iterations, extrapolationType, new Operator() {
+                noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), iterations, extrapolationType,
+                    new NamedApertureOperator(Filters.class.getName() + ":morphology:dilate") {
                     @Override
-                    public Color execute(final Image aperture) {
-                        final Color max = new Color(aperture.getNumOfChannels(), Color.COLOR_MIN_VALUE);
+                    public void execute(final Aperture aperture, final double[] values) {
+                        Arrays.fill(values, Color.COLOR_MIN_VALUE);
 
                         // Find maximum.
-                        for (int x = 0; x < aperture.getWidth(); ++x) {
-                            for (int y = 0; y < aperture.getHeight(); ++y) {
-                                for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
-                                    if (max.get(channel) < aperture.get(x, y, channel)) {
-                                        max.set(channel, aperture.get(x, y, channel));
-                                    }
+                        for (int y = 0; y < aperture.getHeight(); ++y) {
+                            for (int x = 0; x < aperture.getWidth(); ++x) {
+                                for (int channel = 0; channel < values.length; ++channel) {
+                                    values[channel] = Math.max(values[channel], aperture.get(x, y, channel));
                                 }
                             }
                         }
-
-                        return max;
                     }
                 });
 
                 break;
 
             case MORPHOLOGY_ERODE:
-                noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), iterations, extrapolationType, new Operator() {
+                noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), iterations, extrapolationType,
+                    new NamedApertureOperator(Filters.class.getName() + ":morphology:erode") {
                     @Override
-                    public Color execute(final Image aperture) {
-                        final Color min = new Color(aperture.getNumOfChannels(), Color.COLOR_MAX_VALUE);
+                    public void execute(final Aperture aperture, final double[] values) {
+                        Arrays.fill(values, Color.COLOR_MAX_VALUE);
 
                         // Find minimum.
-                        for (int x = 0; x < aperture.getWidth(); ++x) {
-                            for (int y = 0; y < aperture.getHeight(); ++y) {
-                                for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
-                                    if (min.get(channel) > aperture.get(x, y, channel)) {
-                                        min.set(channel, aperture.get(x, y, channel));
-                                    }
+                        for (int y = 0; y < aperture.getHeight(); ++y) {
+                            for (int x = 0; x < aperture.getWidth(); ++x) {
+                                for (int channel = 0; channel < values.length; ++channel) {
+                                    values[channel] = Math.min(values[channel], aperture.get(x, y, channel));
                                 }
                             }
                         }
-
-                        return min;
                     }
                 });
 
@@ -1837,4 +2195,67 @@ public class Filters {
          */
         public Color execute(final Image aperture);
     }
+
+    /**
+     * Interface for implement linear and nonlinear operations without creating objects for each pixel. See
+     * {@link Filters#noneLinearFilter(Image, Image, Size, Point, int, int, ApertureOperator)}.
+     *
+     * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+     */
+    public interface ApertureOperator {
+        /**
+         * Perform some operations and save result into <CODE>values</CODE>: one value for each channel of result image. Values out of
+         * interval <CODE>[0.0, 255.0]</CODE> are cut.
+         */
+        public void execute(final Aperture aperture, final double[] values);
+    }
+
+    /**
+     * Operator of aperture with given name into {@link org.jcvlib.parallel.CostModel} (see {@link NamedLoop}). Operators of library use
+     * stable names instead of names of anonymous classes, that are changed by compiler when file is changed.
+     */
+    abstract static class NamedApertureOperator implements ApertureOperator, NamedLoop {
+
+        private final String loopName;
+
+        private final long workPerValue;
+
+        /**
+         * Create operator with given name of loop and work <CODE>1</CODE> for one value of aperture.
+         */
+        public NamedApertureOperator(final String loopName) {
+            this(loopName, 1L);
+        }
+
+        /**
+         * Create operator with given name of loop and amount of work for one value of aperture (see {@link NamedLoop#getWorkPerValue()}).
+         */
+        public NamedApertureOperator(final String loopName, final long workPerValue) {
+            JCV.verifyIsNotNull(loopName, "loopName");
+            if (workPerValue <= 0) {
+                throw new IllegalArgumentException("Value of 'workPerValue' (= " + Long.toString(workPerValue) + ") must be more than 0!");
+            }
+
+            this.loopName = loopName;
+            this.workPerValue = workPerValue;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.jcvlib.parallel.NamedLoop#getLoopName()
+         */
+        @Override
+        public String getLoopName() {
+            return this.loopName;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see org.jcvlib.parallel.NamedLoop#getWorkPerValue()
+         */
+        @Override
+        public long getWorkPerValue() {
+            return this.workPerValue;
+        }
+    }
 }
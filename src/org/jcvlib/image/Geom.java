@@ -23,11 +23,12 @@ import java.util.List;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
 import org.jcvlib.core.Point;
 import org.jcvlib.core.Size;
 
+import org.jcvlib.parallel.NamedTileLoop;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
 
 import Jama.Matrix;
 
@@ -133,24 +134,30 @@ public class Geom {
         /*
          * Perform operation.
          */
-        final Image result = new Image(newSize.getWidth(), newSize.getHeight(), image.getNumOfChannels(), image.getType());
-        final Matrix invP = P.inverse();
+        final Image result = ImagePool.create(newSize.getWidth(), newSize.getHeight(), image.getNumOfChannels(), image.getType(),
+            Image.LAYOUT_ROW_MAJOR);
+        final double[][] invP = P.inverse().getArray();
 
-        Parallel.pixels(result, new PixelsLoop() {
+        // Neighbor pixels of result are mapped to neighbor pixels of source, so tiles are used.
+        Parallel.tiles(result, new NamedTileLoop(Geom.class.getName() + ":wrapPerspectiveTransform") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < result.getNumOfChannels(); ++channel) {
-                    final double t  =  invP.get(2, 0) * x + invP.get(2, 1) * y + invP.get(2, 2);
-                    final double nx = (invP.get(0, 0) * x + invP.get(0, 1) * y + invP.get(0, 2)) / t;
-                    final double ny = (invP.get(1, 0) * x + invP.get(1, 1) * y + invP.get(1, 2)) / t;
-
-                    double value;
-                    if (nx < 0 || nx > image.getWidth() - 1 || ny < 0 || ny > image.getHeight() - 1) {
-                        value = fillColor.get(channel);
-                    } else {
-                        value = image.get(nx, ny, channel, interpolationType);
+            public void execute(final int x0, final int y0, final int width, final int height) {
+                for (int y = y0; y < y0 + height; ++y) {
+                    for (int x = x0; x < x0 + width; ++x) {
+                        final double t  =  invP[2][0] * x + invP[2][1] * y + invP[2][2];
+                        final double nx = (invP[0][0] * x + invP[0][1] * y + invP[0][2]) / t;
+                        final double ny = (invP[1][0] * x + invP[1][1] * y + invP[1][2]) / t;
+
+                        for (int channel = 0; channel < result.getNumOfChannels(); ++channel) {
+                            double value;
+                            if (nx < 0 || nx > image.getWidth() - 1 || ny < 0 || ny > image.getHeight() - 1) {
+                                value = fillColor.get(channel);
+                            } else {
+                                value = image.get(nx, ny, channel, interpolationType);
+                            }
+                            result.set(x, y, channel, value);
+                        }
                     }
-                    result.set(x, y, channel, value);
                 }
             }
         });
@@ -21,8 +21,11 @@ package org.jcvlib.image;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
+import org.jcvlib.parallel.NamedPixelsLoop;
+import org.jcvlib.parallel.NamedReduceLoop;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.ParallelConfig;
 
 /**
  * This class contains methods for manipulate image histograms.
@@ -169,6 +172,19 @@ public class Hist {
         return val;
     }
 
+    /**
+     * Same as {@link #pos(Image, int, int)}, but values of pixel are given from array starting from <CODE>offset</CODE>.
+     */
+    private int pos(final double[] values, final int offset) {
+        double base = 1.0;
+        int val = 0;
+        for (int channel = 0; channel < this.channels; ++channel) {
+            val += JCV.roundDown(values[offset + channel] * base / this.blob);
+            base *= this.size;
+        }
+        return val;
+    }
+
     /**
      * Create image histogram.
      *
@@ -193,18 +209,44 @@ public class Hist {
         this.channels = image.getNumOfChannels();
         this.blob = (1.0 + Color.COLOR_MAX_VALUE) / (double) this.size;
 
-        // Initialize histogram.
-        this.histogram = new double[this.calcLength()];
-        for (int i = 0; i < this.histogram.length; ++i) {
-            this.histogram[i] = 0.0;
+        // Counts of pixels are integer values, so sum of partial histograms not depends on order. Big histograms (with more bins than
+        // pixels into image) are calculated by one worker, because partial histograms take more memory than image.
+        final int length = this.calcLength();
+        final ParallelConfig config;
+        if (length > (long) image.getWidth() * image.getHeight()) {
+            config = ParallelConfig.SERIAL;
+        } else {
+            config = ParallelConfig.getCurrent();
         }
 
         // Calculate.
-        for (int x = 0; x < image.getWidth(); ++x) {
-            for (int y = 0; y < image.getHeight(); ++y) {
-                this.histogram[this.pos(image, x, y)] += 1.0;
+        this.histogram = Parallel.reduce(image, new NamedReduceLoop<double[]>(Hist.class.getName() + ":Hist") {
+            @Override
+            public double[] createPartial() {
+                return new double[length];
             }
-        }
+
+            @Override
+            public void execute(final double[] partial, final int from, final int to) {
+                final double[] row = new double[image.getWidth() * channels];
+                for (int y = from; y < to; ++y) {
+                    image.getRow(y, row, 0);
+
+                    for (int offset = 0; offset < row.length; offset += channels) {
+                        partial[pos(row, offset)] += 1.0;
+                    }
+                }
+            }
+
+            @Override
+            public double[] combine(final double[] partial1, final double[] partial2) {
+                for (int i = 0; i < partial1.length; ++i) {
+                    partial1[i] += partial2[i];
+                }
+
+                return partial1;
+            }
+        }, config);
         this.normalize();
     }
 
@@ -281,11 +323,27 @@ public class Hist {
      */
     public double getVariance() {
         final double average = 1.0 / this.getLength();
-        double sum = 0.0;
-        for (int i = 0; i < this.getLength(); ++i) {
-            sum += Math.pow(this.get(i) - average, 2);
-        }
-        return sum;
+        final double[] sum = Parallel.reduce(this.getLength(), new NamedReduceLoop<double[]>(Hist.class.getName() + ":getVariance") {
+            @Override
+            public double[] createPartial() {
+                return new double[1];
+            }
+
+            @Override
+            public void execute(final double[] partial, final int from, final int to) {
+                for (int i = from; i < to; ++i) {
+                    partial[0] += Math.pow(get(i) - average, 2);
+                }
+            }
+
+            @Override
+            public double[] combine(final double[] partial1, final double[] partial2) {
+                partial1[0] += partial2[0];
+
+                return partial1;
+            }
+        });
+        return sum[0];
     }
 
     // TODO
@@ -412,8 +470,8 @@ public class Hist {
         /*
          * Perform operation.
          */
-        final Image result = new Image(image.getWidth(), image.getHeight(), 1, image.getType());
-        Parallel.pixels(image, new PixelsLoop() {
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), 1, image.getType(), Image.LAYOUT_ROW_MAJOR);
+        Parallel.pixels(image, new NamedPixelsLoop(Hist.class.getName() + ":selectPixels") {
             @Override
             public void execute(final int x, final int y) {
                 double val;
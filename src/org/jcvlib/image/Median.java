@@ -0,0 +1,487 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.image;
+
+import java.util.Arrays;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.Point;
+import org.jcvlib.core.Size;
+import org.jcvlib.parallel.NamedTileLoopFactory;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.TileLoop;
+
+/**
+ * Median filter. Used by {@link Filters#blur(Image, Size, int, int)} with {@link Filters#BLUR_MEDIAN}.
+ *
+ * <P>
+ * Image is split into tiles, that are at least 4 times bigger than kernel by both dimensions. Each tile copies values of source image that
+ * are needed for it into array once (see {@link Filters#readBlock(Image, int, int, int, int, int, double[])}) and moves kernel from left to
+ * right by each row, so only values of one column of kernel are changed on each step:
+ * <UL>
+ * <LI>Images with type {@link Image#TYPE_8I} use histogram of values of kernel. Histogram of small kernels is updated by values of
+ * changed columns (Huang). Histogram of big kernels is updated by histograms of columns, that are updated by one value on each next row, so
+ * cost for one pixel does not depend on size of kernel (Perreault -- Hebert). Histograms of columns are initialized by first rows of each
+ * tile, so tiles of one band of rows are independent. Such histograms have two levels (16 coarse and 256 fine bins): median is found by
+ * coarse bins and after that by 16 fine bins, which are updated only when they are needed.</LI>
+ * <LI>Other images ({@link Image#TYPE_32F} and {@link Image#TYPE_64F}) use sorted array of values of kernel, that is updated by merge with
+ * sorted values of changed columns. Only sorting is saved by it: merge still takes <CODE>O(kernelWidth * kernelHeight)</CODE> operations
+ * for each pixel.</LI>
+ * </UL>
+ * Median is always one of values of kernel, so result is same as result of sorting of all values of kernel.
+ * </P>
+ *
+ * <P>
+ * Each worker allocates arrays for block, histograms and sorted values (see {@link Median.Buffers}) once for biggest tile and reuses them
+ * for all own tiles and channels.
+ * </P>
+ *
+ * <P>
+ * <H6>Links:</H6>
+ * <OL>
+ * <LI>T. Huang, G. Yang, G. Tang. A fast two-dimensional median filtering algorithm. IEEE Trans. Acoust., Speech, Signal Processing,
+ * 27 (1979), 13--18.</LI>
+ * <LI>S. Perreault, P. Hebert. Median filtering in constant time. IEEE Trans. Image Processing, 16 (2007), 2389--2394.</LI>
+ * </OL>
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+final class Median {
+    /**
+     * Kernels with bigger height use histograms of columns.
+     */
+    static final int HUANG_MAX_HEIGHT = 25;
+
+    /**
+     * Number of fine bins of histogram (all values of {@link Image#TYPE_8I}).
+     */
+    private static final int LEVELS = 256;
+
+    /**
+     * Number of fine bins into one coarse bin.
+     */
+    private static final int COARSE_SIZE = 16;
+
+    /**
+     * Number of coarse bins of histogram.
+     */
+    private static final int COARSE_LEVELS = LEVELS / COARSE_SIZE;
+
+    private Median() {
+        // Do nothing.
+    }
+
+    /**
+     * Apply median filter to source image and save result into given image.
+     *
+     * @param source
+     *            Source image.
+     * @param result
+     *            Image to save result. Should have same size and number of channels as a source image.
+     * @param kernelSize
+     *            Size of kernel. Should have odd size for both dimensions.
+     * @param extrapolationType
+     *            Type of extrapolation on image border.
+     */
+    static void filter(final Image source, final Image result, final Size kernelSize, final int extrapolationType) {
+        final int numOfChannels = source.getNumOfChannels();
+        final int kernelWidth = kernelSize.getWidth();
+        final int kernelHeight = kernelSize.getHeight();
+        final Point center = kernelSize.getCenter();
+        final boolean histogram = (source.getType() == Image.TYPE_8I);
+
+        // Each tile initializes histograms by 'kernelHeight' rows and 'kernelWidth' columns, so tile should be bigger than kernel.
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        final Size cacheTileSize = Parallel.getTileSize(result, config);
+        final Size tileSize = new Size(
+            Math.min(result.getWidth(), Math.max(cacheTileSize.getWidth(), 4 * kernelWidth)),
+            Math.min(result.getHeight(), Math.max(cacheTileSize.getHeight(), 4 * kernelHeight)));
+
+        // Each method has own cost, size of kernel only scales work of one value: Huang updates histogram by one column of kernel,
+        // Perreault -- Hebert has constant work and sorted array is merged with all values of kernel.
+        final String method;
+        final long workPerValue;
+        if (!histogram) {
+            method = "sorted";
+            workPerValue = (long) kernelWidth * kernelHeight;
+        } else if (kernelHeight <= HUANG_MAX_HEIGHT) {
+            method = "huang";
+            workPerValue = kernelHeight;
+        } else {
+            method = "perreault";
+            workPerValue = 1L;
+        }
+        final String loopName = Median.class.getName() + ":" + method;
+
+        Parallel.tiles(result, tileSize, new NamedTileLoopFactory(loopName, workPerValue) {
+            @Override
+            public TileLoop create() {
+                // Buffers for biggest tile are allocated once for each worker.
+                final Median.Buffers buffers = new Median.Buffers(tileSize, kernelSize, numOfChannels, method);
+
+                return new TileLoop() {
+                    @Override
+                    public void execute(final int x0, final int y0, final int width, final int height) {
+                        final int blockWidth = width + kernelWidth - 1;
+                        final int blockHeight = height + kernelHeight - 1;
+                        final double[] block = buffers.block;
+                        Filters.readBlock(source, x0 - center.getX(), y0 - center.getY(), blockWidth, blockHeight, extrapolationType,
+                            block);
+
+                        final double[] values = buffers.values;
+                        final int[] plane = buffers.plane;
+                        for (int channel = 0; channel < numOfChannels; ++channel) {
+                            if (histogram) {
+                                final int length = blockWidth * blockHeight;
+                                for (int i = 0; i < length; ++i) {
+                                    plane[i] = (int) block[i * numOfChannels + channel];
+                                }
+
+                                if (kernelHeight <= HUANG_MAX_HEIGHT) {
+                                    Median.huang(plane, width, height, kernelWidth, kernelHeight, values, numOfChannels, channel,
+                                        buffers);
+                                } else {
+                                    Median.perreault(plane, width, height, kernelWidth, kernelHeight, values, numOfChannels, channel,
+                                        buffers);
+                                }
+                            } else {
+                                Median.sorted(block, width, height, kernelWidth, kernelHeight, values, numOfChannels, channel, buffers);
+                            }
+                        }
+
+                        for (int y = 0; y < height; ++y) {
+                            result.setSpan(x0, y0 + y, width, values, y * width * numOfChannels);
+                        }
+                    }
+                };
+            }
+        }, config);
+    }
+
+    /**
+     * Temporary arrays of one worker. Only arrays of given method are allocated.
+     */
+    private static final class Buffers {
+        /**
+         * Values of tile with borders of kernel.
+         */
+        private final double[] block;
+
+        /**
+         * Result values of tile.
+         */
+        private final double[] values;
+
+        /**
+         * Values of one channel of block (histograms).
+         */
+        private final int[] plane;
+
+        /**
+         * Histogram of kernel (histograms).
+         */
+        private final int[] hist;
+
+        /**
+         * Fine and coarse histograms of columns of block (Perreault -- Hebert).
+         */
+        private final int[] columns;
+
+        private final int[] coarseColumns;
+
+        /**
+         * Coarse histogram of kernel and left columns of valid fine parts of histogram of kernel (Perreault -- Hebert).
+         */
+        private final int[] coarse;
+
+        private final int[] updated;
+
+        /**
+         * Sorted values of kernel and arrays for values of changed columns (sorted array).
+         */
+        private final double[] window;
+
+        private final double[] next;
+
+        private final double[] removed;
+
+        private final double[] added;
+
+        private Buffers(final Size tileSize, final Size kernelSize, final int numOfChannels, final String method) {
+            final int blockWidth = tileSize.getWidth() + kernelSize.getWidth() - 1;
+            final int blockHeight = tileSize.getHeight() + kernelSize.getHeight() - 1;
+            this.block = new double[blockWidth * blockHeight * numOfChannels];
+            this.values = new double[tileSize.getN() * numOfChannels];
+
+            final boolean histogram = !"sorted".equals(method);
+            final boolean perreault = "perreault".equals(method);
+            this.plane = histogram ? new int[blockWidth * blockHeight] : null;
+            this.hist = histogram ? new int[LEVELS] : null;
+            this.columns = perreault ? new int[blockWidth * LEVELS] : null;
+            this.coarseColumns = perreault ? new int[blockWidth * COARSE_LEVELS] : null;
+            this.coarse = perreault ? new int[COARSE_LEVELS] : null;
+            this.updated = perreault ? new int[COARSE_LEVELS] : null;
+
+            this.window = histogram ? null : new double[kernelSize.getN()];
+            this.next = histogram ? null : new double[kernelSize.getN()];
+            this.removed = histogram ? null : new double[kernelSize.getHeight()];
+            this.added = histogram ? null : new double[kernelSize.getHeight()];
+        }
+    }
+
+    /**
+     * Median filter by histogram of kernel that is updated by values of changed columns.
+     *
+     * @param plane
+     *            Values of one channel of block with size <CODE>(width + kernelWidth - 1, height + kernelHeight - 1)</CODE> by rows.
+     * @param values
+     *            Array to save result with <CODE>numOfChannels</CODE> values for each pixel.
+     * @param buffers
+     *            Temporary arrays of worker.
+     */
+    private static void huang(final int[] plane, final int width, final int height, final int kernelWidth, final int kernelHeight,
+        final double[] values, final int numOfChannels, final int channel, final Median.Buffers buffers) {
+        final int strideY = width + kernelWidth - 1;
+        final int half = (kernelWidth * kernelHeight - 1) / 2;
+        final int[] hist = buffers.hist;
+
+        for (int y = 0; y < height; ++y) {
+            Arrays.fill(hist, 0);
+            for (int ky = 0; ky < kernelHeight; ++ky) {
+                final int row = (y + ky) * strideY;
+                for (int kx = 0; kx < kernelWidth; ++kx) {
+                    ++hist[plane[row + kx]];
+                }
+            }
+
+            // Number of values, that are less than median.
+            int below = 0;
+            int median = 0;
+            while (below + hist[median] <= half) {
+                below += hist[median];
+                ++median;
+            }
+            values[y * width * numOfChannels + channel] = median;
+
+            for (int x = 1; x < width; ++x) {
+                for (int ky = 0; ky < kernelHeight; ++ky) {
+                    final int row = (y + ky) * strideY;
+
+                    final int removed = plane[row + x - 1];
+                    --hist[removed];
+                    if (removed < median) {
+                        --below;
+                    }
+
+                    final int added = plane[row + x + kernelWidth - 1];
+                    ++hist[added];
+                    if (added < median) {
+                        ++below;
+                    }
+                }
+
+                // Move median.
+                while (below > half) {
+                    --median;
+                    below -= hist[median];
+                }
+                while (below + hist[median] <= half) {
+                    below += hist[median];
+                    ++median;
+                }
+
+                values[(y * width + x) * numOfChannels + channel] = median;
+            }
+        }
+    }
+
+    /**
+     * Median filter by histogram of kernel that is updated by histograms of columns. See
+     * {@link #huang(int[], int, int, int, int, double[], int, int, Median.Buffers)} for parameters.
+     */
+    private static void perreault(final int[] plane, final int width, final int height, final int kernelWidth, final int kernelHeight,
+        final double[] values, final int numOfChannels, final int channel, final Median.Buffers buffers) {
+        final int strideY = width + kernelWidth - 1;
+        final int half = (kernelWidth * kernelHeight - 1) / 2;
+
+        // Histograms of columns of kernel are initialized by first rows of tile.
+        final int[] columns = buffers.columns;
+        final int[] coarseColumns = buffers.coarseColumns;
+        Arrays.fill(columns, 0, strideY * LEVELS, 0);
+        Arrays.fill(coarseColumns, 0, strideY * COARSE_LEVELS, 0);
+        for (int ky = 0; ky < kernelHeight - 1; ++ky) {
+            for (int x = 0; x < strideY; ++x) {
+                final int value = plane[ky * strideY + x];
+                ++columns[x * LEVELS + value];
+                ++coarseColumns[x * COARSE_LEVELS + value / COARSE_SIZE];
+            }
+        }
+
+        // Histogram of kernel. Each fine part of it is valid for kernel with left column 'updated[c]'.
+        final int[] hist = buffers.hist;
+        final int[] coarse = buffers.coarse;
+        final int[] updated = buffers.updated;
+
+        for (int y = 0; y < height; ++y) {
+            // Update histograms of columns: remove upper row and add lower row.
+            final int addedRow = (y + kernelHeight - 1) * strideY;
+            final int removedRow = (y - 1) * strideY;
+            for (int x = 0; x < strideY; ++x) {
+                final int added = plane[addedRow + x];
+                ++columns[x * LEVELS + added];
+                ++coarseColumns[x * COARSE_LEVELS + added / COARSE_SIZE];
+
+                if (y > 0) {
+                    final int removed = plane[removedRow + x];
+                    --columns[x * LEVELS + removed];
+                    --coarseColumns[x * COARSE_LEVELS + removed / COARSE_SIZE];
+                }
+            }
+
+            Arrays.fill(coarse, 0);
+            for (int kx = 0; kx < kernelWidth; ++kx) {
+                for (int c = 0; c < COARSE_LEVELS; ++c) {
+                    coarse[c] += coarseColumns[kx * COARSE_LEVELS + c];
+                }
+            }
+            // All fine parts should be calculated again.
+            Arrays.fill(updated, -kernelWidth);
+
+            for (int x = 0; x < width; ++x) {
+                if (x > 0) {
+                    final int added = (x + kernelWidth - 1) * COARSE_LEVELS;
+                    final int removed = (x - 1) * COARSE_LEVELS;
+                    for (int c = 0; c < COARSE_LEVELS; ++c) {
+                        coarse[c] += coarseColumns[added + c] - coarseColumns[removed + c];
+                    }
+                }
+
+                // Find coarse bin of median.
+                int below = 0;
+                int c = 0;
+                while (below + coarse[c] <= half) {
+                    below += coarse[c];
+                    ++c;
+                }
+
+                // Update fine part of histogram for current kernel.
+                final int start = c * COARSE_SIZE;
+                if (x - updated[c] >= kernelWidth) {
+                    Arrays.fill(hist, start, start + COARSE_SIZE, 0);
+                    for (int kx = x; kx < x + kernelWidth; ++kx) {
+                        final int column = kx * LEVELS + start;
+                        for (int i = 0; i < COARSE_SIZE; ++i) {
+                            hist[start + i] += columns[column + i];
+                        }
+                    }
+                } else {
+                    for (int kx = updated[c]; kx < x; ++kx) {
+                        final int added = (kx + kernelWidth) * LEVELS + start;
+                        final int removed = kx * LEVELS + start;
+                        for (int i = 0; i < COARSE_SIZE; ++i) {
+                            hist[start + i] += columns[added + i] - columns[removed + i];
+                        }
+                    }
+                }
+                updated[c] = x;
+
+                // Find median into coarse bin.
+                int median = start;
+                while (below + hist[median] <= half) {
+                    below += hist[median];
+                    ++median;
+                }
+
+                values[(y * width + x) * numOfChannels + channel] = median;
+            }
+        }
+    }
+
+    /**
+     * Median filter by sorted values of kernel that is updated by merge with sorted values of changed columns. Merge takes
+     * <CODE>O(kernelWidth * kernelHeight)</CODE> operations for each pixel.
+     *
+     * @param block
+     *            Values of block with size <CODE>(width + kernelWidth - 1, height + kernelHeight - 1)</CODE> by rows, with
+     *            <CODE>numOfChannels</CODE> values for each pixel.
+     * @param values
+     *            Array to save result with <CODE>numOfChannels</CODE> values for each pixel.
+     * @param buffers
+     *            Temporary arrays of worker.
+     */
+    private static void sorted(final double[] block, final int width, final int height, final int kernelWidth, final int kernelHeight,
+        final double[] values, final int numOfChannels, final int channel, final Median.Buffers buffers) {
+        final int strideY = (width + kernelWidth - 1) * numOfChannels;
+        final int n = kernelWidth * kernelHeight;
+        final int half = (n - 1) / 2;
+
+        double[] window = buffers.window;
+        double[] next = buffers.next;
+        final double[] removed = buffers.removed;
+        final double[] added = buffers.added;
+
+        for (int y = 0; y < height; ++y) {
+            int pos = 0;
+            for (int ky = 0; ky < kernelHeight; ++ky) {
+                for (int kx = 0; kx < kernelWidth; ++kx) {
+                    window[pos++] = block[(y + ky) * strideY + kx * numOfChannels + channel];
+                }
+            }
+            Arrays.sort(window);
+            values[y * width * numOfChannels + channel] = window[half];
+
+            for (int x = 1; x < width; ++x) {
+                for (int ky = 0; ky < kernelHeight; ++ky) {
+                    final int row = (y + ky) * strideY + channel;
+                    removed[ky] = block[row + (x - 1) * numOfChannels];
+                    added[ky] = block[row + (x + kernelWidth - 1) * numOfChannels];
+                }
+                Arrays.sort(removed);
+                Arrays.sort(added);
+
+                // Merge. Order is same as order of 'Arrays.sort(double[])'.
+                int r = 0;
+                int a = 0;
+                int k = 0;
+                for (int i = 0; i < n; ++i) {
+                    final double value = window[i];
+                    if (r < kernelHeight && Double.compare(value, removed[r]) == 0) {
+                        ++r;
+                        continue;
+                    }
+                    while (a < kernelHeight && Double.compare(added[a], value) < 0) {
+                        next[k++] = added[a++];
+                    }
+                    next[k++] = value;
+                }
+                while (a < kernelHeight) {
+                    next[k++] = added[a++];
+                }
+
+                final double[] swap = window;
+                window = next;
+                next = swap;
+
+                values[(y * width + x) * numOfChannels + channel] = window[half];
+            }
+        }
+    }
+}
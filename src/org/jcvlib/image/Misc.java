@@ -18,7 +18,7 @@
  */
 package org.jcvlib.image;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -26,12 +26,14 @@ import org.jcvlib.core.Region;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
 import org.jcvlib.core.Point;
 import org.jcvlib.core.Rectangle;
 import org.jcvlib.core.Size;
-import org.jcvlib.parallel.ChannelsLoop;
+import org.jcvlib.parallel.NamedReduceLoop;
+import org.jcvlib.parallel.NamedRowLoopFactory;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.RowLoop;
 
 /**
  * Contains miscellaneous image processing methods.
@@ -61,6 +63,19 @@ public class Misc {
      */
     public static final int FLOOD_FILL_RANGE_NEIGHBOR = 1;
 
+    /**
+     * Return <CODE>true</CODE> if given colors are equal with {@link JCV#PRECISION_MAX} precision (same as {@link Color#equals(Object)}).
+     */
+    private static boolean equalColors(final double[] color1, final double[] color2) {
+        for (int channel = 0; channel < color1.length; ++channel) {
+            if (!JCV.equalValues(color1[channel], color2[channel])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     /**
      * <A href="http://en.wikipedia.org/wiki/Flood_fill">Flood fill algorithm</A> for fill some region.
      *
@@ -99,13 +114,30 @@ public class Misc {
         /*
          * Perform operation.
          */
-        final List<Point> pointList = new ArrayList<Point>();
-        pointList.add(seed);
+        final int numOfChannels = image.getNumOfChannels();
+
+        final double[] fill = new double[numOfChannels];
+        for (int channel = 0; channel < numOfChannels; ++channel) {
+            fill[channel] = fillColor.get(channel);
+        }
 
-        final Color seedColor = image.get(seed);
+        final double[] seedColor = new double[numOfChannels];
+        image.get(seed.getX(), seed.getY(), seedColor);
 
-        final List<Color> colorList = new ArrayList<Color>();
-        colorList.add(image.get(seed));
+        // Queue of found pixels with their colors before filling.
+        int queueSize = 1;
+        int[] queueX = new int[64];
+        int[] queueY = new int[queueX.length];
+        double[] queueColor = new double[queueX.length * numOfChannels];
+        queueX[0] = seed.getX();
+        queueY[0] = seed.getY();
+        System.arraycopy(seedColor, 0, queueColor, 0, numOfChannels);
+
+        // Reusable buffers for neighbors.
+        final int[] neighborsX = new int[8];
+        final int[] neighborsY = new int[8];
+        final double[] neighborColor = new double[numOfChannels];
+        final double[] color = new double[numOfChannels];
 
         // Initialize statistic values.
         int areaSize = 0;
@@ -120,14 +152,15 @@ public class Misc {
         int centroidY = seed.getY();
 
         // Main loop.
-        while (!pointList.isEmpty() && !colorList.isEmpty()) {
-            final Point point = pointList.get(0);
-            pointList.remove(0);
-            final Color color = colorList.get(0);
-            colorList.remove(0);
+        int queueHead = 0;
+        while (queueHead < queueSize) {
+            final int pointX = queueX[queueHead];
+            final int pointY = queueY[queueHead];
+            System.arraycopy(queueColor, queueHead * numOfChannels, color, 0, numOfChannels);
+            ++queueHead;
 
             // Add neighbors.
-            final List<Point> neighbors = new ArrayList<Point>();
+            int numOfNeighbors = 0;
             switch (directionType) {
                 /* 1   3
                  *   x
@@ -138,21 +171,25 @@ public class Misc {
                  * 2 8 4
                  */
                 case Misc.DIRECTIONS_TYPE_8:
-                    if (point.getX() > 0 && point.getY() > 0) {
+                    if (pointX > 0 && pointY > 0) {
                         // (x - 1, y - 1)
-                        neighbors.add(new Point(point.getX() - 1, point.getY() - 1));
+                        neighborsX[numOfNeighbors] = pointX - 1;
+                        neighborsY[numOfNeighbors++] = pointY - 1;
                     }
-                    if (point.getX() > 0 && point.getY() < image.getHeight() - 1) {
+                    if (pointX > 0 && pointY < image.getHeight() - 1) {
                         // (x - 1, y + 1)
-                        neighbors.add(new Point(point.getX() - 1, point.getY() + 1));
+                        neighborsX[numOfNeighbors] = pointX - 1;
+                        neighborsY[numOfNeighbors++] = pointY + 1;
                     }
-                    if (point.getX() < image.getWidth() - 1 && point.getY() > 0) {
+                    if (pointX < image.getWidth() - 1 && pointY > 0) {
                         // (x + 1, y - 1)
-                        neighbors.add(new Point(point.getX() + 1, point.getY() - 1));
+                        neighborsX[numOfNeighbors] = pointX + 1;
+                        neighborsY[numOfNeighbors++] = pointY - 1;
                     }
-                    if (point.getX() < image.getWidth() - 1 && point.getY() < image.getHeight() - 1) {
+                    if (pointX < image.getWidth() - 1 && pointY < image.getHeight() - 1) {
                         // (x + 1, y + 1)
-                        neighbors.add(new Point(point.getX() + 1, point.getY() + 1));
+                        neighborsX[numOfNeighbors] = pointX + 1;
+                        neighborsY[numOfNeighbors++] = pointY + 1;
                     }
                 // And add all neighbors from type 4.
                 /*   3
@@ -160,21 +197,25 @@ public class Misc {
                  *   4
                  */
                 case Misc.DIRECTIONS_TYPE_4:
-                    if (point.getX() > 0) {
+                    if (pointX > 0) {
                         // (x - 1, y)
-                        neighbors.add(new Point(point.getX() - 1, point.getY()));
+                        neighborsX[numOfNeighbors] = pointX - 1;
+                        neighborsY[numOfNeighbors++] = pointY;
                     }
-                    if (point.getX() < image.getWidth() - 1) {
+                    if (pointX < image.getWidth() - 1) {
                         // (x + 1, y)
-                        neighbors.add(new Point(point.getX() + 1, point.getY()));
+                        neighborsX[numOfNeighbors] = pointX + 1;
+                        neighborsY[numOfNeighbors++] = pointY;
                     }
-                    if (point.getY() > 0) {
+                    if (pointY > 0) {
                         // (x, y - 1)
-                        neighbors.add(new Point(point.getX(), point.getY() - 1));
+                        neighborsX[numOfNeighbors] = pointX;
+                        neighborsY[numOfNeighbors++] = pointY - 1;
                     }
-                    if (point.getY() < image.getHeight() - 1) {
+                    if (pointY < image.getHeight() - 1) {
                         // (x, y + 1)
-                        neighbors.add(new Point(point.getX(), point.getY() + 1));
+                        neighborsX[numOfNeighbors] = pointX;
+                        neighborsY[numOfNeighbors++] = pointY + 1;
                     }
                     break;
                 default:
@@ -183,7 +224,7 @@ public class Misc {
             }
 
             // Verify neighbors.
-            Color sourceColor;
+            double[] sourceColor;
             switch (rangeType) {
                 case Misc.FLOOD_FILL_RANGE_FIXED:
                     sourceColor = seedColor;
@@ -199,31 +240,55 @@ public class Misc {
             }
 
             // Add or not add found pixel into filled pixels and calculate statistics.
-            for (Point p : neighbors) {
-                if (!image.get(p).equals(fillColor) && sourceColor.euclidDist(image.get(p)) <= distance) {
-                    pointList.add(p);
-                    colorList.add(image.get(p));
+            for (int i = 0; i < numOfNeighbors; ++i) {
+                final int x = neighborsX[i];
+                final int y = neighborsY[i];
+
+                image.get(x, y, neighborColor);
+                if (!Misc.equalColors(neighborColor, fill) && Color.euclidDist(sourceColor, neighborColor) <= distance) {
+                    // Extend queue. Already processed pixels are removed from it.
+                    if (queueSize == queueX.length) {
+                        final int newLength = Math.max(queueX.length, 2 * (queueSize - queueHead));
+                        final int[] newQueueX = new int[newLength];
+                        final int[] newQueueY = new int[newLength];
+                        final double[] newQueueColor = new double[newLength * numOfChannels];
+
+                        System.arraycopy(queueX, queueHead, newQueueX, 0, queueSize - queueHead);
+                        System.arraycopy(queueY, queueHead, newQueueY, 0, queueSize - queueHead);
+                        System.arraycopy(queueColor, queueHead * numOfChannels, newQueueColor, 0, (queueSize - queueHead) * numOfChannels);
+
+                        queueX = newQueueX;
+                        queueY = newQueueY;
+                        queueColor = newQueueColor;
+                        queueSize -= queueHead;
+                        queueHead = 0;
+                    }
 
-                    image.set(p, fillColor);
+                    queueX[queueSize] = x;
+                    queueY[queueSize] = y;
+                    System.arraycopy(neighborColor, 0, queueColor, queueSize * numOfChannels, numOfChannels);
+                    ++queueSize;
+
+                    image.set(x, y, fill);
 
                     // Calculate statistics.
                     ++areaSize;
 
-                    if (p.getX() < leftSide) {
-                        leftSide = p.getX();
+                    if (x < leftSide) {
+                        leftSide = x;
                     }
-                    if (p.getX() > rigthSide) {
-                        rigthSide = p.getX();
+                    if (x > rigthSide) {
+                        rigthSide = x;
                     }
-                    if (p.getY() < topSide) {
-                        topSide = p.getY();
+                    if (y < topSide) {
+                        topSide = y;
                     }
-                    if (p.getY() > bottomSide) {
-                        bottomSide = p.getY();
+                    if (y > bottomSide) {
+                        bottomSide = y;
                     }
 
-                    centroidX += p.getX();
-                    centroidY += p.getY();
+                    centroidX += x;
+                    centroidY += y;
                 }
             }
         }
@@ -274,33 +339,30 @@ public class Misc {
         /*
          * Perform operation.
          */
-        final Image result = new Image(image.getWidth(), image.getHeight(), image.getNumOfChannels(), Image.TYPE_64F);
-
-        Parallel.channels(image, new ChannelsLoop() {
-            @Override
-            public void execute(final int channel) {
-                for (int x = 0; x < image.getWidth(); ++x) {
-                    for (int y = 0; y < image.getHeight(); ++y) {
-                        double left = Color.COLOR_MIN_VALUE;
-                        if (x > 0) {
-                            left = result.get(x - 1, y, channel);
-                        }
-
-                        double top = Color.COLOR_MIN_VALUE;
-                        if (y > 0) {
-                            top = result.get(x, y - 1, channel);
-                        }
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), image.getNumOfChannels(), Image.TYPE_64F,
+            Image.LAYOUT_ROW_MAJOR);
 
-                        double topLeft = Color.COLOR_MIN_VALUE;
-                        if (x > 0 && y > 0) {
-                            topLeft = result.get(x - 1, y - 1, channel);
-                        }
+        final double div = (double) image.getWidth() * image.getHeight();
+        final double[] row = new double[image.getWidth() * image.getNumOfChannels()];
+        final double[] sumRow = new double[row.length];
+        final double[] sum = new double[image.getNumOfChannels()];
 
-                        result.set(x, y, channel, left + top - topLeft + image.get(x, y, channel) / (double) image.getSize().getN());
-                    }
+        // Each row of result is a previous row of result plus cumulative sum of current row of source image.
+        for (int y = 0; y < image.getHeight(); ++y) {
+            image.getRow(y, row, 0);
+            Arrays.fill(sum, Color.COLOR_MIN_VALUE);
+
+            int pos = 0;
+            for (int x = 0; x < image.getWidth(); ++x) {
+                for (int channel = 0; channel < sum.length; ++channel) {
+                    sum[channel] += row[pos] / div;
+                    sumRow[pos] += sum[channel];
+                    ++pos;
                 }
             }
-        });
+
+            result.setRow(y, sumRow, 0);
+        }
 
         return result;
     }
@@ -402,32 +464,55 @@ public class Misc {
         ));
         final Image injectImageSub = injectImage.getSubimage(new Rectangle(0, 0, baseImageSub.getWidth(), baseImageSub.getHeight()));
 
-        // Inject images.
-        Parallel.pixels(baseImageSub, new PixelsLoop() {
+        // Inject images by spans of rows.
+        final int baseChannels = baseImageSub.getNumOfChannels();
+        final int injectChannels = injectImageSub.getNumOfChannels();
+        Parallel.rows(baseImageSub, new NamedRowLoopFactory(Misc.class.getName() + ":injectImage") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < 3; ++channel) {
-                    double alpha1;
-                    if (injectImageSub.getNumOfChannels() == 3) {
-                        alpha1 = 1.0;
-                    } else {
-                        alpha1 = injectImageSub.get(x, y, 3) / Color.COLOR_MAX_VALUE;
-                    }
-
-                    double alpha2;
-                    if (baseImageSub.getNumOfChannels() == 3) {
-                        alpha2 = 1.0;
-                    } else {
-                        alpha2 = baseImageSub.get(x, y, 3) / Color.COLOR_MAX_VALUE;
-                    }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] baseRow = new double[baseImageSub.getWidth() * baseChannels];
+
+                    private final double[] injectRow = new double[baseImageSub.getWidth() * injectChannels];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        baseImageSub.getSpan(xStart, y, length, this.baseRow, 0);
+                        injectImageSub.getSpan(xStart, y, length, this.injectRow, 0);
+
+                        for (int x = 0; x < length; ++x) {
+                            final int basePos = x * baseChannels;
+                            final int injectPos = x * injectChannels;
+
+                            double alpha1;
+                            if (injectChannels == 3) {
+                                alpha1 = 1.0;
+                            } else {
+                                alpha1 = this.injectRow[injectPos + 3] / Color.COLOR_MAX_VALUE;
+                            }
+
+                            double alpha2;
+                            if (baseChannels == 3) {
+                                alpha2 = 1.0;
+                            } else {
+                                alpha2 = this.baseRow[basePos + 3] / Color.COLOR_MAX_VALUE;
+                            }
+
+                            for (int channel = 0; channel < 3; ++channel) {
+                                double value =
+                                    alpha1 * this.injectRow[injectPos + channel] + alpha2 * this.baseRow[basePos + channel] * (1.0 - alpha1);
+                                if (value > Color.COLOR_MAX_VALUE) {
+                                    value = Color.COLOR_MAX_VALUE;
+                                }
+
+                                this.baseRow[basePos + channel] = value;
+                            }
+                        }
 
-                    double value = alpha1 * injectImageSub.get(x, y, channel) + alpha2 * baseImageSub.get(x, y, channel) * (1.0 - alpha1);
-                    if (value > Color.COLOR_MAX_VALUE) {
-                        value = Color.COLOR_MAX_VALUE;
+                        baseImageSub.setSpan(xStart, y, length, this.baseRow, 0);
                     }
-
-                    baseImageSub.set(x, y, channel, value);
-                }
+                };
             }
         });
 
@@ -461,12 +546,27 @@ public class Misc {
          */
         final Image result = image1.getSame();
 
-        Parallel.pixels(result, new PixelsLoop() {
+        Parallel.rows(result, new NamedRowLoopFactory(Misc.class.getName() + ":sum") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < result.getNumOfChannels(); ++channel) {
-                    result.set(x, y, channel, image1.get(x, y, channel) + image2.get(x, y, channel));
-                }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] values1 = new double[result.getWidth() * result.getNumOfChannels()];
+
+                    private final double[] values2 = new double[result.getWidth() * result.getNumOfChannels()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image1.getSpan(xStart, y, length, this.values1, 0);
+                        image2.getSpan(xStart, y, length, this.values2, 0);
+
+                        for (int i = 0; i < length * result.getNumOfChannels(); ++i) {
+                            this.values1[i] = this.values1[i] + this.values2[i];
+                        }
+
+                        result.setSpan(xStart, y, length, this.values1, 0);
+                    }
+                };
             }
         });
 
@@ -488,12 +588,27 @@ public class Misc {
          */
         final Image result = image1.getSame();
 
-        Parallel.pixels(image1, new PixelsLoop() {
+        Parallel.rows(result, new NamedRowLoopFactory(Misc.class.getName() + ":absDiff") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < image1.getNumOfChannels(); ++channel) {
-                    result.set(x, y, channel, Math.abs(image1.get(x, y, channel) - image2.get(x, y, channel)));
-                }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] values1 = new double[result.getWidth() * result.getNumOfChannels()];
+
+                    private final double[] values2 = new double[result.getWidth() * result.getNumOfChannels()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image1.getSpan(xStart, y, length, this.values1, 0);
+                        image2.getSpan(xStart, y, length, this.values2, 0);
+
+                        for (int i = 0; i < length * result.getNumOfChannels(); ++i) {
+                            this.values1[i] = Math.abs(this.values1[i] - this.values2[i]);
+                        }
+
+                        result.setSpan(xStart, y, length, this.values1, 0);
+                    }
+                };
             }
         });
 
@@ -527,12 +642,27 @@ public class Misc {
          */
         final Image result = image1.getSame();
 
-        Parallel.pixels(result, new PixelsLoop() {
+        Parallel.rows(result, new NamedRowLoopFactory(Misc.class.getName() + ":minus") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < image1.getNumOfChannels(); ++channel) {
-                    result.set(x, y, channel, image1.get(x, y, channel) - image2.get(x, y, channel));
-                }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] values1 = new double[result.getWidth() * result.getNumOfChannels()];
+
+                    private final double[] values2 = new double[result.getWidth() * result.getNumOfChannels()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        image1.getSpan(xStart, y, length, this.values1, 0);
+                        image2.getSpan(xStart, y, length, this.values2, 0);
+
+                        for (int i = 0; i < length * result.getNumOfChannels(); ++i) {
+                            this.values1[i] = this.values1[i] - this.values2[i];
+                        }
+
+                        result.setSpan(xStart, y, length, this.values1, 0);
+                    }
+                };
             }
         });
 
@@ -558,25 +688,42 @@ public class Misc {
         /*
          * Perform operation.
          */
-        // Initialize.
-        final double[] sum = new double[image.getNumOfChannels()];
-        for (int channel = 0; channel < sum.length; ++channel) {
-            sum[channel] = 0.0;
-        }
-
         // Sum all values.
-        for (int x = 0; x < image.getWidth(); ++x) {
-            for (int y = 0; y < image.getHeight(); ++y) {
-                for (int channel = 0; channel < image.getNumOfChannels(); ++channel) {
-                    sum[channel] += image.get(x, y, channel);
+        final double[] sum = Parallel.reduce(image, new NamedReduceLoop<double[]>(Misc.class.getName() + ":calculateMean") {
+            @Override
+            public double[] createPartial() {
+                return new double[image.getNumOfChannels()];
+            }
+
+            @Override
+            public void execute(final double[] partial, final int from, final int to) {
+                final double[] row = new double[image.getWidth() * image.getNumOfChannels()];
+                for (int y = from; y < to; ++y) {
+                    image.getRow(y, row, 0);
+
+                    int pos = 0;
+                    for (int x = 0; x < image.getWidth(); ++x) {
+                        for (int channel = 0; channel < partial.length; ++channel) {
+                            partial[channel] += row[pos++];
+                        }
+                    }
                 }
             }
-        }
+
+            @Override
+            public double[] combine(final double[] partial1, final double[] partial2) {
+                for (int channel = 0; channel < partial1.length; ++channel) {
+                    partial1[channel] += partial2[channel];
+                }
+
+                return partial1;
+            }
+        });
 
         // Calculate average.
         final Color mean = new Color(image.getNumOfChannels());
         for (int channel = 0; channel < sum.length; ++channel) {
-            mean.set(channel, sum[channel] / image.getSize().getN());
+            mean.set(channel, sum[channel] / ((double) image.getWidth() * image.getHeight()));
         }
 
         return mean;
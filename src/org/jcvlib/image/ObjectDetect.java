@@ -18,11 +18,19 @@
  */
 package org.jcvlib.image;
 
+import java.util.Arrays;
+
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
 import org.jcvlib.core.Point;
-import org.jcvlib.image.Filters.Operator;
+import org.jcvlib.core.Size;
+import org.jcvlib.image.Filters.NamedApertureOperator;
+import org.jcvlib.parallel.NamedTileLoopFactory;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.TileLoop;
 
 /**
  * Detect objects on given image.
@@ -34,7 +42,8 @@ public class ObjectDetect {
      * Match template using <A href="http://en.wikipedia.org/wiki/Euclidean_distance">Euclidean distance</A> between template and sub-image.
      *
      * <P>
-     * <STRONG>Attention! Extremely slow method! Use small images (resize big images) or another methods!</STRONG>
+     * <STRONG>Attention! Extremely slow method! Use small images (resize big images) or another methods!</STRONG> For example,
+     * {@link #matchTempleteSqDiff(Image, Image)} is applied in frequency domain for big templates.
      * </P>
      *
      * @param image
@@ -52,30 +61,170 @@ public class ObjectDetect {
          */
         JCV.verifyIsNotNull(image, "image");
         JCV.verifyIsNotNull(template, "template");
+        JCV.verifyIsSameChannels(image, "image", template, "template");
 
         /*
          * Perform operation.
          */
-        final Image result = new Image(image.getWidth(), image.getHeight(), 1, Image.TYPE_64F);
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), 1, Image.TYPE_64F, Image.LAYOUT_ROW_MAJOR);
+
+        // Values of template are read once.
+        final int templateStride = template.getWidth() * template.getNumOfChannels();
+        final double[] templateValues = new double[templateStride * template.getHeight()];
+        for (int y = 0; y < template.getHeight(); ++y) {
+            template.getRow(y, templateValues, y * templateStride);
+        }
 
-        Filters.noneLinearFilter(image, result, template.getSize(), new Point(0, 0), 1, Image.EXTRAPLOATION_ZERO, new Operator() {
+        Filters.noneLinearFilter(image, result, template.getSize(), new Point(0, 0), 1, Image.EXTRAPLOATION_ZERO,
+            new NamedApertureOperator(ObjectDetect.class.getName() + ":matchTempleteEuclid") {
             @Override
-            public Color execute(Image aperture) {
+            public void execute(final Aperture aperture, final double[] values) {
+                final int numOfChannels = aperture.getNumOfChannels();
+
                 double result = 0.0;
                 for (int x = 0; x < aperture.getWidth(); ++x) {
                     for (int y = 0; y < aperture.getHeight(); ++y) {
-                        Point p = new Point(x, y);
-                        result += aperture.get(p).euclidDist(template.get(p));
+                        // Euclidean distance between colors, see Color#euclidDist(double[], double[]).
+                        final int templatePos = y * templateStride + x * numOfChannels;
+                        double dist = 0.0;
+                        for (int channel = 0; channel < numOfChannels; ++channel) {
+                            final double diff = aperture.get(x, y, channel) - templateValues[templatePos + channel];
+                            dist += diff * diff;
+                        }
+                        result += Math.sqrt(dist) / Math.sqrt(numOfChannels);
                     }
                 }
 
-                return new Color(new double[]{ Color.COLOR_MAX_VALUE - result / aperture.getSize().getN() });
+                values[0] = Color.COLOR_MAX_VALUE - result / aperture.getSize().getN();
             }
         });
 
         return result;
     }
 
+    /**
+     * Match template using sum of squared differences between template and sub-image.
+     *
+     * <P>
+     * Sum of squared differences is <CODE>sum(I^2) - 2 * sum(I * T) + sum(T^2)</CODE>, where <CODE>I</CODE> is sub-image and
+     * <CODE>T</CODE> is template. Correlation <CODE>sum(I * T)</CODE> is calculated in frequency domain for big templates (see
+     * {@link org.jcvlib.fft.FFT2D}) and sums <CODE>sum(I^2)</CODE> are calculated by separable box kernel, so this method is much faster
+     * than {@link #matchTempleteEuclid(Image, Image)}.
+     * </P>
+     *
+     * @param image
+     *            Source image where we try to find template.
+     * @param template
+     *            Image with object that we want to find. Should have same number of channels and be not bigger than source image.
+     * @return
+     *         Result image with same size and 1 channel. This image contains root-mean-square difference in normalize form (all values
+     *         between {@link Color#COLOR_MIN_VALUE} and {@link Color#COLOR_MAX_VALUE}, {@link Color#COLOR_MAX_VALUE} for the best
+     *         match) between template and all sub-images. Left top corner of sub-image is in position of result pixel. Near right and
+     *         bottom borders sub-image goes outside of source image, such values of source image are zero (same as
+     *         {@link #matchTempleteEuclid(Image, Image)}).
+     */
+    public static Image matchTempleteSqDiff(final Image image, final Image template) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(template, "template");
+        JCV.verifyIsSameChannels(image, "image", template, "template");
+        if (template.getWidth() > image.getWidth()) {
+            throw new IllegalArgumentException("Parameter 'template.getWidth()' should be in interval 0.."
+                + Integer.toString(image.getWidth()) + "!");
+        }
+        if (template.getHeight() > image.getHeight()) {
+            throw new IllegalArgumentException("Parameter 'template.getHeight()' should be in interval 0.."
+                + Integer.toString(image.getHeight()) + "!");
+        }
+
+        /*
+         * Perform operation.
+         */
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), 1, Image.TYPE_64F, Image.LAYOUT_ROW_MAJOR);
+
+        final int numOfChannels = template.getNumOfChannels();
+        final int templateWidth = template.getWidth();
+        final int templateHeight = template.getHeight();
+
+        // Correlation with each channel of template and sum of squares of template.
+        final Convolution[] correlations = new Convolution[numOfChannels];
+        double templateSum = 0.0;
+        for (int channel = 0; channel < numOfChannels; ++channel) {
+            final double[][] kernel = new double[templateHeight][templateWidth];
+            for (int y = 0; y < templateHeight; ++y) {
+                for (int x = 0; x < templateWidth; ++x) {
+                    kernel[y][x] = template.get(x, y, channel);
+                    templateSum += kernel[y][x] * kernel[y][x];
+                }
+            }
+            correlations[channel] = new Convolution(kernel);
+        }
+        final double templateSquares = templateSum;
+
+        final double norm = (double) template.getSize().getN() * numOfChannels;
+        final Size tileSize = correlations[0].getTileSize(result);
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        Parallel.tiles(result, tileSize, new NamedTileLoopFactory(ObjectDetect.class.getName() + ":matchTempleteSqDiff") {
+            @Override
+            public TileLoop create() {
+                // Buffers for biggest tile are allocated once for each worker.
+                final int maxWidth = Math.min(tileSize.getWidth(), result.getWidth());
+                final int maxHeight = Math.min(tileSize.getHeight(), result.getHeight());
+                final int maxBlockLength = (maxWidth + templateWidth - 1) * (maxHeight + templateHeight - 1);
+                final double[] block = new double[maxBlockLength * numOfChannels];
+                final double[] channelBlock = new double[maxBlockLength];
+                final double[] squares = new double[maxBlockLength];
+                final double[] rows = new double[maxWidth * (maxHeight + templateHeight - 1)];
+                final double[] values = new double[maxWidth * maxHeight];
+                final double[] diff = new double[maxWidth * maxHeight];
+                final Convolution.Buffers[] buffers = new Convolution.Buffers[numOfChannels];
+                for (int channel = 0; channel < numOfChannels; ++channel) {
+                    buffers[channel] = correlations[channel].createBuffers(maxWidth, maxHeight, 1);
+                }
+
+                return new TileLoop() {
+                    @Override
+                    public void execute(final int x0, final int y0, final int width, final int height) {
+                        final int blockWidth = width + templateWidth - 1;
+                        final int blockHeight = height + templateHeight - 1;
+                        final int blockLength = blockWidth * blockHeight;
+                        final int length = width * height;
+                        Filters.readBlock(image, x0, y0, blockWidth, blockHeight, Image.EXTRAPLOATION_ZERO, block);
+
+                        Arrays.fill(squares, 0, blockLength, 0.0);
+                        Arrays.fill(diff, 0, length, 0.0);
+                        for (int channel = 0; channel < numOfChannels; ++channel) {
+                            for (int i = 0; i < blockLength; ++i) {
+                                channelBlock[i] = block[i * numOfChannels + channel];
+                                squares[i] += channelBlock[i] * channelBlock[i];
+                            }
+
+                            correlations[channel].execute(channelBlock, 1, width, height, values, buffers[channel]);
+                            for (int i = 0; i < length; ++i) {
+                                diff[i] -= 2.0 * values[i];
+                            }
+                        }
+
+                        // Sums of squares of windows by running sums.
+                        Convolution.boxSum(squares, 1, width, height, templateWidth, templateHeight, values, rows);
+                        for (int i = 0; i < length; ++i) {
+                            // Rounding errors can give small negative values.
+                            final double sum = Math.max(0.0, values[i] + diff[i] + templateSquares);
+                            diff[i] = Color.COLOR_MAX_VALUE - Math.sqrt(sum / norm);
+                        }
+                        for (int y = 0; y < height; ++y) {
+                            result.setSpan(x0, y0 + y, width, diff, y * width);
+                        }
+                    }
+                };
+            }
+        }, config);
+
+        return result;
+    }
+
     /**
      * Match template using <A href="http://en.wikipedia.org/wiki/Image_histogram">image histogram</A>
      * between template and sub-image.
@@ -143,13 +292,13 @@ public class ObjectDetect {
         final double proxyScale = scale;
         final double proxyOffset = offset;
 
-        final Image result = new Image(image.getWidth(), image.getHeight(), 1, Image.TYPE_64F);
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), 1, Image.TYPE_64F, Image.LAYOUT_ROW_MAJOR);
 
-        Filters.noneLinearFilter(image, result, template.getSize(), new Point(0, 0), 1, Image.EXTRAPLOATION_ZERO, new Operator() {
+        Filters.noneLinearFilter(image, result, template.getSize(), new Point(0, 0), 1, Image.EXTRAPLOATION_ZERO,
+            new NamedApertureOperator(ObjectDetect.class.getName() + ":matchTempleteHist") {
             @Override
-            public Color execute(final Image aperture) {
-                return new Color(new double[]{ proxyScale * templateHist.compare(new Hist(aperture), compareType)
-                    + proxyOffset });
+            public void execute(final Aperture aperture, final double[] values) {
+                values[0] = proxyScale * templateHist.compare(new Hist(aperture.getImage()), compareType) + proxyOffset;
             }
         });
 
@@ -21,10 +21,10 @@ package org.jcvlib.image;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
-import org.jcvlib.core.Point;
+import org.jcvlib.core.ImagePool;
 import org.jcvlib.core.Size;
+import org.jcvlib.parallel.NamedTileLoop;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
 
 /**
  * This class contains algorithms for <A href="http://en.wikipedia.org/wiki/Computer_stereo_vision">stereo vision</A>.
@@ -66,33 +66,48 @@ public class Stereo {
         final int heightShift = JCV.round((windowSize.getHeight() - 1) / 2);
         final double maxDist = Math.sqrt(widthShift * widthShift + heightShift * heightShift);
         final Image result =
-            new Image(left.getWidth() - windowSize.getWidth() + 1, left.getHeight() - windowSize.getHeight() + 1, 1, left.getType());
+            ImagePool.create(left.getWidth() - windowSize.getWidth() + 1, left.getHeight() - windowSize.getHeight() + 1, 1, left.getType(),
+                Image.LAYOUT_ROW_MAJOR);
 
-        Parallel.pixels(result, new PixelsLoop() {
-            @Override
-            public void execute(final int x, final int y) {
-                double minColor = Double.MAX_VALUE;
-                double minDist = Double.MAX_VALUE;
+        // Windows of neighbor pixels overlap, so tiles are used.
+        try {
+            Parallel.tiles(result, new NamedTileLoop(Stereo.class.getName() + ":getMap") {
+                @Override
+                public void execute(final int x0, final int y0, final int width, final int height) {
+                    final double[] leftColor = new double[left.getNumOfChannels()];
+                    final double[] rightColor = new double[right.getNumOfChannels()];
 
-                final Color leftColor = left.get(new Point(x + widthShift, y + heightShift));
-                for (int cx = 0; cx < windowSize.getWidth(); ++cx) {
-                    for (int cy = 0; cy < windowSize.getHeight(); ++cy) {
-                        final int rx = x + cx;
-                        final int ry = y + cy;
+                    for (int y = y0; y < y0 + height; ++y) {
+                        for (int x = x0; x < x0 + width; ++x) {
+                            double minColor = Double.MAX_VALUE;
+                            double minDist = Double.MAX_VALUE;
 
-                        final Color rightColor = right.get(new Point(rx, ry));
+                            left.get(x + widthShift, y + heightShift, leftColor);
+                            for (int cx = 0; cx < windowSize.getWidth(); ++cx) {
+                                for (int cy = 0; cy < windowSize.getHeight(); ++cy) {
+                                    final int rx = x + cx;
+                                    final int ry = y + cy;
 
-                        double distColor = leftColor.euclidDist(rightColor);
-                        if (distColor < minColor) {
-                            minColor = distColor;
-                            minDist = Math.sqrt((rx - x) * (rx - x) + (ry - y) * (ry - y));
+                                    right.get(rx, ry, rightColor);
+
+                                    double distColor = Color.euclidDist(leftColor, rightColor);
+                                    if (distColor < minColor) {
+                                        minColor = distColor;
+                                        minDist = Math.sqrt((rx - x) * (rx - x) + (ry - y) * (ry - y));
+                                    }
+                                }
+                            }
+
+                            result.set(x, y, 0, (1.0 - minDist / maxDist) * Color.COLOR_MAX_VALUE);
                         }
                     }
                 }
-
-                result.set(x, y, 0, (1.0 - minDist / maxDist) * Color.COLOR_MAX_VALUE);
-            }
-        });
+            });
+        } catch (final RuntimeException e) {
+            // Result is not returned after cancellation of loop.
+            ImagePool.recycle(result);
+            throw e;
+        }
 
         return result;
     }
@@ -22,7 +22,7 @@ import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
 import org.jcvlib.core.Size;
-import org.jcvlib.image.Filters.Operator;
+import org.jcvlib.image.Filters.NamedApertureOperator;
 
 /**
  * Contains methods to <A href="http://en.wikipedia.org/wiki/Image_texture">texture</A> analysis.
@@ -72,14 +72,13 @@ public class Texture {
          */
         final Image result = image.getSame();
 
-        Filters.noneLinearFilter(image, result, patternSize, patternSize.getCenter(), 1, extrapolationType, new Operator() {
+        final int xCenter = patternSize.getCenter().getX();
+        final int yCenter = patternSize.getCenter().getY();
+        Filters.noneLinearFilter(image, result, patternSize, patternSize.getCenter(), 1, extrapolationType,
+            new NamedApertureOperator(Texture.class.getName() + ":doubleLBP") {
             @Override
-            public Color execute(final Image aperture) {
-                final Color res = new Color(aperture.getNumOfChannels());
-
+            public void execute(final Aperture aperture, final double[] values) {
                 for (int channel = 0; channel < aperture.getNumOfChannels(); ++channel) {
-                    final int xCenter = aperture.getSize().getCenter().getX();
-                    final int yCenter = aperture.getSize().getCenter().getY();
 
                     final double center = aperture.get(xCenter, yCenter, channel);
 
@@ -124,10 +123,8 @@ public class Texture {
                         }
                     }
 
-                    res.set(channel, 0.5 * (rightSide + leftSide));
+                    values[channel] = 0.5 * (rightSide + leftSide);
                 }
-
-                return res;
             }
         });
 
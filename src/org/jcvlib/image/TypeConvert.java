@@ -19,10 +19,13 @@
 package org.jcvlib.image;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBufferByte;
 import java.awt.image.WritableRaster;
 
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
 
 /**
  * Contains methods to convert images from one type to another.
@@ -93,25 +96,21 @@ public class TypeConvert {
     }
 
     /**
-     * Get pixel values from {@link BufferedImage} and put it in the given {@link Image} in specified position.
+     * Get pixel values of one row from {@link BufferedImage} and put it in the given {@link Image} in specified row.
      *
      * @param image
      *            Source image.
-     * @param x
-     *            x-position of pixel.
      * @param y
-     *            y-position of pixel.
-     * @param pixel
-     *            Packed values of color from {@link BufferedImage}. To correct interpret this value needed {@link BufferedImage} parameter.
+     *            y-position of row.
+     * @param pixels
+     *            Packed values of colors from {@link BufferedImage}. To correct interpret this values needed {@link BufferedImage}
+     *            parameter.
+     * @param row
+     *            Temporary array with at least <CODE>image.getWidth() * image.getNumOfChannels()</CODE> values.
      * @param bufferedImageType
-     *            Type of {@link BufferedImage}. This value needed for correct interpret 'pixel' parameter.
+     *            Type of {@link BufferedImage}. This value needed for correct interpret 'pixels' parameter.
      */
-    private static void setPixel(final Image image, final int x, final int y, final int pixel, final int bufferedImageType) {
-        /*
-         * Verify parameters.
-         */
-        JCV.verifyIsNotNull(image, "image");
-
+    private static void setRow(final Image image, final int y, final int[] pixels, final double[] row, final int bufferedImageType) {
         /*
          * Perform operation.
          */
@@ -144,22 +143,29 @@ public class TypeConvert {
          * + TYPE_INT_ARGB 8-bit alpha, red, green, and blue values stored in a 32-bit integer.
          * + TYPE_INT_ARGB_PRE 8-bit alpha and premultiplied red, green, and blue values stored in a 32-bit integer.
          */
+        int pos = 0;
         switch (bufferedImageType) {
         // 1 channel.
             case BufferedImage.TYPE_BYTE_BINARY:
-                image.set(x, y, 0, pixel * 255.0);
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    row[pos++] = pixels[x] * 255.0;
+                }
 
                 break;
 
             // 1 channel.
             case BufferedImage.TYPE_BYTE_GRAY:
-                image.set8I(x, y, 0, pixel);
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    row[pos++] = pixels[x];
+                }
 
                 break;
 
             // 1 channel.
             case BufferedImage.TYPE_USHORT_GRAY:
-                image.set(x, y, 0, org.jcvlib.core.Color.COLOR_MAX_VALUE * pixel / 65535.0);
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    row[pos++] = org.jcvlib.core.Color.COLOR_MAX_VALUE * pixels[x] / 65535.0;
+                }
 
                 break;
 
@@ -174,9 +180,11 @@ public class TypeConvert {
                  * See:
                  * * http://www.devdaily.com/blog/post/java/getting-rgb-values-for-each-pixel-in-image-using-java-bufferedi
                  */
-                image.set8I(x, y, 0, (pixel >> 16) & 0xff); // Red
-                image.set8I(x, y, 1, (pixel >> 8) & 0xff); // Green
-                image.set8I(x, y, 2, (pixel >> 0) & 0xff); // Blue
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    row[pos++] = (pixels[x] >> 16) & 0xff; // Red
+                    row[pos++] = (pixels[x] >> 8) & 0xff; // Green
+                    row[pos++] = (pixels[x] >> 0) & 0xff; // Blue
+                }
 
                 break;
 
@@ -192,70 +200,73 @@ public class TypeConvert {
                  * See:
                  * * http://www.devdaily.com/blog/post/java/getting-rgb-values-for-each-pixel-in-image-using-java-bufferedi
                  */
-                image.set8I(x, y, 0, (pixel >> 16) & 0xff); // Red
-                image.set8I(x, y, 1, (pixel >> 8) & 0xff); // Green
-                image.set8I(x, y, 2, (pixel >> 0) & 0xff); // Blue
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    row[pos++] = (pixels[x] >> 16) & 0xff; // Red
+                    row[pos++] = (pixels[x] >> 8) & 0xff; // Green
+                    row[pos++] = (pixels[x] >> 0) & 0xff; // Blue
 
-                image.set8I(x, y, 3, (pixel >> 24) & 0xff); // Alpha
+                    row[pos++] = (pixels[x] >> 24) & 0xff; // Alpha
+                }
 
                 break;
 
             default:
                 throw new IllegalArgumentException("BufferedImage have unsupported type " + Integer.toString(bufferedImageType) + "!");
         }
+
+        image.setRow(y, row, 0);
     }
 
     /**
-     * Return integer value with packed pixels values from given {@link Image}.
+     * Put packed pixels values of given row from {@link Image} into given array.
+     *
+     * @param image
+     *            Source image.
+     * @param y
+     *            y-position of row.
+     * @param row
+     *            Temporary array with at least <CODE>image.getWidth() * image.getNumOfChannels()</CODE> values.
+     * @param pixels
+     *            Array for packed values of colors. For 1 channel it will contain gray values, for 3 and 4 channels -- values in
+     *            default RGB color model (see {@link BufferedImage#getRGB(int, int)}).
      */
-    private static int getPixel(final Image image, final int x, final int y) {
-        /*
-         * Verify parameters.
-         */
-        JCV.verifyIsNotNull(image, "image");
-
+    private static void getRow(final Image image, final int y, final byte[] row, final int[] pixels) {
         /*
          * Perform operation.
          */
-        /*
-         * (non-Javadoc)
-         * 14 types of BufferedImage:
-         * http://docs.oracle.com/javase/6/docs/api/java/awt/image/BufferedImage.html
-         * http://java.sun.com/developer/technicalArticles/GUI/java2d/java2dpart2.html
-         *
-         * With 1 channel:
-         * ~~~~~~~~~~~~~~~
-         * + TYPE_BYTE_BINARY 1 bit per pixel, 8 pixels to a byte.
-         * + TYPE_BYTE_GRAY 8-bit gray value for each pixel.
-         * + TYPE_USHORT_GRAY 16-bit gray values for each pixel.
-         *
-         * With 3 channels:
-         * ~~~~~~~~~~~~~~~~
-         * + TYPE_3BYTE_BGR Blue, green, and red values stored, 1 byte each.
-         * + TYPE_INT_BGR 8-bit blue, green, and red pixel values stored in a 32-bit integer.
-         * + TYPE_INT_RGB 8-bit red, green, and blue values stored in a 32-bit integer.
-         * + TYPE_USHORT_555_RGB 5-bit red, green, and blue values packed into 16 bits.
-         * + TYPE_USHORT_565_RGB 5-bit red and blue values, 6-bit green values packed into 16 bits.
-         *
-         * With 4 channels:
-         * ~~~~~~~~~~~~~~~~
-         * + TYPE_BYTE_INDEXED 8-bit pixel value that references a color index table.
-         * + TYPE_CUSTOM Image type is not recognized so it must be a customized image.
-         * + TYPE_4BYTE_ABGR Alpha, blue, green, and red values stored, 1 byte each.
-         * + TYPE_4BYTE_ABGR_PRE Alpha and premultiplied blue, green, and red values stored, 1 byte each.
-         * + TYPE_INT_ARGB 8-bit alpha, red, green, and blue values stored in a 32-bit integer.
-         * + TYPE_INT_ARGB_PRE 8-bit alpha and premultiplied red, green, and blue values stored in a 32-bit integer.
-         */
+        image.getRow(y, row, 0);
+
+        int pos = 0;
         switch (image.getNumOfChannels()) {
             case 1:
-                return image.get8I(x, y, 0);
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    pixels[x] = row[pos++] & 0xFF;
+                }
+
+                break;
 
             case 3:
-                return (new java.awt.Color(image.get8I(x, y, 0), image.get8I(x, y, 1), image.get8I(x, y, 2))).getRGB();
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    final int r = row[pos++] & 0xFF;
+                    final int g = row[pos++] & 0xFF;
+                    final int b = row[pos++] & 0xFF;
+
+                    pixels[x] = (0xFF << 24) | (r << 16) | (g << 8) | b;
+                }
+
+                break;
 
             case 4:
-                return (new java.awt.Color(image.get8I(x, y, 0), image.get8I(x, y, 1), image.get8I(x, y, 2), image.get8I(x, y, 3)))
-                    .getRGB();
+                for (int x = 0; x < image.getWidth(); ++x) {
+                    final int r = row[pos++] & 0xFF;
+                    final int g = row[pos++] & 0xFF;
+                    final int b = row[pos++] & 0xFF;
+                    final int a = row[pos++] & 0xFF;
+
+                    pixels[x] = (a << 24) | (r << 16) | (g << 8) | b;
+                }
+
+                break;
 
             default:
                 throw new IllegalArgumentException("To convert 'Image' to 'BufferedImage', source image should have "
@@ -285,18 +296,20 @@ public class TypeConvert {
          */
         final Image result = new Image(bufImg.getWidth(), bufImg.getHeight(), detectNumOfChannelsByType(bufImg.getType()), type);
 
+        final int[] pixels = new int[result.getWidth()];
+        final double[] row = new double[result.getWidth() * result.getNumOfChannels()];
+
         if (result.getNumOfChannels() == 1) {
-            for (int x = 0; x < result.getWidth(); ++x) {
-                for (int y = 0; y < result.getHeight(); ++y) {
+            final WritableRaster raster = bufImg.getRaster();
 
-                    setPixel(result, x, y, bufImg.getRaster().getSample(x, y, 0), bufImg.getType());
-                }
+            for (int y = 0; y < result.getHeight(); ++y) {
+                raster.getSamples(0, y, result.getWidth(), 1, 0, pixels);
+                setRow(result, y, pixels, row, bufImg.getType());
             }
         } else {
-            for (int x = 0; x < result.getWidth(); ++x) {
-                for (int y = 0; y < result.getHeight(); ++y) {
-                    setPixel(result, x, y, bufImg.getRGB(x, y), bufImg.getType());
-                }
+            for (int y = 0; y < result.getHeight(); ++y) {
+                bufImg.getRGB(0, y, result.getWidth(), 1, pixels, 0, result.getWidth());
+                setRow(result, y, pixels, row, bufImg.getType());
             }
         }
 
@@ -315,6 +328,51 @@ public class TypeConvert {
         return TypeConvert.fromBufferedImage(bufImg, Image.TYPE_8I);
     }
 
+    /**
+     * Create {@link Image} based on values of given grayscale {@link BufferedImage}. It is <STRONG>NOT COPY</STRONG> of given image: values
+     * are not copied, all changes of returned image are visible into {@link BufferedImage} and vice versa.
+     *
+     * <P>
+     * Only images with type {@link BufferedImage#TYPE_BYTE_GRAY}, which values lie into one {@link DataBufferByte} without gaps, can be
+     * wrapped. Use {@link TypeConvert#fromBufferedImage(BufferedImage)} to copy other images.
+     * </P>
+     *
+     * @param bufImg
+     *            Source {@link BufferedImage}.
+     * @return
+     *         {@link Image} with 1 channel and type {@link Image#TYPE_8I}.
+     */
+    public static Image wrapBufferedImage(final BufferedImage bufImg) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(bufImg, "bufImg");
+        if (bufImg.getType() != BufferedImage.TYPE_BYTE_GRAY) {
+            throw new IllegalArgumentException("Only BufferedImage with type 'TYPE_BYTE_GRAY' can be wrapped, but given image have type "
+                + Integer.toString(bufImg.getType()) + "! Use 'TypeConvert.fromBufferedImage(...)' to copy it.");
+        }
+
+        final WritableRaster raster = bufImg.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferByte) || !(raster.getSampleModel() instanceof ComponentSampleModel)
+            || raster.getParent() != null) {
+            throw new IllegalArgumentException("Values of given BufferedImage can not be wrapped! "
+                + "Use 'TypeConvert.fromBufferedImage(...)' to copy it.");
+        }
+
+        final ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+        final DataBufferByte dataBuffer = (DataBufferByte) raster.getDataBuffer();
+        if (dataBuffer.getNumBanks() != 1 || dataBuffer.getOffset() != 0 || sampleModel.getPixelStride() != 1
+            || sampleModel.getScanlineStride() != bufImg.getWidth()) {
+            throw new IllegalArgumentException("Values of given BufferedImage have gaps and can not be wrapped! "
+                + "Use 'TypeConvert.fromBufferedImage(...)' to copy it.");
+        }
+
+        /*
+         * Perform operation.
+         */
+        return Image.wrap(dataBuffer.getData(), bufImg.getWidth(), bufImg.getHeight(), 1, Image.LAYOUT_ROW_MAJOR);
+    }
+
     /**
      * Convert from {@link Image} to {@link BufferedImage}.
      *
@@ -362,6 +420,9 @@ public class TypeConvert {
          * + TYPE_INT_ARGB 8-bit alpha, red, green, and blue values stored in a 32-bit integer.
          * + TYPE_INT_ARGB_PRE 8-bit alpha and premultiplied red, green, and blue values stored in a 32-bit integer.
          */
+        final int[] pixels = new int[image.getWidth()];
+        final byte[] row = new byte[image.getWidth() * image.getNumOfChannels()];
+
         BufferedImage bufImg = null;
         switch (image.getNumOfChannels()) {
             case 1:
@@ -369,9 +430,8 @@ public class TypeConvert {
                 WritableRaster raster = bufImg.getRaster();
 
                 for (int y = 0; y < image.getHeight(); ++y) {
-                    for (int x = 0; x < image.getWidth(); ++x) {
-                        raster.setSample(x, y, 0, getPixel(image, x, y));
-                    }
+                    getRow(image, y, row, pixels);
+                    raster.setSamples(0, y, image.getWidth(), 1, 0, pixels);
                 }
 
                 return bufImg;
@@ -380,9 +440,8 @@ public class TypeConvert {
                 bufImg = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_3BYTE_BGR);
 
                 for (int y = 0; y < image.getHeight(); ++y) {
-                    for (int x = 0; x < image.getWidth(); ++x) {
-                        bufImg.setRGB(x, y, getPixel(image, x, y));
-                    }
+                    getRow(image, y, row, pixels);
+                    bufImg.setRGB(0, y, image.getWidth(), 1, pixels, 0, image.getWidth());
                 }
 
                 return bufImg;
@@ -391,9 +450,8 @@ public class TypeConvert {
                 bufImg = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_4BYTE_ABGR);
 
                 for (int y = 0; y < image.getHeight(); ++y) {
-                    for (int x = 0; x < image.getWidth(); ++x) {
-                        bufImg.setRGB(x, y, getPixel(image, x, y));
-                    }
+                    getRow(image, y, row, pixels);
+                    bufImg.setRGB(0, y, image.getWidth(), 1, pixels, 0, image.getWidth());
                 }
 
                 return bufImg;
@@ -406,7 +464,12 @@ public class TypeConvert {
     }
 
     /**
-     * Convert given {@link Image} to {@link Image} with new type.
+     * Convert given {@link Image} to {@link Image} with new type. Layout of values into memory will be the same as in given image.
+     *
+     * <P>
+     * Converting to {@link Image#TYPE_8I} rounds values to integers. Converting to {@link Image#TYPE_32F} keeps values with precision
+     * {@link JCV#PRECISION_32F}.
+     * </P>
      */
     public static Image toType(final Image image, final int newImageType) {
         /*
@@ -417,7 +480,8 @@ public class TypeConvert {
         /*
          * Perform operation.
          */
-        final Image result = new Image(image.getWidth(), image.getHeight(), image.getNumOfChannels(), newImageType);
+        final Image result = ImagePool.create(image.getWidth(), image.getHeight(), image.getNumOfChannels(), newImageType,
+            image.getLayout());
 
         image.copyTo(result);
 
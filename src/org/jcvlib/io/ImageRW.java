@@ -102,6 +102,23 @@ public class ImageRW {
      * </P>
      */
     public static Image read(final File imageFile) throws IOException {
+        return ImageRW.read(imageFile, Image.TYPE_8I);
+    }
+
+    /**
+     * Read image from disk and save it into image with given type.
+     *
+     * <P>
+     * It is useful to read image directly into {@link Image#TYPE_32F} or {@link Image#TYPE_64F} image for float-point processing
+     * without additional converting.
+     * </P>
+     *
+     * @param imageFile
+     *            File with image.
+     * @param type
+     *            Type of returned image. You should use 'Image.TYPE_*' as a parameter!
+     */
+    public static Image read(final File imageFile, final int type) throws IOException {
         /*
          * Verify parameters.
          */
@@ -127,7 +144,7 @@ public class ImageRW {
             bufImg = ImageIO.read(imageFile);
         }
 
-        return TypeConvert.fromBufferedImage(bufImg);
+        return TypeConvert.fromBufferedImage(bufImg, type);
     }
 
     /**
@@ -164,6 +181,26 @@ public class ImageRW {
         return ImageRW.read(new File(fileName));
     }
 
+    /**
+     * Read image from disk and save it into image with given type.
+     *
+     * @param fileName
+     *            Path to file with image.
+     * @param type
+     *            Type of returned image. You should use 'Image.TYPE_*' as a parameter!
+     */
+    public static Image read(final String fileName, final int type) throws IOException {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(fileName, "fileName");
+
+        /*
+         * Read image.
+         */
+        return ImageRW.read(new File(fileName), type);
+    }
+
     /**
      * Write current image into file. Type of image detected by file extension.
      *
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.JCV;
+
+/**
+ * Asynchronous execution of image operations. Operations return {@link CompletableFuture} instead of blocking of thread that call it.
+ *
+ * <P>
+ * Example: <CODE><PRE>
+ * // Image image = ...
+ * CompletableFuture&lt;Image&gt; blurred = Async.apply(image, new BatchOperation&lt;Image&gt;() {
+ *          {@literal @}Override
+ *          public Image execute(Image image) {
+ *              return Filters.blur(image, new Size(5, 5), Filters.BLUR_GAUSSIAN);
+ *          }
+ *      });
+ * CompletableFuture&lt;Image&gt; edges = Async.then(blurred, new BatchOperation&lt;Image&gt;() {
+ *          {@literal @}Override
+ *          public Image execute(Image image) {
+ *              return Filters.edgeDetection(image, Filters.EDGE_DETECT_SOBEL);
+ *          }
+ *      });
+ * </PRE></CODE>
+ * </P>
+ *
+ * <P>
+ * By default operations are executed into pool of given settings (see {@link ParallelConfig#getPool()}), so loops of {@link Parallel}
+ * that are called by operation split into tasks of same pool and no thread waits for other threads. Operations can be executed by any
+ * other {@link Executor}, for example, to separate workloads.
+ * </P>
+ *
+ * <P>
+ * If settings have not token of cancellation, each operation has own token (see {@link CancellationToken}), that is cancelled when
+ * future is cancelled. So {@link CompletableFuture#cancel(boolean)} stops loops of operation after current row or tile.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class Async {
+
+    /**
+     * Execute operation asynchronously with settings of current thread. See
+     * {@link #apply(Image, BatchOperation, ParallelConfig, Executor)}.
+     */
+    public static <R> CompletableFuture<R> apply(final Image image, final BatchOperation<R> operation) {
+        return Async.apply(image, operation, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Execute operation asynchronously into pool of given settings. See {@link #apply(Image, BatchOperation, ParallelConfig, Executor)}.
+     */
+    public static <R> CompletableFuture<R> apply(final Image image, final BatchOperation<R> operation, final ParallelConfig config) {
+        JCV.verifyIsNotNull(config, "config");
+
+        return Async.apply(image, operation, config, config.getPool());
+    }
+
+    /**
+     * Execute operation asynchronously.
+     *
+     * @param image
+     *            Source image.
+     * @param operation
+     *            Operation that will be applied to image.
+     * @param config
+     *            Settings of parallelization. Loops of {@link Parallel} that are called by operation use same settings.
+     * @param executor
+     *            Executor of operation.
+     * @return
+     *         Future result of operation. If operation throws exception, future is completed exceptionally.
+     */
+    public static <R> CompletableFuture<R> apply(final Image image, final BatchOperation<R> operation, final ParallelConfig config,
+        final Executor executor) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(operation, "operation");
+        JCV.verifyIsNotNull(config, "config");
+        JCV.verifyIsNotNull(executor, "executor");
+
+        /*
+         * Perform operation.
+         */
+        final CompletableFuture<R> future = new CompletableFuture<R>();
+        Async.execute(image, operation, Async.getConfig(future, config), executor, future);
+
+        return future;
+    }
+
+    /**
+     * Return settings for operation, that completes given future. If settings have not token of cancellation, operation has own token,
+     * that is cancelled when future is cancelled.
+     */
+    private static <R> ParallelConfig getConfig(final CompletableFuture<R> future, final ParallelConfig config) {
+        if (config.getCancellationToken() != null) {
+            return config;
+        }
+
+        final CancellationToken token = new CancellationToken();
+        future.whenComplete(new BiConsumer<R, Throwable>() {
+            @Override
+            public void accept(final R result, final Throwable exception) {
+                if (future.isCancelled()) {
+                    token.cancel();
+                }
+            }
+        });
+
+        return config.withCancellationToken(token);
+    }
+
+    /**
+     * Execute operation by given executor and complete given future by result of it.
+     */
+    private static <R> void execute(final Image image, final BatchOperation<R> operation, final ParallelConfig config,
+        final Executor executor, final CompletableFuture<R> future) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (future.isDone()) {
+                        return;
+                    }
+
+                    try {
+                        JCV.verifyIsNotNull(image, "image");
+
+                        final ParallelConfig.Scope scope = config.openScope();
+                        try {
+                            future.complete(operation.execute(image));
+                        } finally {
+                            scope.close();
+                        }
+                    } catch (final Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            // Executor is shut down or saturated, so future never will be completed by task.
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Execute operation asynchronously after given image will be ready with settings of current thread. See
+     * {@link #then(CompletableFuture, BatchOperation, ParallelConfig, Executor)}.
+     */
+    public static <R> CompletableFuture<R> then(final CompletableFuture<Image> image, final BatchOperation<R> operation) {
+        return Async.then(image, operation, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Execute operation asynchronously after given image will be ready into pool of given settings. See
+     * {@link #then(CompletableFuture, BatchOperation, ParallelConfig, Executor)}.
+     */
+    public static <R> CompletableFuture<R> then(final CompletableFuture<Image> image, final BatchOperation<R> operation,
+        final ParallelConfig config) {
+        JCV.verifyIsNotNull(config, "config");
+
+        return Async.then(image, operation, config, config.getPool());
+    }
+
+    /**
+     * Execute operation asynchronously after given image will be ready. No thread waits for given image.
+     *
+     * @param image
+     *            Future source image (for example, result of other operation).
+     * @param operation
+     *            Operation that will be applied to image.
+     * @param config
+     *            Settings of parallelization. Loops of {@link Parallel} that are called by operation use same settings.
+     * @param executor
+     *            Executor of operation.
+     * @return
+     *         Future result of operation. If source image or operation is completed exceptionally, future is completed exceptionally.
+     */
+    public static <R> CompletableFuture<R> then(final CompletableFuture<Image> image, final BatchOperation<R> operation,
+        final ParallelConfig config, final Executor executor) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(operation, "operation");
+        JCV.verifyIsNotNull(config, "config");
+        JCV.verifyIsNotNull(executor, "executor");
+
+        /*
+         * Perform operation.
+         */
+        // Future and token are created before source image is ready, so cancellation of future stops loops of operation.
+        final CompletableFuture<R> future = new CompletableFuture<R>();
+        final ParallelConfig operationConfig = Async.getConfig(future, config);
+
+        image.whenComplete(new BiConsumer<Image, Throwable>() {
+            @Override
+            public void accept(final Image source, final Throwable exception) {
+                if (exception == null) {
+                    Async.execute(source, operation, operationConfig, executor, future);
+                } else if (exception instanceof CompletionException && exception.getCause() != null) {
+                    future.completeExceptionally(exception.getCause());
+                } else {
+                    future.completeExceptionally(exception);
+                }
+            }
+        });
+
+        return future;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.JCV;
+
+/**
+ * Parallel processing of many images (batch). Each worker processes own images.
+ *
+ * <P>
+ * Loops of {@link Parallel} split one image into parts, but small images (for example, thumbnails <CODE>200 x 200</CODE>) are processed
+ * by one worker, because they have less values than {@link ParallelConfig#getMinSize()}. Batch uses all workers for list of small images:
+ *
+ * <PRE>
+ * <CODE>
+ * List&lt;Image&gt; blurred = Batch.map(images, new BatchOperation&lt;Image&gt;() {
+ *          {@literal @}Override
+ *          public Image execute(Image image) {
+ *              return Filters.blur(image, new Size(5, 5), Filters.BLUR_GAUSSIAN);
+ *          }
+ *      });
+ * </CODE>
+ * </PRE>
+ *
+ * Images are processed into same {@link java.util.concurrent.ForkJoinPool} as loops of {@link Parallel} with same settings. Loops that
+ * are called by operation (for big images of batch) split into tasks of same pool, so free workers steal parts of big images and all
+ * workers are busy for any sizes of images. Batch is split by number of values of each image (not by number of images), so big images
+ * are not grouped with small ones and free workers steal single images.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class Batch {
+
+    /**
+     * Apply operation to each image of list with settings of current thread. See {@link #map(List, BatchOperation, ParallelConfig)}.
+     */
+    public static <R> List<R> map(final List<Image> images, final BatchOperation<R> operation) {
+        return Batch.map(images, operation, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Apply operation to each image of list.
+     *
+     * @param images
+     *            List of source images.
+     * @param operation
+     *            Operation that will be applied to each image.
+     * @param config
+     *            Settings of parallelization. Loops of {@link Parallel} that are called by operation use same settings.
+     * @return
+     *         List of results of operation in same order as source images.
+     */
+    public static <R> List<R> map(final List<Image> images, final BatchOperation<R> operation, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(images, "images");
+        JCV.verifyIsNotNull(operation, "operation");
+        JCV.verifyIsNotNull(config, "config");
+        for (int i = 0; i < images.size(); ++i) {
+            if (images.get(i) == null) {
+                throw new IllegalArgumentException("Image " + Integer.toString(i) + " of batch must be not null!");
+            }
+        }
+
+        /*
+         * Perform operation.
+         */
+        if (images.isEmpty()) {
+            return new ArrayList<R>();
+        }
+
+        // Copy images into array, because given list can be not thread-safe.
+        final Image[] source = images.toArray(new Image[images.size()]);
+        final long[] offsets = new long[source.length + 1];
+        for (int i = 0; i < source.length; ++i) {
+            offsets[i + 1] = offsets[i] + (long) source[i].getWidth() * source[i].getHeight() * source[i].getNumOfChannels();
+        }
+
+        final Object[] values = new Object[source.length];
+        final BatchAction<R> task = new BatchAction<R>(config, operation, source, offsets, values, 0, source.length);
+        if (config.getNumOfWorkers() == 1) {
+            task.process();
+        } else if (ForkJoinTask.getPool() == config.getPool()) {
+            task.invoke();
+        } else {
+            config.getPool().invoke(task);
+        }
+
+        final List<R> result = new ArrayList<R>(source.length);
+        for (final Object value : values) {
+            @SuppressWarnings("unchecked")
+            final R item = (R) value;
+            result.add(item);
+        }
+
+        return result;
+    }
+
+    /**
+     * Task of pool that processes images <CODE>from..(to - 1)</CODE> of batch. Range is split into halves by number of values of each
+     * image, until it contains one image or less than {@link ParallelConfig#getMinSize()} values. So each big image is a separate task
+     * and free workers steal images (or small groups of images) from busy workers.
+     */
+    private static class BatchAction<R> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelConfig config;
+
+        private final BatchOperation<R> operation;
+
+        private final Image[] source;
+
+        /**
+         * Number of values of images <CODE>0..(i - 1)</CODE> for each index <CODE>i</CODE>.
+         */
+        private final long[] offsets;
+
+        private final Object[] result;
+
+        private final int from;
+
+        private final int to;
+
+        public BatchAction(final ParallelConfig config, final BatchOperation<R> operation, final Image[] source, final long[] offsets,
+            final Object[] result, final int from, final int to) {
+            this.config = config;
+            this.operation = operation;
+            this.source = source;
+            this.offsets = offsets;
+            this.result = result;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Process all images of task by current thread.
+         */
+        public void process() {
+            // Nested loops of worker should use same settings.
+            final ParallelConfig.Scope previous = this.config.enterWorker();
+            try {
+                for (int i = this.from; i < this.to; ++i) {
+                    if (this.config.getCancellationToken() != null) {
+                        this.config.getCancellationToken().throwIfCancelled();
+                    }
+                    this.result[i] = this.operation.execute(this.source[i]);
+                }
+            } finally {
+                ParallelConfig.exitWorker(previous);
+            }
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (this.to - this.from == 1 || this.offsets[this.to] - this.offsets[this.from] <= this.config.getMinSize()) {
+                this.process();
+                return;
+            }
+
+            // Split by half of values, but each part has at least one image.
+            final long half = (this.offsets[this.from] + this.offsets[this.to]) / 2;
+            int middle = Arrays.binarySearch(this.offsets, this.from + 1, this.to, half);
+            if (middle < 0) {
+                middle = -middle - 1;
+            }
+            middle = Math.max(this.from + 1, Math.min(this.to - 1, middle));
+
+            final BatchAction<R> right =
+                new BatchAction<R>(this.config, this.operation, this.source, this.offsets, this.result, middle, this.to);
+            right.fork();
+            try {
+                new BatchAction<R>(this.config, this.operation, this.source, this.offsets, this.result, this.from, middle).invoke();
+            } finally {
+                // Wait for all parts even after exception, so operation is not executed after batch is finished.
+                right.quietlyJoin();
+            }
+            right.join();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import org.jcvlib.core.Image;
+
+/**
+ * Interface for operation that is applied to each image of batch (see {@link Batch}) or to image asynchronously (see {@link Async}).
+ *
+ * @param <R>
+ *            Type of result of operation (for example, {@link Image} for filters or {@link org.jcvlib.core.Color} for statistics).
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public interface BatchOperation<R> {
+    /**
+     * Process one image of batch and return result.
+     */
+    public R execute(final Image image);
+}
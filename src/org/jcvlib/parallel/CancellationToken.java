@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvlib.core.JCV;
+
+/**
+ * Token of cooperative cancellation of parallel loops.
+ *
+ * <P>
+ * Token is given to loops by settings (see {@link ParallelConfig#withCancellationToken(CancellationToken)}). Loops of {@link Parallel}
+ * check token before each row, tile or image of batch and throw {@link CancellationException} if token is cancelled, so long operation
+ * (for example, {@link org.jcvlib.image.Stereo} or median filter with big kernel) stops after current row or tile:
+ *
+ * <PRE>
+ * <CODE>
+ * final CancellationToken token = CancellationToken.withTimeout(500, TimeUnit.MILLISECONDS);
+ * try (ParallelConfig.Scope scope = ParallelConfig.getCurrent().withCancellationToken(token).openScope()) {
+ *     Image map = Stereo.getMap(left, right, windowSize);
+ *     ...
+ * } catch (CancellationException e) {
+ *     // Too long.
+ * }
+ * </CODE>
+ * </PRE>
+ *
+ * Token is cancelled by {@link #cancel()}, by deadline or by interruption of given thread.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class CancellationToken {
+
+    private volatile boolean cancelled = false;
+
+    /**
+     * Deadline by {@link System#nanoTime()}.
+     */
+    private final long deadline;
+
+    private final boolean hasDeadline;
+
+    private final Thread thread;
+
+    /**
+     * Create new token that is cancelled only by {@link #cancel()}.
+     */
+    public CancellationToken() {
+        this(0L, false, null);
+    }
+
+    private CancellationToken(final long deadline, final boolean hasDeadline, final Thread thread) {
+        this.deadline = deadline;
+        this.hasDeadline = hasDeadline;
+        this.thread = thread;
+    }
+
+    /**
+     * Create new token that is cancelled by {@link #cancel()} or after given time.
+     *
+     * @param timeout
+     *            Time from current moment to deadline. Should be more or equal <CODE>0</CODE>.
+     * @param unit
+     *            Unit of time.
+     */
+    public static CancellationToken withTimeout(final long timeout, final TimeUnit unit) {
+        /*
+         * Verify parameters.
+         */
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Value of 'timeout' (= " + Long.toString(timeout) + ") must be more or equal 0!");
+        }
+        JCV.verifyIsNotNull(unit, "unit");
+
+        /*
+         * Perform operation.
+         */
+        return new CancellationToken(System.nanoTime() + unit.toNanos(timeout), true, null);
+    }
+
+    /**
+     * Create new token that is cancelled by {@link #cancel()} or by interruption of current thread (see {@link Thread#interrupt()}).
+     * Loops are executed by workers of pool, so interruption of thread that waits for loop is not visible to workers without token.
+     */
+    public static CancellationToken ofCurrentThread() {
+        return new CancellationToken(0L, false, Thread.currentThread());
+    }
+
+    /**
+     * Cancel all loops that use current token.
+     */
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    /**
+     * Return <CODE>true</CODE> if current token was cancelled, deadline was reached or thread was interrupted.
+     */
+    public boolean isCancelled() {
+        if (this.cancelled) {
+            return true;
+        }
+        if (this.hasDeadline && System.nanoTime() - this.deadline >= 0) {
+            return true;
+        }
+        if (this.thread != null && this.thread.isInterrupted()) {
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Throw {@link CancellationException} if current token is cancelled. See {@link #isCancelled()}.
+     */
+    public void throwIfCancelled() {
+        if (this.isCancelled()) {
+            throw new CancellationException("Parallel loop was cancelled!");
+        }
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.jcvlib.core.JCV;
+
+/**
+ * Model of cost of parallel loops. Used by {@link Parallel} to select number of workers for each loop instead of fixed
+ * {@link ParallelConfig#getMinSize()}. Model is used only by settings that are created by {@link ParallelConfig#withCostModel(CostModel)},
+ * it is not a part of {@link ParallelConfig#DEFAULT}.
+ *
+ * <P>
+ * Each loop (name from {@link NamedLoop}, for example <CODE>org.jcvlib.image.Misc:absDiff</CODE>, or class of runner) has own cost: time in
+ * nanoseconds for one unit of work. Unit of work is one value of image (one channel of one pixel), multiplied by
+ * {@link NamedLoop#getWorkPerValue()} for named loops (for example, by area of kernel). So one cost is used for images with any number
+ * of channels and for kernels of any size.
+ * Loop is split into so many parts, that each part takes at least {@link #getMinTaskTime()} nanoseconds, but not more than number of
+ * workers. Cheap operations on small images are executed serially, expensive operations use all workers.
+ * </P>
+ *
+ * <P>
+ * Cost of loop is unknown before first execution. First execution uses {@link ParallelConfig#getMinSize()} and measures time of each
+ * part (calibration). After that each execution updates cost by measured time with weight {@link #getFeedback()} (adaptive feedback). Costs
+ * can be saved into file by {@link #save(File)} and loaded at startup by {@link #load(File)} to skip calibration.
+ * </P>
+ *
+ * <P>
+ * All loops of library have stable names (see {@link NamedLoop}). Names of anonymous and local classes (for example,
+ * <CODE>org.jcvlib.image.Misc$1</CODE>) are numbered by compiler and after any change of source file can point to other loop, so costs of
+ * such loops are measured only while application runs: they are not saved and not loaded.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class CostModel {
+    /**
+     * Minimal time of one part of loop by default: 100 microseconds. Less parts are not efficient because of cost of task creation.
+     */
+    public static final long MIN_TASK_TIME_DEFAULT = 100 * 1000L;
+
+    /**
+     * Weight of new measured time by default.
+     */
+    public static final double FEEDBACK_DEFAULT = 0.25;
+
+    /**
+     * Part of name of anonymous or local class: <CODE>$</CODE> with number.
+     */
+    private static final Pattern GENERATED_NAME = Pattern.compile("\\$[0-9]");
+
+    private final long minTaskTime;
+
+    private final double feedback;
+
+    /**
+     * Costs (nanoseconds per unit of work) by names of loops.
+     */
+    private final ConcurrentMap<String, Double> costs = new ConcurrentHashMap<String, Double>();
+
+    /**
+     * Create new empty model with {@link #MIN_TASK_TIME_DEFAULT} and {@link #FEEDBACK_DEFAULT}.
+     */
+    public CostModel() {
+        this(MIN_TASK_TIME_DEFAULT, FEEDBACK_DEFAULT);
+    }
+
+    /**
+     * Create new empty model.
+     *
+     * @param minTaskTime
+     *            Minimal time of one part of loop in nanoseconds. Should be more than <CODE>0</CODE>.
+     * @param feedback
+     *            Weight of new measured time. Should be in interval <CODE>[0.0, 1.0]</CODE>. Value <CODE>0.0</CODE> means that cost is
+     *            measured only by first execution of loop.
+     */
+    public CostModel(final long minTaskTime, final double feedback) {
+        /*
+         * Verify parameters.
+         */
+        if (minTaskTime <= 0) {
+            throw new IllegalArgumentException("Value of 'minTaskTime' (= " + Long.toString(minTaskTime) + ") must be more than 0!");
+        }
+        if (feedback < 0.0 || feedback > 1.0) {
+            throw new IllegalArgumentException("Value of 'feedback' (= " + Double.toString(feedback) + ") must be in interval [0.0, 1.0]!");
+        }
+
+        /*
+         * Initialize.
+         */
+        this.minTaskTime = minTaskTime;
+        this.feedback = feedback;
+    }
+
+    /**
+     * Return minimal time of one part of loop in nanoseconds.
+     */
+    public long getMinTaskTime() {
+        return this.minTaskTime;
+    }
+
+    /**
+     * Return weight of new measured time.
+     */
+    public double getFeedback() {
+        return this.feedback;
+    }
+
+    /**
+     * Return name of given loop.
+     */
+    static String getName(final Class<?> loop) {
+        JCV.verifyIsNotNull(loop, "loop");
+
+        return loop.getName();
+    }
+
+    /**
+     * Return <CODE>true</CODE> if given name of loop does not depend on numbering of anonymous and local classes by compiler, so it can be
+     * saved into profile.
+     */
+    static boolean isStableName(final String name) {
+        return !GENERATED_NAME.matcher(name).find();
+    }
+
+    /**
+     * Return cost of given loop (nanoseconds per unit of work) or {@link Double#NaN} if it is unknown.
+     */
+    public double getCost(final Class<?> loop) {
+        return this.getCost(CostModel.getName(loop));
+    }
+
+    /**
+     * Return cost of loop with given name (nanoseconds per unit of work) or {@link Double#NaN} if it is unknown. See {@link NamedLoop}.
+     */
+    public double getCost(final String loop) {
+        JCV.verifyIsNotNull(loop, "loop");
+
+        final Double cost = this.costs.get(loop);
+        if (cost == null) {
+            return Double.NaN;
+        }
+
+        return cost;
+    }
+
+    /**
+     * Set cost of given loop (nanoseconds per unit of work).
+     */
+    public void setCost(final Class<?> loop, final double cost) {
+        this.setCost(CostModel.getName(loop), cost);
+    }
+
+    /**
+     * Set cost of loop with given name (nanoseconds per unit of work). See {@link NamedLoop}.
+     */
+    public void setCost(final String loop, final double cost) {
+        JCV.verifyIsNotNull(loop, "loop");
+        if (Double.isNaN(cost) || cost < 0.0) {
+            throw new IllegalArgumentException("Value of 'cost' (= " + Double.toString(cost) + ") must be more or equal 0.0!");
+        }
+
+        this.costs.put(loop, cost);
+    }
+
+    /**
+     * Update cost of given loop by measured time of one part.
+     *
+     * @param loop
+     *            Class of runner of loop.
+     * @param time
+     *            Measured time in nanoseconds.
+     * @param work
+     *            Work that was done: number of processed values, multiplied by {@link NamedLoop#getWorkPerValue()}.
+     */
+    public void update(final Class<?> loop, final long time, final long work) {
+        this.update(CostModel.getName(loop), time, work);
+    }
+
+    /**
+     * Update cost of loop with given name by measured time of one part.
+     *
+     * @param name
+     *            Name of loop (see {@link NamedLoop}).
+     * @param time
+     *            Measured time in nanoseconds.
+     * @param work
+     *            Work that was done: number of processed values, multiplied by {@link NamedLoop#getWorkPerValue()}.
+     */
+    public void update(final String name, final long time, final long work) {
+        JCV.verifyIsNotNull(name, "name");
+        if (work <= 0 || time < 0) {
+            return;
+        }
+
+        final double measured = (double) time / work;
+        while (true) {
+            final Double old = this.costs.get(name);
+            if (old == null) {
+                if (this.costs.putIfAbsent(name, measured) == null) {
+                    return;
+                }
+            } else {
+                final double updated = (1.0 - this.feedback) * old + this.feedback * measured;
+                if (this.costs.replace(name, old, updated)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Return number of parts for loop with given cost or <CODE>-1</CODE> if cost of loop is unknown.
+     *
+     * @param loop
+     *            Class of runner of loop.
+     * @param n
+     *            Number of iterations of loop.
+     * @param workPerIteration
+     *            Work of one iteration: number of values, multiplied by {@link NamedLoop#getWorkPerValue()}.
+     * @param numOfWorkers
+     *            Max number of workers.
+     */
+    public int getNumOfParts(final Class<?> loop, final int n, final long workPerIteration, final int numOfWorkers) {
+        return this.getNumOfParts(CostModel.getName(loop), n, workPerIteration, numOfWorkers);
+    }
+
+    /**
+     * Return number of parts for loop with given name or <CODE>-1</CODE> if cost of loop is unknown. See
+     * {@link #getNumOfParts(Class, int, long, int)}.
+     */
+    public int getNumOfParts(final String loop, final int n, final long workPerIteration, final int numOfWorkers) {
+        final double cost = this.getCost(loop);
+        if (Double.isNaN(cost)) {
+            return -1;
+        }
+
+        final double time = cost * workPerIteration * n;
+        return (int) Math.max(1L, Math.min(Math.min((long) numOfWorkers, (long) n), (long) (time / this.minTaskTime)));
+    }
+
+    /**
+     * Remove all measured costs.
+     */
+    public void clear() {
+        this.costs.clear();
+    }
+
+    /**
+     * Save costs into given stream in format of {@link Properties}. Costs of anonymous and local classes are not saved.
+     */
+    public void save(final OutputStream out) throws IOException {
+        JCV.verifyIsNotNull(out, "out");
+
+        final Properties properties = new Properties();
+        for (final Map.Entry<String, Double> entry : this.costs.entrySet()) {
+            if (CostModel.isStableName(entry.getKey())) {
+                properties.setProperty(entry.getKey(), Double.toString(entry.getValue()));
+            }
+        }
+        properties.store(out, "Cost of parallel loops (nanoseconds per unit of work)");
+    }
+
+    /**
+     * Save all costs into given file. See {@link #save(OutputStream)}.
+     */
+    public void save(final File file) throws IOException {
+        JCV.verifyIsNotNull(file, "file");
+
+        final OutputStream out = new FileOutputStream(file);
+        try {
+            this.save(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Load costs from given stream that was created by {@link #save(OutputStream)}. Loaded costs replace current costs of same loops. Costs
+     * of anonymous and local classes (from files written by other versions) are skipped.
+     */
+    public void load(final InputStream in) throws IOException {
+        JCV.verifyIsNotNull(in, "in");
+
+        final Properties properties = new Properties();
+        properties.load(in);
+        for (final String name : properties.stringPropertyNames()) {
+            if (!CostModel.isStableName(name)) {
+                continue;
+            }
+
+            final double cost;
+            try {
+                cost = Double.parseDouble(properties.getProperty(name));
+            } catch (final NumberFormatException e) {
+                throw new IOException("Incorrect cost of loop '" + name + "'!", e);
+            }
+            if (Double.isNaN(cost) || cost < 0.0) {
+                throw new IOException("Incorrect cost of loop '" + name + "'!");
+            }
+
+            this.costs.put(name, cost);
+        }
+    }
+
+    /**
+     * Load costs from given file. See {@link #load(InputStream)}.
+     */
+    public void load(final File file) throws IOException {
+        JCV.verifyIsNotNull(file, "file");
+
+        final InputStream in = new FileInputStream(file);
+        try {
+            this.load(in);
+        } finally {
+            in.close();
+        }
+    }
+}
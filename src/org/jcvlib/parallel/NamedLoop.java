@@ -0,0 +1,52 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+/**
+ * Runner of loop with own name into {@link CostModel}.
+ *
+ * <P>
+ * By default name of loop is a name of class of runner, so all calls of one place of code (for example, all operators of
+ * {@link org.jcvlib.image.Filters#noneLinearFilter(org.jcvlib.core.Image, org.jcvlib.core.Image, org.jcvlib.core.Size,
+ * org.jcvlib.core.Point, int, int, org.jcvlib.image.Filters.ApertureOperator)}) have one cost. Runners with different cost of one pixel
+ * (different operators, methods and so on) should implement this interface and return different names. Parameters that only scale
+ * amount of work (for example, size of kernel) should not be a part of name, see {@link #getWorkPerValue()}.
+ * </P>
+ *
+ * <P>
+ * Names of anonymous classes are changed by compiler when file is changed, so costs of them are not saved into profile (see
+ * {@link CostModel#save(java.io.File)}). All loops of library implement this interface with stable names like
+ * <CODE>org.jcvlib.image.Misc:absDiff</CODE>.
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public interface NamedLoop {
+    /**
+     * Return name of loop into {@link CostModel}.
+     */
+    public String getLoopName();
+
+    /**
+     * Return amount of work for one value of image in units of cost of loop (for example, area of kernel for filter that reads all
+     * values of kernel for each result value). So one cost is measured for all sizes of kernel and profile of costs does not grow with
+     * number of used sizes. Return <CODE>1</CODE> if work does not depend on parameters of loop.
+     */
+    public long getWorkPerValue();
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import org.jcvlib.core.JCV;
+
+/**
+ * Runner of tiles with given name into {@link CostModel} (see {@link NamedLoop}).
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public abstract class NamedTileLoop implements TileLoop, NamedLoop {
+
+    private final String loopName;
+
+    private final long workPerValue;
+
+    /**
+     * Create runner with given name of loop and work <CODE>1</CODE> for one value.
+     */
+    public NamedTileLoop(final String loopName) {
+        this(loopName, 1L);
+    }
+
+    /**
+     * Create runner with given name of loop and amount of work for one value (see {@link NamedLoop#getWorkPerValue()}).
+     */
+    public NamedTileLoop(final String loopName, final long workPerValue) {
+        JCV.verifyIsNotNull(loopName, "loopName");
+        if (workPerValue <= 0) {
+            throw new IllegalArgumentException("Value of 'workPerValue' (= " + Long.toString(workPerValue) + ") must be more than 0!");
+        }
+
+        this.loopName = loopName;
+        this.workPerValue = workPerValue;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.parallel.NamedLoop#getLoopName()
+     */
+    @Override
+    public String getLoopName() {
+        return this.loopName;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see org.jcvlib.parallel.NamedLoop#getWorkPerValue()
+     */
+    @Override
+    public long getWorkPerValue() {
+        return this.workPerValue;
+    }
+}
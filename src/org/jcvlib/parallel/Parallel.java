@@ -18,11 +18,19 @@
  */
 package org.jcvlib.parallel;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Image;
-
-import pro.zavodnikov.jparfor.core.JLoopI;
-import pro.zavodnikov.jparfor.core.JParfor;
+import org.jcvlib.core.Size;
 
 /**
  * Class for parallelization image processing algorithms.
@@ -30,7 +38,7 @@ import pro.zavodnikov.jparfor.core.JParfor;
  * <P>
  * Example: <CODE><PRE>
  * // Image image = ...
- * JcvParallel.channels(image, new ChannelsLoopI() {
+ * Parallel.channels(image, new ChannelsLoop() {
  *          {@literal @}Override
  *          public void execute(int channel) {
  *              // Do something.
@@ -38,101 +46,828 @@ import pro.zavodnikov.jparfor.core.JParfor;
  *      });
  * </PRE></CODE> or <CODE><PRE>
  * // Image image = ...
- * JcvParallel.pixels(image, new JcvPixelsLoopI() {
+ * Parallel.pixels(image, new PixelsLoop() {
  *          {@literal @}Override
  *          public void execute(int x, int y) {
  *              // Do something.
  *          }
  *      });
+ * </PRE></CODE> or <CODE><PRE>
+ * // Image image = ...
+ * double[] sum = Parallel.reduce(image, new ReduceLoop&lt;double[]&gt;() {
+ *          {@literal @}Override
+ *          public double[] createPartial() {
+ *              return new double[1];
+ *          }
+ *
+ *          {@literal @}Override
+ *          public void execute(double[] partial, int from, int to) {
+ *              // Add rows from..(to - 1) into partial.
+ *          }
+ *
+ *          {@literal @}Override
+ *          public double[] combine(double[] partial1, double[] partial2) {
+ *              partial1[0] += partial2[0];
+ *              return partial1;
+ *          }
+ *      });
  * </PRE></CODE>
  * </P>
  *
+ * <P>
+ * Loops are executed into {@link java.util.concurrent.ForkJoinPool} with settings from {@link ParallelConfig}. Settings can be given to
+ * each loop explicitly, otherwise settings of current thread are used (see {@link ParallelConfig#getCurrent()}). Class has not any
+ * global mutable state, so loops from different threads do not affect each other.
+ * </P>
+ *
  * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
  */
 public class Parallel {
     /**
-     * Minimal image size to parallelization by default: 100 x 100 = 10 000 elements).
+     * Minimal width and height of tile that will be selected automatically.
+     */
+    public static final int MIN_TILE_SIZE = 8;
+
+    /**
+     * Number of values (for example, pixels) into one block of deterministic reduction. See {@link ParallelConfig#isDeterministic()}.
      */
-    public static final int MIN_SIZE_DEFAULT = 100 * 100;
+    public static final int REDUCE_BLOCK_SIZE = 64 * 1024;
 
-    private static int currentMinSize = MIN_SIZE_DEFAULT;
+    /**
+     * Loops that are running now (in all threads). Guarded by itself.
+     */
+    private static final Set<Parallel.Running> RUNNING = Collections.newSetFromMap(new IdentityHashMap<Parallel.Running, Boolean>());
 
     /**
-     * Return minimal size for parallelization.
+     * Action that waits for finish of loops that were running when it was given. See {@link Parallel#afterRunningLoops(Runnable)}.
      */
-    public static int getMinSize() {
-        return currentMinSize;
+    private static class Pending {
+
+        private final Runnable action;
+
+        private int numOfLoops;
+
+        public Pending(final Runnable action, final int numOfLoops) {
+            this.action = action;
+            this.numOfLoops = numOfLoops;
+        }
     }
 
     /**
-     * Set min size for parallelization.
+     * Running loop with actions that wait for its finish.
      */
-    public static void setMinSize(final int minSize) {
-        currentMinSize = minSize;
+    private static class Running {
+
+        private final List<Parallel.Pending> pending = new ArrayList<Parallel.Pending>();
     }
 
     /**
-     * Return number of worker that will be used.
+     * Body of loop for range of indexes.
      */
-    public static int getNumOfWorkers() {
-        return JParfor.getMaxWorkers();
+    abstract static class Range {
+        /**
+         * Name of loop into {@link CostModel}: name from {@link NamedLoop} or name of class of runner.
+         */
+        private final String loop;
+
+        private final long valuesPerIteration;
+
+        /**
+         * Work of one index in units of cost of loop: number of values multiplied by {@link NamedLoop#getWorkPerValue()}.
+         */
+        private final long workPerIteration;
+
+        /**
+         * Token of cancellation of loop. Set by {@link Parallel#exec(ParallelConfig, int, Range)}.
+         */
+        private CancellationToken cancellationToken;
+
+        /**
+         * @param runner
+         *            Runner of loop.
+         * @param valuesPerIteration
+         *            Number of values (pixels multiplied by channels) that are processed by one index.
+         */
+        public Range(final Object runner, final long valuesPerIteration) {
+            this.valuesPerIteration = Math.max(1L, valuesPerIteration);
+            if (runner instanceof NamedLoop) {
+                this.loop = ((NamedLoop) runner).getLoopName();
+                this.workPerIteration = this.valuesPerIteration * ((NamedLoop) runner).getWorkPerValue();
+            } else {
+                this.loop = CostModel.getName(runner.getClass());
+                this.workPerIteration = this.valuesPerIteration;
+            }
+        }
+
+        /**
+         * Process indexes from <CODE>from</CODE> (inclusive) to <CODE>to</CODE> (exclusive).
+         */
+        public abstract void execute(final int from, final int to);
+
+        /**
+         * Throw {@link java.util.concurrent.CancellationException} if loop was cancelled. Should be called by body before each index.
+         */
+        void checkCancelled() {
+            if (this.cancellationToken != null) {
+                this.cancellationToken.throwIfCancelled();
+            }
+        }
+
+        /**
+         * Process indexes from <CODE>from</CODE> (inclusive) to <CODE>to</CODE> (exclusive) and update cost of loop by measured time.
+         */
+        void measure(final CostModel costModel, final int from, final int to) {
+            if (costModel == null) {
+                this.execute(from, to);
+                return;
+            }
+
+            final long start = System.nanoTime();
+            this.execute(from, to);
+            costModel.update(this.loop, System.nanoTime() - start, (to - from) * this.workPerIteration);
+        }
     }
 
     /**
-     * Set number of workers that will be used.
+     * Task of pool that split range of indexes into given number of parts.
      */
-    public static void setNumOfWorkers(final int maxWork) {
-        JParfor.setMaxWorkers(maxWork);
+    private static class RangeAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ParallelConfig config;
+
+        private final Range body;
+
+        private final int from;
+
+        private final int to;
+
+        private final int parts;
+
+        public RangeAction(final ParallelConfig config, final Range body, final int from, final int to, final int parts) {
+            this.config = config;
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.parts = parts;
+        }
+
+        /*
+         * (non-Javadoc)
+         * @see java.util.concurrent.RecursiveAction#compute()
+         */
+        @Override
+        protected void compute() {
+            if (this.parts == 1) {
+                // Nested loops of worker should use same settings.
+                final ParallelConfig.Scope previous = this.config.enterWorker();
+                try {
+                    this.body.measure(this.config.getCostModel(), this.from, this.to);
+                } finally {
+                    ParallelConfig.exitWorker(previous);
+                }
+            } else {
+                final int leftParts = this.parts / 2;
+                final int middle = this.from + (int) ((long) (this.to - this.from) * leftParts / this.parts);
+
+                final RangeAction right = new RangeAction(this.config, this.body, middle, this.to, this.parts - leftParts);
+                right.fork();
+                try {
+                    new RangeAction(this.config, this.body, this.from, middle, leftParts).invoke();
+                } finally {
+                    // Wait for all parts even after exception, so buffers of loop are not used after loop is finished.
+                    right.quietlyJoin();
+                }
+                right.join();
+            }
+        }
     }
 
     /**
-     * Parallel processing channels of image.
+     * Execute given body for indexes <CODE>0..(n - 1)</CODE>. Indexes are split into continuous ranges, each range is processed by one
+     * worker.
+     *
+     * <P>
+     * Number of workers is selected by {@link CostModel} of given settings. If cost of loop is unknown, each worker processes at least
+     * {@link ParallelConfig#getMinSize()} values.
+     * </P>
+     *
+     * <P>
+     * If settings have token of cancellation (see {@link ParallelConfig#getCancellationToken()}), loop throws
+     * {@link java.util.concurrent.CancellationException} after cancellation. In any case loop returns only after all workers finish.
+     * </P>
+     *
+     * @param config
+     *            Settings of parallelization.
+     * @param n
+     *            Number of indexes.
+     * @param body
+     *            Body of loop.
+     */
+    static void exec(final ParallelConfig config, final int n, final Range body) {
+        body.cancellationToken = config.getCancellationToken();
+        body.checkCancelled();
+        if (n <= 0) {
+            return;
+        }
+
+        int parts = -1;
+        if (config.getCostModel() != null) {
+            parts = config.getCostModel().getNumOfParts(body.loop, n, body.workPerIteration, config.getNumOfWorkers());
+        }
+        if (parts < 0) {
+            final long minIterations = Math.max(1L, (config.getMinSize() + body.valuesPerIteration - 1) / body.valuesPerIteration);
+            parts = (int) Math.min(Math.min(config.getNumOfWorkers(), n), Math.max(1L, n / minIterations));
+        }
+
+        final Parallel.Running running = new Parallel.Running();
+        synchronized (RUNNING) {
+            RUNNING.add(running);
+        }
+        try {
+            if (parts == 1) {
+                body.measure(config.getCostModel(), 0, n);
+            } else {
+                final RangeAction task = new RangeAction(config, body, 0, n, parts);
+                if (ForkJoinTask.getPool() == config.getPool()) {
+                    task.invoke();
+                } else {
+                    config.getPool().invoke(task);
+                }
+            }
+        } finally {
+            final List<Runnable> ready = new ArrayList<Runnable>();
+            synchronized (RUNNING) {
+                RUNNING.remove(running);
+                for (final Parallel.Pending pending : running.pending) {
+                    --pending.numOfLoops;
+                    if (pending.numOfLoops == 0) {
+                        ready.add(pending.action);
+                    }
+                }
+            }
+            for (final Runnable action : ready) {
+                action.run();
+            }
+        }
+    }
+
+    /**
+     * Execute given action after all parallel loops that are running now (in all threads) finish. If there are no running loops, action
+     * is executed immediately by current thread. Otherwise it is executed by thread of loop that finishes last. Loops that start later
+     * are not waited.
+     *
+     * <P>
+     * For example, {@link org.jcvlib.core.Image#close()} releases direct memory by this method, so workers of running loops never use
+     * released memory.
+     * </P>
+     */
+    public static void afterRunningLoops(final Runnable action) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(action, "action");
+
+        /*
+         * Perform operation.
+         */
+        synchronized (RUNNING) {
+            if (!RUNNING.isEmpty()) {
+                final Parallel.Pending pending = new Parallel.Pending(action, RUNNING.size());
+                for (final Parallel.Running running : RUNNING) {
+                    running.pending.add(pending);
+                }
+                return;
+            }
+        }
+
+        action.run();
+    }
+
+    /**
+     * Parallel processing channels of image with settings of current thread. See {@link #channels(Image, ChannelsLoop, ParallelConfig)}.
      */
     public static void channels(final Image image, final ChannelsLoop runner) {
+        Parallel.channels(image, runner, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Parallel processing channels of image.
+     *
+     * @param image
+     *            Source image.
+     * @param runner
+     *            Object to process image on each loop step.
+     * @param config
+     *            Settings of parallelization.
+     */
+    public static void channels(final Image image, final ChannelsLoop runner, final ParallelConfig config) {
         /*
          * Verify parameters.
          */
         JCV.verifyIsNotNull(image, "image");
         JCV.verifyIsNotNull(runner, "runner");
+        JCV.verifyIsNotNull(config, "config");
 
         /*
          * Perform operation.
          */
-        JParfor.setMinIterations(JCV.roundUp((double) Parallel.getMinSize() / (double) image.getSize().getN()));
-        JParfor.exec(image.getNumOfChannels(), new JLoopI() {
-            @Override
-            public void execute(final int channel, final int nThread) {
-                runner.execute(channel);
-            }
-        });
+        Parallel.exec(config, image.getNumOfChannels(), new Range(runner, (long) image.getWidth() * image.getHeight()) {
+                @Override
+                public void execute(final int from, final int to) {
+                    for (int channel = from; channel < to; ++channel) {
+                        this.checkCancelled();
+                        runner.execute(channel);
+                    }
+                }
+            });
+    }
+
+    /**
+     * Parallel processing pixels of image with settings of current thread. See {@link #pixels(Image, PixelsLoop, ParallelConfig)}.
+     */
+    public static void pixels(final Image image, final PixelsLoop runner) {
+        Parallel.pixels(image, runner, ParallelConfig.getCurrent());
     }
 
     /**
      * Parallel processing pixels of image.
      *
+     * <P>
+     * Pixels are visited in order of layout of given image: row by row for {@link Image#LAYOUT_ROW_MAJOR} and column by column for
+     * {@link Image#LAYOUT_COLUMN_MAJOR}. So each worker walks through neighbor values into memory.
+     * </P>
+     *
      * @param image
      *            Source image.
      * @param runner
      *            Object to process image on each loop step.
+     * @param config
+     *            Settings of parallelization.
      */
-    public static void pixels(final Image image, final PixelsLoop runner) {
+    public static void pixels(final Image image, final PixelsLoop runner, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(runner, "runner");
+        JCV.verifyIsNotNull(config, "config");
+
+        /*
+         * Perform operation.
+         */
+        if (image.getLayout() == Image.LAYOUT_COLUMN_MAJOR) {
+            Parallel.exec(config, image.getWidth(), new Range(runner, (long) image.getHeight() * image.getNumOfChannels()) {
+                @Override
+                public void execute(final int from, final int to) {
+                    for (int x = from; x < to; ++x) {
+                        this.checkCancelled();
+                        for (int y = 0; y < image.getHeight(); ++y) {
+                            runner.execute(x, y);
+                        }
+                    }
+                }
+            });
+        } else {
+            Parallel.exec(config, image.getHeight(), new Range(runner, (long) image.getWidth() * image.getNumOfChannels()) {
+                @Override
+                public void execute(final int from, final int to) {
+                    for (int y = from; y < to; ++y) {
+                        this.checkCancelled();
+                        for (int x = 0; x < image.getWidth(); ++x) {
+                            runner.execute(x, y);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Parallel processing rows of image with settings of current thread. See {@link #rows(Image, RowLoop, ParallelConfig)}.
+     */
+    public static void rows(final Image image, final RowLoop runner) {
+        Parallel.rows(image, runner, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Parallel processing rows of image.
+     *
+     * <P>
+     * Unlike {@link #pixels(Image, PixelsLoop, ParallelConfig)}, runner is called once for each row (or part of row), not for each pixel.
+     * Runner is shared by all workers, so runner that needs buffers should be created by {@link RowLoopFactory} (see
+     * {@link #rows(Image, RowLoopFactory, ParallelConfig)}).
+     * </P>
+     *
+     * @param image
+     *            Source image.
+     * @param runner
+     *            Object to process one row.
+     * @param config
+     *            Settings of parallelization.
+     */
+    public static void rows(final Image image, final RowLoop runner, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(runner, "runner");
+
+        /*
+         * Perform operation.
+         */
+        Parallel.rows(image, runner, new RowLoopFactory() {
+            @Override
+            public RowLoop create() {
+                return runner;
+            }
+        }, config);
+    }
+
+    /**
+     * Parallel processing rows of image with settings of current thread. See {@link #rows(Image, RowLoopFactory, ParallelConfig)}.
+     */
+    public static void rows(final Image image, final RowLoopFactory factory) {
+        Parallel.rows(image, factory, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Parallel processing rows of image. Each worker creates own runner by given factory once for whole range of rows, so runner can
+     * keep buffers for spans of rows.
+     *
+     * <P>
+     * Values are visited in order of layout of given image, as in {@link #pixels(Image, PixelsLoop, ParallelConfig)}: image with
+     * {@link Image#LAYOUT_COLUMN_MAJOR} is processed column by column, so runner is called for parts of rows with one pixel.
+     * </P>
+     *
+     * @param image
+     *            Source image.
+     * @param factory
+     *            Factory of runners for ranges of rows.
+     * @param config
+     *            Settings of parallelization.
+     */
+    public static void rows(final Image image, final RowLoopFactory factory, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(factory, "factory");
+
+        /*
+         * Perform operation.
+         */
+        Parallel.rows(image, factory, factory, config);
+    }
+
+    /**
+     * Parallel processing rows of image by runners of given factory. Cost of loop is identified by given object.
+     */
+    private static void rows(final Image image, final Object loop, final RowLoopFactory factory, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(config, "config");
+
+        /*
+         * Perform operation.
+         */
+        if (image.getLayout() == Image.LAYOUT_COLUMN_MAJOR) {
+            Parallel.exec(config, image.getWidth(), new Range(loop, (long) image.getHeight() * image.getNumOfChannels()) {
+                @Override
+                public void execute(final int from, final int to) {
+                    final RowLoop runner = factory.create();
+                    for (int x = from; x < to; ++x) {
+                        this.checkCancelled();
+                        for (int y = 0; y < image.getHeight(); ++y) {
+                            runner.execute(y, x, x + 1);
+                        }
+                    }
+                }
+            });
+        } else {
+            Parallel.exec(config, image.getHeight(), new Range(loop, (long) image.getWidth() * image.getNumOfChannels()) {
+                @Override
+                public void execute(final int from, final int to) {
+                    final RowLoop runner = factory.create();
+                    for (int y = from; y < to; ++y) {
+                        this.checkCancelled();
+                        runner.execute(y, 0, image.getWidth());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Return size of tiles for given image, so that values of one tile of source and result images fit into cache of one processor core
+     * (see {@link ParallelConfig#getCacheSize()}). Width and height of tile are multiple of {@link #MIN_TILE_SIZE}, but not more than
+     * size of image.
+     */
+    public static Size getTileSize(final Image image, final ParallelConfig config) {
         /*
          * Verify parameters.
          */
         JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(config, "config");
+
+        /*
+         * Perform operation.
+         */
+        final int bytesPerValue;
+        switch (image.getType()) {
+            case Image.TYPE_8I:
+                bytesPerValue = 1;
+                break;
+
+            case Image.TYPE_32F:
+                bytesPerValue = 4;
+                break;
+
+            default:
+                bytesPerValue = 8;
+                break;
+        }
+
+        // Source and result should fit into cache.
+        final int pixelsPerTile = config.getCacheSize() / (2 * bytesPerValue * image.getNumOfChannels());
+        int side = (int) Math.sqrt(pixelsPerTile);
+        side = Math.max(MIN_TILE_SIZE, side - side % MIN_TILE_SIZE);
+
+        return new Size(Math.min(side, image.getWidth()), Math.min(side, image.getHeight()));
+    }
+
+    /**
+     * Parallel processing rectangular blocks of pixels (tiles) of image with size selected by {@link #getTileSize(Image, ParallelConfig)}
+     * and settings of current thread. See {@link #tiles(Image, Size, TileLoop, ParallelConfig)}.
+     */
+    public static void tiles(final Image image, final TileLoop runner) {
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        Parallel.tiles(image, Parallel.getTileSize(image, config), runner, config);
+    }
+
+    /**
+     * Parallel processing rectangular blocks of pixels (tiles) of image with given size and settings of current thread. See
+     * {@link #tiles(Image, Size, TileLoop, ParallelConfig)}.
+     */
+    public static void tiles(final Image image, final Size tileSize, final TileLoop runner) {
+        Parallel.tiles(image, tileSize, runner, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Parallel processing rectangular blocks of pixels (tiles) of image.
+     *
+     * <P>
+     * Image is split into tiles with given size (tiles on right and bottom borders can be smaller), each tile is processed by one worker.
+     * Operations that read neighbor pixels (apertures, windows, interpolation) have better locality of memory access with tiles than with
+     * rows of whole image.
+     * </P>
+     *
+     * @param image
+     *            Source image.
+     * @param tileSize
+     *            Max size of one tile.
+     * @param runner
+     *            Object to process one tile.
+     * @param config
+     *            Settings of parallelization.
+     */
+    public static void tiles(final Image image, final Size tileSize, final TileLoop runner, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
         JCV.verifyIsNotNull(runner, "runner");
 
         /*
          * Perform operation.
          */
-        JParfor.setMinIterations(JCV.roundUp(Parallel.getMinSize() / image.getWidth()));
-        JParfor.exec(image.getHeight(), new JLoopI() {
+        Parallel.tiles(image, tileSize, runner, new TileLoopFactory() {
+            @Override
+            public TileLoop create() {
+                return runner;
+            }
+        }, config);
+    }
+
+    /**
+     * Parallel processing tiles of image with size selected by {@link #getTileSize(Image, ParallelConfig)} and settings of current thread.
+     * See {@link #tiles(Image, Size, TileLoopFactory, ParallelConfig)}.
+     */
+    public static void tiles(final Image image, final TileLoopFactory factory) {
+        final ParallelConfig config = ParallelConfig.getCurrent();
+        Parallel.tiles(image, Parallel.getTileSize(image, config), factory, config);
+    }
+
+    /**
+     * Parallel processing tiles of image. Each worker creates own runner by given factory once for whole range of tiles, so runner can
+     * keep buffers for values of tiles. See {@link #tiles(Image, Size, TileLoop, ParallelConfig)}.
+     *
+     * @param image
+     *            Source image.
+     * @param tileSize
+     *            Max size of one tile.
+     * @param factory
+     *            Factory of runners for ranges of tiles.
+     * @param config
+     *            Settings of parallelization.
+     */
+    public static void tiles(final Image image, final Size tileSize, final TileLoopFactory factory, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(factory, "factory");
+
+        /*
+         * Perform operation.
+         */
+        Parallel.tiles(image, tileSize, factory, factory, config);
+    }
+
+    /**
+     * Parallel processing tiles of image by runners of given factory. Cost of loop is identified by given object.
+     */
+    private static void tiles(final Image image, final Size tileSize, final Object loop, final TileLoopFactory factory,
+        final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(tileSize, "tileSize");
+        JCV.verifyIsNotNull(config, "config");
+
+        /*
+         * Perform operation.
+         */
+        final int tileWidth = Math.min(tileSize.getWidth(), image.getWidth());
+        final int tileHeight = Math.min(tileSize.getHeight(), image.getHeight());
+        final int tilesX = (image.getWidth() + tileWidth - 1) / tileWidth;
+        final int tilesY = (image.getHeight() + tileHeight - 1) / tileHeight;
+
+        Parallel.exec(config, tilesX * tilesY, new Range(loop, (long) tileWidth * tileHeight * image.getNumOfChannels()) {
             @Override
-            public void execute(final int y, final int nThread) {
-                for (int x = 0; x < image.getWidth(); ++x) {
-                    runner.execute(x, y);
+            public void execute(final int from, final int to) {
+                final TileLoop runner = factory.create();
+                for (int tile = from; tile < to; ++tile) {
+                    this.checkCancelled();
+                    final int x = (tile % tilesX) * tileWidth;
+                    final int y = (tile / tilesX) * tileHeight;
+
+                    runner.execute(x, y, Math.min(tileWidth, image.getWidth() - x), Math.min(tileHeight, image.getHeight() - y));
                 }
             }
         });
     }
+
+    /**
+     * Execute given reduction for indexes <CODE>0..(n - 1)</CODE>.
+     *
+     * <P>
+     * By default each worker accumulates own partial result for own continuous range of indexes. If settings are deterministic (see
+     * {@link ParallelConfig#isDeterministic()}), indexes are split into blocks of fixed size (not depend on number of workers) with
+     * {@link #REDUCE_BLOCK_SIZE} values, each block has own partial result and partial results are combined by fixed binary tree.
+     * </P>
+     *
+     * @param config
+     *            Settings of parallelization.
+     * @param n
+     *            Number of indexes.
+     * @param valuesPerIndex
+     *            Number of values (for example, pixels) that are processed by one index.
+     * @param runner
+     *            Reduction.
+     * @return
+     *         Combined result of all indexes.
+     */
+    static <T> T reduce(final ParallelConfig config, final int n, final long valuesPerIndex, final ReduceLoop<T> runner) {
+        if (n <= 0) {
+            return runner.createPartial();
+        }
+
+        if (config.isDeterministic()) {
+            final int blockLength = (int) Math.min(n, Math.max(1L, REDUCE_BLOCK_SIZE / valuesPerIndex));
+            final int numOfBlocks = (n + blockLength - 1) / blockLength;
+
+            final AtomicReferenceArray<T> partials = new AtomicReferenceArray<T>(numOfBlocks);
+            Parallel.exec(config, numOfBlocks, new Range(runner, blockLength * valuesPerIndex) {
+                @Override
+                public void execute(final int from, final int to) {
+                    for (int block = from; block < to; ++block) {
+                        this.checkCancelled();
+                        final T partial = runner.createPartial();
+                        runner.execute(partial, block * blockLength, Math.min(n, (block + 1) * blockLength));
+                        partials.set(block, partial);
+                    }
+                }
+            });
+
+            // Combine by binary tree: (0 + 1) + (2 + 3), ...
+            for (int step = 1; step < numOfBlocks; step *= 2) {
+                for (int block = 0; block + step < numOfBlocks; block += 2 * step) {
+                    partials.set(block, runner.combine(partials.get(block), partials.get(block + step)));
+                }
+            }
+
+            return partials.get(0);
+        } else {
+            // Range of worker is processed by blocks, so cancellation is checked after each block, not only at start of range.
+            final int blockLength = (int) Math.min(n, Math.max(1L, REDUCE_BLOCK_SIZE / valuesPerIndex));
+
+            final ConcurrentSkipListMap<Integer, T> partials = new ConcurrentSkipListMap<Integer, T>();
+            Parallel.exec(config, n, new Range(runner, valuesPerIndex) {
+                @Override
+                public void execute(final int from, final int to) {
+                    final T partial = runner.createPartial();
+                    int blockFrom = from;
+                    while (blockFrom < to) {
+                        this.checkCancelled();
+                        final int blockTo = blockFrom + Math.min(blockLength, to - blockFrom);
+                        runner.execute(partial, blockFrom, blockTo);
+                        blockFrom = blockTo;
+                    }
+                    partials.put(from, partial);
+                }
+            });
+
+            // Combine in order of ranges.
+            T result = null;
+            for (final T partial : partials.values()) {
+                if (result == null) {
+                    result = partial;
+                } else {
+                    result = runner.combine(result, partial);
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * Parallel reduction of indexes <CODE>0..(n - 1)</CODE> with settings of current thread. See
+     * {@link #reduce(int, ReduceLoop, ParallelConfig)}.
+     */
+    public static <T> T reduce(final int n, final ReduceLoop<T> runner) {
+        return Parallel.reduce(n, runner, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Parallel reduction of indexes <CODE>0..(n - 1)</CODE> (for example, bins of histogram).
+     *
+     * @param n
+     *            Number of indexes. Should be more or equal <CODE>0</CODE>.
+     * @param runner
+     *            Reduction.
+     * @param config
+     *            Settings of parallelization.
+     * @return
+     *         Combined result of all indexes.
+     */
+    public static <T> T reduce(final int n, final ReduceLoop<T> runner, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        if (n < 0) {
+            throw new IllegalArgumentException("Value of 'n' (= " + Integer.toString(n) + ") must be more or equal 0!");
+        }
+        JCV.verifyIsNotNull(runner, "runner");
+        JCV.verifyIsNotNull(config, "config");
+
+        /*
+         * Perform operation.
+         */
+        return Parallel.reduce(config, n, 1L, runner);
+    }
+
+    /**
+     * Parallel reduction of rows of image with settings of current thread. See {@link #reduce(Image, ReduceLoop, ParallelConfig)}.
+     */
+    public static <T> T reduce(final Image image, final ReduceLoop<T> runner) {
+        return Parallel.reduce(image, runner, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Parallel reduction of rows of image (for example, sum of values or histogram). Indexes of reduction are rows of image.
+     *
+     * @param image
+     *            Source image.
+     * @param runner
+     *            Reduction.
+     * @param config
+     *            Settings of parallelization.
+     * @return
+     *         Combined result of all rows.
+     */
+    public static <T> T reduce(final Image image, final ReduceLoop<T> runner, final ParallelConfig config) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(image, "image");
+        JCV.verifyIsNotNull(runner, "runner");
+        JCV.verifyIsNotNull(config, "config");
+
+        /*
+         * Perform operation.
+         */
+        return Parallel.reduce(config, image.getHeight(), (long) image.getWidth() * image.getNumOfChannels(), runner);
+    }
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.jcvlib.core.JCV;
+
+/**
+ * Immutable settings of parallel loops: pool of threads, max number of workers and minimal size of work for one worker.
+ *
+ * <P>
+ * Settings can be given to each call of {@link Parallel} or set for all loops of current thread by scope:
+ *
+ * <PRE>
+ * <CODE>
+ * final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(2);
+ * try (ParallelConfig.Scope scope = config.openScope()) {
+ *     Image blur = Filters.blur(image, kernelSize, Filters.BLUR_GAUSSIAN);
+ *     ...
+ * }
+ * </CODE>
+ * </PRE>
+ *
+ * Different workloads can use different pools, so they do not take threads of each other. Settings of one thread do not change settings
+ * of other threads.
+ * </P>
+ *
+ * <P>
+ * {@link CostModel} is mutable (it learns costs of loops), so it is not a part of {@link #DEFAULT} settings and should be given
+ * explicitly. Each workload should use own model, so measured costs of one workload do not change number of workers of other:
+ *
+ * <PRE>
+ * <CODE>
+ * final ParallelConfig config = ParallelConfig.DEFAULT.withPool(pool).withCostModel(new CostModel());
+ * </CODE>
+ * </PRE>
+ *
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ParallelConfig {
+    /**
+     * Minimal number of values to parallelization by default: 100 x 100 = 10 000 values.
+     */
+    public static final int MIN_SIZE_DEFAULT = 100 * 100;
+
+    /**
+     * Size of cache of one processor core (L2) by default: 256 KB. Used to select size of tiles, see
+     * {@link Parallel#tiles(org.jcvlib.core.Image, TileLoop)}.
+     */
+    public static final int CACHE_SIZE_DEFAULT = 256 * 1024;
+
+    /**
+     * Settings by default: common pool of JVM, all processors, {@link #MIN_SIZE_DEFAULT}, {@link #CACHE_SIZE_DEFAULT} and without
+     * {@link CostModel} (see {@link #withCostModel(CostModel)}).
+     */
+    public static final ParallelConfig DEFAULT = new ParallelConfig(ForkJoinPool.commonPool(), Runtime.getRuntime()
+        .availableProcessors(), MIN_SIZE_DEFAULT);
+
+    /**
+     * Settings for serial execution of all loops in thread that call it.
+     */
+    public static final ParallelConfig SERIAL = new ParallelConfig(ForkJoinPool.commonPool(), 1, MIN_SIZE_DEFAULT);
+
+    /**
+     * Open scope of current thread.
+     */
+    private static final ThreadLocal<ParallelConfig.Scope> CURRENT_SCOPE = new ThreadLocal<ParallelConfig.Scope>();
+
+    private final ForkJoinPool pool;
+
+    private final int numOfWorkers;
+
+    private final int minSize;
+
+    private final int cacheSize;
+
+    private final CostModel costModel;
+
+    private final boolean deterministic;
+
+    private final CancellationToken cancellationToken;
+
+    /**
+     * Create new settings with {@link #CACHE_SIZE_DEFAULT} size of cache and without {@link CostModel}.
+     *
+     * @param pool
+     *            Pool of threads to execute loops.
+     * @param numOfWorkers
+     *            Max number of workers for one loop (including thread that call loop). Should be more than <CODE>0</CODE>.
+     * @param minSize
+     *            Minimal number of values (for example, pixels) that will be processed by one worker. Should be more than <CODE>0</CODE>.
+     */
+    public ParallelConfig(final ForkJoinPool pool, final int numOfWorkers, final int minSize) {
+        this(pool, numOfWorkers, minSize, CACHE_SIZE_DEFAULT, null);
+    }
+
+    /**
+     * Create new settings.
+     *
+     * @param pool
+     *            Pool of threads to execute loops.
+     * @param numOfWorkers
+     *            Max number of workers for one loop (including thread that call loop). Should be more than <CODE>0</CODE>.
+     * @param minSize
+     *            Minimal number of values (for example, pixels) that will be processed by one worker. Should be more than <CODE>0</CODE>.
+     * @param cacheSize
+     *            Size of cache of one processor core in bytes. Should be more than <CODE>0</CODE>.
+     * @param costModel
+     *            Model to select number of workers for each loop. If it is <CODE>null</CODE> or cost of loop is unknown, number of
+     *            workers is selected by <CODE>minSize</CODE>.
+     */
+    public ParallelConfig(final ForkJoinPool pool, final int numOfWorkers, final int minSize, final int cacheSize,
+        final CostModel costModel) {
+        this(pool, numOfWorkers, minSize, cacheSize, costModel, false, null);
+    }
+
+    private ParallelConfig(final ForkJoinPool pool, final int numOfWorkers, final int minSize, final int cacheSize,
+        final CostModel costModel, final boolean deterministic, final CancellationToken cancellationToken) {
+        /*
+         * Verify parameters.
+         */
+        JCV.verifyIsNotNull(pool, "pool");
+        if (numOfWorkers <= 0) {
+            throw new IllegalArgumentException("Value of 'numOfWorkers' (= " + Integer.toString(numOfWorkers) + ") must be more than 0!");
+        }
+        if (minSize <= 0) {
+            throw new IllegalArgumentException("Value of 'minSize' (= " + Integer.toString(minSize) + ") must be more than 0!");
+        }
+        if (cacheSize <= 0) {
+            throw new IllegalArgumentException("Value of 'cacheSize' (= " + Integer.toString(cacheSize) + ") must be more than 0!");
+        }
+
+        /*
+         * Initialize.
+         */
+        this.pool = pool;
+        this.numOfWorkers = numOfWorkers;
+        this.minSize = minSize;
+        this.cacheSize = cacheSize;
+        this.costModel = costModel;
+        this.deterministic = deterministic;
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Return pool of threads.
+     */
+    public ForkJoinPool getPool() {
+        return this.pool;
+    }
+
+    /**
+     * Return max number of workers for one loop.
+     */
+    public int getNumOfWorkers() {
+        return this.numOfWorkers;
+    }
+
+    /**
+     * Return minimal number of values that will be processed by one worker.
+     */
+    public int getMinSize() {
+        return this.minSize;
+    }
+
+    /**
+     * Return size of cache of one processor core in bytes.
+     */
+    public int getCacheSize() {
+        return this.cacheSize;
+    }
+
+    /**
+     * Return model to select number of workers for each loop or <CODE>null</CODE> if number of workers is selected only by
+     * {@link #getMinSize()}.
+     */
+    public CostModel getCostModel() {
+        return this.costModel;
+    }
+
+    /**
+     * Return <CODE>true</CODE> if results of reductions (see {@link Parallel#reduce(org.jcvlib.core.Image, ReduceLoop, ParallelConfig)})
+     * should not depend on number of workers and on split of loop into parts. Float-point sums are not associative, so by default result
+     * of reduction can differ in last bits for different number of workers.
+     */
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+
+    /**
+     * Return token of cancellation of loops or <CODE>null</CODE> if loops can not be cancelled.
+     */
+    public CancellationToken getCancellationToken() {
+        return this.cancellationToken;
+    }
+
+    /**
+     * Return copy of current settings with given pool.
+     */
+    public ParallelConfig withPool(final ForkJoinPool newPool) {
+        return new ParallelConfig(newPool, this.numOfWorkers, this.minSize, this.cacheSize, this.costModel, this.deterministic,
+            this.cancellationToken);
+    }
+
+    /**
+     * Return copy of current settings with given max number of workers.
+     */
+    public ParallelConfig withNumOfWorkers(final int newNumOfWorkers) {
+        return new ParallelConfig(this.pool, newNumOfWorkers, this.minSize, this.cacheSize, this.costModel, this.deterministic,
+            this.cancellationToken);
+    }
+
+    /**
+     * Return copy of current settings with given minimal number of values for one worker.
+     */
+    public ParallelConfig withMinSize(final int newMinSize) {
+        return new ParallelConfig(this.pool, this.numOfWorkers, newMinSize, this.cacheSize, this.costModel, this.deterministic,
+            this.cancellationToken);
+    }
+
+    /**
+     * Return copy of current settings with given size of cache.
+     */
+    public ParallelConfig withCacheSize(final int newCacheSize) {
+        return new ParallelConfig(this.pool, this.numOfWorkers, this.minSize, newCacheSize, this.costModel, this.deterministic,
+            this.cancellationToken);
+    }
+
+    /**
+     * Return copy of current settings with given model of cost (can be <CODE>null</CODE>). Model is shared by all copies of returned
+     * settings, so it should not be shared between workloads that should not change number of workers of each other.
+     */
+    public ParallelConfig withCostModel(final CostModel newCostModel) {
+        return new ParallelConfig(this.pool, this.numOfWorkers, this.minSize, this.cacheSize, newCostModel, this.deterministic,
+            this.cancellationToken);
+    }
+
+    /**
+     * Return copy of current settings with given mode of reductions. See {@link #isDeterministic()}.
+     */
+    public ParallelConfig withDeterministic(final boolean newDeterministic) {
+        return new ParallelConfig(this.pool, this.numOfWorkers, this.minSize, this.cacheSize, this.costModel, newDeterministic,
+            this.cancellationToken);
+    }
+
+    /**
+     * Return copy of current settings with given token of cancellation (can be <CODE>null</CODE>). See {@link CancellationToken}.
+     */
+    public ParallelConfig withCancellationToken(final CancellationToken newCancellationToken) {
+        return new ParallelConfig(this.pool, this.numOfWorkers, this.minSize, this.cacheSize, this.costModel, this.deterministic,
+            newCancellationToken);
+    }
+
+    /**
+     * Return settings of open scope of current thread or {@link #DEFAULT} if current thread has not open scope.
+     */
+    public static ParallelConfig getCurrent() {
+        final ParallelConfig.Scope scope = CURRENT_SCOPE.get();
+        if (scope == null) {
+            return DEFAULT;
+        }
+
+        return scope.config;
+    }
+
+    /**
+     * Open new scope of current settings for current thread. Until this scope will be closed, all loops of {@link Parallel} that are
+     * called from current thread without explicit settings use current settings. Scopes can be nested.
+     */
+    public ParallelConfig.Scope openScope() {
+        final ParallelConfig.Scope scope = new ParallelConfig.Scope(this, CURRENT_SCOPE.get());
+        CURRENT_SCOPE.set(scope);
+
+        return scope;
+    }
+
+    /**
+     * Set current settings for current thread (worker of pool) and return previous scope of it. Previous scope should be restored by
+     * {@link #exitWorker(ParallelConfig.Scope)}. Used by workers to execute nested loops with settings of loop that was called them.
+     */
+    ParallelConfig.Scope enterWorker() {
+        final ParallelConfig.Scope previous = CURRENT_SCOPE.get();
+        CURRENT_SCOPE.set(new ParallelConfig.Scope(this, previous));
+
+        return previous;
+    }
+
+    /**
+     * Restore scope of current thread (worker of pool). See {@link #enterWorker()}.
+     */
+    static void exitWorker(final ParallelConfig.Scope previous) {
+        CURRENT_SCOPE.set(previous);
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+        return "ParallelConfig[workers = " + Integer.toString(this.numOfWorkers) + ", minSize = " + Integer.toString(this.minSize)
+            + ", cacheSize = " + Integer.toString(this.cacheSize) + ", deterministic = " + Boolean.toString(this.deterministic)
+            + ", pool parallelism = " + Integer.toString(this.pool.getParallelism()) + "]";
+    }
+
+    /**
+     * Scope of settings. See {@link ParallelConfig}.
+     *
+     * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+     */
+    public static class Scope implements AutoCloseable {
+
+        private final ParallelConfig config;
+
+        private final ParallelConfig.Scope parent;
+
+        private final Thread owner;
+
+        private boolean closed = false;
+
+        private Scope(final ParallelConfig config, final ParallelConfig.Scope parent) {
+            this.config = config;
+            this.parent = parent;
+            this.owner = Thread.currentThread();
+        }
+
+        /**
+         * Return settings of current scope.
+         */
+        public ParallelConfig getConfig() {
+            return this.config;
+        }
+
+        /**
+         * Restore settings of previous scope. <STRONG>Should be called from same thread that opened scope!</STRONG> Scope that is closed
+         * in wrong order or from other thread stays open and throws {@link IllegalStateException}.
+         */
+        /*
+         * (non-Javadoc)
+         * @see java.lang.AutoCloseable#close()
+         */
+        @Override
+        public void close() {
+            if (this.closed) {
+                return;
+            }
+
+            // Check before any changes, so wrong call does not break current scope of thread.
+            if (Thread.currentThread() != this.owner) {
+                throw new IllegalStateException("Scope of parallel settings should be closed from thread that opened it!");
+            }
+            if (CURRENT_SCOPE.get() != this) {
+                throw new IllegalStateException("Scopes of parallel settings should be closed in reverse order!");
+            }
+
+            this.closed = true;
+            CURRENT_SCOPE.set(this.parent);
+        }
+    }
+}
@@ -27,5 +27,5 @@ public interface PixelsLoop {
     /**
      * Perform some operations.
      */
-    public void execute(final int y, final int x);
+    public void execute(final int x, final int y);
 }
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+/**
+ * Interface for executor of reduction (sum, histogram, comparison and so on) in many workers. Each worker accumulates own partial
+ * result, after that all partial results are combined into one.
+ *
+ * @param <T>
+ *            Type of partial result.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public interface ReduceLoop<T> {
+    /**
+     * Create new empty partial result (for example, array of zeros for sum).
+     */
+    public T createPartial();
+
+    /**
+     * Add indexes (rows for {@link Parallel#reduce(org.jcvlib.core.Image, ReduceLoop, ParallelConfig)}) from <CODE>from</CODE>
+     * (inclusive) to <CODE>to</CODE> (exclusive) into given partial result.
+     */
+    public void execute(final T partial, final int from, final int to);
+
+    /**
+     * Combine two partial results. Partial results are combined in order of indexes: <CODE>partial1</CODE> contains indexes before
+     * <CODE>partial2</CODE>. Result can be saved into <CODE>partial1</CODE> and returned.
+     */
+    public T combine(final T partial1, final T partial2);
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+/**
+ * Interface for executor of code in many workers for independent rows (or parts of rows) of image.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public interface RowLoop {
+    /**
+     * Process pixels of row <CODE>y</CODE> from <CODE>xStart</CODE> (inclusive) to <CODE>xEnd</CODE> (exclusive).
+     *
+     * <P>
+     * Values of row should be read and written by spans (see {@link org.jcvlib.core.Image#getSpan(int, int, int, double[], int)}), so
+     * body of loop is a simple counted loop over array.
+     * </P>
+     */
+    public void execute(final int y, final int xStart, final int xEnd);
+}
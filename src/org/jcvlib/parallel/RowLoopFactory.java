@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.parallel;
+
+/**
+ * Factory of runners for rows of image. Each worker creates own runner for whole range of rows (or columns) that it processes, so
+ * buffers of runner are allocated once per range, not for each row or pixel.
+ *
+ * <P>
+ * Example: <CODE><PRE>
+ * // Image image = ...
+ * Parallel.rows(image, new RowLoopFactory() {
+ *          {@literal @}Override
+ *          public RowLoop create() {
+ *              return new RowLoop() {
+ *                  private final double[] values = new double[image.getWidth() * image.getNumOfChannels()];
+ *
+ *                  {@literal @}Override
+ *                  public void execute(int y, int xStart, int xEnd) {
+ *                      // Process span of row by buffer.
+ *                  }
+ *              };
+ *          }
+ *      });
+ * </PRE></CODE>
+ * </P>
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public interface RowLoopFactory {
+    /**
+     * Return new runner for one range of rows. Runner is used only by one thread.
+     */
+    public RowLoop create();
+}
@@ -22,7 +22,7 @@ import org.jcvlib.core.ImageArray;
 import org.jcvlib.core.ImageArray64F;
 import org.jcvlib.core.Image;
 import org.jcvlib.core.ImageArray8I;
-import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
 
 /**
  * Compare time access to vales in {@link Image} and in standard array.
@@ -196,15 +196,19 @@ public class ArrayThresholdPerformance {
         final int numOfIterations = 10;
         final int[] sizes = new int[]{ 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000, 1500, 2000, 2500, 3000, 3500, 4000, 4500 };
 
-        Parallel.setNumOfWorkers(1);
-        for (int mSize : sizes) {
-            System.out.println("Size " + mSize + "x" + mSize + " by " + numOfIterations + " iterations: ");
-            System.out.println("    Image64F:      " + testImage64F(mSize, mSize, numOfIterations));        // ~3
-            System.out.println("    Image8I:       " + testImage8I(mSize, mSize, numOfIterations));         // ~5
-            System.out.println("    ImageArray64F: " + testImageArray64F(mSize, mSize, numOfIterations));   // ~1
-            System.out.println("    ImageArray8I:  " + testImageArray8I(mSize, mSize, numOfIterations));    // ~3
-            System.out.println("    double[]:      " + testDoubleArray(mSize, mSize, numOfIterations));     // ~1
-            System.out.println("    byte[]:        " + testByteArray(mSize, mSize, numOfIterations));       // =1
+        final ParallelConfig.Scope scope = ParallelConfig.SERIAL.openScope();
+        try {
+            for (int mSize : sizes) {
+                System.out.println("Size " + mSize + "x" + mSize + " by " + numOfIterations + " iterations: ");
+                System.out.println("    Image64F:      " + testImage64F(mSize, mSize, numOfIterations));        // ~3
+                System.out.println("    Image8I:       " + testImage8I(mSize, mSize, numOfIterations));         // ~5
+                System.out.println("    ImageArray64F: " + testImageArray64F(mSize, mSize, numOfIterations));   // ~1
+                System.out.println("    ImageArray8I:  " + testImageArray8I(mSize, mSize, numOfIterations));    // ~3
+                System.out.println("    double[]:      " + testDoubleArray(mSize, mSize, numOfIterations));     // ~1
+                System.out.println("    byte[]:        " + testByteArray(mSize, mSize, numOfIterations));       // =1
+            }
+        } finally {
+            scope.close();
         }
     }
 }
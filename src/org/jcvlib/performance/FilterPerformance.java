@@ -23,7 +23,7 @@ import org.jcvlib.core.Image;
 import org.jcvlib.core.Size;
 import org.jcvlib.image.Filters;
 import org.jcvlib.image.Filters.Operator;
-import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
 
 /**
  * Compare time access to vales in {@link Image} and in standard array on real task -- threshold filter.
@@ -230,12 +230,16 @@ public class FilterPerformance {
         final int numOfIterations = 10;
         final int[] sizes = new int[]{ 100, 200, 300, 400, 500, 600, 700, 800, 900, 1000, 1500, 2000, 2500, 3000, 3500, 4000, 4500 };
 
-        Parallel.setNumOfWorkers(1);
-        for (int mSize : sizes) {
-            System.out.println("Size " + mSize + "x" + mSize + " by " + numOfIterations + " iterations: ");
-            System.out.println("    Nonlinear: " + testImageNonlinear(mSize, mSize, numOfIterations));
-            System.out.println("    Threshold: " + testImageThreshold(mSize, mSize, numOfIterations));
-            System.out.println("    double[]:  " + testArray(mSize, mSize, numOfIterations));
+        final ParallelConfig.Scope scope = ParallelConfig.SERIAL.openScope();
+        try {
+            for (int mSize : sizes) {
+                System.out.println("Size " + mSize + "x" + mSize + " by " + numOfIterations + " iterations: ");
+                System.out.println("    Nonlinear: " + testImageNonlinear(mSize, mSize, numOfIterations));
+                System.out.println("    Threshold: " + testImageThreshold(mSize, mSize, numOfIterations));
+                System.out.println("    double[]:  " + testArray(mSize, mSize, numOfIterations));
+            }
+        } finally {
+            scope.close();
         }
     }
 }
@@ -183,6 +183,8 @@ public class ColorTest {
         final Color min = new Color(new double[]{ Color.COLOR_MIN_VALUE, Color.COLOR_MIN_VALUE });
         final Color max = new Color(new double[]{ Color.COLOR_MAX_VALUE, Color.COLOR_MAX_VALUE });
         assertEquals(Color.COLOR_MAX_VALUE, min.euclidDist(max), JCV.PRECISION_MAX);
+
+        assertEquals(1.0, Color.euclidDist(new double[]{ 5.0, 5.0 }, new double[]{ 4.0, 6.0 }), JCV.PRECISION_MAX);
     }
 
     /**
@@ -196,5 +198,11 @@ public class ColorTest {
         } catch (IllegalArgumentException e) {
             System.out.println("Exception message example:\n" + e.getMessage() + "\n");
         }
+        try {
+            Color.euclidDist(new double[]{ 1.0, 1.0 }, new double[]{ 4.0, 6.0, 8.0 });
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
     }
 }
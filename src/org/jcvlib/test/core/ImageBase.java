@@ -19,11 +19,19 @@
 package org.jcvlib.test.core;
 
 import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import junit.framework.TestSuite;
 
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.ImageArray;
+import org.jcvlib.core.ImageArray32F;
 import org.jcvlib.core.ImageArray64F;
+import org.jcvlib.core.ImageArrayChunked;
+import org.jcvlib.core.ImageArrayMapped;
 import org.jcvlib.core.ImageArray8I;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
@@ -34,7 +42,7 @@ import org.jcvlib.core.Size;
 import org.junit.Test;
 
 /**
- * Test main image class {@link Image}, {@link ImageArray}, {@link ImageArray8I}, {@link ImageArray64F}.
+ * Test main image class {@link Image}, {@link ImageArray}, {@link ImageArray8I}, {@link ImageArray32F}, {@link ImageArray64F}.
  *
  * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
  */
@@ -55,6 +63,7 @@ public class ImageBase extends TestSuite {
     public void testSize() {
         this.testSize(new Image(300, 200, 4, Image.TYPE_64F));
         this.testSize(new Image(300, 200, 4, Image.TYPE_8I));
+        this.testSize(new Image(300, 200, 4, Image.TYPE_32F));
     }
 
     /**
@@ -81,12 +90,16 @@ public class ImageBase extends TestSuite {
 
         final Image image1 = new Image(300, 200, 1, Image.TYPE_64F);
         final Image image2 = new Image(300, 200, 1, Image.TYPE_8I);
+        final Image image3 = new Image(300, 200, 1, Image.TYPE_32F);
 
         image1.set(0, 0, 0, value);
         image2.set(0, 0, 0, value);
+        image3.set(0, 0, 0, value);
 
         assertEquals(value, image1.get(0, 0, 0), JCV.PRECISION_MAX);
         assertEquals(value, image2.get(0, 0, 0), 1.0);
+        assertEquals(value, image3.get(0, 0, 0), JCV.PRECISION_32F);
+        assertEquals(254, image3.get8I(0, 0, 0));
     }
 
     /**
@@ -400,7 +413,448 @@ public class ImageBase extends TestSuite {
 
         // Incorrect type.
         try {
-            new Image(300, 200, 1, 2);
+            new Image(300, 200, 1, 3);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        // Incorrect layout.
+        try {
+            new Image(300, 200, 1, Image.TYPE_8I, 2);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    private void testLayout(final int type) {
+        final Image rowMajor = new Image(30, 20, 3, type);
+        final Image colMajor = new Image(30, 20, 3, type, Image.LAYOUT_COLUMN_MAJOR);
+        assertEquals(Image.LAYOUT_ROW_MAJOR, rowMajor.getLayout());
+        assertEquals(Image.LAYOUT_COLUMN_MAJOR, colMajor.getLayout());
+        assertEquals(Image.LAYOUT_COLUMN_MAJOR, colMajor.getSame().getLayout());
+
+        for (int x = 0; x < rowMajor.getWidth(); ++x) {
+            for (int y = 0; y < rowMajor.getHeight(); ++y) {
+                for (int channel = 0; channel < rowMajor.getNumOfChannels(); ++channel) {
+                    rowMajor.set(x, y, channel, (x + 7 * y + 3 * channel) % 256);
+                }
+            }
+        }
+
+        rowMajor.copyTo(colMajor);
+        assertTrue(rowMajor.equals(colMajor));
+        assertTrue(colMajor.equals(rowMajor));
+        assertEquals(7 * 5 + 3 * 2 + 10, colMajor.get(10, 5, 2), JCV.PRECISION_MAX);
+
+        colMajor.mult(0.5);
+        rowMajor.mult(0.5);
+        assertTrue(rowMajor.equals(colMajor, JCV.PRECISION_MIN));
+        assertTrue(rowMajor.getSubimage(3, 4, 10, 5).equals(colMajor.getSubimage(3, 4, 10, 5), JCV.PRECISION_MIN));
+    }
+
+    /**
+     * Test method for: {@link Image#mult(double)} with {@link Image#LAYOUT_COLUMN_MAJOR}.
+     */
+    @Test
+    public void testMultColumnMajor() {
+        final Image image = new Image(40, 25, 2, Image.TYPE_64F, Image.LAYOUT_COLUMN_MAJOR);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set(x, y, 0, x + y);
+                image.set(x, y, 1, 2 * x);
+            }
+        }
+
+        image.mult(1.5);
+        image.getSubimage(10, 5, 20, 10).mult(2.0);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                final double c = (x >= 10 && x < 30 && y >= 5 && y < 15) ? 3.0 : 1.5;
+                assertEquals(Math.min(c * (x + y), Color.COLOR_MAX_VALUE), image.get(x, y, 0), JCV.PRECISION_MAX);
+                assertEquals(Math.min(c * 2 * x, Color.COLOR_MAX_VALUE), image.get(x, y, 1), JCV.PRECISION_MAX);
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link Image#getLayout()}.
+     */
+    @Test
+    public void testLayout() {
+        this.testLayout(Image.TYPE_64F);
+        this.testLayout(Image.TYPE_8I);
+        this.testLayout(Image.TYPE_32F);
+    }
+
+    private void testDirect(final int type) {
+        final Image heap = new Image(50, 40, 3, type);
+        for (int x = 0; x < heap.getWidth(); ++x) {
+            for (int y = 0; y < heap.getHeight(); ++y) {
+                for (int channel = 0; channel < heap.getNumOfChannels(); ++channel) {
+                    heap.set(x, y, channel, (x * 5 + y * 3 + channel * 70) % 256);
+                }
+            }
+        }
+
+        final Image copy;
+        try (final Image direct = Image.allocateDirect(50, 40, 3, type)) {
+            assertEquals(type, direct.getType());
+            assertTrue(direct.equals(new Image(50, 40, 3, type)));
+
+            heap.copyTo(direct);
+            assertTrue(heap.equals(direct));
+            assertTrue(heap.getSubimage(5, 5, 10, 10).equals(direct.getSubimage(5, 5, 10, 10).copy()));
+
+            // Results of operations are created into heap.
+            copy = direct.copy();
+        }
+        assertTrue(heap.equals(copy));
+    }
+
+    /**
+     * Test method for: {@link Image#allocateDirect(int, int, int, int)}, {@link Image#close()}.
+     */
+    @Test
+    public void testDirect() {
+        this.testDirect(Image.TYPE_8I);
+        this.testDirect(Image.TYPE_32F);
+        this.testDirect(Image.TYPE_64F);
+    }
+
+    private void testMapFile(final int type, final int layout) throws IOException {
+        final File file = File.createTempFile("jcvlib", ".raw");
+        file.deleteOnExit();
+
+        final Image heap = new Image(70, 50, 3, type);
+        for (int x = 0; x < heap.getWidth(); ++x) {
+            for (int y = 0; y < heap.getHeight(); ++y) {
+                for (int channel = 0; channel < heap.getNumOfChannels(); ++channel) {
+                    heap.set(x, y, channel, (x * 3 + y * 5 + channel * 60) % 256);
+                }
+            }
+        }
+
+        // Use small chunks to check access through chunk borders.
+        final ImageArrayMapped array = new ImageArrayMapped(file, 70, 50, 3, type, layout, 1000);
+        assertTrue(array.getLinesPerChunk() < 50);
+        try (final Image mapped = new Image(array)) {
+            assertEquals(type, mapped.getType());
+            assertEquals(layout, mapped.getLayout());
+
+            heap.copyTo(mapped);
+            assertTrue(heap.equals(mapped));
+            assertTrue(heap.getSubimage(20, 7, 30, 30).equals(mapped.getSubimage(20, 7, 30, 30).copy()));
+        }
+
+        // Values are saved into file.
+        try (final Image mapped = Image.mapFile(file, 70, 50, 3, type, layout)) {
+            assertTrue(heap.equals(mapped));
+        }
+
+        file.delete();
+    }
+
+    /**
+     * Test method for: {@link Image#mapFile(File, int, int, int, int, int)}, {@link ImageArrayMapped}.
+     */
+    @Test
+    public void testMapFile() throws IOException {
+        this.testMapFile(Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        this.testMapFile(Image.TYPE_32F, Image.LAYOUT_ROW_MAJOR);
+        this.testMapFile(Image.TYPE_64F, Image.LAYOUT_COLUMN_MAJOR);
+    }
+
+    /**
+     * Test method for: {@link ImageArrayChunked}.
+     */
+    @Test
+    public void testChunked() {
+        final Image heap = new Image(70, 50, 3, Image.TYPE_64F);
+        for (int x = 0; x < heap.getWidth(); ++x) {
+            for (int y = 0; y < heap.getHeight(); ++y) {
+                for (int channel = 0; channel < heap.getNumOfChannels(); ++channel) {
+                    heap.set(x, y, channel, (x * 3 + y * 5 + channel * 60) % 256);
+                }
+            }
+        }
+
+        final ImageArrayChunked rowArray = new ImageArrayChunked(70, 50, 3, Image.TYPE_64F, Image.LAYOUT_ROW_MAJOR, 1000);
+        assertEquals(4, rowArray.getLinesPerChunk());
+        assertEquals(13, rowArray.getNumOfChunks());
+        assertEquals(70L * 50L * 3L, rowArray.getLongN());
+
+        final ImageArrayChunked colArray = new ImageArrayChunked(70, 50, 3, Image.TYPE_8I, Image.LAYOUT_COLUMN_MAJOR, 1000);
+        assertEquals(4, colArray.getLinesPerChunk());
+        assertEquals(18, colArray.getNumOfChunks());
+
+        final Image rowChunked = new Image(rowArray);
+        final Image colChunked = new Image(colArray);
+        heap.copyTo(rowChunked);
+        heap.copyTo(colChunked);
+        assertTrue(heap.equals(rowChunked));
+        assertTrue(heap.equals(colChunked));
+        assertTrue(heap.getSubimage(3, 3, 40, 40).equals(rowChunked.getSubimage(3, 3, 40, 40).copy()));
+
+        // Too big image for one buffer.
+        try {
+            Image.allocateDirect(50_000, 50_000, 1, Image.TYPE_8I);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Image#wrap(ByteBuffer, int, int, int, int, int)}, {@link Image#unwrapBuffer()}.
+     */
+    @Test
+    public void testWrapBuffer() {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(4 * 3 * 2);
+        for (int i = 0; i < buffer.capacity(); ++i) {
+            buffer.put(i, (byte) i);
+        }
+
+        final Image image = Image.wrap(buffer, 4, 3, 2, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(2 * (4 * 2 + 3) + 1, image.get8I(3, 2, 1));
+
+        image.set8I(0, 1, 0, 200);
+        assertEquals(200, buffer.get(8) & 0xFF);
+        assertEquals(200, image.unwrapBuffer().get(8) & 0xFF);
+
+        // Buffer owned by caller should be not released.
+        image.close();
+        assertEquals(200, buffer.get(8) & 0xFF);
+
+        try {
+            Image.wrap(buffer, 4, 4, 2, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            new Image(4, 3, 2, Image.TYPE_8I).unwrapBuffer();
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Image#close()} of sub-images, layers and channels.
+     */
+    @Test
+    public void testCloseSubimage() {
+        final Image image = Image.allocateDirect(20, 10, 3, Image.TYPE_8I);
+        image.set8I(5, 5, 2, 100);
+
+        // Sub-images, layers and channels do not release memory of source.
+        image.getSubimage(2, 3, 10, 5).close();
+        image.getLayer(1, 2).close();
+        image.getChannel(0).close();
+        assertEquals(100, image.get8I(5, 5, 2));
+        image.set8I(5, 5, 2, 150);
+        assertEquals(150, image.unwrapBuffer().get((5 * 20 + 5) * 3 + 2) & 0xFF);
+
+        // Closed image throws exception instead of using released memory.
+        final Image subImage = image.getSubimage(2, 3, 10, 5);
+        image.close();
+        try {
+            image.get8I(5, 5, 2);
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            subImage.set(0, 0, 0, 1.0);
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            image.getSpan(0, 5, 20, new byte[20 * 3], 0);
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            subImage.setSpan(0, 0, 10, new double[10 * 3], 0);
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            subImage.copyTo(new Image(10, 5, 3, Image.TYPE_8I));
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            image.unwrapBuffer();
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        // Second closing does nothing.
+        image.close();
+    }
+
+    /**
+     * Test method for: {@link Image#wrap(byte[], int, int, int, int)}, {@link Image#unwrap8I()}, {@link Image#unwrap32F()},
+     * {@link Image#unwrap64F()}.
+     */
+    @Test
+    public void testWrapArray() {
+        final byte[] values8I = new byte[4 * 3 * 2];
+        values8I[2 * (4 * 2 + 3) + 1] = (byte) 250;
+        final Image image8I = Image.wrap(values8I, 4, 3, 2, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(Image.TYPE_8I, image8I.getType());
+        assertEquals(250, image8I.get8I(3, 2, 1));
+        image8I.set8I(0, 1, 0, 200);
+        assertEquals(200, values8I[8] & 0xFF);
+        assertSame(values8I, image8I.unwrap8I());
+
+        final float[] values32F = new float[4 * 3 * 2];
+        final Image image32F = Image.wrap(values32F, 4, 3, 2, Image.LAYOUT_COLUMN_MAJOR);
+        image32F.set(1, 2, 1, 0.5);
+        assertEquals(0.5f, values32F[2 * (1 * 3 + 2) + 1], JCV.PRECISION_MAX);
+        assertSame(values32F, image32F.unwrap32F());
+
+        final double[] values64F = new double[4 * 3 * 2 + 10];
+        final Image image64F = Image.wrap(values64F, 4, 3, 2, Image.LAYOUT_ROW_MAJOR);
+        values64F[5] = 0.25;
+        assertEquals(0.25, image64F.get(2, 0, 1), JCV.PRECISION_MAX);
+        assertSame(values64F, image64F.unwrap64F());
+        assertSame(values64F, image64F.getSubimage(1, 1, 2, 2).unwrap64F());
+
+        try {
+            Image.wrap(new double[4 * 3 * 2 - 1], 4, 3, 2, Image.LAYOUT_ROW_MAJOR);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            image8I.unwrap64F();
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Image#get(int, int, double[])}, {@link Image#set(int, int, double[])},
+     * {@link Image#set(int, int, Color)}.
+     */
+    @Test
+    public void testSetGetArray() {
+        final Image image = new Image(10, 6, 3, Image.TYPE_64F);
+        final double[] color = new double[3];
+
+        image.set(2, 3, new double[]{ 1.0, 2.0, 300.0 });
+        image.get(2, 3, color);
+        assertArrayEquals(new double[]{ 1.0, 2.0, Color.COLOR_MAX_VALUE }, color, JCV.PRECISION_MAX);
+
+        image.getLayer(1, 2).set(4, 5, new Color(new double[]{ 7.0, 8.0 }));
+        image.get(4, 5, color);
+        assertArrayEquals(new double[]{ 0.0, 7.0, 8.0 }, color, JCV.PRECISION_MAX);
+
+        try {
+            image.get(2, 3, new double[2]);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    private void testRowAndSpan(final Image image) {
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                for (int channel = 0; channel < image.getNumOfChannels(); ++channel) {
+                    image.set8I(x, y, channel, (x * 7 + y * 11 + channel * 50) % 256);
+                }
+            }
+        }
+
+        // Whole rows.
+        final double[] row = new double[1 + image.getWidth() * image.getNumOfChannels()];
+        final byte[] row8I = new byte[image.getWidth() * image.getNumOfChannels()];
+        for (int y = 0; y < image.getHeight(); ++y) {
+            image.getRow(y, row, 1);
+            image.getRow(y, row8I, 0);
+
+            for (int x = 0; x < image.getWidth(); ++x) {
+                for (int channel = 0; channel < image.getNumOfChannels(); ++channel) {
+                    final int pos = x * image.getNumOfChannels() + channel;
+                    assertEquals(image.get(x, y, channel), row[1 + pos], JCV.PRECISION_MAX);
+                    assertEquals(image.get8I(x, y, channel), row8I[pos] & 0xFF);
+                }
+            }
+        }
+
+        // Span from layer of sub-image.
+        final Image layer = image.getSubimage(2, 1, 5, 3).getLayer(1, 2);
+        final double[] span = new double[3 * 2];
+        layer.getSpan(1, 2, 3, span, 0);
+        for (int i = 0; i < 3; ++i) {
+            assertEquals(image.get(3 + i, 3, 1), span[2 * i], JCV.PRECISION_MAX);
+            assertEquals(image.get(3 + i, 3, 2), span[2 * i + 1], JCV.PRECISION_MAX);
+        }
+
+        // Values should be truncated, other channels should be not changed.
+        final double channel0 = image.get(4, 3, 0);
+        layer.setSpan(1, 2, 3, new double[]{ 1.0, 2.0, -10.0, 300.0, 5.0, 6.0 }, 0);
+        assertEquals(1.0, image.get(3, 3, 1), JCV.PRECISION_MAX);
+        assertEquals(Color.COLOR_MIN_VALUE, image.get(4, 3, 1), JCV.PRECISION_MAX);
+        assertEquals(Color.COLOR_MAX_VALUE, image.get(4, 3, 2), JCV.PRECISION_MAX);
+        assertEquals(6.0, image.get(5, 3, 2), JCV.PRECISION_MAX);
+        assertEquals(channel0, image.get(4, 3, 0), JCV.PRECISION_MAX);
+
+        // Round trip of whole rows.
+        final Image copy = image.getSame();
+        for (int y = 0; y < image.getHeight(); ++y) {
+            image.getRow(y, row8I, 0);
+            copy.setRow(y, row8I, 0);
+        }
+        assertTrue(image.equals(copy));
+    }
+
+    /**
+     * Test method for: {@link Image#getRow(int, double[], int)}, {@link Image#setRow(int, double[], int)},
+     * {@link Image#getSpan(int, int, int, double[], int)}, {@link Image#setSpan(int, int, int, double[], int)}.
+     */
+    @Test
+    public void testRowAndSpan() {
+        final int[] types = new int[]{ Image.TYPE_8I, Image.TYPE_32F, Image.TYPE_64F };
+        for (final int type : types) {
+            this.testRowAndSpan(new Image(10, 6, 3, type));
+            this.testRowAndSpan(new Image(10, 6, 3, type, Image.LAYOUT_COLUMN_MAJOR));
+            this.testRowAndSpan(Image.allocateDirect(10, 6, 3, type));
+            this.testRowAndSpan(new Image(new ImageArrayChunked(10, 6, 3, type, Image.LAYOUT_ROW_MAJOR, 60)));
+        }
+
+        final Image image = new Image(10, 6, 3, Image.TYPE_64F);
+        try {
+            image.getRow(0, new double[10 * 3 - 1], 0);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            image.getSpan(8, 0, 3, new double[3 * 3], 0);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            image.setRow(6, new byte[10 * 3], 0);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            image.setSpan(0, 0, 1, new double[]{ 0.0, Double.NaN, 0.0 }, 0);
             fail("Not thrown IllegalArgumentException!");
         } catch (IllegalArgumentException e) {
             System.out.println("Exception message example:\n" + e.getMessage() + "\n");
@@ -437,6 +891,19 @@ public class ImageBase extends TestSuite {
         assertTrue(image.equals(copy));
     }
 
+    private void testCopyTo(final Image source, final Image target) {
+        for (int x = 0; x < source.getWidth(); ++x) {
+            for (int y = 0; y < source.getHeight(); ++y) {
+                for (int channel = 0; channel < source.getNumOfChannels(); ++channel) {
+                    source.set8I(x, y, channel, (x * 7 + y * 3 + channel * 50) % 256);
+                }
+            }
+        }
+
+        source.copyTo(target);
+        assertTrue(source.equals(target));
+    }
+
     /**
      * Test method for: {@link Image#copyTo(Image)}.
      */
@@ -444,6 +911,63 @@ public class ImageBase extends TestSuite {
     public void testCopyTo() {
         this.testCopyTo(new Image(100, 100, 4, Image.TYPE_64F));
         this.testCopyTo(new Image(100, 100, 4, Image.TYPE_8I));
+
+        // Whole images.
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_8I), new Image(30, 20, 3, Image.TYPE_8I));
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_32F), new Image(30, 20, 3, Image.TYPE_32F));
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_64F, Image.LAYOUT_COLUMN_MAJOR),
+            new Image(30, 20, 3, Image.TYPE_64F, Image.LAYOUT_COLUMN_MAJOR));
+        this.testCopyTo(Image.allocateDirect(30, 20, 3, Image.TYPE_32F), Image.allocateDirect(30, 20, 3, Image.TYPE_32F));
+        this.testCopyTo(new Image(new ImageArrayChunked(30, 20, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR, 200)),
+            new Image(new ImageArrayChunked(30, 20, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR, 200)));
+
+        // Different types and layouts.
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_8I), new Image(30, 20, 3, Image.TYPE_64F));
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_32F), new Image(30, 20, 3, Image.TYPE_32F, Image.LAYOUT_COLUMN_MAJOR));
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_8I), Image.allocateDirect(30, 20, 3, Image.TYPE_8I));
+        this.testCopyTo(new Image(new ImageArrayChunked(30, 20, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR, 200)),
+            new Image(new ImageArrayChunked(30, 20, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR, 400)));
+
+        // Sub-images and layers.
+        this.testCopyTo(new Image(30, 20, 3, Image.TYPE_8I), new Image(40, 30, 3, Image.TYPE_8I).getSubimage(5, 5, 30, 20));
+        this.testCopyTo(new Image(30, 20, 5, Image.TYPE_64F).getLayer(1, 3), new Image(30, 20, 3, Image.TYPE_64F));
+    }
+
+    private void testFill(final Image image) {
+        final Color color = new Color(new double[]{ 10.0, 20.0, 30.0 });
+        image.fill(color);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                assertTrue(color.equals(image.get(new Point(x, y))));
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link Image#fill(Color)}.
+     */
+    @Test
+    public void testFill() {
+        this.testFill(new Image(31, 17, 3, Image.TYPE_8I));
+        this.testFill(new Image(31, 17, 3, Image.TYPE_32F));
+        this.testFill(new Image(31, 17, 3, Image.TYPE_64F, Image.LAYOUT_COLUMN_MAJOR));
+        this.testFill(Image.allocateDirect(31, 17, 3, Image.TYPE_64F));
+        this.testFill(new Image(new ImageArrayChunked(31, 17, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR, 200)));
+
+        // Only part of image should be filled.
+        final Image image = new Image(40, 30, 4, Image.TYPE_8I);
+        this.testFill(image.getSubimage(5, 5, 20, 10).getLayer(1, 3));
+        assertEquals(0, image.get8I(4, 5, 1));
+        assertEquals(0, image.get8I(5, 5, 0));
+        assertEquals(10, image.get8I(5, 5, 1));
+        assertEquals(0, image.get8I(25, 14, 1));
+
+        try {
+            image.fill(new Color(3, 0.0));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
     }
 
     private void testCopyToException(final Image image) {
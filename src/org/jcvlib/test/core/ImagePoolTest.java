@@ -0,0 +1,235 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.core;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.jcvlib.core.Color;
+import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
+import org.jcvlib.core.Size;
+import org.jcvlib.image.Filters;
+import org.jcvlib.image.Misc;
+
+import org.junit.Test;
+
+/**
+ * Test class for pool of images {@link ImagePool}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ImagePoolTest {
+    /**
+     * Test method for: {@link ImagePool#acquire(int, int, int, int, int)}, {@link ImagePool#release(Image)}.
+     */
+    @Test
+    public void testAcquireRelease() {
+        final ImagePool pool = new ImagePool();
+
+        final Image image1 = pool.acquire(20, 10, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        image1.set8I(5, 5, 1, 100);
+        pool.release(image1);
+        assertEquals(1, pool.getNumOfFree());
+
+        // Other parameters.
+        final Image image2 = pool.acquire(20, 10, 3, Image.TYPE_64F, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(2, pool.getNumOfAllocations());
+        assertEquals(0, pool.getNumOfReuses());
+
+        // Reused image should be empty.
+        final Image image3 = pool.acquire(20, 10, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(2, pool.getNumOfAllocations());
+        assertEquals(1, pool.getNumOfReuses());
+        assertEquals(0, pool.getNumOfFree());
+        assertEquals(0, image3.get8I(5, 5, 1));
+
+        pool.release(image2);
+        try {
+            pool.release(image2);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            pool.release(image3.getSubimage(0, 0, 5, 5));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            pool.release(Image.allocateDirect(20, 10, 3, Image.TYPE_8I));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        pool.clear();
+        assertEquals(0, pool.getNumOfFree());
+    }
+
+    /**
+     * Test method for: {@link ImagePool#openScope()}, {@link ImagePool.Scope}.
+     */
+    @Test
+    public void testScope() {
+        final ImagePool pool = new ImagePool();
+        final Image frame = new Image(50, 40, 3, Image.TYPE_8I, new Color(new double[]{ 10.0, 20.0, 30.0 }));
+        final Image expected = Misc.absDiff(Filters.blur(frame, new Size(3, 3), Filters.BLUR_BOX), frame);
+
+        assertNull(ImagePool.getCurrent());
+        for (int i = 0; i < 5; ++i) {
+            try (ImagePool.Scope scope = pool.openScope()) {
+                assertSame(pool, ImagePool.getCurrent());
+
+                final Image blur = Filters.blur(frame, new Size(3, 3), Filters.BLUR_BOX);
+                final Image diff = scope.keep(Misc.absDiff(blur, frame));
+                assertTrue(expected.equals(diff));
+
+                pool.release(diff);
+            }
+        }
+        assertNull(ImagePool.getCurrent());
+
+        // After first frame all images should be reused.
+        final long allocations = pool.getNumOfAllocations();
+        final ImagePool.Scope scope = pool.openScope();
+        try {
+            Misc.absDiff(Filters.blur(frame, new Size(3, 3), Filters.BLUR_BOX), frame);
+        } finally {
+            scope.close();
+        }
+        assertEquals(allocations, pool.getNumOfAllocations());
+        assertTrue(pool.getNumOfReuses() > 0);
+
+        // Images out of scope are not taken from pool.
+        frame.getSame();
+        assertEquals(allocations, pool.getNumOfAllocations());
+    }
+
+    /**
+     * Test method for: {@link ImagePool.Scope#close()} in wrong order and from other thread.
+     */
+    @Test
+    public void testScopeException() throws InterruptedException {
+        final ImagePool pool = new ImagePool();
+        final ImagePool.Scope outer = pool.openScope();
+        final ImagePool.Scope inner = pool.openScope();
+        ImagePool.create(10, 10, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+
+        // Wrong order.
+        try {
+            outer.close();
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertSame(pool, ImagePool.getCurrent());
+
+        // Other thread.
+        final AtomicReference<Throwable> exception = new AtomicReference<Throwable>();
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    inner.close();
+                } catch (final Throwable e) {
+                    exception.set(e);
+                }
+            }
+        });
+        thread.start();
+        thread.join();
+        assertTrue(exception.get() instanceof IllegalStateException);
+
+        // Scopes are still open and can be closed correctly.
+        assertEquals(0, pool.getNumOfFree());
+        inner.close();
+        assertEquals(1, pool.getNumOfFree());
+        outer.close();
+        assertNull(ImagePool.getCurrent());
+    }
+
+    /**
+     * Test method for: {@link ImagePool#release(Image)} of images that wrap array of caller.
+     */
+    @Test
+    public void testReleaseWrapped() {
+        final ImagePool pool = new ImagePool();
+
+        final byte[] values = new byte[20 * 10 * 3];
+        values[7] = 100;
+        try {
+            pool.release(Image.wrap(values, 20, 10, 3, Image.LAYOUT_ROW_MAJOR));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            pool.release(Image.wrap(new double[20 * 10 * 3], 20, 10, 3, Image.LAYOUT_ROW_MAJOR));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertEquals(0, pool.getNumOfFree());
+
+        // Array of caller is not cleared by pool.
+        pool.acquire(20, 10, 3, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(100, values[7]);
+    }
+
+    /**
+     * Test method for: {@link ImagePool#ImagePool(long)}, {@link ImagePool#getSizeOfFree()}, {@link ImagePool#getNumOfEvictions()}.
+     */
+    @Test
+    public void testMaxSize() {
+        // Place for 2 images by 100 bytes.
+        final ImagePool pool = new ImagePool(250);
+
+        final Image image1 = pool.acquire(10, 10, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        final Image image2 = pool.acquire(20, 5, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        final Image image3 = pool.acquire(5, 20, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        pool.release(image1);
+        pool.release(image2);
+        assertEquals(200, pool.getSizeOfFree());
+        assertEquals(0, pool.getNumOfEvictions());
+
+        // First returned image is removed.
+        pool.release(image3);
+        assertEquals(2, pool.getNumOfFree());
+        assertEquals(200, pool.getSizeOfFree());
+        assertEquals(1, pool.getNumOfEvictions());
+
+        pool.acquire(10, 10, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(0, pool.getNumOfReuses());
+        pool.acquire(20, 5, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        pool.acquire(5, 20, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR);
+        assertEquals(2, pool.getNumOfReuses());
+        assertEquals(0, pool.getSizeOfFree());
+
+        // Too big image is not saved.
+        pool.release(pool.acquire(30, 10, 1, Image.TYPE_8I, Image.LAYOUT_ROW_MAJOR));
+        assertEquals(0, pool.getNumOfFree());
+        assertEquals(2, pool.getNumOfEvictions());
+
+        // Same as 'new ImagePool()'.
+        assertEquals(ImagePool.MAX_SIZE_DEFAULT, new ImagePool().getMaxSize());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.fft;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.jcvlib.fft.FFT;
+import org.jcvlib.fft.FFT2D;
+
+import org.junit.Test;
+
+/**
+ * Test class for Fast Fourier transform {@link FFT} and {@link FFT2D}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class FFTTest {
+    private static final double PRECISION = 0.000_000_001;
+
+    /**
+     * Test method for: {@link FFT#forward(double[], double[])}, {@link FFT#inverse(double[], double[])}.
+     */
+    @Test
+    public void testFFT() {
+        final Random random = new Random(1);
+        for (int size = 1; size <= 64; size <<= 1) {
+            final double[] re = new double[size];
+            final double[] im = new double[size];
+            for (int i = 0; i < size; ++i) {
+                re[i] = random.nextDouble() * 255.0;
+                im[i] = random.nextDouble() * 255.0;
+            }
+            final double[] sourceRe = re.clone();
+            final double[] sourceIm = im.clone();
+
+            final FFT plan = FFT.getPlan(size);
+            assertEquals(size, plan.getSize());
+            assertSame(plan, FFT.getPlan(size));
+            plan.forward(re, im);
+
+            // Compare with definition of Discrete Fourier transform.
+            for (int k = 0; k < size; ++k) {
+                double sumRe = 0.0;
+                double sumIm = 0.0;
+                for (int n = 0; n < size; ++n) {
+                    final double angle = -2.0 * Math.PI * k * n / size;
+                    sumRe += sourceRe[n] * Math.cos(angle) - sourceIm[n] * Math.sin(angle);
+                    sumIm += sourceRe[n] * Math.sin(angle) + sourceIm[n] * Math.cos(angle);
+                }
+                assertEquals(sumRe, re[k], PRECISION * size);
+                assertEquals(sumIm, im[k], PRECISION * size);
+            }
+
+            plan.inverse(re, im);
+            assertArrayEquals(sourceRe, re, PRECISION);
+            assertArrayEquals(sourceIm, im, PRECISION);
+        }
+
+        assertEquals(1, FFT.getOptimalSize(1));
+        assertEquals(64, FFT.getOptimalSize(64));
+        assertEquals(128, FFT.getOptimalSize(65));
+    }
+
+    /**
+     * Test method for: {@link FFT2D#forward(double[], double[], double[])}, {@link FFT2D#inverse(double[], double[], double[])}.
+     */
+    @Test
+    public void testFFT2D() {
+        final Random random = new Random(2);
+        for (final int[] size : new int[][]{ { 8, 4 }, { 4, 8 }, { 16, 1 }, { 1, 2 }, { 2, 2 } }) {
+            final int width = size[0];
+            final int height = size[1];
+            final double[] values = new double[width * height];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = random.nextDouble() * 255.0;
+            }
+
+            final FFT2D plan = FFT2D.getPlan(width, height);
+            assertEquals(width / 2 + 1, plan.getSpectrumWidth());
+            final double[] re = new double[plan.getSpectrumLength()];
+            final double[] im = new double[plan.getSpectrumLength()];
+            plan.forward(values, re, im);
+
+            // Compare with definition of Discrete Fourier transform.
+            for (int v = 0; v < height; ++v) {
+                for (int u = 0; u < plan.getSpectrumWidth(); ++u) {
+                    double sumRe = 0.0;
+                    double sumIm = 0.0;
+                    for (int y = 0; y < height; ++y) {
+                        for (int x = 0; x < width; ++x) {
+                            final double angle = -2.0 * Math.PI * ((double) u * x / width + (double) v * y / height);
+                            sumRe += values[y * width + x] * Math.cos(angle);
+                            sumIm += values[y * width + x] * Math.sin(angle);
+                        }
+                    }
+                    assertEquals(sumRe, re[v * plan.getSpectrumWidth() + u], PRECISION * values.length);
+                    assertEquals(sumIm, im[v * plan.getSpectrumWidth() + u], PRECISION * values.length);
+                }
+            }
+
+            final double[] result = new double[width * height];
+            plan.inverse(re, im, result);
+            assertArrayEquals(values, result, PRECISION);
+        }
+    }
+
+    /**
+     * Test method for: {@link FFT2D#correlate(double[], int, int, double[], int, int, double[])},
+     * {@link FFT2D#convolve(double[], int, int, double[], int, int, double[])}.
+     */
+    @Test
+    public void testCorrelate() {
+        final Random random = new Random(3);
+        final int width = 23;
+        final int height = 17;
+        final int kernelWidth = 5;
+        final int kernelHeight = 4;
+        final double[] values = new double[width * height];
+        for (int i = 0; i < values.length; ++i) {
+            values[i] = random.nextDouble() * 255.0;
+        }
+        final double[] kernel = new double[kernelWidth * kernelHeight];
+        for (int i = 0; i < kernel.length; ++i) {
+            kernel[i] = random.nextDouble() - 0.5;
+        }
+
+        final int resultWidth = width - kernelWidth + 1;
+        final int resultHeight = height - kernelHeight + 1;
+        final double[] correlation = new double[resultWidth * resultHeight];
+        final double[] convolution = new double[resultWidth * resultHeight];
+        FFT2D.correlate(values, width, height, kernel, kernelWidth, kernelHeight, correlation);
+        FFT2D.convolve(values, width, height, kernel, kernelWidth, kernelHeight, convolution);
+
+        for (int y = 0; y < resultHeight; ++y) {
+            for (int x = 0; x < resultWidth; ++x) {
+                double sumCorrelation = 0.0;
+                double sumConvolution = 0.0;
+                for (int j = 0; j < kernelHeight; ++j) {
+                    for (int i = 0; i < kernelWidth; ++i) {
+                        final double value = values[(y + j) * width + (x + i)];
+                        sumCorrelation += value * kernel[j * kernelWidth + i];
+                        sumConvolution += value * kernel[(kernelHeight - 1 - j) * kernelWidth + (kernelWidth - 1 - i)];
+                    }
+                }
+                assertEquals(sumCorrelation, correlation[y * resultWidth + x], PRECISION);
+                assertEquals(sumConvolution, convolution[y * resultWidth + x], PRECISION);
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link FFT#getPlan(int)}, {@link FFT2D#getPlan(int, int)},
+     * {@link FFT2D#correlate(double[], int, int, double[], int, int, double[])}.
+     */
+    @Test
+    public void testException() {
+        try {
+            FFT.getPlan(12);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        try {
+            FFT2D.getPlan(16, 0);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        try {
+            FFT2D.correlate(new double[10 * 10], 10, 10, new double[11 * 3], 11, 3, new double[10 * 10]);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+}
@@ -81,6 +81,7 @@ public class ColorConvertTest {
         assertFalse(imgGray.equals(this.imageRGB, JCV.PRECISION_MIN));
 
         final Image imgRGB = ColorConvert.fromGrayToRGB(imgGray);
+        assertEquals(3, imgRGB.getNumOfChannels());
         for (int channel = 0; channel < imgRGB.getNumOfChannels(); ++channel) {
             assertTrue(imgRGB.getChannel(channel).equals(imgGray));
         }
@@ -20,13 +20,20 @@ package org.jcvlib.test.image;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.Random;
+
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
 import org.jcvlib.core.Point;
 import org.jcvlib.core.Size;
+import org.jcvlib.image.Aperture;
 import org.jcvlib.image.Filters;
+import org.jcvlib.image.Filters.ApertureOperator;
 import org.jcvlib.image.Filters.Operator;
+import org.jcvlib.image.TypeConvert;
+import org.jcvlib.parallel.ParallelConfig;
 import org.junit.Test;
 
 import Jama.Matrix;
@@ -181,6 +188,106 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Test method for: {@link Filters#noneLinearFilter(Image, Image, Size, Point, int, int, ApertureOperator)}.
+     */
+    @Test
+    public void testNonlinearFilter3() {
+        final Image image = new Image(300, 200, 2, Image.TYPE_8I);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set8I(x, y, 0, (x * 7 + y * 3) % 256);
+                image.set8I(x, y, 1, (x * y) % 256);
+            }
+        }
+        final Size kernelSize = new Size(5, 4);
+        final Point anchor = new Point(3, 2);
+
+        for (final int extrapolationType : new int[]{ Image.EXTRAPLOATION_ZERO, Image.EXTRAPLOATION_REPLICATE, Image.EXTRAPLOATION_REFLECT,
+            Image.EXTRAPLOATION_WRAP }) {
+            // Same operation for each pixel with extrapolation of source image.
+            final Image expected = new Image(300, 200, 2, Image.TYPE_8I);
+            for (int x = 0; x < image.getWidth(); ++x) {
+                for (int y = 0; y < image.getHeight(); ++y) {
+                    final int apertureX = x - anchor.getX();
+                    final int apertureY = y - anchor.getY();
+                    for (int channel = 0; channel < image.getNumOfChannels(); ++channel) {
+                        double sum = 0.0;
+                        for (int i = 0; i < kernelSize.getWidth(); ++i) {
+                            sum += image.get(apertureX + i, apertureY + 1, channel, extrapolationType);
+                        }
+                        expected.set(x, y, channel, image.get(apertureX + 4, apertureY + 3, channel, extrapolationType) + sum / 10.0);
+                    }
+                }
+            }
+
+            final Image result = new Image(300, 200, 2, Image.TYPE_8I);
+            Filters.noneLinearFilter(image, result, kernelSize, anchor, 1, extrapolationType, new ApertureOperator() {
+                @Override
+                public void execute(final Aperture aperture, final double[] values) {
+                    assertEquals(kernelSize, aperture.getSize());
+
+                    // Row contains values of all channels, so temporary array of aperture can be too small for it.
+                    final double[] row = new double[aperture.getWidth() * aperture.getNumOfChannels()];
+                    aperture.getRow(1, row, 0);
+                    for (int channel = 0; channel < values.length; ++channel) {
+                        double sum = 0.0;
+                        for (int x = 0; x < aperture.getWidth(); ++x) {
+                            sum += row[x * aperture.getNumOfChannels() + channel];
+                        }
+                        values[channel] = aperture.get(4, 3, channel) + sum / 10.0;
+                    }
+                }
+            });
+
+            assertTrue(expected.equals(result));
+        }
+    }
+
+    /**
+     * Test method for: {@link Filters#noneLinearFilter(Image, Image, Size, Point, int, int, ApertureOperator)}.
+     */
+    @Test
+    public void testNonlinearFilter4() {
+        final Image image = new Image(150, 100, 1, Image.TYPE_8I);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set8I(x, y, 0, (x * 13 + y * y) % 256);
+            }
+        }
+        final Size kernelSize = new Size(3, 5);
+        final ApertureOperator operator = new ApertureOperator() {
+            @Override
+            public void execute(final Aperture aperture, final double[] values) {
+                values[0] = 0.0;
+                for (int x = 0; x < aperture.getWidth(); ++x) {
+                    for (int y = 0; y < aperture.getHeight(); ++y) {
+                        values[0] = Math.max(values[0], aperture.get(x, y, 0) - 1.0);
+                    }
+                }
+            }
+        };
+
+        for (int iterations = 1; iterations <= 4; ++iterations) {
+            // Iterations one by one.
+            Image expected = image;
+            for (int i = 0; i < iterations; ++i) {
+                final Image next = image.getSame();
+                Filters.noneLinearFilter(expected, next, kernelSize, kernelSize.getCenter(), 1, Image.EXTRAPLOATION_WRAP, operator);
+                expected = next;
+            }
+
+            final Image result = image.getSame();
+            Filters.noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), iterations, Image.EXTRAPLOATION_WRAP, operator);
+            assertTrue(expected.equals(result));
+
+            // Source image is also result image.
+            final Image inPlace = image.copy();
+            Filters.noneLinearFilter(inPlace, inPlace, kernelSize, kernelSize.getCenter(), iterations, Image.EXTRAPLOATION_WRAP, operator);
+            assertTrue(expected.equals(inPlace));
+        }
+    }
+
     /**
      * Test method for: {@link Filters#noneLinearFilter(Image, Image, Size, Point, int, int, Operator)}.
      */
@@ -281,6 +388,151 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Test method for: {@link Filters#linearFilter(Image, Matrix, double, double, int)}.
+     */
+    @Test
+    public void testSeparableMatrixFilter() {
+        final Image image = new Image(70, 50, 2, Image.TYPE_64F);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set(x, y, 0, (x * 17 + y * 5) % 256);
+                image.set(x, y, 1, (x * y) % 200 + 0.25);
+            }
+        }
+
+        // Kernel of rank 1 (separable) and kernel of rank 2.
+        final Matrix separable = Filters.getGaussianKernel(3, 1.0).times(Filters.getGaussianKernel(5, 2.0).transpose());
+        final Matrix notSeparable = separable.copy();
+        notSeparable.set(1, 2, 0.0);
+
+        for (final Matrix kernel : new Matrix[]{ separable, notSeparable }) {
+            final double[][] kernelValues = kernel.getArray();
+            final Size kernelSize = new Size(kernel.getColumnDimension(), kernel.getRowDimension());
+
+            // Direct convolution.
+            final Image expected = image.getSame();
+            Filters.noneLinearFilter(image, expected, kernelSize, kernelSize.getCenter(), 1, Image.EXTRAPLOATION_REFLECT,
+                new ApertureOperator() {
+                    @Override
+                    public void execute(final Aperture aperture, final double[] values) {
+                        for (int channel = 0; channel < values.length; ++channel) {
+                            double sum = 0.0;
+                            for (int y = 0; y < aperture.getHeight(); ++y) {
+                                for (int x = 0; x < aperture.getWidth(); ++x) {
+                                    sum += aperture.get(x, y, channel) * kernelValues[y][x];
+                                }
+                            }
+                            values[channel] = sum / 0.9 + 1.0;
+                        }
+                    }
+                });
+
+            final Image result = Filters.linearFilter(image, kernel, 0.9, 1.0, Image.EXTRAPLOATION_REFLECT);
+            assertTrue(expected.equals(result, JCV.PRECISION_MAX));
+        }
+    }
+
+    /**
+     * Test method for: {@link Filters#boxFilter(Image, Size, double, double, int)}.
+     */
+    @Test
+    public void testBoxFilter() {
+        final Image image = new Image(67, 41, 3, Image.TYPE_8I);
+        final Random random = new Random(11);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                for (int channel = 0; channel < image.getNumOfChannels(); ++channel) {
+                    image.set(x, y, channel, random.nextInt(256));
+                }
+            }
+        }
+
+        final int[] extrapolationTypes = new int[]{ Image.EXTRAPLOATION_ZERO, Image.EXTRAPLOATION_REPLICATE,
+            Image.EXTRAPLOATION_REFLECT, Image.EXTRAPLOATION_WRAP };
+        for (final Size kernelSize : new Size[]{ new Size(1, 1), new Size(3, 5), new Size(9, 9), new Size(51, 21) }) {
+            final Matrix box = new Matrix(kernelSize.getHeight(), kernelSize.getWidth(), 1.0);
+            for (final int extrapolationType : extrapolationTypes) {
+                final Image expected = Filters.linearFilter(image, box, kernelSize.getN(), 0.0, extrapolationType);
+                final Image result = Filters.boxFilter(image, kernelSize, kernelSize.getN(), 0.0, extrapolationType);
+                assertTrue(expected.equals(result, JCV.PRECISION_MAX));
+            }
+        }
+
+        try {
+            Filters.boxFilter(image, new Size(4, 3), 1.0, 0.0, Image.EXTRAPLOATION_REFLECT);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        // Kernel should be not bigger than image.
+        try {
+            Filters.boxFilter(image, new Size(69, 3), 1.0, 0.0, Image.EXTRAPLOATION_REFLECT);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            Filters.blur(image, new Size(3, 43), Filters.BLUR_BOX);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            Filters.adapriveThreshold(image, 43, Filters.ADAPTIVE_MEAN, 0.0, Color.COLOR_MAX_VALUE);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Filters#linearFilter(Image, Matrix, double, double, int)}.
+     */
+    @Test
+    public void testBigMatrixFilter() {
+        final Random random = new Random(1);
+        final Image image = new Image(150, 120, 2, Image.TYPE_64F);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set(x, y, 0, random.nextDouble() * 255.0);
+                image.set(x, y, 1, random.nextDouble() * 255.0);
+            }
+        }
+
+        // Big kernel that can not be separated is applied in frequency domain.
+        final Matrix kernel = new Matrix(21, 17);
+        for (int y = 0; y < kernel.getRowDimension(); ++y) {
+            for (int x = 0; x < kernel.getColumnDimension(); ++x) {
+                kernel.set(y, x, random.nextDouble());
+            }
+        }
+        final double[][] kernelValues = kernel.getArray();
+        final Size kernelSize = new Size(kernel.getColumnDimension(), kernel.getRowDimension());
+        final double div = kernelSize.getN() * 0.5;
+
+        // Direct convolution.
+        final Image expected = image.getSame();
+        Filters.noneLinearFilter(image, expected, kernelSize, kernelSize.getCenter(), 1, Image.EXTRAPLOATION_WRAP, new ApertureOperator() {
+            @Override
+            public void execute(final Aperture aperture, final double[] values) {
+                for (int channel = 0; channel < values.length; ++channel) {
+                    double sum = 0.0;
+                    for (int y = 0; y < aperture.getHeight(); ++y) {
+                        for (int x = 0; x < aperture.getWidth(); ++x) {
+                            sum += aperture.get(x, y, channel) * kernelValues[y][x];
+                        }
+                    }
+                    values[channel] = sum / div;
+                }
+            }
+        });
+
+        final Image result = Filters.linearFilter(image, kernel, div, 0.0, Image.EXTRAPLOATION_WRAP);
+        assertTrue(expected.equals(result, 0.000_000_001));
+    }
+
     /**
      * Test method for: {@link Filters#getGaussianKernel(int, double)}.
      */
@@ -339,6 +591,135 @@ public class FilterTest {
         }
     }
 
+    /**
+     * Test method for: {@link Filters#gaussianBlur(Image, double, double, int, int)}.
+     */
+    @Test
+    public void testFastGaussianBlur() {
+        final Image image = new Image(90, 70, 2, Image.TYPE_64F);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set(x, y, 0, 128.0 + 100.0 * Math.sin(0.1 * x) * Math.cos(0.07 * y));
+                image.set(x, y, 1, 128.0 + 0.5 * (x - y));
+            }
+        }
+
+        // Approximations should be close to convolution with kernel (kernel is cut by 3 * sigma, so it is approximation too).
+        final double precision = 2.0;
+        final int[] extrapolationTypes = new int[]{ Image.EXTRAPLOATION_REPLICATE, Image.EXTRAPLOATION_REFLECT };
+        for (final double sigma : new double[]{ 1.0, 2.5, 6.0 }) {
+            for (final int extrapolationType : extrapolationTypes) {
+                final Image expected = Filters.gaussianBlur(image, sigma, sigma, Filters.GAUSSIAN_KERNEL, extrapolationType);
+                for (final int gaussianType : new int[]{ Filters.GAUSSIAN_IIR, Filters.GAUSSIAN_BOX }) {
+                    final Image result = Filters.gaussianBlur(image, sigma, sigma, gaussianType, extrapolationType);
+                    assertTrue(expected.equals(result, precision));
+                }
+            }
+        }
+
+        // Layout of image does not change result.
+        final Image columnMajor = new Image(image.getWidth(), image.getHeight(), image.getNumOfChannels(), image.getType(),
+            Image.LAYOUT_COLUMN_MAJOR);
+        image.copyTo(columnMajor);
+        for (final int gaussianType : new int[]{ Filters.GAUSSIAN_IIR, Filters.GAUSSIAN_BOX }) {
+            final Image expected = Filters.gaussianBlur(image, 3.0, 2.0, gaussianType, Image.EXTRAPLOATION_REFLECT);
+            final Image result = Filters.gaussianBlur(columnMajor, 3.0, 2.0, gaussianType, Image.EXTRAPLOATION_REFLECT);
+            assertTrue(expected.equals(result, JCV.PRECISION_MAX));
+        }
+
+        // Constant image is not changed by any sigma (also bigger than image).
+        final Image constant = new Image(30, 20, 1, Image.TYPE_64F);
+        constant.fill(new Color(1, 77.0));
+        for (final double sigma : new double[]{ 0.3, 3.0, 100.0 }) {
+            for (final int extrapolationType : new int[]{ Image.EXTRAPLOATION_REPLICATE, Image.EXTRAPLOATION_REFLECT,
+                Image.EXTRAPLOATION_WRAP }) {
+                for (final int gaussianType : new int[]{ Filters.GAUSSIAN_IIR, Filters.GAUSSIAN_BOX }) {
+                    final Image result = Filters.gaussianBlur(constant, sigma, 2.0 * sigma, gaussianType, extrapolationType);
+                    assertTrue(constant.equals(result, JCV.PRECISION_32F));
+                }
+            }
+        }
+
+        try {
+            Filters.gaussianBlur(image, 0.0, 1.0, Filters.GAUSSIAN_IIR, Image.EXTRAPLOATION_REFLECT);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        try {
+            Filters.gaussianBlur(image, 1.0, 1.0, -1, Image.EXTRAPLOATION_REFLECT);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Filters#blur(Image, Size, int, int)} with {@link Filters#BLUR_MEDIAN}.
+     */
+    @Test
+    public void testMedianBlur() {
+        final Random random = new Random(7);
+        final int[] extrapolationTypes = new int[]{ Image.EXTRAPLOATION_ZERO, Image.EXTRAPLOATION_REPLICATE,
+            Image.EXTRAPLOATION_REFLECT, Image.EXTRAPLOATION_WRAP };
+
+        for (final int type : new int[]{ Image.TYPE_8I, Image.TYPE_64F }) {
+            final Image image = new Image(57, 45, 2, type);
+            for (int x = 0; x < image.getWidth(); ++x) {
+                for (int y = 0; y < image.getHeight(); ++y) {
+                    image.set(x, y, 0, random.nextInt(256));
+                    image.set(x, y, 1, 0.5 * random.nextInt(20) + x);
+                }
+            }
+
+            // Small kernels use histogram of kernel, big kernels use histograms of columns.
+            for (final Size kernelSize : new Size[]{ new Size(1, 1), new Size(3, 3), new Size(5, 7), new Size(31, 27), new Size(3, 27) }) {
+                for (final int extrapolationType : extrapolationTypes) {
+                    // Sort all values of aperture.
+                    final Image expected = image.getSame();
+                    Filters.noneLinearFilter(image, expected, kernelSize, kernelSize.getCenter(), 1, extrapolationType,
+                        new ApertureOperator() {
+                            @Override
+                            public void execute(final Aperture aperture, final double[] values) {
+                                final double[] sorted = new double[aperture.getWidth() * aperture.getHeight()];
+                                for (int channel = 0; channel < values.length; ++channel) {
+                                    int pos = 0;
+                                    for (int y = 0; y < aperture.getHeight(); ++y) {
+                                        for (int x = 0; x < aperture.getWidth(); ++x) {
+                                            sorted[pos++] = aperture.get(x, y, channel);
+                                        }
+                                    }
+                                    Arrays.sort(sorted);
+                                    values[channel] = sorted[(sorted.length - 1) / 2];
+                                }
+                            }
+                        });
+
+                    final Image result = Filters.blur(image, kernelSize, Filters.BLUR_MEDIAN, extrapolationType);
+                    assertTrue(expected.equals(result, JCV.PRECISION_MAX));
+
+                    // Small cache splits image into tiles by both dimensions.
+                    final ParallelConfig.Scope scope = ParallelConfig.DEFAULT.withCacheSize(1).withMinSize(1).openScope();
+                    try {
+                        final Image tiled = Filters.blur(image, kernelSize, Filters.BLUR_MEDIAN, extrapolationType);
+                        assertTrue(expected.equals(tiled, JCV.PRECISION_MAX));
+                    } finally {
+                        scope.close();
+                    }
+                }
+            }
+        }
+
+        // Kernel should be not bigger than image.
+        try {
+            Filters.blur(new Image(7, 5, 1, Image.TYPE_8I), new Size(9, 3), Filters.BLUR_MEDIAN);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
     /**
      * Test method for: {@link Filters#getSigma(int)}, {@link Filters#getKernelSize(double)}.
      */
@@ -356,4 +737,27 @@ public class FilterTest {
         assertEquals(kernelSize2 + 1, Filters.getKernelSize(sigma2), JCV.PRECISION_MAX);
         assertEquals(sigma2, Filters.getSigma(kernelSize2), JCV.PRECISION_MAX);
     }
+
+    /**
+     * Test method for: {@link Filters#gaussianBlur(Image, Size, double, double, int)} on {@link Image#TYPE_32F} images.
+     */
+    @Test
+    public void testFloatImage() {
+        final Image image64F = new Image(40, 30, 3, Image.TYPE_64F);
+        for (int x = 0; x < image64F.getWidth(); ++x) {
+            for (int y = 0; y < image64F.getHeight(); ++y) {
+                for (int channel = 0; channel < image64F.getNumOfChannels(); ++channel) {
+                    image64F.set(x, y, channel, (x * 13 + y * 7 + channel * 50) % 256);
+                }
+            }
+        }
+        final Image image32F = TypeConvert.toType(image64F, Image.TYPE_32F);
+        assertEquals(Image.TYPE_32F, image32F.getType());
+        assertTrue(image64F.equals(image32F, JCV.PRECISION_32F));
+
+        final Image result64F = Filters.gaussianBlur(image64F, new Size(5, 5), 1.0, 1.0, Image.EXTRAPLOATION_REFLECT);
+        final Image result32F = Filters.gaussianBlur(image32F, new Size(5, 5), 1.0, 1.0, Image.EXTRAPLOATION_REFLECT);
+        assertEquals(Image.TYPE_32F, result32F.getType());
+        assertTrue(result64F.equals(result32F, 0.001));
+    }
 }
@@ -21,6 +21,7 @@ package org.jcvlib.test.image;
 import static org.junit.Assert.*;
 
 import org.jcvlib.core.Color;
+import org.jcvlib.core.JCV;
 import org.jcvlib.core.Region;
 import org.jcvlib.core.Image;
 import org.jcvlib.core.Point;
@@ -92,6 +93,16 @@ public class MiscTest {
         final Region result4 = Misc.floodFill(image.copy(), new Point(0, 0), 1.0, new Color(1, Color.COLOR_MAX_VALUE),
             Misc.DIRECTIONS_TYPE_8, Misc.FLOOD_FILL_RANGE_NEIGHBOR);
         assertEquals(7, result4.getAreaSize());
+
+        /*
+         * Test 5. Big region.
+         */
+        final Image big = new Image(200, 150, 3, Image.TYPE_8I, new Color(3, 10.0));
+        final Region result5 = Misc.floodFill(big, new Point(100, 70), 1.0, new Color(3, Color.COLOR_MAX_VALUE),
+            Misc.DIRECTIONS_TYPE_8, Misc.FLOOD_FILL_RANGE_FIXED);
+        assertEquals(200 * 150, result5.getAreaSize());
+        assertEquals(200, result5.getBoundingRect().getWidth());
+        assertEquals(Color.COLOR_MAX_VALUE, big.get(0, 0, 2), JCV.PRECISION_MAX);
     }
 
     /**
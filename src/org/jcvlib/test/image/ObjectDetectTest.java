@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.image;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.jcvlib.core.Color;
+import org.jcvlib.core.Image;
+import org.jcvlib.image.ObjectDetect;
+import org.junit.Test;
+
+/**
+ * Test class for {@link ObjectDetect}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ObjectDetectTest {
+    /**
+     * Return random image with given size.
+     */
+    private static Image getRandomImage(final int width, final int height, final int numOfChannels, final Random random) {
+        final Image image = new Image(width, height, numOfChannels, Image.TYPE_8I);
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                for (int channel = 0; channel < numOfChannels; ++channel) {
+                    image.set8I(x, y, channel, random.nextInt(256));
+                }
+            }
+        }
+
+        return image;
+    }
+
+    /**
+     * Root-mean-square difference between template and sub-image with left top corner in given position. Values outside of image are
+     * zero.
+     */
+    private static double getRMS(final Image image, final Image template, final int x, final int y) {
+        double sum = 0.0;
+        for (int templateX = 0; templateX < template.getWidth(); ++templateX) {
+            for (int templateY = 0; templateY < template.getHeight(); ++templateY) {
+                final int imageX = x + templateX;
+                final int imageY = y + templateY;
+                final boolean inside = imageX < image.getWidth() && imageY < image.getHeight();
+                for (int channel = 0; channel < template.getNumOfChannels(); ++channel) {
+                    final double value = inside ? image.get(imageX, imageY, channel) : 0.0;
+                    final double diff = value - template.get(templateX, templateY, channel);
+                    sum += diff * diff;
+                }
+            }
+        }
+
+        return Math.sqrt(sum / (template.getSize().getN() * template.getNumOfChannels()));
+    }
+
+    /**
+     * Compare result of {@link ObjectDetect#matchTempleteSqDiff(Image, Image)} with direct calculation for all positions.
+     */
+    private static void testMatchTempleteSqDiff(final Image image, final Image template) {
+        final Image result = ObjectDetect.matchTempleteSqDiff(image, template);
+        assertEquals(image.getWidth(), result.getWidth());
+        assertEquals(image.getHeight(), result.getHeight());
+        assertEquals(1, result.getNumOfChannels());
+
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                assertEquals(Color.COLOR_MAX_VALUE - getRMS(image, template, x, y), result.get(x, y, 0), 1e-3);
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link ObjectDetect#matchTempleteSqDiff(Image, Image)}.
+     */
+    @Test
+    public void testMatchTempleteSqDiff() {
+        final Random random = new Random(5);
+        final Image image = getRandomImage(70, 60, 2, random);
+
+        // Small template is applied directly.
+        final Image small = image.getSubimage(20, 30, 3, 3).copy();
+        testMatchTempleteSqDiff(image, small);
+        assertEquals(Color.COLOR_MAX_VALUE, ObjectDetect.matchTempleteSqDiff(image, small).get(20, 30, 0), 1e-3);
+
+        // Big template is applied in frequency domain, image contains some parts of transform.
+        final Image big = getRandomImage(16, 16, 2, random);
+        testMatchTempleteSqDiff(image, big);
+
+        // Template with same size as image: all positions except first one use zero values outside of image.
+        final Image full = getRandomImage(7, 5, 1, random);
+        final Image equal = full.copy();
+        testMatchTempleteSqDiff(equal, full);
+        assertEquals(Color.COLOR_MAX_VALUE, ObjectDetect.matchTempleteSqDiff(equal, full).get(0, 0, 0), 1e-3);
+
+        try {
+            ObjectDetect.matchTempleteSqDiff(full, getRandomImage(8, 5, 1, random));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+}
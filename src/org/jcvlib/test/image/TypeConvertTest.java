@@ -136,6 +136,36 @@ public class TypeConvertTest {
         this.testMultichannelImage(new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB_PRE), true);
     }
 
+    /**
+     * Test method for: {@link TypeConvert#wrapBufferedImage(BufferedImage)}.
+     */
+    @Test
+    public void testWrapBufferedImage() {
+        final BufferedImage bufImg = new BufferedImage(300, 200, BufferedImage.TYPE_BYTE_GRAY);
+        bufImg.getRaster().setSample(10, 20, 0, 100);
+
+        final Image image = TypeConvert.wrapBufferedImage(bufImg);
+        assertEquals(1, image.getNumOfChannels());
+        assertEquals(100, image.get8I(10, 20, 0));
+
+        // Values are shared.
+        image.set8I(30, 40, 0, 200);
+        assertEquals(200, bufImg.getRaster().getSample(30, 40, 0));
+
+        try {
+            TypeConvert.wrapBufferedImage(new BufferedImage(300, 200, BufferedImage.TYPE_3BYTE_BGR));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        try {
+            TypeConvert.wrapBufferedImage(bufImg.getSubimage(10, 10, 100, 100));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
     /**
      * This method initialize {@link BufferedImage} with 1 channel, convert it to {@link Image} and
      * compare values of this images.
@@ -79,6 +79,27 @@ public class ImageRwTest {
         writeAndReadTest(init(1500, 1200, 4), "PNG");
     }
 
+    /**
+     * Test method for: {@link ImageRW#read(String, int)}.
+     */
+    @Test
+    public void testReadWithType() {
+        try {
+            final String imagePath = "Test.bmp";
+            final Image image = init(300, 200, 3);
+            ImageRW.write(image, imagePath);
+
+            final Image newImage = ImageRW.read(imagePath, Image.TYPE_32F);
+            assertEquals(Image.TYPE_32F, newImage.getType());
+            assertTrue(image.equals(newImage));
+
+            // Remove temp file.
+            (new File(imagePath)).delete();
+        } catch (IOException e) {
+            fail(e.getMessage());
+        }
+    }
+
     /**
      * Create and initialize new {@link JcvImage64F}.
      */
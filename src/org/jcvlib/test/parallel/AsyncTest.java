@@ -0,0 +1,210 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.parallel;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.jcvlib.core.Color;
+import org.jcvlib.core.Image;
+import org.jcvlib.core.Point;
+import org.jcvlib.core.Size;
+import org.jcvlib.image.Filters;
+import org.jcvlib.parallel.Async;
+import org.jcvlib.parallel.BatchOperation;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.RowLoop;
+
+import org.junit.Test;
+
+/**
+ * Test class for asynchronous execution of image operations {@link Async}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class AsyncTest {
+
+    private final BatchOperation<Image> blur = new BatchOperation<Image>() {
+        @Override
+        public Image execute(final Image image) {
+            return Filters.blur(image, new Size(3, 3), Filters.BLUR_BOX);
+        }
+    };
+
+    /**
+     * Test method for: {@link Async#apply(Image, BatchOperation, ParallelConfig)},
+     * {@link Async#then(CompletableFuture, BatchOperation, ParallelConfig)}.
+     */
+    @Test
+    public void testApply() throws InterruptedException, ExecutionException {
+        final Image image = new Image(150, 100, 3, Image.TYPE_8I);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set8I(x, y, 0, (x * y) % 256);
+            }
+        }
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100);
+
+        final CompletableFuture<Image> once = Async.apply(image, this.blur, config);
+        final CompletableFuture<Image> twice = Async.then(once, this.blur, config);
+
+        final Image expected = this.blur.execute(image);
+        assertTrue(expected.equals(once.get()));
+        assertTrue(this.blur.execute(expected).equals(twice.get()));
+
+        // Other executor.
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final CompletableFuture<Color> pixel = Async.apply(image, new BatchOperation<Color>() {
+                @Override
+                public Color execute(final Image source) {
+                    return Filters.blur(source, new Size(3, 3), Filters.BLUR_BOX).get(new Point(10, 10));
+                }
+            }, config, executor);
+            assertEquals(expected.get(new Point(10, 10)), pixel.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test method for: {@link Async}.
+     */
+    @Test
+    public void testException() throws InterruptedException {
+        final CompletableFuture<Image> failed = Async.apply(new Image(10, 10, 1, Image.TYPE_8I), new BatchOperation<Image>() {
+            @Override
+            public Image execute(final Image image) {
+                throw new IllegalArgumentException("Wrong image!");
+            }
+        });
+        final CompletableFuture<Image> next = Async.then(failed, this.blur);
+
+        try {
+            next.get();
+            fail("Not thrown ExecutionException!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalArgumentException);
+            System.out.println("Exception message example:\n" + e.getCause().getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Async#apply(Image, BatchOperation, ParallelConfig, java.util.concurrent.Executor)},
+     * {@link Async#then(CompletableFuture, BatchOperation, ParallelConfig, java.util.concurrent.Executor)} with shut down executor.
+     */
+    @Test
+    public void testRejected() throws InterruptedException, TimeoutException {
+        final Image image = new Image(10, 10, 1, Image.TYPE_8I);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+
+        final CompletableFuture<Image> applied = Async.apply(image, this.blur, ParallelConfig.DEFAULT, executor);
+        try {
+            applied.get(10, TimeUnit.SECONDS);
+            fail("Not thrown ExecutionException!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        final CompletableFuture<Image> source = new CompletableFuture<Image>();
+        final CompletableFuture<Image> next = Async.then(source, this.blur, ParallelConfig.DEFAULT, executor);
+        source.complete(image);
+        try {
+            next.get(10, TimeUnit.SECONDS);
+            fail("Not thrown ExecutionException!");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+    }
+
+    /**
+     * Return endless operation, that can be stopped only by cancellation.
+     */
+    private BatchOperation<Image> getEndless(final CountDownLatch started, final CountDownLatch finished, final AtomicBoolean stopped) {
+        return new BatchOperation<Image>() {
+            @Override
+            public Image execute(final Image source) {
+                try {
+                    while (true) {
+                        Parallel.rows(source, new RowLoop() {
+                            @Override
+                            public void execute(final int y, final int xStart, final int xEnd) {
+                                started.countDown();
+                            }
+                        });
+                    }
+                } catch (final RuntimeException e) {
+                    stopped.set(true);
+                    throw e;
+                } finally {
+                    finished.countDown();
+                }
+            }
+        };
+    }
+
+    /**
+     * Test method for: {@link Async#apply(Image, BatchOperation, ParallelConfig)} with cancellation.
+     */
+    @Test
+    public void testCancel() throws InterruptedException {
+        final Image image = new Image(100, 100, 1, Image.TYPE_8I);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+
+        final CompletableFuture<Image> future = Async.apply(image, this.getEndless(started, finished, stopped), ParallelConfig.DEFAULT);
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertTrue(stopped.get());
+    }
+
+    /**
+     * Test method for: {@link Async#then(CompletableFuture, BatchOperation, ParallelConfig)} with cancellation.
+     */
+    @Test
+    public void testCancelThen() throws InterruptedException {
+        final Image image = new Image(100, 100, 1, Image.TYPE_8I);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean stopped = new AtomicBoolean(false);
+
+        final CompletableFuture<Image> source = Async.apply(image, this.blur, ParallelConfig.DEFAULT);
+        final CompletableFuture<Image> future = Async.then(source, this.getEndless(started, finished, stopped), ParallelConfig.DEFAULT);
+
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        assertTrue(future.cancel(true));
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+        assertTrue(stopped.get());
+        assertFalse(source.isCancelled());
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.parallel;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.jcvlib.core.Color;
+import org.jcvlib.core.Image;
+import org.jcvlib.core.Size;
+import org.jcvlib.image.Filters;
+import org.jcvlib.parallel.Batch;
+import org.jcvlib.parallel.BatchOperation;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.RowLoop;
+
+import org.junit.Test;
+
+/**
+ * Test class for parallel processing of many images {@link Batch}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class BatchTest {
+    /**
+     * Test method for: {@link Batch#map(List, BatchOperation, ParallelConfig)}.
+     */
+    @Test
+    public void testMap() {
+        final List<Image> images = new ArrayList<Image>();
+        for (int i = 0; i < 50; ++i) {
+            images.add(new Image(20 + i, 10 + i, 3, Image.TYPE_8I, new Color(3, i)));
+        }
+
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withCostModel(null);
+        final List<Image> result = Batch.map(images, new BatchOperation<Image>() {
+            @Override
+            public Image execute(final Image image) {
+                return Filters.blur(image, new Size(3, 3), Filters.BLUR_BOX);
+            }
+        }, config);
+
+        // Results are in same order as images.
+        assertEquals(images.size(), result.size());
+        for (int i = 0; i < images.size(); ++i) {
+            assertEquals(images.get(i).getSize(), result.get(i).getSize());
+            assertTrue(Filters.blur(images.get(i), new Size(3, 3), Filters.BLUR_BOX).equals(result.get(i)));
+        }
+
+        assertTrue(Batch.map(new ArrayList<Image>(), new BatchOperation<Image>() {
+            @Override
+            public Image execute(final Image image) {
+                return image;
+            }
+        }).isEmpty());
+    }
+
+    /**
+     * Test method for: {@link Batch#map(List, BatchOperation, ParallelConfig)} with nested loops of {@link Parallel}.
+     */
+    @Test
+    public void testNested() {
+        final List<Image> images = new ArrayList<Image>();
+        images.add(new Image(1000, 1000, 1, Image.TYPE_8I));
+        for (int i = 0; i < 20; ++i) {
+            images.add(new Image(30, 30, 1, Image.TYPE_8I));
+        }
+
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(1000).withCostModel(null);
+        final Set<ParallelConfig> configs = Collections.synchronizedSet(Collections
+            .newSetFromMap(new IdentityHashMap<ParallelConfig, Boolean>()));
+        final List<Integer> result = Batch.map(images, new BatchOperation<Integer>() {
+            @Override
+            public Integer execute(final Image image) {
+                Parallel.rows(image, new RowLoop() {
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        configs.add(ParallelConfig.getCurrent());
+                        for (int x = xStart; x < xEnd; ++x) {
+                            image.set8I(x, y, 0, 1);
+                        }
+                    }
+                });
+
+                return image.getWidth();
+            }
+        }, config);
+
+        // Nested loops use settings of batch.
+        assertEquals(1, configs.size());
+        assertTrue(configs.contains(config));
+
+        assertEquals(Integer.valueOf(1000), result.get(0));
+        for (int i = 0; i < images.size(); ++i) {
+            assertEquals(1, images.get(i).get8I(images.get(i).getWidth() - 1, images.get(i).getHeight() - 1, 0));
+        }
+    }
+
+    /**
+     * Test method for: {@link Batch#map(List, BatchOperation, ParallelConfig)} with images of different sizes.
+     */
+    @Test
+    public void testBalance() throws InterruptedException {
+        final List<Image> images = new ArrayList<Image>();
+        images.add(new Image(1000, 1000, 1, Image.TYPE_8I));
+        for (int i = 0; i < 20; ++i) {
+            images.add(new Image(30, 30, 1, Image.TYPE_8I));
+        }
+
+        // Big image waits for all small images, so small images should not be grouped with big image.
+        final CountDownLatch small = new CountDownLatch(images.size() - 1);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final ParallelConfig config = ParallelConfig.DEFAULT.withPool(pool).withNumOfWorkers(4).withMinSize(1000).withCostModel(null);
+            final List<Boolean> result = Batch.map(images, new BatchOperation<Boolean>() {
+                @Override
+                public Boolean execute(final Image image) {
+                    if (image.getWidth() == 30) {
+                        small.countDown();
+                        return true;
+                    }
+
+                    try {
+                        return small.await(10, TimeUnit.SECONDS);
+                    } catch (final InterruptedException e) {
+                        return false;
+                    }
+                }
+            }, config);
+
+            for (final Boolean value : result) {
+                assertTrue(value);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test method for: {@link Batch}.
+     */
+    @Test
+    public void testException() {
+        final List<Image> images = new ArrayList<Image>();
+        images.add(new Image(10, 10, 1, Image.TYPE_8I));
+        images.add(null);
+
+        try {
+            Batch.map(images, new BatchOperation<Image>() {
+                @Override
+                public Image execute(final Image image) {
+                    return image;
+                }
+            });
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+}
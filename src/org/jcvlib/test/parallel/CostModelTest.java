@@ -0,0 +1,316 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.parallel;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.JCV;
+import org.jcvlib.core.Size;
+import org.jcvlib.image.Aperture;
+import org.jcvlib.image.Filters;
+import org.jcvlib.image.Filters.ApertureOperator;
+import org.jcvlib.image.Misc;
+import org.jcvlib.parallel.CostModel;
+import org.jcvlib.parallel.NamedTileLoop;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.RowLoop;
+
+import org.junit.Test;
+
+/**
+ * Test class for model of cost of parallel loops {@link CostModel}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class CostModelTest {
+    /**
+     * Test method for: {@link CostModel#getNumOfParts(Class, int, long, int)}, {@link CostModel#update(Class, long, long)}.
+     */
+    @Test
+    public void testNumOfParts() {
+        final CostModel model = new CostModel(1000L, 0.5);
+
+        // Unknown loop.
+        assertTrue(Double.isNaN(model.getCost(String.class)));
+        assertEquals(-1, model.getNumOfParts(String.class, 100, 100L, 8));
+
+        // Cheap loop: 100 * 100 pixels by 0.01 ns.
+        model.setCost(String.class, 0.01);
+        assertEquals(1, model.getNumOfParts(String.class, 100, 100L, 8));
+
+        // Expensive loop: 100 * 100 pixels by 10 ns.
+        model.setCost(String.class, 10.0);
+        assertEquals(8, model.getNumOfParts(String.class, 100, 100L, 8));
+        assertEquals(3, model.getNumOfParts(String.class, 3, 10000L, 8));
+
+        // Middle: 10 * 100 pixels by 5 ns = 5 parts by 1000 ns.
+        model.setCost(String.class, 5.0);
+        assertEquals(5, model.getNumOfParts(String.class, 10, 100L, 8));
+
+        // Adaptive feedback.
+        model.update(String.class, 3000L, 100L);
+        assertEquals(0.5 * 5.0 + 0.5 * 30.0, model.getCost(String.class), JCV.PRECISION_MAX);
+
+        model.update(Integer.class, 3000L, 100L);
+        assertEquals(30.0, model.getCost(Integer.class), JCV.PRECISION_MAX);
+
+        model.clear();
+        assertTrue(Double.isNaN(model.getCost(String.class)));
+    }
+
+    /**
+     * Test method for: {@link CostModel#save(File)}, {@link CostModel#load(File)}.
+     */
+    @Test
+    public void testSaveLoad() throws IOException {
+        final CostModel model = new CostModel();
+        model.setCost(String.class, 1.5);
+        model.setCost(Integer.class, 0.25);
+
+        final File file = File.createTempFile("jcvlib-cost", ".properties");
+        try {
+            model.save(file);
+
+            final CostModel loaded = new CostModel();
+            loaded.load(file);
+            assertEquals(1.5, loaded.getCost(String.class), JCV.PRECISION_MAX);
+            assertEquals(0.25, loaded.getCost(Integer.class), JCV.PRECISION_MAX);
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Test method for: {@link CostModel#save(java.io.OutputStream)}, {@link CostModel#load(java.io.InputStream)} with names of anonymous
+     * classes and loops of library.
+     */
+    @Test
+    public void testStableNames() throws IOException {
+        final CostModel model = new CostModel();
+        final ParallelConfig config = ParallelConfig.SERIAL.withCostModel(model);
+
+        // Loops of library have stable names.
+        final Image image = new Image(64, 64, 3, Image.TYPE_8I);
+        final ParallelConfig.Scope scope = config.openScope();
+        try {
+            Misc.absDiff(image, image);
+        } finally {
+            scope.close();
+        }
+        assertFalse(Double.isNaN(model.getCost(Misc.class.getName() + ":absDiff")));
+
+        // Costs of anonymous classes are not saved.
+        final Runnable anonymous = new Runnable() {
+            @Override
+            public void run() {
+                // Do nothing.
+            }
+        };
+        model.setCost(anonymous.getClass(), 1.0);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.save(out);
+        final Properties properties = new Properties();
+        properties.load(new ByteArrayInputStream(out.toByteArray()));
+        assertTrue(properties.containsKey(Misc.class.getName() + ":absDiff"));
+        assertFalse(properties.containsKey(anonymous.getClass().getName()));
+
+        // And are not loaded from old files.
+        properties.setProperty("org.jcvlib.image.Misc$1", "1.0");
+        final ByteArrayOutputStream old = new ByteArrayOutputStream();
+        properties.store(old, null);
+        final CostModel loaded = new CostModel();
+        loaded.load(new ByteArrayInputStream(old.toByteArray()));
+        assertTrue(Double.isNaN(loaded.getCost("org.jcvlib.image.Misc$1")));
+        assertFalse(Double.isNaN(loaded.getCost(Misc.class.getName() + ":absDiff")));
+    }
+
+    /**
+     * Test method for: {@link Parallel}, {@link ParallelConfig#withCostModel(CostModel)}.
+     */
+    @Test
+    public void testCalibration() {
+        final CostModel model = new CostModel();
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withCostModel(model);
+        final Image image = new Image(200, 100, 1, Image.TYPE_8I);
+
+        final RowLoop cheap = new RowLoop() {
+            @Override
+            public void execute(final int y, final int xStart, final int xEnd) {
+                // Do nothing.
+            }
+        };
+        assertTrue(Double.isNaN(model.getCost(cheap.getClass())));
+        Parallel.rows(image, cheap, config);
+        assertFalse(Double.isNaN(model.getCost(cheap.getClass())));
+
+        // Cheap loop should be executed by current thread.
+        final Thread current = Thread.currentThread();
+        final RowLoop sameThread = new RowLoop() {
+            @Override
+            public void execute(final int y, final int xStart, final int xEnd) {
+                assertSame(current, Thread.currentThread());
+            }
+        };
+        model.setCost(sameThread.getClass(), 0.0);
+        Parallel.rows(image, sameThread, config);
+
+        // Expensive loop should use all workers.
+        final Set<Thread> threads = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<Thread, Boolean>()));
+        final RowLoop expensive = new RowLoop() {
+            @Override
+            public void execute(final int y, final int xStart, final int xEnd) {
+                threads.add(Thread.currentThread());
+            }
+        };
+        model.setCost(expensive.getClass(), 1000.0);
+        assertEquals(4, model.getNumOfParts(expensive.getClass(), image.getHeight(), image.getWidth(), 4));
+        Parallel.rows(image, expensive, config);
+        assertFalse(threads.isEmpty());
+
+        try {
+            new CostModel(0L, 0.5);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link CostModel#getCost(String)}, {@link NamedTileLoop}.
+     */
+    @Test
+    public void testNamedLoops() throws IOException {
+        final CostModel model = new CostModel();
+        final ParallelConfig config = ParallelConfig.DEFAULT.withCostModel(model);
+        final Image image = new Image(64, 64, 1, Image.TYPE_8I);
+
+        // Named loops of one class have separate costs.
+        final String[] names = new String[]{ "first", "second" };
+        for (final String name : names) {
+            assertTrue(Double.isNaN(model.getCost(name)));
+            Parallel.tiles(image, new Size(16, 16), new NamedTileLoop(name) {
+                @Override
+                public void execute(final int x, final int y, final int width, final int height) {
+                    // Do nothing.
+                }
+            }, config);
+            assertFalse(Double.isNaN(model.getCost(name)));
+        }
+
+        // Two operators through same loop of filter have separate costs.
+        final ApertureOperator cheap = new ApertureOperator() {
+            @Override
+            public void execute(final Aperture aperture, final double[] values) {
+                values[0] = aperture.get(0, 0, 0);
+            }
+        };
+        final ApertureOperator expensive = new ApertureOperator() {
+            @Override
+            public void execute(final Aperture aperture, final double[] values) {
+                double sum = 0.0;
+                for (int i = 0; i < 100; ++i) {
+                    sum += Math.sqrt(aperture.get(i % 3, (i / 3) % 3, 0) + i);
+                }
+                values[0] = sum;
+            }
+        };
+        final Size kernelSize = new Size(3, 3);
+        final String cheapName = cheap.getClass().getName();
+        final String expensiveName = expensive.getClass().getName();
+
+        final Image result = new Image(64, 64, 1, Image.TYPE_8I);
+        final ParallelConfig.Scope scope = config.openScope();
+        try {
+            Filters.noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), 1, Image.EXTRAPLOATION_REPLICATE, cheap);
+            final double cheapCost = model.getCost(cheapName);
+            assertFalse(Double.isNaN(cheapCost));
+            assertTrue(Double.isNaN(model.getCost(expensiveName)));
+
+            Filters.noneLinearFilter(image, result, kernelSize, kernelSize.getCenter(), 1, Image.EXTRAPLOATION_REPLICATE, expensive);
+            assertFalse(Double.isNaN(model.getCost(expensiveName)));
+            assertEquals(cheapCost, model.getCost(cheapName), 0.0);
+
+            // Other size of kernel and number of channels use same cost, work is normalized by area of kernel and number of values.
+            final Size bigSize = new Size(5, 5);
+            Filters.noneLinearFilter(image, result, bigSize, bigSize.getCenter(), 1, Image.EXTRAPLOATION_REPLICATE, cheap);
+            final Image color = new Image(64, 64, 3, Image.TYPE_8I);
+            Filters.noneLinearFilter(color, new Image(64, 64, 3, Image.TYPE_8I), bigSize, bigSize.getCenter(), 1,
+                Image.EXTRAPLOATION_REPLICATE, cheap);
+            assertFalse(Double.isNaN(model.getCost(cheapName)));
+
+            final Properties properties = new Properties();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            model.save(out);
+            properties.load(new ByteArrayInputStream(out.toByteArray()));
+            // Costs of anonymous operators are not saved.
+            assertEquals(names.length, properties.size());
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Test method for: {@link NamedTileLoop#getWorkPerValue()}, {@link CostModel#update(String, long, long)}.
+     */
+    @Test
+    public void testWorkPerValue() {
+        final CostModel model = new CostModel(CostModel.MIN_TASK_TIME_DEFAULT, 0.0);
+        final ParallelConfig config = ParallelConfig.SERIAL.withCostModel(model);
+        final Image image = new Image(64, 64, 3, Image.TYPE_8I);
+
+        // Cost is measured for values of all channels, multiplied by work of one value.
+        final AtomicLong time = new AtomicLong();
+        Parallel.tiles(image, new Size(64, 64), new NamedTileLoop("work", 10L) {
+            @Override
+            public void execute(final int x, final int y, final int width, final int height) {
+                final long start = System.nanoTime();
+                while (System.nanoTime() - start < 1000L * 1000L) {
+                    // Wait 1 millisecond.
+                }
+                time.set(System.nanoTime() - start);
+            }
+        }, config);
+        assertTrue(model.getCost("work") >= time.get() / (64.0 * 64.0 * 3.0 * 10.0));
+        assertTrue(model.getCost("work") < 2.0 * time.get() / (64.0 * 64.0 * 3.0 * 10.0) + 1.0);
+
+        try {
+            new NamedTileLoop("work", 0L) {
+                @Override
+                public void execute(final int x, final int y, final int width, final int height) {
+                    // Do nothing.
+                }
+            };
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+}
@@ -0,0 +1,597 @@
+/*
+ * Copyright 2012-2013 JcvLib Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+/*
+ * This class is part of Java Computer Vision Library (JcvLib).
+ */
+package org.jcvlib.test.parallel;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jcvlib.core.Image;
+import org.jcvlib.core.ImagePool;
+import org.jcvlib.core.Size;
+import org.jcvlib.image.Filters;
+import org.jcvlib.parallel.CancellationToken;
+import org.jcvlib.parallel.ChannelsLoop;
+import org.jcvlib.parallel.Parallel;
+import org.jcvlib.parallel.ParallelConfig;
+import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.ReduceLoop;
+import org.jcvlib.parallel.RowLoop;
+import org.jcvlib.parallel.RowLoopFactory;
+import org.jcvlib.parallel.TileLoop;
+
+import org.junit.Test;
+
+/**
+ * Test class for parallel loops {@link Parallel} and settings {@link ParallelConfig}.
+ *
+ * @author Dmitriy Zavodnikov (d.zavodnikov@gmail.com)
+ */
+public class ParallelTest {
+
+    private void testPixels(final Image image, final ParallelConfig config) {
+        final AtomicInteger counter = new AtomicInteger(0);
+        Parallel.pixels(image, new PixelsLoop() {
+            @Override
+            public void execute(final int x, final int y) {
+                image.set8I(x, y, 0, image.get8I(x, y, 0) + 1);
+                counter.incrementAndGet();
+            }
+        }, config);
+
+        assertEquals(image.getWidth() * image.getHeight(), counter.get());
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                assertEquals(1, image.get8I(x, y, 0));
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link Parallel#pixels(Image, PixelsLoop, ParallelConfig)}.
+     */
+    @Test
+    public void testPixels() {
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100);
+
+        this.testPixels(new Image(300, 200, 1, Image.TYPE_8I), config);
+        this.testPixels(new Image(300, 200, 1, Image.TYPE_8I, Image.LAYOUT_COLUMN_MAJOR), config);
+        this.testPixels(new Image(3, 2, 1, Image.TYPE_8I), config);
+        this.testPixels(new Image(300, 200, 1, Image.TYPE_8I), ParallelConfig.SERIAL);
+
+        final ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            this.testPixels(new Image(300, 200, 1, Image.TYPE_8I), config.withPool(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test method for: {@link Parallel#channels(Image, ChannelsLoop, ParallelConfig)}.
+     */
+    @Test
+    public void testChannels() {
+        final Image image = new Image(10, 10, 5, Image.TYPE_8I);
+        final AtomicInteger counter = new AtomicInteger(0);
+        Parallel.channels(image, new ChannelsLoop() {
+            @Override
+            public void execute(final int channel) {
+                counter.addAndGet(channel + 1);
+            }
+        }, ParallelConfig.DEFAULT.withMinSize(1));
+
+        assertEquals(1 + 2 + 3 + 4 + 5, counter.get());
+    }
+
+    /**
+     * Test method for: {@link Parallel#rows(Image, RowLoop, ParallelConfig)}.
+     */
+    @Test
+    public void testRows() {
+        final Image image = new Image(300, 200, 2, Image.TYPE_8I);
+        final AtomicInteger counter = new AtomicInteger(0);
+        Parallel.rows(image, new RowLoop() {
+            @Override
+            public void execute(final int y, final int xStart, final int xEnd) {
+                final byte[] values = new byte[(xEnd - xStart) * image.getNumOfChannels()];
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = (byte) y;
+                }
+                image.setSpan(xStart, y, xEnd - xStart, values, 0);
+
+                counter.addAndGet(xEnd - xStart);
+            }
+        }, ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100));
+
+        assertEquals(image.getWidth() * image.getHeight(), counter.get());
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                assertEquals(y, image.get8I(x, y, 1));
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link Parallel#rows(Image, RowLoop, ParallelConfig)} with {@link Image#LAYOUT_COLUMN_MAJOR}.
+     */
+    @Test
+    public void testRowsColumnMajor() {
+        final Image image = new Image(30, 20, 1, Image.TYPE_8I, Image.LAYOUT_COLUMN_MAJOR);
+
+        // Pixels are visited column by column.
+        final AtomicInteger counter = new AtomicInteger(0);
+        Parallel.rows(image, new RowLoop() {
+            @Override
+            public void execute(final int y, final int xStart, final int xEnd) {
+                assertEquals(1, xEnd - xStart);
+                assertEquals(xStart * image.getHeight() + y, counter.getAndIncrement());
+            }
+        }, ParallelConfig.SERIAL);
+        assertEquals(image.getWidth() * image.getHeight(), counter.get());
+    }
+
+    /**
+     * Test method for: {@link Parallel#rows(Image, RowLoopFactory, ParallelConfig)}.
+     */
+    @Test
+    public void testRowsFactory() {
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100);
+        for (final int layout : new int[]{ Image.LAYOUT_ROW_MAJOR, Image.LAYOUT_COLUMN_MAJOR }) {
+            final Image image = new Image(300, 200, 2, Image.TYPE_8I, layout);
+            final AtomicInteger runners = new AtomicInteger(0);
+            final AtomicInteger counter = new AtomicInteger(0);
+            Parallel.rows(image, new RowLoopFactory() {
+                @Override
+                public RowLoop create() {
+                    runners.incrementAndGet();
+
+                    return new RowLoop() {
+                        private final byte[] values = new byte[image.getWidth() * image.getNumOfChannels()];
+
+                        @Override
+                        public void execute(final int y, final int xStart, final int xEnd) {
+                            final int length = xEnd - xStart;
+                            for (int i = 0; i < length * image.getNumOfChannels(); ++i) {
+                                this.values[i] = (byte) y;
+                            }
+                            image.setSpan(xStart, y, length, this.values, 0);
+
+                            counter.addAndGet(length);
+                        }
+                    };
+                }
+            }, config);
+
+            // One runner for each range of rows (or columns).
+            assertTrue(runners.get() >= 1 && runners.get() <= config.getNumOfWorkers());
+            assertEquals(image.getWidth() * image.getHeight(), counter.get());
+            for (int x = 0; x < image.getWidth(); ++x) {
+                for (int y = 0; y < image.getHeight(); ++y) {
+                    assertEquals(y, image.get8I(x, y, 1));
+                }
+            }
+        }
+    }
+
+    private void testTiles(final Image image, final Size tileSize) {
+        final AtomicInteger counter = new AtomicInteger(0);
+        Parallel.tiles(image, tileSize, new TileLoop() {
+            @Override
+            public void execute(final int x0, final int y0, final int width, final int height) {
+                assertTrue(width <= tileSize.getWidth() && height <= tileSize.getHeight());
+
+                for (int y = y0; y < y0 + height; ++y) {
+                    for (int x = x0; x < x0 + width; ++x) {
+                        image.set8I(x, y, 0, image.get8I(x, y, 0) + 1);
+                    }
+                }
+                counter.incrementAndGet();
+            }
+        }, ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100));
+
+        assertEquals(((image.getWidth() + tileSize.getWidth() - 1) / tileSize.getWidth())
+            * ((image.getHeight() + tileSize.getHeight() - 1) / tileSize.getHeight()), counter.get());
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                assertEquals(1, image.get8I(x, y, 0));
+            }
+        }
+    }
+
+    /**
+     * Test method for: {@link Parallel#tiles(Image, Size, TileLoop, ParallelConfig)}, {@link Parallel#getTileSize(Image, ParallelConfig)}.
+     */
+    @Test
+    public void testTiles() {
+        this.testTiles(new Image(300, 200, 1, Image.TYPE_8I), new Size(64, 64));
+        this.testTiles(new Image(300, 200, 1, Image.TYPE_8I), new Size(300, 1));
+        this.testTiles(new Image(30, 20, 1, Image.TYPE_8I), new Size(7, 3));
+
+        // Tile of 3-channel 64F image should fit into 256 KB with result: 72 * 72 * 3 * 8 * 2 = 248 832 bytes.
+        final Size tileSize = Parallel.getTileSize(new Image(1000, 1000, 3, Image.TYPE_64F), ParallelConfig.DEFAULT);
+        assertEquals(72, tileSize.getWidth());
+        assertEquals(72, tileSize.getHeight());
+
+        // Tile should not be bigger than image.
+        final Size smallTileSize = Parallel.getTileSize(new Image(30, 20, 1, Image.TYPE_8I), ParallelConfig.DEFAULT);
+        assertEquals(30, smallTileSize.getWidth());
+        assertEquals(20, smallTileSize.getHeight());
+    }
+
+    private double sum(final Image image, final ParallelConfig config) {
+        return Parallel.reduce(image, new ReduceLoop<double[]>() {
+            @Override
+            public double[] createPartial() {
+                return new double[1];
+            }
+
+            @Override
+            public void execute(final double[] partial, final int from, final int to) {
+                for (int y = from; y < to; ++y) {
+                    for (int x = 0; x < image.getWidth(); ++x) {
+                        partial[0] += image.get(x, y, 0);
+                    }
+                }
+            }
+
+            @Override
+            public double[] combine(final double[] partial1, final double[] partial2) {
+                partial1[0] += partial2[0];
+
+                return partial1;
+            }
+        }, config)[0];
+    }
+
+    /**
+     * Test method for: {@link Parallel#reduce(Image, ReduceLoop, ParallelConfig)},
+     * {@link Parallel#reduce(int, ReduceLoop, ParallelConfig)}, {@link ParallelConfig#withDeterministic(boolean)}.
+     */
+    @Test
+    public void testReduce() {
+        final Image image = new Image(300, 700, 1, Image.TYPE_64F);
+        for (int x = 0; x < image.getWidth(); ++x) {
+            for (int y = 0; y < image.getHeight(); ++y) {
+                image.set(x, y, 0, ((x * 7 + y * 13) % 255) / 3.0);
+            }
+        }
+
+        double expected = 0.0;
+        for (int y = 0; y < image.getHeight(); ++y) {
+            for (int x = 0; x < image.getWidth(); ++x) {
+                expected += image.get(x, y, 0);
+            }
+        }
+
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100).withCostModel(null);
+        assertEquals(expected, this.sum(image, ParallelConfig.SERIAL), 0.0);
+        assertEquals(expected, this.sum(image, config), expected * 1e-12);
+
+        // Deterministic result not depends on number of workers.
+        final double deterministic = this.sum(image, ParallelConfig.SERIAL.withDeterministic(true));
+        assertEquals(expected, deterministic, expected * 1e-12);
+        for (int numOfWorkers = 2; numOfWorkers <= 7; ++numOfWorkers) {
+            assertEquals(deterministic, this.sum(image, config.withNumOfWorkers(numOfWorkers).withDeterministic(true)), 0.0);
+        }
+
+        // Partial results are combined in order of indexes.
+        final StringBuilder order = Parallel.reduce(1000, new ReduceLoop<StringBuilder>() {
+            @Override
+            public StringBuilder createPartial() {
+                return new StringBuilder();
+            }
+
+            @Override
+            public void execute(final StringBuilder partial, final int from, final int to) {
+                for (int i = from; i < to; ++i) {
+                    partial.append((char) ('a' + i % 26));
+                }
+            }
+
+            @Override
+            public StringBuilder combine(final StringBuilder partial1, final StringBuilder partial2) {
+                return partial1.append(partial2);
+            }
+        }, config.withMinSize(10));
+        assertEquals(1000, order.length());
+        for (int i = 0; i < order.length(); ++i) {
+            assertEquals('a' + i % 26, order.charAt(i));
+        }
+
+        // Empty loop.
+        assertEquals(0.0, this.sum(new Image(300, 700, 1, Image.TYPE_64F), config.withDeterministic(true)), 0.0);
+    }
+
+    /**
+     * Test method for: {@link ParallelConfig#openScope()}.
+     */
+    @Test
+    public void testScope() {
+        final ParallelConfig config = ParallelConfig.DEFAULT.withNumOfWorkers(3).withMinSize(10);
+
+        // Settings by default do not share mutable model of cost.
+        assertNull(ParallelConfig.DEFAULT.getCostModel());
+        assertNull(config.getCostModel());
+
+        assertSame(ParallelConfig.DEFAULT, ParallelConfig.getCurrent());
+        try (ParallelConfig.Scope scope = config.openScope()) {
+            assertSame(config, scope.getConfig());
+            assertSame(config, ParallelConfig.getCurrent());
+
+            try (ParallelConfig.Scope serial = ParallelConfig.SERIAL.openScope()) {
+                assertSame(ParallelConfig.SERIAL, serial.getConfig());
+                assertSame(ParallelConfig.SERIAL, ParallelConfig.getCurrent());
+
+                // All pixels are processed by current thread.
+                final Thread current = Thread.currentThread();
+                Parallel.pixels(new Image(300, 200, 1, Image.TYPE_8I), new PixelsLoop() {
+                    @Override
+                    public void execute(final int x, final int y) {
+                        assertSame(current, Thread.currentThread());
+                    }
+                });
+            }
+            assertSame(config, ParallelConfig.getCurrent());
+
+            // Nested loops of workers use settings of loop.
+            final Set<ParallelConfig> configs = Collections.synchronizedSet(Collections
+                .newSetFromMap(new IdentityHashMap<ParallelConfig, Boolean>()));
+            Parallel.pixels(new Image(300, 200, 1, Image.TYPE_8I), new PixelsLoop() {
+                @Override
+                public void execute(final int x, final int y) {
+                    configs.add(ParallelConfig.getCurrent());
+                }
+            });
+            assertEquals(1, configs.size());
+            assertTrue(configs.contains(config));
+        }
+        assertSame(ParallelConfig.DEFAULT, ParallelConfig.getCurrent());
+
+        // Scope of other thread is not visible.
+        final ParallelConfig.Scope scope = config.openScope();
+        final ParallelConfig[] other = new ParallelConfig[1];
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                other[0] = ParallelConfig.getCurrent();
+            }
+        };
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            fail(e.getMessage());
+        }
+        scope.close();
+        assertSame(ParallelConfig.DEFAULT, other[0]);
+
+        // Scope that is closed in wrong order stays open.
+        final ParallelConfig.Scope outer = config.openScope();
+        final ParallelConfig.Scope inner = ParallelConfig.SERIAL.openScope();
+        try {
+            outer.close();
+            fail("Not thrown IllegalStateException!");
+        } catch (IllegalStateException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertSame(ParallelConfig.SERIAL, ParallelConfig.getCurrent());
+        inner.close();
+        outer.close();
+        assertSame(ParallelConfig.DEFAULT, ParallelConfig.getCurrent());
+    }
+
+    /**
+     * Test method for: {@link CancellationToken}, {@link ParallelConfig#withCancellationToken(CancellationToken)}.
+     */
+    @Test
+    public void testCancellation() {
+        final Image image = new Image(300, 200, 1, Image.TYPE_8I);
+
+        // Loop stops after current row.
+        final CancellationToken token = new CancellationToken();
+        final AtomicInteger counter = new AtomicInteger(0);
+        try {
+            Parallel.rows(image, new RowLoop() {
+                @Override
+                public void execute(final int y, final int xStart, final int xEnd) {
+                    if (counter.incrementAndGet() == 10) {
+                        token.cancel();
+                    }
+                }
+            }, ParallelConfig.SERIAL.withCancellationToken(token));
+            fail("Not thrown CancellationException!");
+        } catch (CancellationException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertEquals(10, counter.get());
+
+        // Workers stop too.
+        counter.set(0);
+        try {
+            Parallel.rows(image, new RowLoop() {
+                @Override
+                public void execute(final int y, final int xStart, final int xEnd) {
+                    counter.incrementAndGet();
+                }
+            }, ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100).withCancellationToken(token));
+            fail("Not thrown CancellationException!");
+        } catch (CancellationException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertEquals(0, counter.get());
+
+        // Reduction stops after current block, not at end of range of worker.
+        final CancellationToken reduceToken = new CancellationToken();
+        counter.set(0);
+        try {
+            Parallel.reduce(3 * Parallel.REDUCE_BLOCK_SIZE, new ReduceLoop<Integer>() {
+                @Override
+                public Integer createPartial() {
+                    return 0;
+                }
+
+                @Override
+                public void execute(final Integer partial, final int from, final int to) {
+                    counter.addAndGet(to - from);
+                    reduceToken.cancel();
+                }
+
+                @Override
+                public Integer combine(final Integer partial1, final Integer partial2) {
+                    return partial1 + partial2;
+                }
+            }, ParallelConfig.SERIAL.withCancellationToken(reduceToken));
+            fail("Not thrown CancellationException!");
+        } catch (CancellationException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertEquals(Parallel.REDUCE_BLOCK_SIZE, counter.get());
+
+        // Deadline.
+        final CancellationToken deadline = CancellationToken.withTimeout(0, TimeUnit.MILLISECONDS);
+        assertTrue(deadline.isCancelled());
+        assertFalse(CancellationToken.withTimeout(1, TimeUnit.HOURS).isCancelled());
+
+        // Interruption of thread.
+        final CancellationToken interrupt = CancellationToken.ofCurrentThread();
+        assertFalse(interrupt.isCancelled());
+        Thread.currentThread().interrupt();
+        assertTrue(interrupt.isCancelled());
+        assertTrue(Thread.interrupted());
+        assertFalse(interrupt.isCancelled());
+
+        // Temporary images of filter are returned into pool.
+        final ImagePool pool = new ImagePool();
+        final ImagePool.Scope scope = pool.openScope();
+        try {
+            try (ParallelConfig.Scope config = ParallelConfig.getCurrent().withCancellationToken(deadline).openScope()) {
+                assertSame(deadline, config.getConfig().getCancellationToken());
+                Filters.morphology(image, new Size(3, 3), Filters.MORPHOLOGY_DILATE, 2);
+                fail("Not thrown CancellationException!");
+            } catch (CancellationException e) {
+                System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+            }
+            assertEquals(1, pool.getNumOfFree());
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Test method for: {@link ParallelConfig}, {@link Parallel}.
+     */
+    @Test
+    public void testException() {
+        try {
+            ParallelConfig.DEFAULT.withNumOfWorkers(0);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        try {
+            ParallelConfig.DEFAULT.withMinSize(-1);
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        try {
+            Parallel.reduce(-1, new ReduceLoop<Object>() {
+                @Override
+                public Object createPartial() {
+                    return null;
+                }
+
+                @Override
+                public void execute(final Object partial, final int from, final int to) {
+                    // Do nothing.
+                }
+
+                @Override
+                public Object combine(final Object partial1, final Object partial2) {
+                    return null;
+                }
+            });
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+
+        // Exception from worker.
+        try {
+            Parallel.pixels(new Image(300, 200, 1, Image.TYPE_8I), new PixelsLoop() {
+                @Override
+                public void execute(final int x, final int y) {
+                    if (x == 150 && y == 150) {
+                        throw new IllegalArgumentException("Wrong pixel!");
+                    }
+                }
+            }, ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+    }
+
+    /**
+     * Test method for: {@link Parallel#afterRunningLoops(Runnable)}.
+     */
+    @Test
+    public void testAfterRunningLoops() {
+        final AtomicInteger executed = new AtomicInteger(0);
+        final Runnable action = new Runnable() {
+            @Override
+            public void run() {
+                executed.incrementAndGet();
+            }
+        };
+
+        // Without running loops action is executed immediately.
+        Parallel.afterRunningLoops(action);
+        assertEquals(1, executed.get());
+
+        // Action given by worker is executed after loop, even if loop is failed.
+        final AtomicInteger inLoop = new AtomicInteger(-1);
+        try {
+            Parallel.rows(new Image(300, 200, 1, Image.TYPE_8I), new RowLoop() {
+                @Override
+                public void execute(final int y, final int xStart, final int xEnd) {
+                    if (y == 100) {
+                        Parallel.afterRunningLoops(action);
+                        inLoop.set(executed.get());
+                        throw new IllegalArgumentException("Wrong row!");
+                    }
+                }
+            }, ParallelConfig.DEFAULT.withNumOfWorkers(4).withMinSize(100));
+            fail("Not thrown IllegalArgumentException!");
+        } catch (IllegalArgumentException e) {
+            System.out.println("Exception message example:\n" + e.getMessage() + "\n");
+        }
+        assertEquals(1, inLoop.get());
+        assertEquals(2, executed.get());
+    }
+}
@@ -21,9 +21,9 @@ package org.jcvlib.video;
 import org.jcvlib.core.JCV;
 import org.jcvlib.core.Color;
 import org.jcvlib.core.Image;
-import org.jcvlib.image.Misc;
+import org.jcvlib.parallel.NamedRowLoopFactory;
 import org.jcvlib.parallel.Parallel;
-import org.jcvlib.parallel.PixelsLoop;
+import org.jcvlib.parallel.RowLoop;
 
 /**
  * This class contains methods for <A href="http://en.wikipedia.org/wiki/Motion_analysis">Motion analysis</A> and
@@ -48,6 +48,7 @@ public class VideoAnalysis {
          * Verify parameters.
          */
         JCV.verifyIsSameSize(history, "history", mask, "mask");
+        JCV.verifyIsSameChannels(history, "history", mask, "mask");
 
         if (outOfDate < Color.COLOR_MIN_VALUE || outOfDate > Color.COLOR_MAX_VALUE) {
             throw new IllegalArgumentException("Parameter 'outOfDate' have incorrect value! Use values from diapasone [0.0, 255.0]!");
@@ -56,18 +57,29 @@ public class VideoAnalysis {
         /*
          * Perform operation.
          */
-        // Out of date current values.
-        final Image proxyHistory = history;
-        Parallel.pixels(proxyHistory, new PixelsLoop() {
+        // Out of date current values and add new image to history in place, without temporary images.
+        Parallel.rows(history, new NamedRowLoopFactory(VideoAnalysis.class.getName() + ":updateHistoryImage") {
             @Override
-            public void execute(final int x, final int y) {
-                for (int channel = 0; channel < proxyHistory.getNumOfChannels(); ++channel) {
-                    proxyHistory.set(x, y, channel, proxyHistory.get(x, y, channel) - outOfDate);
-                }
+            public RowLoop create() {
+                return new RowLoop() {
+                    private final double[] values = new double[history.getWidth() * history.getNumOfChannels()];
+
+                    private final double[] maskValues = new double[history.getWidth() * history.getNumOfChannels()];
+
+                    @Override
+                    public void execute(final int y, final int xStart, final int xEnd) {
+                        final int length = xEnd - xStart;
+                        history.getSpan(xStart, y, length, this.values, 0);
+                        mask.getSpan(xStart, y, length, this.maskValues, 0);
+
+                        for (int i = 0; i < length * history.getNumOfChannels(); ++i) {
+                            this.values[i] = Math.max(this.values[i] - outOfDate, Color.COLOR_MIN_VALUE) + this.maskValues[i];
+                        }
+
+                        history.setSpan(xStart, y, length, this.values, 0);
+                    }
+                };
             }
         });
-
-        // Add new image to history.
-        Misc.sum(history, mask).copyTo(history);
     }
 }